@@ -0,0 +1,660 @@
+package bdd;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A small pure-Java package for Reduced Ordered Binary Decision Diagrams (BDDs).
+ * A BDD is referred to by the index (int) of its root node in the node table of the manager;
+ * FALSE (0) and TRUE (1) are the terminal nodes. The variables are ordered by their index, i.e., variable 0 is at the top.
+ * Nodes are hash-consed through a unique table, so that two BDDs represent the same function iff they have the same index;
+ * the results of the recursive operations are memoized in a (lossy) computed cache.
+ * The manager is meant to stay resident for a model, so that BDDs built once (e.g., the transition relation) are reused by all later queries.
+ * BDDs that must survive are protected by ref(); the nodes that are not reachable from a referenced BDD are freed by collectGarbage(),
+ * which must only be called between operations (e.g., between two queries), never while a result is held only in a local variable.
+ * Note: This implementation is not thread-safe.
+ * @author gsanthan
+ *
+ */
+public class BDDManager {
+
+	public static final int FALSE = 0;
+	public static final int TRUE = 1;
+
+	private static final int OP_AND = 0;
+	private static final int OP_OR = 1;
+	private static final int OP_NOT = 2;
+	private static final int OP_ITE = 3;
+	private static final int OP_EXISTS = 4;
+	private static final int OP_RELPROD = 5;
+	private static final int OP_REPLACE = 6;
+
+	/**
+	 * Number of variables; the terminal nodes are placed at level numVariables
+	 */
+	int numVariables;
+
+	/**
+	 * Node table: variable, low (else) child and high (then) child of each node (variable -1 for a freed node)
+	 */
+	int[] var;
+	int[] low;
+	int[] high;
+	/**
+	 * Number of external references to each node
+	 */
+	int[] refCount;
+	/**
+	 * Number of slots of the node table in use or freed, number of nodes in use, and the first freed slot (chained through next)
+	 */
+	int nodeCount;
+	int liveNodes;
+	int freeList = -1;
+	/**
+	 * Number of nodes in use after the latest garbage collection
+	 */
+	int liveNodesAfterCollection;
+
+	/**
+	 * Unique table: hash buckets and the chain of nodes in each bucket
+	 */
+	int[] buckets;
+	int[] next;
+
+	/**
+	 * Computed cache: operation, operands and result of the memoized operations (direct mapped)
+	 */
+	int[] cacheOp;
+	int[] cacheA;
+	int[] cacheB;
+	int[] cacheC;
+	int[] cacheResult;
+
+	/**
+	 * Permutations registered for replace(); the index of the permutation identifies it in the computed cache
+	 */
+	int[][] permutations = new int[0][];
+
+	long cacheHits;
+	long cacheMisses;
+
+	/**
+	 * Creates a BDD manager for the given number of variables
+	 * @param numVariables
+	 */
+	public BDDManager(int numVariables) {
+		this(numVariables, 1 << 16, 1 << 16);
+	}
+
+	/**
+	 * Creates a BDD manager for the given number of variables
+	 * @param numVariables
+	 * @param initialNodes Initial capacity of the node table (grows as needed)
+	 * @param cacheSize Number of entries of the computed cache (rounded up to a power of 2)
+	 */
+	public BDDManager(int numVariables, int initialNodes, int cacheSize) {
+		this.numVariables = numVariables;
+		//The unique table is indexed by masking the hash, so its size must be a power of 2
+		initialNodes = Integer.highestOneBit(Math.max(initialNodes, 16) - 1) << 1;
+		var = new int[initialNodes];
+		low = new int[initialNodes];
+		high = new int[initialNodes];
+		refCount = new int[initialNodes];
+		next = new int[initialNodes];
+		buckets = new int[initialNodes];
+		Arrays.fill(buckets, -1);
+
+		int size = 1;
+		while(size < cacheSize) {
+			size <<= 1;
+		}
+		cacheOp = new int[size];
+		cacheA = new int[size];
+		cacheB = new int[size];
+		cacheC = new int[size];
+		cacheResult = new int[size];
+		Arrays.fill(cacheOp, -1);
+
+		//Terminal nodes
+		var[FALSE] = numVariables;
+		low[FALSE] = FALSE;
+		high[FALSE] = FALSE;
+		var[TRUE] = numVariables;
+		low[TRUE] = TRUE;
+		high[TRUE] = TRUE;
+		nodeCount = 2;
+		liveNodes = 2;
+		liveNodesAfterCollection = 2;
+	}
+
+	public int getNumVariables() {
+		return numVariables;
+	}
+
+	/**
+	 * Returns the number of nodes in use (including the terminal nodes)
+	 * @return Number of nodes
+	 */
+	public int getNodeCount() {
+		return liveNodes;
+	}
+
+	public long getCacheHits() {
+		return cacheHits;
+	}
+
+	public long getCacheMisses() {
+		return cacheMisses;
+	}
+
+	public int var(int f) {
+		return var[f];
+	}
+
+	public int low(int f) {
+		return low[f];
+	}
+
+	public int high(int f) {
+		return high[f];
+	}
+
+	/**
+	 * Returns the BDD for the variable v
+	 * @param v
+	 * @return BDD v
+	 */
+	public int ithVar(int v) {
+		checkVariable(v);
+		return mk(v, FALSE, TRUE);
+	}
+
+	/**
+	 * Returns the BDD for the negation of the variable v
+	 * @param v
+	 * @return BDD !v
+	 */
+	public int nithVar(int v) {
+		checkVariable(v);
+		return mk(v, TRUE, FALSE);
+	}
+
+	private void checkVariable(int v) {
+		if(v < 0 || v >= numVariables) {
+			throw new RuntimeException("BDD variable "+v+" out of range 0.."+(numVariables-1));
+		}
+	}
+
+	/**
+	 * Returns the (unique) node with the given variable and children
+	 */
+	private int mk(int v, int l, int h) {
+		if(l == h) {
+			return l;
+		}
+		int bucket = hash(v, l, h) & (buckets.length - 1);
+		for(int n = buckets[bucket]; n != -1; n = next[n]) {
+			if(var[n] == v && low[n] == l && high[n] == h) {
+				return n;
+			}
+		}
+		int n;
+		if(freeList != -1) {
+			n = freeList;
+			freeList = next[n];
+		} else {
+			if(nodeCount == var.length) {
+				grow();
+				bucket = hash(v, l, h) & (buckets.length - 1);
+			}
+			n = nodeCount++;
+		}
+		liveNodes++;
+		var[n] = v;
+		low[n] = l;
+		high[n] = h;
+		next[n] = buckets[bucket];
+		buckets[bucket] = n;
+		return n;
+	}
+
+	/**
+	 * Doubles the node table and rehashes the unique table
+	 */
+	private void grow() {
+		int size = var.length * 2;
+		var = Arrays.copyOf(var, size);
+		low = Arrays.copyOf(low, size);
+		high = Arrays.copyOf(high, size);
+		refCount = Arrays.copyOf(refCount, size);
+		next = new int[size];
+		buckets = new int[size];
+		Arrays.fill(buckets, -1);
+		//The table is only grown when there are no freed slots, so all the nodes are in use
+		for (int n = 2; n < nodeCount; n++) {
+			int bucket = hash(var[n], low[n], high[n]) & (buckets.length - 1);
+			next[n] = buckets[bucket];
+			buckets[bucket] = n;
+		}
+	}
+
+	/**
+	 * Protects the BDD f (and all its nodes) from garbage collection
+	 * @param f
+	 * @return f
+	 */
+	public int ref(int f) {
+		refCount[f]++;
+		return f;
+	}
+
+	/**
+	 * Releases a reference obtained by ref(); the BDD may be freed by the next garbage collection
+	 * @param f
+	 */
+	public void deref(int f) {
+		if(refCount[f] > 0) {
+			refCount[f]--;
+		}
+	}
+
+	/**
+	 * Frees all nodes that are not reachable from a referenced BDD, and clears the computed cache.
+	 * Must only be called between operations: unreferenced results of earlier operations become invalid.
+	 */
+	public void collectGarbage() {
+		boolean[] marked = new boolean[nodeCount];
+		marked[FALSE] = true;
+		marked[TRUE] = true;
+		int[] stack = new int[nodeCount];
+		for (int n = 2; n < nodeCount; n++) {
+			if(refCount[n] > 0 && !marked[n]) {
+				int top = 0;
+				stack[top++] = n;
+				marked[n] = true;
+				while(top > 0) {
+					int m = stack[--top];
+					if(!marked[low[m]]) {
+						marked[low[m]] = true;
+						stack[top++] = low[m];
+					}
+					if(!marked[high[m]]) {
+						marked[high[m]] = true;
+						stack[top++] = high[m];
+					}
+				}
+			}
+		}
+		Arrays.fill(buckets, -1);
+		freeList = -1;
+		liveNodes = 2;
+		for (int n = nodeCount - 1; n >= 2; n--) {
+			if(marked[n]) {
+				int bucket = hash(var[n], low[n], high[n]) & (buckets.length - 1);
+				next[n] = buckets[bucket];
+				buckets[bucket] = n;
+				liveNodes++;
+			} else {
+				var[n] = -1;
+				next[n] = freeList;
+				freeList = n;
+			}
+		}
+		Arrays.fill(cacheOp, -1);
+		liveNodesAfterCollection = liveNodes;
+	}
+
+	/**
+	 * Collects garbage if the number of nodes in use has at least doubled (and exceeds the given minimum) since the latest collection.
+	 * Must only be called between operations, as collectGarbage().
+	 * @param minimumNodes Number of nodes in use below which no collection takes place
+	 * @return true if garbage was collected
+	 */
+	public boolean collectGarbageIfNeeded(int minimumNodes) {
+		if(liveNodes >= minimumNodes && liveNodes >= 2 * liveNodesAfterCollection) {
+			collectGarbage();
+			return true;
+		}
+		return false;
+	}
+
+	private static int hash(int a, int b, int c) {
+		int h = a * 0x9E3779B1 + b * 0x85EBCA77 + c * 0xC2B2AE3D;
+		return h ^ (h >>> 15);
+	}
+
+	private int cacheLookup(int op, int a, int b, int c) {
+		int slot = (hash(a, b, c) + op * 0x27D4EB2F) & (cacheOp.length - 1);
+		if(cacheOp[slot] == op && cacheA[slot] == a && cacheB[slot] == b && cacheC[slot] == c) {
+			cacheHits++;
+			return cacheResult[slot];
+		}
+		cacheMisses++;
+		return -1;
+	}
+
+	private int cacheInsert(int op, int a, int b, int c, int result) {
+		int slot = (hash(a, b, c) + op * 0x27D4EB2F) & (cacheOp.length - 1);
+		cacheOp[slot] = op;
+		cacheA[slot] = a;
+		cacheB[slot] = b;
+		cacheC[slot] = c;
+		cacheResult[slot] = result;
+		return result;
+	}
+
+	/**
+	 * Negation
+	 * @param f
+	 * @return BDD !f
+	 */
+	public int not(int f) {
+		if(f == FALSE) {
+			return TRUE;
+		} else if(f == TRUE) {
+			return FALSE;
+		}
+		int result = cacheLookup(OP_NOT, f, 0, 0);
+		if(result != -1) {
+			return result;
+		}
+		result = mk(var[f], not(low[f]), not(high[f]));
+		return cacheInsert(OP_NOT, f, 0, 0, result);
+	}
+
+	/**
+	 * Conjunction
+	 * @param f
+	 * @param g
+	 * @return BDD f & g
+	 */
+	public int and(int f, int g) {
+		if(f == FALSE || g == FALSE) {
+			return FALSE;
+		} else if(f == TRUE || f == g) {
+			return g;
+		} else if(g == TRUE) {
+			return f;
+		}
+		if(f > g) {
+			int t = f; f = g; g = t;
+		}
+		int result = cacheLookup(OP_AND, f, g, 0);
+		if(result != -1) {
+			return result;
+		}
+		int v = Math.min(var[f], var[g]);
+		int l = and(var[f] == v ? low[f] : f, var[g] == v ? low[g] : g);
+		int h = and(var[f] == v ? high[f] : f, var[g] == v ? high[g] : g);
+		return cacheInsert(OP_AND, f, g, 0, mk(v, l, h));
+	}
+
+	/**
+	 * Disjunction
+	 * @param f
+	 * @param g
+	 * @return BDD f | g
+	 */
+	public int or(int f, int g) {
+		if(f == TRUE || g == TRUE) {
+			return TRUE;
+		} else if(f == FALSE || f == g) {
+			return g;
+		} else if(g == FALSE) {
+			return f;
+		}
+		if(f > g) {
+			int t = f; f = g; g = t;
+		}
+		int result = cacheLookup(OP_OR, f, g, 0);
+		if(result != -1) {
+			return result;
+		}
+		int v = Math.min(var[f], var[g]);
+		int l = or(var[f] == v ? low[f] : f, var[g] == v ? low[g] : g);
+		int h = or(var[f] == v ? high[f] : f, var[g] == v ? high[g] : g);
+		return cacheInsert(OP_OR, f, g, 0, mk(v, l, h));
+	}
+
+	/**
+	 * Difference
+	 * @param f
+	 * @param g
+	 * @return BDD f & !g
+	 */
+	public int diff(int f, int g) {
+		return and(f, not(g));
+	}
+
+	/**
+	 * Equivalence
+	 * @param f
+	 * @param g
+	 * @return BDD f <-> g
+	 */
+	public int biimp(int f, int g) {
+		return ite(f, g, not(g));
+	}
+
+	/**
+	 * If-then-else
+	 * @param f
+	 * @param g
+	 * @param h
+	 * @return BDD (f & g) | (!f & h)
+	 */
+	public int ite(int f, int g, int h) {
+		if(f == TRUE) {
+			return g;
+		} else if(f == FALSE) {
+			return h;
+		} else if(g == h) {
+			return g;
+		} else if(g == TRUE && h == FALSE) {
+			return f;
+		} else if(g == FALSE && h == TRUE) {
+			return not(f);
+		}
+		int result = cacheLookup(OP_ITE, f, g, h);
+		if(result != -1) {
+			return result;
+		}
+		int v = Math.min(var[f], Math.min(var[g], var[h]));
+		int l = ite(var[f] == v ? low[f] : f, var[g] == v ? low[g] : g, var[h] == v ? low[h] : h);
+		int hi = ite(var[f] == v ? high[f] : f, var[g] == v ? high[g] : g, var[h] == v ? high[h] : h);
+		return cacheInsert(OP_ITE, f, g, h, mk(v, l, hi));
+	}
+
+	/**
+	 * Returns the conjunction of the (positive) variables, to be used as the set of quantified variables in exists() and relProd()
+	 * @param variables
+	 * @return BDD cube of the variables
+	 */
+	public int cube(int[] variables) {
+		int result = TRUE;
+		for (int v : variables) {
+			result = and(result, ithVar(v));
+		}
+		return result;
+	}
+
+	/**
+	 * Existential quantification
+	 * @param f
+	 * @param cube Conjunction of the quantified variables
+	 * @return BDD exists cube. f
+	 */
+	public int exists(int f, int cube) {
+		if(f == FALSE || f == TRUE || cube == TRUE) {
+			return f;
+		}
+		//Skip the quantified variables above the top variable of f
+		while(cube != TRUE && var[cube] < var[f]) {
+			cube = high[cube];
+		}
+		if(cube == TRUE) {
+			return f;
+		}
+		int result = cacheLookup(OP_EXISTS, f, cube, 0);
+		if(result != -1) {
+			return result;
+		}
+		if(var[f] == var[cube]) {
+			int l = exists(low[f], high[cube]);
+			if(l == TRUE) {
+				result = TRUE;
+			} else {
+				result = or(l, exists(high[f], high[cube]));
+			}
+		} else {
+			result = mk(var[f], exists(low[f], cube), exists(high[f], cube));
+		}
+		return cacheInsert(OP_EXISTS, f, cube, 0, result);
+	}
+
+	/**
+	 * Relational product: conjunction and existential quantification in a single pass,
+	 * without building the (possibly large) intermediate conjunction
+	 * @param f
+	 * @param g
+	 * @param cube Conjunction of the quantified variables
+	 * @return BDD exists cube. (f & g)
+	 */
+	public int relProd(int f, int g, int cube) {
+		if(f == FALSE || g == FALSE) {
+			return FALSE;
+		} else if(f == TRUE && g == TRUE) {
+			return TRUE;
+		} else if(f == TRUE) {
+			return exists(g, cube);
+		} else if(g == TRUE || f == g) {
+			return exists(f, cube);
+		}
+		if(f > g) {
+			int t = f; f = g; g = t;
+		}
+		int v = Math.min(var[f], var[g]);
+		while(cube != TRUE && var[cube] < v) {
+			cube = high[cube];
+		}
+		if(cube == TRUE) {
+			return and(f, g);
+		}
+		int result = cacheLookup(OP_RELPROD, f, g, cube);
+		if(result != -1) {
+			return result;
+		}
+		int f0 = var[f] == v ? low[f] : f;
+		int f1 = var[f] == v ? high[f] : f;
+		int g0 = var[g] == v ? low[g] : g;
+		int g1 = var[g] == v ? high[g] : g;
+		if(var[cube] == v) {
+			int l = relProd(f0, g0, high[cube]);
+			if(l == TRUE) {
+				result = TRUE;
+			} else {
+				result = or(l, relProd(f1, g1, high[cube]));
+			}
+		} else {
+			result = mk(v, relProd(f0, g0, cube), relProd(f1, g1, cube));
+		}
+		return cacheInsert(OP_RELPROD, f, g, cube, result);
+	}
+
+	/**
+	 * Registers a renaming of variables to be used with replace()
+	 * @param permutation permutation[v] is the variable by which v is replaced
+	 * @return Identifier of the renaming
+	 */
+	public int addPermutation(int[] permutation) {
+		if(permutation.length != numVariables) {
+			throw new RuntimeException("Permutation must be defined for all "+numVariables+" BDD variables");
+		}
+		permutations = Arrays.copyOf(permutations, permutations.length + 1);
+		permutations[permutations.length - 1] = permutation.clone();
+		return permutations.length - 1;
+	}
+
+	/**
+	 * Renames the variables of f according to a registered renaming
+	 * @param f
+	 * @param permutationId Identifier returned by addPermutation()
+	 * @return BDD f with every variable v replaced by permutation[v]
+	 */
+	public int replace(int f, int permutationId) {
+		if(f == FALSE || f == TRUE) {
+			return f;
+		}
+		int result = cacheLookup(OP_REPLACE, f, permutationId, 0);
+		if(result != -1) {
+			return result;
+		}
+		int l = replace(low[f], permutationId);
+		int h = replace(high[f], permutationId);
+		result = ite(ithVar(permutations[permutationId][var[f]]), h, l);
+		return cacheInsert(OP_REPLACE, f, permutationId, 0, result);
+	}
+
+	/**
+	 * Finds a satisfying assignment of f
+	 * @param f
+	 * @param variables Variables whose valuation is returned
+	 * @return Valuation of the variables (variables not on the path found are valued false); null if f is unsatisfiable
+	 */
+	public boolean[] satOne(int f, int[] variables) {
+		if(f == FALSE) {
+			return null;
+		}
+		boolean[] assignment = new boolean[numVariables];
+		while(f != TRUE) {
+			if(low[f] != FALSE) {
+				f = low[f];
+			} else {
+				assignment[var[f]] = true;
+				f = high[f];
+			}
+		}
+		boolean[] valuation = new boolean[variables.length];
+		for (int i = 0; i < variables.length; i++) {
+			valuation[i] = assignment[variables[i]];
+		}
+		return valuation;
+	}
+
+	/**
+	 * Counts the satisfying assignments of f over the given variables (f must not depend on other variables)
+	 * @param f
+	 * @param variables
+	 * @return Number of satisfying assignments
+	 */
+	public double satCount(int f, int[] variables) {
+		boolean[] counted = new boolean[numVariables];
+		for (int v : variables) {
+			counted[v] = true;
+		}
+		return satCount(f, 0, counted, new HashMap<Integer, Double>());
+	}
+
+	private double satCount(int f, int level, boolean[] counted, Map<Integer, Double> memo) {
+		if(f == FALSE) {
+			return 0;
+		}
+		//Each counted variable skipped between level and the variable of f doubles the count
+		double factor = 1;
+		for (int v = level; v < var[f]; v++) {
+			if(counted[v]) {
+				factor *= 2;
+			}
+		}
+		if(f == TRUE) {
+			return factor;
+		}
+		Double count = memo.get(f);
+		if(count == null) {
+			count = satCount(low[f], var[f] + 1, counted, memo) + satCount(high[f], var[f] + 1, counted, memo);
+			memo.put(f, count);
+		}
+		return factor * count;
+	}
+}
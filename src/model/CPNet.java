@@ -0,0 +1,237 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The conditional preference tables (CPTs) and the dependency graph of an acyclic CP-net, recovered from the transitions of its SMV model.
+ * A model encodes a CP-net if every transition of a variable (other than the default transition that keeps its value) is a conjunction of literals
+ * that flips only that variable (its change variable is 1 and all other change variables are 0), i.e., there are no relative importance or CI-net statements;
+ * the other preference variables in the guards of a variable are its parents. The dependency graph must be acyclic.
+ * Rows missing from a CPT (valuations of the parents under which the variable cannot be flipped) are completed with an arbitrary preference.
+ * <p>
+ * For such a CP-net, outcomes can be ordered in time linear in the number of variables (Boutilier et al., "CP-nets", JAIR 2004):
+ * if the first variable, in a topological order of the dependency graph, on which two outcomes differ has its preferred value (given its parents,
+ * on which both outcomes agree) in the first outcome, then the second outcome cannot dominate the first one.
+ * This defines a total order of the outcomes that is consistent with dominance (see compare).
+ * Similarly, a forward sweep that assigns each variable, in topological order, its preferred value given its parents
+ * yields an outcome that no other outcome dominates, in time linear in the number of variables (see getOptimalCompletion);
+ * if the CPTs are complete, it is the unique optimal outcome.
+ * Note: Outcomes are encoded as bitsets, as in InducedPreferenceGraph; at most 64 variables are supported.
+ * @author gsanthan
+ *
+ */
+public class CPNet {
+
+	/**
+	 * Maximum number of parents of a variable for which the CPT is tabulated
+	 */
+	public static final int MAX_PARENTS = 20;
+
+	String[] variables;
+	/**
+	 * Bitset of the parents of each variable
+	 */
+	long[] parents;
+	/**
+	 * Indices of the parents of each variable, in increasing order
+	 */
+	int[][] parentIndices;
+	/**
+	 * Preferred value (0/1) of each variable for each valuation of its parents (bit k of the row is the value of parentIndices[i][k])
+	 */
+	byte[][] cpt;
+	/**
+	 * Variables in a topological order of the dependency graph (parents before children)
+	 */
+	int[] order;
+	/**
+	 * true if no row was missing from the CPTs
+	 */
+	boolean complete = true;
+
+	private CPNet(String[] variables) {
+		this.variables = variables;
+	}
+
+	/**
+	 * Recovers the CP-net encoded by the transitions of the induced preference graph
+	 * @param graph
+	 * @return CP-net; null if the model does not encode an acyclic CP-net
+	 */
+	public static CPNet fromGraph(InducedPreferenceGraph graph) {
+		int n = graph.variables.length;
+		CPNet net = new CPNet(graph.variables);
+		net.parents = new long[n];
+		net.parentIndices = new int[n][];
+		net.cpt = new byte[n][];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < graph.guards[i].length; j++) {
+				GuardExpression guard = graph.guards[i][j];
+				GuardExpression value = graph.values[i][j];
+				if(guard.getType() == GuardExpression.TYPE.CONSTANT && value.getType() == GuardExpression.TYPE.LITERAL && value.getIndex() == i) {
+					//Default transition: the variable keeps its value
+					continue;
+				}
+				long guardParents = getFlipParents(guard, i, n);
+				if(guardParents == -1L || value.getType() != GuardExpression.TYPE.CONSTANT) {
+					return null;
+				}
+				net.parents[i] |= guardParents;
+			}
+			if(Long.bitCount(net.parents[i]) > MAX_PARENTS) {
+				return null;
+			}
+			net.parentIndices[i] = DependencyGraph.toIndices(net.parents[i]);
+		}
+		net.order = DependencyGraph.sortTopologically(net.parents);
+		if(net.order == null) {
+			return null;
+		}
+		for (int i = 0; i < n; i++) {
+			int[] p = net.parentIndices[i];
+			net.cpt[i] = new byte[1 << p.length];
+			for (int row = 0; row < net.cpt[i].length; row++) {
+				long context = 0L;
+				for (int k = 0; k < p.length; k++) {
+					if(((row >>> k) & 1) == 1) {
+						context |= 1L << p[k];
+					}
+				}
+				long bit = 1L << i;
+				boolean improvesTo1 = (graph.next(context, bit) & bit) != 0;
+				boolean improvesTo0 = (graph.next(context | bit, bit) & bit) == 0;
+				if(improvesTo1 && improvesTo0) {
+					//Both values are preferred to each other: the model does not encode a CP-net
+					return null;
+				}
+				//If the CPT has no entry for this valuation of the parents, either value may be taken as preferred: 
+				//the order of the completed CP-net (which has more improving flips) is consistent with dominance in this CP-net as well
+				net.complete = net.complete && (improvesTo1 || improvesTo0);
+				net.cpt[i][row] = (byte) (improvesTo0 ? 0 : 1);
+			}
+		}
+		return net;
+	}
+
+	/**
+	 * Returns the parents (preference variables other than variable) in a guard that flips only the variable;
+	 * -1 if the guard is not a conjunction of literals or may flip other variables too
+	 */
+	private static long getFlipParents(GuardExpression guard, int variable, int n) {
+		List<GuardExpression> literals = new ArrayList<GuardExpression>();
+		if(guard.getType() == GuardExpression.TYPE.LITERAL) {
+			literals.add(guard);
+		} else if(guard.getType() == GuardExpression.TYPE.AND) {
+			literals.addAll(guard.getOperands());
+		} else {
+			return -1L;
+		}
+		long parents = 0L;
+		long changeVariablesOff = 0L;
+		boolean changeVariableOn = false;
+		for (GuardExpression literal : literals) {
+			if(literal.getType() != GuardExpression.TYPE.LITERAL) {
+				return -1L;
+			}
+			int index = literal.getIndex();
+			if(index < n) {
+				if(index != variable) {
+					parents |= 1L << index;
+				}
+			} else if(index - n == variable) {
+				changeVariableOn = changeVariableOn || literal.getValue() == 1;
+			} else if(literal.getValue() == 0) {
+				changeVariablesOff |= 1L << (index - n);
+			}
+		}
+		long others = (n == 64 ? -1L : (1L << n) - 1) & ~(1L << variable);
+		if(!changeVariableOn || changeVariablesOff != others) {
+			return -1L;
+		}
+		return parents;
+	}
+
+	/**
+	 * Returns the preferred value of the variable given the values of its parents in the outcome
+	 * @param variable Index of the variable
+	 * @param outcome Encoded outcome
+	 * @return 0 or 1
+	 */
+	public int getPreferredValue(int variable, long outcome) {
+		int[] p = parentIndices[variable];
+		int row = 0;
+		for (int k = 0; k < p.length; k++) {
+			row |= (int) ((outcome >>> p[k]) & 1L) << k;
+		}
+		return cpt[variable][row];
+	}
+
+	/**
+	 * Compares two outcomes in the total order defined by the CP-net (see class comment):
+	 * negative if first comes before (is ranked above) second, positive if second comes before first, and 0 if they are the same outcome.
+	 * If first dominates second, first comes before second; hence if first comes before second, second does not dominate first.
+	 * @param first Encoded outcome
+	 * @param second Encoded outcome
+	 * @return Result of comparison
+	 */
+	public int compare(long first, long second) {
+		long differ = first ^ second;
+		if(differ == 0) {
+			return 0;
+		}
+		for (int variable : order) {
+			if(((differ >>> variable) & 1L) != 0) {
+				int preferred = getPreferredValue(variable, first);
+				return ((first >>> variable) & 1L) == preferred ? -1 : 1;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Forward sweep: extends the partial assignment by assigning each unassigned variable, in topological order, its preferred value given its parents.
+	 * No outcome that extends the partial assignment dominates the returned outcome; if the CPTs are complete, it is the unique optimal such outcome
+	 * (Boutilier et al., "CP-nets", JAIR 2004). The outcome that no other outcome dominates is the completion of the empty assignment.
+	 * @param assigned Bitset of the assigned variables
+	 * @param values Encoded values of the assigned variables (bits of other variables are ignored)
+	 * @return Encoded outcome
+	 */
+	public long getOptimalCompletion(long assigned, long values) {
+		long outcome = values & assigned;
+		for (int variable : order) {
+			long bit = 1L << variable;
+			if((assigned & bit) == 0 && getPreferredValue(variable, outcome) == 1) {
+				outcome |= bit;
+			}
+		}
+		return outcome;
+	}
+
+	/**
+	 * Returns true if the CPTs have a preferred value for every valuation of the parents of each variable
+	 * (then every outcome other than the optimal one can be improved by flipping a variable)
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+	public String[] getVariables() {
+		return variables;
+	}
+
+	/**
+	 * Returns the parents of the variable as a bitset
+	 * @param variable Index of the variable
+	 */
+	public long getParents(int variable) {
+		return parents[variable];
+	}
+
+	/**
+	 * Returns the variables in a topological order of the dependency graph (parents before children)
+	 */
+	public int[] getTopologicalOrder() {
+		return order.clone();
+	}
+}
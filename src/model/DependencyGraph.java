@@ -0,0 +1,101 @@
+package model;
+
+/**
+ * Structural analysis of the dependency graph of the preference variables of an SMV model (see InducedPreferenceGraph):
+ * a variable depends on the preference variables that appear in the guards of its transitions
+ * (for CP-nets its parents; for TCP-nets also the variables more important than it, whose flips allow it to change).
+ * <p>
+ * If the dependency graph is acyclic, and given each valuation of the variables it depends on, every variable can be flipped in one direction only
+ * (for any valuation of the change variables), then every flip improves the outcomes in the lexicographic order
+ * that ranks the variables topologically and the values of each variable by the direction of its flips.
+ * Hence the induced preference graph is cycle-free, i.e., the preference specification is consistent
+ * (this generalizes the consistency of acyclic CP-nets, and of TCP-nets whose conditional importance graph is acyclic).
+ * The check takes time linear in the size of the CPTs, without exploring the induced preference graph.
+ * Note: The check is sufficient but not necessary; if it fails, consistency has to be decided by searching for a cycle.
+ * @author gsanthan
+ *
+ */
+public class DependencyGraph {
+
+	/**
+	 * Maximum number of variables a variable may depend on for its transitions to be checked (the check enumerates their valuations)
+	 */
+	public static final int MAX_DEPENDENCIES = 20;
+
+	/**
+	 * Checks whether the consistency of the preference specification follows from the structure of its dependency graph (see class comment)
+	 * @param graph Induced preference graph of the SMV model
+	 * @return true if the preference specification is consistent; false if the structure does not decide consistency
+	 */
+	public static boolean isConsistentByStructure(InducedPreferenceGraph graph) {
+		int n = graph.getVariables().length;
+		long[] dependencies = new long[n];
+		for (int i = 0; i < n; i++) {
+			dependencies[i] = graph.getDependencies(i);
+			if(Long.bitCount(dependencies[i]) > MAX_DEPENDENCIES) {
+				return false;
+			}
+		}
+		if(sortTopologically(dependencies) == null) {
+			return false;
+		}
+		for (int i = 0; i < n; i++) {
+			int[] indices = toIndices(dependencies[i]);
+			long bit = 1L << i;
+			for (int row = 0; row < (1 << indices.length); row++) {
+				long context = 0L;
+				for (int k = 0; k < indices.length; k++) {
+					if(((row >>> k) & 1) == 1) {
+						context |= 1L << indices[k];
+					}
+				}
+				boolean flipsTo1 = (graph.getPossibleNextValues(i, context) & 2) != 0;
+				boolean flipsTo0 = (graph.getPossibleNextValues(i, context | bit) & 1) != 0;
+				if(flipsTo1 && flipsTo0) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Sorts the variables topologically (Kahn's algorithm)
+	 * @param dependencies Bitset of the variables each variable depends on
+	 * @return Variables in topological order (each after the variables it depends on); null if the dependency graph has a cycle
+	 */
+	public static int[] sortTopologically(long[] dependencies) {
+		int n = dependencies.length;
+		int[] result = new int[n];
+		long placed = 0L;
+		int count = 0;
+		while(count < n) {
+			int before = count;
+			for (int i = 0; i < n; i++) {
+				if(((placed >>> i) & 1L) == 0 && (dependencies[i] & ~placed) == 0) {
+					result[count++] = i;
+				}
+			}
+			for (int k = before; k < count; k++) {
+				placed |= 1L << result[k];
+			}
+			if(count == before) {
+				return null;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the indices of the bits set in the bitset, in increasing order
+	 * @param bits
+	 */
+	static int[] toIndices(long bits) {
+		int[] indices = new int[Long.bitCount(bits)];
+		int k = 0;
+		for (long rest = bits; rest != 0; rest &= rest - 1) {
+			indices[k++] = Long.numberOfTrailingZeros(rest);
+		}
+		return indices;
+	}
+}
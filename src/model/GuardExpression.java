@@ -0,0 +1,189 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores a boolean guard of a guarded transition (case branch) in an SMV model as an expression tree.
+ * The leaves of the tree are either constants (TRUE/FALSE, 1/0) or literals of the form var=value,
+ * where var is a preference variable, a change variable (ch + preference variable) or any other name declared in the model.
+ * Note: This implementation assumes that the preference variables and change variables are binary (0/1 valuation).
+ * @author gsanthan
+ *
+ */
+public class GuardExpression {
+
+	/**
+	 * Types of nodes in the expression tree
+	 */
+	public enum TYPE {CONSTANT, LITERAL, NOT, AND, OR};
+
+	/**
+	 * Result of evaluating an expression against a partial assignment of variables
+	 */
+	public static final int FALSE = 0;
+	public static final int TRUE = 1;
+	public static final int UNKNOWN = 2;
+
+	/**
+	 * Type of this node
+	 */
+	TYPE type;
+	/**
+	 * Value of a CONSTANT node, or the value that the variable must take for a LITERAL node to hold
+	 */
+	int value;
+	/**
+	 * Name of the variable of a LITERAL node
+	 */
+	String variable;
+	/**
+	 * Index of the variable of a LITERAL node; set when the expression is compiled against a list of variables
+	 */
+	int index = -1;
+	/**
+	 * Operands of NOT, AND and OR nodes
+	 */
+	List<GuardExpression> operands;
+
+	private GuardExpression(TYPE type) {
+		this.type = type;
+	}
+
+	public static GuardExpression constant(boolean value) {
+		GuardExpression e = new GuardExpression(TYPE.CONSTANT);
+		e.value = value?1:0;
+		return e;
+	}
+
+	public static GuardExpression literal(String variable, int value) {
+		GuardExpression e = new GuardExpression(TYPE.LITERAL);
+		e.variable = variable;
+		e.value = value;
+		return e;
+	}
+
+	public static GuardExpression not(GuardExpression operand) {
+		GuardExpression e = new GuardExpression(TYPE.NOT);
+		e.operands = new ArrayList<GuardExpression>();
+		e.operands.add(operand);
+		return e;
+	}
+
+	/**
+	 * Returns the conjunction of the operands; operands that are conjunctions themselves are flattened into it, 
+	 * so that a conjunction of literals (e.g., a guard with an inlined frame condition) stays a flat list of literals
+	 */
+	public static GuardExpression and(List<GuardExpression> operands) {
+		if(operands.size() == 1) {
+			return operands.get(0);
+		}
+		GuardExpression e = new GuardExpression(TYPE.AND);
+		e.operands = new ArrayList<GuardExpression>();
+		for (GuardExpression operand : operands) {
+			if(operand.type == TYPE.AND) {
+				e.operands.addAll(operand.operands);
+			} else {
+				e.operands.add(operand);
+			}
+		}
+		return e;
+	}
+
+	public static GuardExpression or(List<GuardExpression> operands) {
+		if(operands.size() == 1) {
+			return operands.get(0);
+		}
+		GuardExpression e = new GuardExpression(TYPE.OR);
+		e.operands = operands;
+		return e;
+	}
+
+	public TYPE getType() {
+		return type;
+	}
+
+	public int getValue() {
+		return value;
+	}
+
+	public String getVariable() {
+		return variable;
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public void setIndex(int index) {
+		this.index = index;
+	}
+
+	public List<GuardExpression> getOperands() {
+		return operands;
+	}
+
+	/**
+	 * Returns a copy of this expression in which every literal over a defined name (SMV DEFINE) is replaced by its definition
+	 * @param definitions Map from defined names to their expressions
+	 * @return Expression without references to defined names
+	 */
+	public GuardExpression inline(Map<String, GuardExpression> definitions) {
+		if(type == TYPE.LITERAL && definitions.containsKey(variable)) {
+			GuardExpression definition = definitions.get(variable).inline(definitions);
+			return value == 1 ? definition : not(definition);
+		}
+		if(operands == null) {
+			return this;
+		}
+		List<GuardExpression> inlined = new ArrayList<GuardExpression>();
+		for (GuardExpression operand : operands) {
+			inlined.add(operand.inline(definitions));
+		}
+		if(type == TYPE.AND) {
+			return and(inlined);
+		}
+		GuardExpression e = new GuardExpression(type);
+		e.operands = inlined;
+		return e;
+	}
+
+	/**
+	 * Collects the names of all variables used in the literals of this expression
+	 * @param names Collection to which the variable names are added
+	 */
+	public void collectVariables(Collection<String> names) {
+		if(type == TYPE.LITERAL) {
+			names.add(variable);
+		} else if(operands != null) {
+			for (GuardExpression operand : operands) {
+				operand.collectVariables(names);
+			}
+		}
+	}
+
+	/**
+	 * Formats the expression back into SMV syntax
+	 */
+	public String toString() {
+		switch (type) {
+		case CONSTANT:
+			return value == 1 ? "TRUE" : "FALSE";
+		case LITERAL:
+			return variable + "=" + value;
+		case NOT:
+			return "!(" + operands.get(0) + ")";
+		default:
+			String formatted = new String();
+			for (GuardExpression operand : operands) {
+				if(formatted.length()>0) {
+					formatted += (type == TYPE.AND ? " & " : " | ");
+				}
+				formatted += (operand.type == TYPE.AND || operand.type == TYPE.OR) ? "(" + operand + ")" : operand.toString();
+			}
+			return formatted;
+		}
+	}
+}
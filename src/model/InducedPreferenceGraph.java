@@ -0,0 +1,564 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import util.BinaryEncoding;
+import util.LongHashSet;
+
+/**
+ * An explicit (in-memory) representation of the induced preference graph encoded by an SMV model.
+ * Outcomes are encoded as bitsets (long) where bit i is set iff the i-th preference variable (in sorted order) has valuation 1.
+ * The edges of the graph (improving flips for the forward model, worsening flips for the reverse model) are computed on demand
+ * from the guarded transitions of the SMV model: a successor of an outcome is the next state of the model for some valuation of the change variables.
+ * Note: This implementation assumes that the preference variables are binary and supports at most 64 preference variables.
+ * @author gsanthan
+ *
+ */
+public class InducedPreferenceGraph {
+
+	/**
+	 * Maximum number of preference variables that can be encoded in a single bitset
+	 */
+	public static final int MAX_VARIABLES = 64;
+
+	/**
+	 * Preference variables (sorted); bit i of an encoded outcome corresponds to variables[i]
+	 */
+	String[] variables;
+	/**
+	 * Guards of the transitions of each preference variable (indexed by variable)
+	 */
+	GuardExpression[][] guards;
+	/**
+	 * Values in the next state corresponding to the guards of each preference variable
+	 */
+	GuardExpression[][] values;
+	/**
+	 * The transitions compiled to bitmasks, if every guard is a conjunction of literals and every value is a constant or a literal 
+	 * over a preference variable (as in the models generated by the translators); null otherwise.
+	 * Row r of variable i applies if (outcome & outcomeMasks[i][r]) == outcomeValues[i][r], 
+	 * and the change variables in changeMasks[i][r] have the valuation changeValues[i][r]
+	 */
+	long[][] outcomeMasks;
+	long[][] outcomeValues;
+	long[][] changeMasks;
+	long[][] changeValues;
+	/**
+	 * Next value of the variable for each row: 0 or 1, or 2 + 2*j + v for the value of the literal j=v
+	 */
+	int[][] nextValues;
+
+	/**
+	 * Compiles the guarded transitions of the SMV model into an induced preference graph over bitset encoded outcomes.
+	 * Literals over preference variables refer to bits 0..n-1, literals over change variables (ch + variable) refer to bits n..2n-1.
+	 * @param model Parsed SMV model
+	 */
+	public InducedPreferenceGraph(SMVModel model) {
+		this.variables = model.getVariables();
+		if(variables.length > MAX_VARIABLES) {
+			throw new RuntimeException("The induced preference graph can be explored explicitly for at most "+MAX_VARIABLES+" variables!");
+		}
+		guards = new GuardExpression[variables.length][];
+		values = new GuardExpression[variables.length][];
+		for (int i = 0; i < variables.length; i++) {
+			List<GuardExpression> variableGuards = model.getGuards(variables[i]);
+			List<GuardExpression> variableValues = model.getValues(variables[i]);
+			guards[i] = new GuardExpression[variableGuards.size()];
+			values[i] = new GuardExpression[variableValues.size()];
+			for (int j = 0; j < guards[i].length; j++) {
+				guards[i][j] = compile(variableGuards.get(j).inline(model.getDefinitions()));
+				values[i][j] = compile(variableValues.get(j));
+			}
+		}
+		compileRows();
+	}
+
+	/**
+	 * Compiles the transitions to bitmasks (see outcomeMasks), if they are conjunctions of literals
+	 */
+	private void compileRows() {
+		int n = variables.length;
+		long[][] rowOutcomeMasks = new long[n][];
+		long[][] rowOutcomeValues = new long[n][];
+		long[][] rowChangeMasks = new long[n][];
+		long[][] rowChangeValues = new long[n][];
+		int[][] rowNextValues = new int[n][];
+		for (int i = 0; i < n; i++) {
+			int rows = 0;
+			rowOutcomeMasks[i] = new long[guards[i].length];
+			rowOutcomeValues[i] = new long[guards[i].length];
+			rowChangeMasks[i] = new long[guards[i].length];
+			rowChangeValues[i] = new long[guards[i].length];
+			rowNextValues[i] = new int[guards[i].length];
+			for (int j = 0; j < guards[i].length; j++) {
+				GuardExpression value = values[i][j];
+				int nextValue;
+				if(value.getType() == GuardExpression.TYPE.CONSTANT) {
+					nextValue = value.getValue();
+				} else if(value.getType() == GuardExpression.TYPE.LITERAL && value.getIndex() < n) {
+					nextValue = 2 + 2 * value.getIndex() + value.getValue();
+				} else {
+					return;
+				}
+				List<GuardExpression> literals;
+				GuardExpression guard = guards[i][j];
+				if(guard.getType() == GuardExpression.TYPE.CONSTANT) {
+					if(guard.getValue() == GuardExpression.FALSE) {
+						continue;
+					}
+					literals = new ArrayList<GuardExpression>();
+				} else if(guard.getType() == GuardExpression.TYPE.LITERAL) {
+					literals = new ArrayList<GuardExpression>();
+					literals.add(guard);
+				} else if(guard.getType() == GuardExpression.TYPE.AND) {
+					literals = guard.getOperands();
+				} else {
+					return;
+				}
+				long outcomeMask = 0L, outcomeValue = 0L, changeMask = 0L, changeValue = 0L;
+				boolean satisfiable = true;
+				for (GuardExpression literal : literals) {
+					if(literal.getType() != GuardExpression.TYPE.LITERAL) {
+						return;
+					}
+					int index = literal.getIndex();
+					long bit = 1L << (index < n ? index : index - n);
+					long value1 = literal.getValue() == 1 ? bit : 0L;
+					if(index < n) {
+						satisfiable = satisfiable && ((outcomeMask & bit) == 0 || (outcomeValue & bit) == value1);
+						outcomeMask |= bit;
+						outcomeValue |= value1;
+					} else {
+						satisfiable = satisfiable && ((changeMask & bit) == 0 || (changeValue & bit) == value1);
+						changeMask |= bit;
+						changeValue |= value1;
+					}
+				}
+				if(!satisfiable) {
+					continue;
+				}
+				rowOutcomeMasks[i][rows] = outcomeMask;
+				rowOutcomeValues[i][rows] = outcomeValue;
+				rowChangeMasks[i][rows] = changeMask;
+				rowChangeValues[i][rows] = changeValue;
+				rowNextValues[i][rows] = nextValue;
+				rows++;
+			}
+			rowOutcomeMasks[i] = Arrays.copyOf(rowOutcomeMasks[i], rows);
+			rowOutcomeValues[i] = Arrays.copyOf(rowOutcomeValues[i], rows);
+			rowChangeMasks[i] = Arrays.copyOf(rowChangeMasks[i], rows);
+			rowChangeValues[i] = Arrays.copyOf(rowChangeValues[i], rows);
+			rowNextValues[i] = Arrays.copyOf(rowNextValues[i], rows);
+		}
+		outcomeMasks = rowOutcomeMasks;
+		outcomeValues = rowOutcomeValues;
+		changeMasks = rowChangeMasks;
+		changeValues = rowChangeValues;
+		nextValues = rowNextValues;
+	}
+
+	/**
+	 * Sets the index of each literal in the expression to the bit position of its variable
+	 * @param e
+	 * @return The compiled expression
+	 */
+	private GuardExpression compile(GuardExpression e) {
+		if(e.getType() == GuardExpression.TYPE.LITERAL) {
+			int index = indexOf(e.getVariable());
+			if(index == -1 && e.getVariable().startsWith("ch")) {
+				index = indexOf(e.getVariable().substring(2));
+				if(index != -1) {
+					index += variables.length;
+				}
+			}
+			if(index == -1) {
+				throw new RuntimeException("Unknown variable "+e.getVariable()+" in transition guard: "+e);
+			}
+			e.setIndex(index);
+		} else if(e.getOperands() != null) {
+			for (GuardExpression operand : e.getOperands()) {
+				compile(operand);
+			}
+		}
+		return e;
+	}
+
+	private int indexOf(String variable) {
+		for (int i = 0; i < variables.length; i++) {
+			if(variables[i].equals(variable)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	public String[] getVariables() {
+		return variables;
+	}
+
+	/**
+	 * Returns the number of guarded transitions of the preference variables (the size of their CPTs, for CP-nets)
+	 */
+	public int getTransitionCount() {
+		int count = 0;
+		for (int i = 0; i < guards.length; i++) {
+			count += guards[i].length;
+		}
+		return count;
+	}
+
+	/**
+	 * Encodes an outcome (names of variables with valuation 1) as a bitset
+	 * @param outcome
+	 * @return Encoded outcome
+	 */
+	public long encode(Set<String> outcome) {
+		return BinaryEncoding.getBitEncoding(variables, outcome);
+	}
+
+	/**
+	 * Decodes a bitset into an outcome (names of variables with valuation 1)
+	 * @param outcome
+	 * @return Decoded outcome
+	 */
+	public Set<String> decode(long outcome) {
+		return BinaryEncoding.getOutcome(variables, outcome);
+	}
+
+	/**
+	 * Returns the outcomes reachable from the given outcome by a single flip (edge in the induced preference graph).
+	 * The valuations of the change variables are explored lazily: only change variables that decide which guard holds are branched on.
+	 * @param outcome Encoded outcome
+	 * @return Distinct encoded outcomes (other than outcome itself) reachable by a single flip
+	 */
+	public long[] getSuccessors(long outcome) {
+		if(outcomeMasks != null) {
+			return getSuccessorsFromRows(outcome);
+		}
+		Set<Long> successors = new LinkedHashSet<Long>();
+		expand(outcome, 0L, 0L, successors);
+		long[] result = new long[successors.size()];
+		int i = 0;
+		for (Long successor : successors) {
+			result[i++] = successor;
+		}
+		return result;
+	}
+
+	/**
+	 * getSuccessors for transitions compiled to bitmasks. If each row that applies to the outcome constrains either none or all of the change variables
+	 * (as in the models of CP-nets and TCP-nets, where a flip sets exactly one change variable), only the valuations of the change variables in these rows,
+	 * and any other valuation (under which none of these rows applies), need to be explored; otherwise, the valuations are explored as in expand.
+	 */
+	private long[] getSuccessorsFromRows(long outcome) {
+		int n = variables.length;
+		long all = n == 64 ? -1L : (1L << n) - 1;
+		//Next state under a valuation that no row constrains, and the rows that decide a variable (before such a valuation does) under one valuation only
+		long other = outcome;
+		int count = 0;
+		long[] valuations = new long[2 * n];
+		int[] rowVariables = new int[2 * n];
+		int[] rowValues = new int[2 * n];
+		for (int i = 0; i < n; i++) {
+			for (int r = 0; r < outcomeMasks[i].length; r++) {
+				if((outcome & outcomeMasks[i][r]) != outcomeValues[i][r]) {
+					continue;
+				}
+				long mask = changeMasks[i][r];
+				if(mask == 0) {
+					other = setValue(other, i, getNextValue(outcome, i, r));
+					break;
+				}
+				if(mask != all) {
+					return getSuccessorsByExpansion(outcome);
+				}
+				if(count == valuations.length) {
+					valuations = Arrays.copyOf(valuations, count * 2);
+					rowVariables = Arrays.copyOf(rowVariables, count * 2);
+					rowValues = Arrays.copyOf(rowValues, count * 2);
+				}
+				valuations[count] = changeValues[i][r];
+				rowVariables[count] = i;
+				rowValues[count] = getNextValue(outcome, i, r);
+				count++;
+			}
+		}
+		LongHashSet successors = new LongHashSet();
+		boolean[] explored = new boolean[count];
+		long distinct = 0;
+		for (int e = 0; e < count; e++) {
+			if(explored[e]) {
+				continue;
+			}
+			distinct++;
+			//Next state under the valuation of row e: the first row of a variable under this valuation decides it
+			long next = other;
+			long decided = 0L;
+			for (int f = e; f < count; f++) {
+				if(!explored[f] && valuations[f] == valuations[e]) {
+					explored[f] = true;
+					if(((decided >>> rowVariables[f]) & 1L) == 0) {
+						decided |= 1L << rowVariables[f];
+						next = setValue(next, rowVariables[f], rowValues[f]);
+					}
+				}
+			}
+			if(next != outcome) {
+				successors.add(next);
+			}
+		}
+		if(other != outcome && (n >= 63 || distinct < (1L << n))) {
+			successors.add(other);
+		}
+		return successors.toArray();
+	}
+
+	private long[] getSuccessorsByExpansion(long outcome) {
+		int n = variables.length;
+		//Rows of each variable whose literals over the preference variables hold in the outcome
+		int[][] rows = new int[n][];
+		int[] rowCounts = new int[n];
+		for (int i = 0; i < n; i++) {
+			rows[i] = new int[outcomeMasks[i].length];
+			for (int r = 0; r < outcomeMasks[i].length; r++) {
+				if((outcome & outcomeMasks[i][r]) == outcomeValues[i][r]) {
+					rows[i][rowCounts[i]++] = r;
+				}
+			}
+		}
+		LongHashSet successors = new LongHashSet();
+		expandRows(outcome, rows, rowCounts, 0, outcome, 0L, 0L, successors);
+		return successors.toArray();
+	}
+
+	/**
+	 * Returns the next value (0/1) of the variable in the outcome, according to the row
+	 */
+	private int getNextValue(long outcome, int i, int r) {
+		int code = nextValues[i][r];
+		return code < 2 ? code : (((outcome >>> ((code - 2) >>> 1)) & 1L) == ((code - 2) & 1) ? 1 : 0);
+	}
+
+	private static long setValue(long outcome, int i, int value) {
+		return value == 1 ? outcome | (1L << i) : outcome & ~(1L << i);
+	}
+
+	/**
+	 * Computes the next states for all valuations of change variables extending the partial valuation (chKnown, chValue),
+	 * given the next values of the variables before the variable from (which do not depend on the unassigned change variables)
+	 */
+	private void expandRows(long outcome, int[][] rows, int[] rowCounts, int from, long next, long chKnown, long chValue, LongHashSet successors) {
+		for (int i = from; i < variables.length; i++) {
+			for (int k = 0; k < rowCounts[i]; k++) {
+				int r = rows[i][k];
+				long mask = changeMasks[i][r];
+				if(((chValue ^ changeValues[i][r]) & mask & chKnown) != 0) {
+					continue;
+				}
+				long unassigned = mask & ~chKnown;
+				if(unassigned != 0) {
+					//The row depends on a change variable that has not been assigned yet; branch on its valuation
+					long bit = unassigned & -unassigned;
+					expandRows(outcome, rows, rowCounts, i, next, chKnown | bit, chValue, successors);
+					expandRows(outcome, rows, rowCounts, i, next, chKnown | bit, chValue | bit, successors);
+					return;
+				}
+				next = setValue(next, i, getNextValue(outcome, i, r));
+				break;
+			}
+		}
+		if(next != outcome) {
+			successors.add(next);
+		}
+	}
+
+	/**
+	 * Returns the next state of the model when exactly the given change variables are set
+	 * @param outcome Encoded outcome
+	 * @param change Bitset of the change variables that are set (bit i for the change variable of variables[i])
+	 * @return Encoded next outcome (outcome itself if no variable is flipped)
+	 */
+	public long next(long outcome, long change) {
+		long all = variables.length == 64 ? -1L : (1L << variables.length) - 1;
+		Set<Long> successors = new LinkedHashSet<Long>();
+		expand(outcome, all, change & all, successors);
+		return successors.isEmpty() ? outcome : successors.iterator().next();
+	}
+
+	/**
+	 * Returns the preference variables (other than the variable itself) that the transitions of the variable depend on
+	 * @param variable Index of the variable
+	 * @return Bitset of the variables
+	 */
+	public long getDependencies(int variable) {
+		long dependencies = 0L;
+		for (int j = 0; j < guards[variable].length; j++) {
+			dependencies |= getDependencies(guards[variable][j]) | getDependencies(values[variable][j]);
+		}
+		return dependencies & ~(1L << variable);
+	}
+
+	private long getDependencies(GuardExpression e) {
+		if(e.getType() == GuardExpression.TYPE.LITERAL) {
+			return e.getIndex() < variables.length ? 1L << e.getIndex() : 0L;
+		}
+		long dependencies = 0L;
+		if(e.getOperands() != null) {
+			for (GuardExpression operand : e.getOperands()) {
+				dependencies |= getDependencies(operand);
+			}
+		}
+		return dependencies;
+	}
+
+	/**
+	 * Returns the values that the variable may take in the next state of the given outcome, for any valuation of the change variables
+	 * @param variable Index of the variable
+	 * @param outcome Encoded outcome
+	 * @return Bitset of the values: bit 0 is set if the next value may be 0, bit 1 if it may be 1
+	 */
+	public int getPossibleNextValues(int variable, long outcome) {
+		return getPossibleNextValues(variable, outcome, 0L, 0L);
+	}
+
+	private int getPossibleNextValues(int i, long outcome, long chKnown, long chValue) {
+		for (int j = 0; j < guards[i].length; j++) {
+			int result = evaluate(guards[i][j], outcome, chKnown, chValue);
+			if(result == GuardExpression.FALSE) {
+				continue;
+			}
+			if(result == GuardExpression.TRUE) {
+				result = evaluate(values[i][j], outcome, chKnown, chValue);
+			}
+			if(result == GuardExpression.UNKNOWN) {
+				//Branch on the valuation of a change variable that decides the transition
+				int index = findUnassigned(guards[i][j], outcome, chKnown, chValue);
+				if(index == -1) {
+					index = findUnassigned(values[i][j], outcome, chKnown, chValue);
+				}
+				long bit = 1L << (index - variables.length);
+				return getPossibleNextValues(i, outcome, chKnown | bit, chValue) | getPossibleNextValues(i, outcome, chKnown | bit, chValue | bit);
+			}
+			return 1 << result;
+		}
+		//No transition applies: the variable keeps its value
+		return 1 << (int) ((outcome >>> i) & 1L);
+	}
+
+	/**
+	 * Computes the next state of the model for all valuations of change variables extending the partial valuation (chKnown, chValue)
+	 * @param outcome Current outcome
+	 * @param chKnown Bitset of change variables that have been assigned
+	 * @param chValue Valuation of the assigned change variables
+	 * @param successors Set to which the computed next outcomes are added
+	 */
+	private void expand(long outcome, long chKnown, long chValue, Set<Long> successors) {
+		long next = outcome;
+		for (int i = 0; i < variables.length; i++) {
+			for (int j = 0; j < guards[i].length; j++) {
+				int result = evaluate(guards[i][j], outcome, chKnown, chValue);
+				if(result == GuardExpression.FALSE) {
+					continue;
+				}
+				if(result == GuardExpression.TRUE) {
+					result = evaluate(values[i][j], outcome, chKnown, chValue);
+				}
+				if(result == GuardExpression.UNKNOWN) {
+					//The transition depends on a change variable that has not been assigned yet; branch on its valuation
+					int index = findUnassigned(guards[i][j], outcome, chKnown, chValue);
+					if(index == -1) {
+						index = findUnassigned(values[i][j], outcome, chKnown, chValue);
+					}
+					long bit = 1L << (index - variables.length);
+					expand(outcome, chKnown | bit, chValue, successors);
+					expand(outcome, chKnown | bit, chValue | bit, successors);
+					return;
+				}
+				if(result == GuardExpression.TRUE) {
+					next |= (1L << i);
+				} else {
+					next &= ~(1L << i);
+				}
+				break;
+			}
+		}
+		if(next != outcome) {
+			successors.add(next);
+		}
+	}
+
+	/**
+	 * Evaluates the expression in three-valued logic: preference variables are valued according to outcome,
+	 * change variables according to the partial valuation (chKnown, chValue)
+	 * @return GuardExpression.TRUE, GuardExpression.FALSE or GuardExpression.UNKNOWN
+	 */
+	private int evaluate(GuardExpression e, long outcome, long chKnown, long chValue) {
+		switch (e.getType()) {
+		case CONSTANT:
+			return e.getValue();
+		case LITERAL:
+			int index = e.getIndex();
+			long value;
+			if(index < variables.length) {
+				value = (outcome >>> index) & 1L;
+			} else {
+				index -= variables.length;
+				if(((chKnown >>> index) & 1L) == 0) {
+					return GuardExpression.UNKNOWN;
+				}
+				value = (chValue >>> index) & 1L;
+			}
+			return value == e.getValue() ? GuardExpression.TRUE : GuardExpression.FALSE;
+		case NOT:
+			int result = evaluate(e.getOperands().get(0), outcome, chKnown, chValue);
+			return result == GuardExpression.UNKNOWN ? result : 1 - result;
+		case AND:
+			boolean unknown = false;
+			for (GuardExpression operand : e.getOperands()) {
+				result = evaluate(operand, outcome, chKnown, chValue);
+				if(result == GuardExpression.FALSE) {
+					return GuardExpression.FALSE;
+				} else if(result == GuardExpression.UNKNOWN) {
+					unknown = true;
+				}
+			}
+			return unknown ? GuardExpression.UNKNOWN : GuardExpression.TRUE;
+		default:
+			unknown = false;
+			for (GuardExpression operand : e.getOperands()) {
+				result = evaluate(operand, outcome, chKnown, chValue);
+				if(result == GuardExpression.TRUE) {
+					return GuardExpression.TRUE;
+				} else if(result == GuardExpression.UNKNOWN) {
+					unknown = true;
+				}
+			}
+			return unknown ? GuardExpression.UNKNOWN : GuardExpression.FALSE;
+		}
+	}
+
+	/**
+	 * Returns the index of an unassigned change variable that the (undecided) value of the expression depends on; -1 if there is none
+	 */
+	private int findUnassigned(GuardExpression e, long outcome, long chKnown, long chValue) {
+		if(e.getType() == GuardExpression.TYPE.LITERAL) {
+			int index = e.getIndex();
+			if(index >= variables.length && ((chKnown >>> (index - variables.length)) & 1L) == 0) {
+				return index;
+			}
+			return -1;
+		}
+		if(e.getOperands() != null) {
+			for (GuardExpression operand : e.getOperands()) {
+				if(evaluate(operand, outcome, chKnown, chValue) == GuardExpression.UNKNOWN) {
+					return findUnassigned(operand, outcome, chKnown, chValue);
+				}
+			}
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,252 @@
+package model;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * An immutable outcome (valuation of the binary preference variables) packed into bits:
+ * bit i is set iff the i-th preference variable, in the sorted order of PreferenceMetaData.variables, has valuation 1
+ * (the same encoding as util.BinaryEncoding.getBitEncoding and InducedPreferenceGraph).
+ * Outcomes over at most 64 variables are backed by a single long; wider outcomes by an array of longs.
+ * Unlike an outcome represented as a Set of the names of the variables with valuation 1, equals and hashCode take constant time (for at most 64 variables)
+ * and an outcome takes no more memory than its bits.
+ * <p>
+ * Conversions from and to the Set of variable names use the sorted array of variable names as the index of the bits;
+ * names that are not in the array are ignored (as in BinaryEncoding.getBitEncoding).
+ * @author gsanthan
+ *
+ */
+public final class Outcome {
+
+	/**
+	 * Bits of the outcome, if it has at most 64 variables
+	 */
+	final long bits;
+	/**
+	 * Bits of the outcome (bit i in words[i/64]), if it has more than 64 variables; null otherwise
+	 */
+	final long[] words;
+	final int hash;
+
+	private Outcome(long bits, long[] words) {
+		this.bits = bits;
+		this.words = words;
+		this.hash = words == null ? (int) (bits ^ (bits >>> 32)) : Arrays.hashCode(words);
+	}
+
+	/**
+	 * Returns the outcome over at most 64 variables with the given bits
+	 * @param bits
+	 * @return Outcome
+	 */
+	public static Outcome valueOf(long bits) {
+		return new Outcome(bits, null);
+	}
+
+	/**
+	 * Returns the outcome with the given bits (bit i in words[i/64])
+	 * @param words
+	 * @return Outcome
+	 */
+	public static Outcome valueOf(long[] words) {
+		if(words.length <= 1) {
+			return new Outcome(words.length == 0 ? 0L : words[0], null);
+		}
+		return new Outcome(0L, words.clone());
+	}
+
+	/**
+	 * Packs an outcome given as the set of names of the variables with valuation 1
+	 * @param variables Names of preference variables, sorted (as in PreferenceMetaData)
+	 * @param outcome Names of the variables with valuation 1
+	 * @return Outcome
+	 */
+	public static Outcome valueOf(String[] variables, Set<String> outcome) {
+		if(variables.length <= 64) {
+			return new Outcome(getBits(variables, outcome), null);
+		}
+		long[] words = new long[(variables.length + 63) / 64];
+		for (String variable : outcome) {
+			int index = Arrays.binarySearch(variables, variable);
+			if(index >= 0) {
+				words[index >>> 6] |= 1L << index;
+			}
+		}
+		return new Outcome(0L, words);
+	}
+
+	/**
+	 * Packs an outcome given as the names of the variables with valuation 1 into a long
+	 * @param variables Names of (at most 64) preference variables, sorted (as in PreferenceMetaData)
+	 * @param outcome Names of the variables with valuation 1
+	 * @return Bits of the outcome
+	 */
+	public static long getBits(String[] variables, Set<String> outcome) {
+		long bits = 0L;
+		for (String variable : outcome) {
+			int index = Arrays.binarySearch(variables, variable);
+			if(index >= 0) {
+				bits |= 1L << index;
+			}
+		}
+		return bits;
+	}
+
+	/**
+	 * Unpacks the bits of an outcome into the set of names of the variables with valuation 1
+	 * @param variables Names of (at most 64) preference variables, sorted (as in PreferenceMetaData)
+	 * @param bits
+	 * @return Names of the variables with valuation 1
+	 */
+	public static Set<String> toSet(String[] variables, long bits) {
+		Set<String> outcome = new HashSet<String>();
+		for (long rest = bits; rest != 0; rest &= rest - 1) {
+			outcome.add(variables[Long.numberOfTrailingZeros(rest)]);
+		}
+		return outcome;
+	}
+
+	/**
+	 * Unpacks the bits of an outcome into the names of the variables with valuation 1 (in the order of variables)
+	 * @param variables Names of (at most 64) preference variables, sorted (as in PreferenceMetaData)
+	 * @param bits
+	 * @return Names of the variables with valuation 1
+	 */
+	public static String[] toArray(String[] variables, long bits) {
+		String[] outcome = new String[Long.bitCount(bits)];
+		int i = 0;
+		for (long rest = bits; rest != 0; rest &= rest - 1) {
+			outcome[i++] = variables[Long.numberOfTrailingZeros(rest)];
+		}
+		return outcome;
+	}
+
+	/**
+	 * Returns the set of names of the variables with valuation 1 in this outcome
+	 * @param variables Names of preference variables, sorted (as in PreferenceMetaData)
+	 * @return Names of the variables with valuation 1
+	 */
+	public Set<String> toSet(String[] variables) {
+		if(words == null) {
+			return toSet(variables, bits);
+		}
+		Set<String> outcome = new HashSet<String>();
+		for (int i = 0; i < variables.length; i++) {
+			if(isTrue(i)) {
+				outcome.add(variables[i]);
+			}
+		}
+		return outcome;
+	}
+
+	/**
+	 * Returns the names of the variables with valuation 1 in this outcome (in the order of variables)
+	 * @param variables Names of preference variables, sorted (as in PreferenceMetaData)
+	 * @return Names of the variables with valuation 1
+	 */
+	public String[] toArray(String[] variables) {
+		if(words == null) {
+			return toArray(variables, bits);
+		}
+		Set<String> outcome = toSet(variables);
+		String[] array = outcome.toArray(new String[outcome.size()]);
+		Arrays.sort(array);
+		return array;
+	}
+
+	/**
+	 * Returns the valuation of the variable with the given index
+	 * @param index Index of the variable (in the sorted variables)
+	 * @return true if the variable has valuation 1
+	 */
+	public boolean isTrue(int index) {
+		if(words == null) {
+			return index < 64 && ((bits >>> index) & 1L) == 1L;
+		}
+		return (index >>> 6) < words.length && ((words[index >>> 6] >>> index) & 1L) == 1L;
+	}
+
+	/**
+	 * Returns the outcome that differs from this outcome only in the valuation of the variable with the given index
+	 * @param index Index of the variable (in the sorted variables)
+	 * @return Flipped outcome
+	 */
+	public Outcome flip(int index) {
+		if(words == null) {
+			if(index >= 64) {
+				throw new RuntimeException("Variable index " + index + " out of range for an outcome over at most 64 variables");
+			}
+			return new Outcome(bits ^ (1L << index), null);
+		}
+		long[] flipped = words.clone();
+		flipped[index >>> 6] ^= 1L << index;
+		return new Outcome(0L, flipped);
+	}
+
+	/**
+	 * Returns true if the outcome is backed by a single long (at most 64 variables)
+	 */
+	public boolean isPacked() {
+		return words == null;
+	}
+
+	/**
+	 * Returns the bits of an outcome over at most 64 variables
+	 * @return Bits of the outcome
+	 */
+	public long getBits() {
+		if(words != null) {
+			throw new RuntimeException("The outcome has more than 64 variables; use getWords");
+		}
+		return bits;
+	}
+
+	/**
+	 * Returns a copy of the bits of the outcome (bit i in words[i/64])
+	 * @return Bits of the outcome
+	 */
+	public long[] getWords() {
+		return words == null ? new long[]{bits} : words.clone();
+	}
+
+	/**
+	 * Returns the binary (0/1) encoding of the outcome, as in util.BinaryEncoding.getBinaryEncoding
+	 * @param variableCount Number of preference variables
+	 * @return Binary encoded outcome
+	 */
+	public String getBinaryEncoding(int variableCount) {
+		char[] encoding = new char[variableCount];
+		for (int i = 0; i < variableCount; i++) {
+			encoding[i] = isTrue(i) ? '1' : '0';
+		}
+		return new String(encoding);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	public boolean equals(Object other) {
+		if(other == this) return true;
+		if(!(other instanceof Outcome)) return false;
+		Outcome o = (Outcome) other;
+		if(words == null || o.words == null) {
+			return words == o.words && bits == o.bits;
+		}
+		return hash == o.hash && Arrays.equals(words, o.words);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	public int hashCode() {
+		return hash;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return words == null ? Long.toBinaryString(bits) : Arrays.toString(words);
+	}
+}
@@ -2,20 +2,27 @@ package model;
 
 import java.io.PrintStream;
 import java.io.UnsupportedEncodingException;
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import util.BinaryEncoding;
+import util.LongHashSet;
 
 /**
- * Stores an ordered sequence of outcomes using a LinkedHashSet of outcomes (Set of strings).  
+ * Stores an ordered sequence of outcomes.
  * Note: This implementation assumes that the preference variables are binary, i.e., each has a 0/1 valuation.
- * It stores each outcome as a Set of Strings, 
+ * Outcomes are exchanged as Sets of Strings,
  * such that the names of variables with valuation 1 are included in the set, and those with valuation 0 are not included.  
+ * When the (sorted) preference variables are known (see OutcomeSequence(String[])) and there are at most 64 of them,
+ * the outcomes are stored packed into longs (see Outcome) in a LongHashSet, and getOutcomeSequence returns a view of them as Sets of Strings;
+ * otherwise they are stored in a LinkedHashSet of Sets of Strings.
  * This methods needs to be changed if there is a need to represent sets of outcomes when preference variables are non-binary. 
  * @author gsanthan
  *
@@ -23,9 +30,17 @@ import util.BinaryEncoding;
 public class OutcomeSequence {
 	
 	/**
-	 * An ordered sequence of outcomes   
+	 * An ordered sequence of outcomes (a view of packedOutcomes, if the outcomes are packed)
 	 */
 	Set<Set<String>> outcomeSequence;
+	/**
+	 * Preference variables (sorted) indexing the bits of the packed outcomes; null if the outcomes are not packed
+	 */
+	String[] variables;
+	/**
+	 * The ordered sequence of outcomes packed into longs; null if the outcomes are not packed
+	 */
+	LongHashSet packedOutcomes;
 
 	/**
 	 * Initialize the OutcomeSequence with no outcomes
@@ -43,6 +58,51 @@ public class OutcomeSequence {
 		outcomeSequence.add(outcome);
 	}
 	
+	/**
+	 * Initialize the OutcomeSequence with no outcomes over the given preference variables;
+	 * the outcomes are stored packed into longs if there are at most 64 variables
+	 * @param variables Names of preference variables, sorted (as in PreferenceMetaData)
+	 */
+	public OutcomeSequence(String[] variables) {
+		if(variables != null && variables.length <= 64) {
+			for (int i = 1; i < variables.length; i++) {
+				if(variables[i-1].compareTo(variables[i]) >= 0) {
+					throw new RuntimeException("The preference variables indexing packed outcomes must be sorted: " + Arrays.toString(variables));
+				}
+			}
+			this.variables = variables;
+			this.packedOutcomes = new LongHashSet();
+			this.outcomeSequence = new PackedOutcomeSet();
+		} else {
+			outcomeSequence = new LinkedHashSet<Set<String>>();
+		}
+	}
+
+	/**
+	 * Returns true if the outcomes are stored packed into longs over the given (sorted) variables
+	 * @param variables
+	 */
+	public boolean isPackedOver(String[] variables) {
+		return packedOutcomes != null && (this.variables == variables || Arrays.equals(this.variables, variables));
+	}
+
+	/**
+	 * Returns the preference variables indexing the bits of the packed outcomes; null if the outcomes are not packed
+	 */
+	public String[] getVariables() {
+		return variables;
+	}
+
+	/**
+	 * Returns the packed outcomes in order; only for sequences whose outcomes are packed (see isPackedOver)
+	 * @return Bits of the outcomes
+	 */
+	public long[] getPackedOutcomes() {
+		if(packedOutcomes == null) {
+			throw new RuntimeException("The outcomes of the sequence are not packed");
+		}
+		return packedOutcomes.toArray();
+	}
 	
 	/**
 	 * Returns the sequence of outcomes stored in this OutcomeSequence as a List of String arrays 
@@ -50,6 +110,14 @@ public class OutcomeSequence {
 	 */
 	public List<String[]> getOutcomeSequenceAsListOfStringArray() {
 		List<String[]> list = new ArrayList<String[]>();
+		if(packedOutcomes != null) {
+			for (int position = 0; position < packedOutcomes.positions(); position++) {
+				if(packedOutcomes.isPresent(position)) {
+					list.add(Outcome.toArray(variables, packedOutcomes.get(position)));
+				}
+			}
+			return list;
+		}
 		for(Set<String> outcome : outcomeSequence) {
 			String[] array = new String[outcome.size()];
 			int i=0;
@@ -62,15 +130,34 @@ public class OutcomeSequence {
 		return list;
 	}
 	
+	/**
+	 * Returns the outcomes in order as Outcome values
+	 * @param variables Names of preference variables, sorted (as in PreferenceMetaData); used if the outcomes are not packed
+	 * @return Sequence of outcomes
+	 */
+	public List<Outcome> getOutcomes(String[] variables) {
+		List<Outcome> list = new ArrayList<Outcome>();
+		if(isPackedOver(variables)) {
+			for (int position = 0; position < packedOutcomes.positions(); position++) {
+				if(packedOutcomes.isPresent(position)) {
+					list.add(Outcome.valueOf(packedOutcomes.get(position)));
+				}
+			}
+			return list;
+		}
+		for(Set<String> outcome : outcomeSequence) {
+			list.add(Outcome.valueOf(variables, outcome));
+		}
+		return list;
+	}
+
 	/**
 	 * Creates and returns a new OutcomeSequence object with the same set of outcomes as this 
 	 * @return Copy of this OutcomeSequence object
 	 */
 	public OutcomeSequence getOutcomeSequenceCopy() {
-		OutcomeSequence copy = new OutcomeSequence();
-		for(Set<String> outcome : outcomeSequence) {
-			copy.addOutcome(outcome);
-		}
+		OutcomeSequence copy = new OutcomeSequence(variables);
+		copy.addOutcomeSequence(this);
 		return copy;
 	}
 	
@@ -78,8 +165,20 @@ public class OutcomeSequence {
 		return outcomeSequence;
 	}
 	
+	/**
+	 * Sets the outcomes; if the outcomes of this sequence are packed, the given outcomes are packed (copied) as well
+	 * @param outcomeSequence
+	 */
 	public void setOutcomeSequence(Set<Set<String>> outcomeSequence) {
-		this.outcomeSequence = outcomeSequence;
+		if(packedOutcomes != null) {
+			if(outcomeSequence == this.outcomeSequence) {
+				return;
+			}
+			packedOutcomes.clear();
+			this.outcomeSequence.addAll(outcomeSequence);
+		} else {
+			this.outcomeSequence = outcomeSequence;
+		}
 	}
 	
 	/**
@@ -88,7 +187,11 @@ public class OutcomeSequence {
 	 * @param encodedOutcomeSequence Array of binary encoded outcomes
 	 */
 	public void setOutcomeSequence(String[] variables, String[] encodedOutcomeSequence) {
-		this.outcomeSequence = new LinkedHashSet<Set<String>>();
+		if(packedOutcomes != null) {
+			packedOutcomes.clear();
+		} else {
+			this.outcomeSequence = new LinkedHashSet<Set<String>>();
+		}
 		for (int i = 0; i < encodedOutcomeSequence.length; i++) {
 			addOutcome(variables,encodedOutcomeSequence[i]);
 		}
@@ -99,16 +202,62 @@ public class OutcomeSequence {
 	}
 	
 	public void addOutcome(String[] outcome) {
+		if(packedOutcomes != null) {
+			packedOutcomes.add(Outcome.getBits(variables, new HashSet<String>(Arrays.asList(outcome))));
+			return;
+		}
 		outcomeSequence.add(new HashSet<String>(Arrays.asList(outcome)));
 	}
 	
 	public void addOutcome(String[] variables, String encodedOutcome) {
+		if(isPackedOver(variables)) {
+			long bits = 0L;
+			for (int i = 0; i < encodedOutcome.length(); i++) {
+				if(encodedOutcome.charAt(i) == '1') {
+					bits |= 1L << i;
+				}
+			}
+			packedOutcomes.add(bits);
+			return;
+		}
 		outcomeSequence.add(BinaryEncoding.getOutcome(variables, encodedOutcome));
 	}
+
+	/**
+	 * Adds an outcome over at most 64 variables, given as its bits (see Outcome); only for sequences whose outcomes are packed
+	 * @param bits
+	 */
+	public void addPackedOutcome(long bits) {
+		if(packedOutcomes == null) {
+			throw new RuntimeException("The outcomes of the sequence are not packed");
+		}
+		packedOutcomes.add(bits);
+	}
+
+	/**
+	 * Adds the outcome
+	 * @param variables Names of preference variables, sorted (as in PreferenceMetaData)
+	 * @param outcome
+	 */
+	public void addOutcome(String[] variables, Outcome outcome) {
+		if(isPackedOver(variables)) {
+			packedOutcomes.add(outcome.getBits());
+			return;
+		}
+		outcomeSequence.add(outcome.toSet(variables));
+	}
+
+	/**
+	 * Returns true if the sequence contains the outcome
+	 * @param outcome
+	 */
+	public boolean containsOutcome(Set<String> outcome) {
+		return outcomeSequence.contains(outcome);
+	}
 	
 	public void addOutcomeSequenceAsArray(List<String[]> outcomeSequence) {
 		for (String[] o : outcomeSequence) {
-			this.outcomeSequence.add(new HashSet<String>(Arrays.asList(o)));
+			addOutcome(o);
 		}
 	}
 	
@@ -117,6 +266,15 @@ public class OutcomeSequence {
 	}
 	
 	public void addOutcomeSequence(OutcomeSequence outcomeSequence) {
+		if(packedOutcomes != null && outcomeSequence.isPackedOver(variables)) {
+			LongHashSet other = outcomeSequence.packedOutcomes;
+			for (int position = 0; position < other.positions(); position++) {
+				if(other.isPresent(position)) {
+					packedOutcomes.add(other.get(position));
+				}
+			}
+			return;
+		}
 		this.outcomeSequence.addAll(outcomeSequence.getOutcomeSequence());
 	}
 	
@@ -146,13 +304,23 @@ public class OutcomeSequence {
 	 */
 	public String getEncodedOutcomeSequence(String[] variables) {
 		boolean first = true;
-		String s = new String();
+		StringBuilder s = new StringBuilder();
+		if(isPackedOver(variables)) {
+			for (int position = 0; position < packedOutcomes.positions(); position++) {
+				if(packedOutcomes.isPresent(position)) {
+					s.append(first?"":" -> ");
+					s.append(Outcome.valueOf(packedOutcomes.get(position)).getBinaryEncoding(variables.length));
+					first = false;
+				}
+			}
+			return s.toString();
+		}
 		for (Set<String> o : outcomeSequence) {
-			s = s + (first?"":" -> ");
-			s = s + BinaryEncoding.getBinaryEncoding(variables, o);
+			s.append(first?"":" -> ");
+			s.append(BinaryEncoding.getBinaryEncoding(variables, o));
 			first = false;
 		}
-		return s;
+		return s.toString();
 	}
 	
 	/**
@@ -187,9 +355,99 @@ public class OutcomeSequence {
 	    
 	    //Compare the set of outcomes contained in this object with the set of outcomes in the other
 	    OutcomeSequence otherOutcomeSequence = (OutcomeSequence)other;
+	    if(packedOutcomes != null && otherOutcomeSequence.isPackedOver(variables)) {
+	    	if(packedOutcomes.size() != otherOutcomeSequence.packedOutcomes.size()) {
+	    		return false;
+	    	}
+	    	for (long outcome : packedOutcomes.toArray()) {
+	    		if(!otherOutcomeSequence.packedOutcomes.contains(outcome)) {
+	    			return false;
+	    		}
+	    	}
+	    	return true;
+	    } 
 	    if(this.getOutcomeSequence().equals(otherOutcomeSequence.getOutcomeSequence())) {
 	    	return true;
 	    } 
 	    return false;
 	}
-}
\ No newline at end of file
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	public int hashCode() {
+		return getOutcomeSequence().hashCode();
+	}
+
+	/**
+	 * View of the packed outcomes as Sets of Strings; outcomes are unpacked when iterated over, and packed when added, removed or looked up
+	 */
+	class PackedOutcomeSet extends AbstractSet<Set<String>> {
+
+		public int size() {
+			return packedOutcomes.size();
+		}
+
+		public boolean contains(Object o) {
+			return isOutcome(o) && packedOutcomes.contains(pack(o));
+		}
+
+		public boolean add(Set<String> outcome) {
+			return packedOutcomes.add(pack(outcome));
+		}
+
+		public boolean remove(Object o) {
+			return isOutcome(o) && packedOutcomes.remove(pack(o));
+		}
+
+		public void clear() {
+			packedOutcomes.clear();
+		}
+
+		/**
+		 * Returns true if o is a set of names of the preference variables (only such sets can be contained in the sequence)
+		 */
+		private boolean isOutcome(Object o) {
+			return o instanceof Set && Long.bitCount(pack(o)) == ((Set<?>) o).size();
+		}
+
+		@SuppressWarnings("unchecked")
+		private long pack(Object outcome) {
+			return Outcome.getBits(variables, (Set<String>) outcome);
+		}
+
+		public Iterator<Set<String>> iterator() {
+			return new Iterator<Set<String>>() {
+				int position = -1;
+				int next = advance(0);
+
+				private int advance(int from) {
+					while(from < packedOutcomes.positions() && !packedOutcomes.isPresent(from)) {
+						from++;
+					}
+					return from;
+				}
+
+				public boolean hasNext() {
+					return next < packedOutcomes.positions();
+				}
+
+				public Set<String> next() {
+					if(!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					position = next;
+					next = advance(next + 1);
+					return Outcome.toSet(variables, packedOutcomes.get(position));
+				}
+
+				public void remove() {
+					if(position < 0 || !packedOutcomes.isPresent(position)) {
+						throw new IllegalStateException();
+					}
+					packedOutcomes.remove(packedOutcomes.get(position));
+				}
+			};
+		}
+	}
+}
@@ -47,6 +47,14 @@ public class PerformanceRecord {
 	 * The outcome, if any, that was generated as a counterexample during the verification
 	 */
 	private Set<String> outcome;
+	/**
+	 * Names of the preference variables (for formatting the outcome)
+	 */
+	private String[] variables;
+	/**
+	 * Backend that answered the query (see reasoner.QueryPlanner); null if the record was parsed from the output of the model checker
+	 */
+	private String backend;
 	
 	public Set<String> getOutcome() {
 		return outcome;
@@ -129,6 +137,14 @@ public class PerformanceRecord {
 		userTimeElapsed += time;
 	}
 	
+	public String[] getVariables() {
+		return variables;
+	}
+
+	public void setVariables(String[] variables) {
+		this.variables = variables;
+	}
+	
 	public String getSmvFile() {
 		return smvFile;
 	}
@@ -137,6 +153,14 @@ public class PerformanceRecord {
 		this.smvFile = smvFile;
 	}
 
+	public String getBackend() {
+		return backend;
+	}
+
+	public void setBackend(String backend) {
+		this.backend = backend;
+	}
+
 	public static void resetCounter() {
 		counter = 0;
 	}
@@ -147,10 +171,10 @@ public class PerformanceRecord {
 	public String toString() {
 		String formatted = "";
 		String encodedOutcome = "intermediate step";
-		if(outcome != null) {
-			encodedOutcome=BinaryEncoding.getBinaryEncoding(WorkingPreferenceModel.getPrefMetaData().getVariables(), outcome);
+		if(outcome != null && variables != null) {
+			encodedOutcome=BinaryEncoding.getBinaryEncoding(variables, outcome);
 		}
-		formatted += "["+recordId+","+encodedOutcome+","+smvFile+","+property+","+verified+","+userTimeElapsed+","+systemTimeElapsed+","+bddsUsed+"]";
+		formatted += "["+recordId+","+encodedOutcome+","+smvFile+","+property+","+verified+","+userTimeElapsed+","+systemTimeElapsed+","+bddsUsed+(backend != null ? ","+backend : "")+"]";
 		return formatted;
 	}
 }
@@ -1,5 +1,6 @@
 package model;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
 
@@ -41,6 +42,15 @@ public class PreferenceMetaData {
 	 * Name of file that stores the verification results of the model checker 
 	 */
 	public String resultFile;
+	/**
+	 * Result of the latest verification run when the output of the model checker is kept in memory (streaming or session mode); 
+	 * null if the output was saved to outputFile
+	 */
+	public VerificationResult verificationResult;
+	/**
+	 * Workspace directory (see util.WorkspaceManager) in which the working files are written; null if they are written next to the SMV model file
+	 */
+	public String workspaceDirectory;
 	
 	/**
 	 * If using this constructor, all the meta data regarding the preference variables, 
@@ -72,10 +82,7 @@ public class PreferenceMetaData {
 			throw r;
 		}
 		this.smvFile = smvFile;
-		this.workingFile = smvFile + "-c.smv";
-		this.outputFile = workingFile + "-output.txt";
-		updateCounterExampleFile();
-		this.resultFile = workingFile + "-c.smv.out";
+		setWorkingFiles(smvFile);
 	}	
 
 	/**
@@ -89,7 +96,15 @@ public class PreferenceMetaData {
 	public PreferenceMetaData(String[] variables, String smvFile) {
 		this.variables = variables;
 		this.smvFile = smvFile;
-		this.workingFile = smvFile + "-c.smv";
+		setWorkingFiles(smvFile);
+	}
+	
+	/**
+	 * Sets the names of the working, output, counter example and result files, all derived from baseName
+	 * @param baseName
+	 */
+	private void setWorkingFiles(String baseName) {
+		this.workingFile = baseName + "-c.smv";
 		this.outputFile = workingFile + "-output.txt";
 		updateCounterExampleFile();
 		this.resultFile = workingFile + "-c.smv.out";
@@ -146,6 +161,27 @@ public class PreferenceMetaData {
 		this.resultFile = resultFile;
 	}
 	
+	public VerificationResult getVerificationResult() {
+		return verificationResult;
+	}
+
+	public void setVerificationResult(VerificationResult verificationResult) {
+		this.verificationResult = verificationResult;
+	}
+	
+	public String getWorkspaceDirectory() {
+		return workspaceDirectory;
+	}
+
+	/**
+	 * Moves the working, output, counter example and result files to the workspace directory (keeping the names derived from the SMV model file)
+	 * @param workspaceDirectory
+	 */
+	public void setWorkspaceDirectory(String workspaceDirectory) {
+		this.workspaceDirectory = workspaceDirectory;
+		setWorkingFiles(new File(workspaceDirectory, new File(smvFile).getName()).getPath());
+	}
+	
 	public String getWorkingFile() {
 		return workingFile;
 	}
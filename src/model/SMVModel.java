@@ -0,0 +1,84 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores the transitions of an SMV model (as translated from a preference specification) in memory,
+ * so that the induced preference graph can be explored without invoking an external model checker.
+ * For each preference variable, the guarded transitions of its next(var) := case ... esac; assignment are stored in order,
+ * as a list of guards and a list of corresponding values in the next state (the first guard that holds determines the next value).
+ * Note: This implementation assumes that the preference variables are binary, i.e., each has a 0/1 valuation.
+ * @author gsanthan
+ *
+ */
+public class SMVModel {
+
+	/**
+	 * Name of file containing the SMV model
+	 */
+	String smvFile;
+	/**
+	 * Preference variables used in the SMV model (sorted, as in PreferenceMetaData)
+	 */
+	String[] variables;
+	/**
+	 * Names defined in the DEFINE section of the SMV model and their definitions
+	 */
+	Map<String, GuardExpression> definitions = new HashMap<String, GuardExpression>();
+	/**
+	 * Guards of the transitions of each preference variable, in the order in which they appear in the case statement
+	 */
+	Map<String, List<GuardExpression>> guards = new HashMap<String, List<GuardExpression>>();
+	/**
+	 * Values in the next state corresponding to the guards of each preference variable;
+	 * either a constant or a literal var=1 denoting the current value of var
+	 */
+	Map<String, List<GuardExpression>> values = new HashMap<String, List<GuardExpression>>();
+
+	public SMVModel(String smvFile, String[] variables) {
+		this.smvFile = smvFile;
+		this.variables = variables;
+		for (String variable : variables) {
+			guards.put(variable, new ArrayList<GuardExpression>());
+			values.put(variable, new ArrayList<GuardExpression>());
+		}
+	}
+
+	public String getSmvFile() {
+		return smvFile;
+	}
+
+	public String[] getVariables() {
+		return variables;
+	}
+
+	public Map<String, GuardExpression> getDefinitions() {
+		return definitions;
+	}
+
+	public void addDefinition(String name, GuardExpression definition) {
+		definitions.put(name, definition);
+	}
+
+	/**
+	 * Adds a guarded transition for the variable; transitions are kept in the order they are added
+	 * @param variable Preference variable whose next value is assigned
+	 * @param guard Condition on the current state
+	 * @param value Value of the variable in the next state when guard holds
+	 */
+	public void addTransition(String variable, GuardExpression guard, GuardExpression value) {
+		guards.get(variable).add(guard);
+		values.get(variable).add(value);
+	}
+
+	public List<GuardExpression> getGuards(String variable) {
+		return guards.get(variable);
+	}
+
+	public List<GuardExpression> getValues(String variable) {
+		return values.get(variable);
+	}
+}
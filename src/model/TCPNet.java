@@ -0,0 +1,129 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The preference specification of a TCP-net (or CP-net) as read from its XML file (see translate.TCPNetReader):
+ * the preference variables with their domains, the conditional preference table of each variable, and the relative importance statements.
+ * Everything is indexed by variable name, so that the translator looks up the preferences of a variable in constant time
+ * instead of querying the document for each variable.
+ * <p>
+ * Lists keep the order of the XML file, e.g., the CPT rows of a variable (its parent assignments, with the preferences of the same rows at the same positions).
+ * @author gsanthan
+ *
+ */
+public class TCPNet {
+
+	/**
+	 * Preference variables, in the order in which they are declared
+	 */
+	List<String> variables = new ArrayList<String>();
+	Map<String, List<String>> domains = new HashMap<String, List<String>>();
+	/**
+	 * Parents (GIVEN) of each variable
+	 */
+	Map<String, List<String>> parents = new HashMap<String, List<String>>();
+	/**
+	 * Parent assignments (PARENTVALUE) of the CPT rows of each variable
+	 */
+	Map<String, List<String>> cptKeys = new HashMap<String, List<String>>();
+	/**
+	 * Preferences (PREFERENCE) of the CPT rows of each variable
+	 */
+	Map<String, List<String>> cptValues = new HashMap<String, List<String>>();
+	/**
+	 * Variables less important than each variable (IMP-THAN of the REL-IMP statements of its IMP-VARIABLE)
+	 */
+	Map<String, List<String>> lessImportant = new HashMap<String, List<String>>();
+	/**
+	 * Variables more important than each variable (IMP-VARIABLE of the REL-IMP statements in which it is IMP-THAN)
+	 */
+	Map<String, List<String>> moreImportant = new HashMap<String, List<String>>();
+
+	public void addVariable(String variable) {
+		variables.add(variable);
+	}
+
+	public void addOutcome(String variable, String value) {
+		add(domains, variable, value);
+	}
+
+	public void addParent(String variable, String parent) {
+		add(parents, variable, parent);
+	}
+
+	public void addCPTKey(String variable, String parentAssignment) {
+		add(cptKeys, variable, parentAssignment);
+	}
+
+	public void addCPTValue(String variable, String preferences) {
+		add(cptValues, variable, preferences);
+	}
+
+	/**
+	 * Adds lessImportantVariable to the variables less important than variable
+	 * @param variable
+	 * @param lessImportantVariable
+	 */
+	public void addLessImportantVariable(String variable, String lessImportantVariable) {
+		add(lessImportant, variable, lessImportantVariable);
+	}
+
+	/**
+	 * Adds moreImportantVariable to the variables more important than variable
+	 * @param variable
+	 * @param moreImportantVariable
+	 */
+	public void addMoreImportantVariable(String variable, String moreImportantVariable) {
+		add(moreImportant, variable, moreImportantVariable);
+	}
+
+	private static void add(Map<String, List<String>> map, String key, String value) {
+		List<String> list = map.get(key);
+		if(list == null) {
+			list = new ArrayList<String>();
+			map.put(key, list);
+		}
+		list.add(value);
+	}
+
+	private static List<String> get(Map<String, List<String>> map, String key) {
+		List<String> list = map.get(key);
+		if(list == null) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(list);
+	}
+
+	public List<String> getVariables() {
+		return Collections.unmodifiableList(variables);
+	}
+
+	public List<String> getDomain(String variable) {
+		return get(domains, variable);
+	}
+
+	public List<String> getParents(String variable) {
+		return get(parents, variable);
+	}
+
+	public List<String> getCPTKeys(String variable) {
+		return get(cptKeys, variable);
+	}
+
+	public List<String> getCPTValues(String variable) {
+		return get(cptValues, variable);
+	}
+
+	public List<String> getVariablesLessImportantThan(String variable) {
+		return get(lessImportant, variable);
+	}
+
+	public List<String> getVariablesMoreImportantThan(String variable) {
+		return get(moreImportant, variable);
+	}
+}
@@ -0,0 +1,144 @@
+package model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds the result of a verification run of the model checker in memory: the verdict, the trace (raw output, including any counter example) and resource statistics.
+ * Parsed from the output of the model checker in a single pass, so that the output need not be saved to a file and read back
+ * for finding the verdict and parsing the counter example.
+ * @author gsanthan
+ *
+ */
+public class VerificationResult {
+
+	/**
+	 * Verification result of the first spec in the output; null if the output contains no verification result (e.g., in case of an error)
+	 */
+	Boolean verified;
+	/**
+	 * Lines of the output of the model checker
+	 */
+	List<String> trace = new ArrayList<String>();
+	/**
+	 * Time (in ms) taken for verification, as measured in Java
+	 */
+	long elapsedTime;
+	/**
+	 * Resource statistics reported by the model checker (0 if not reported)
+	 */
+	double userTime;
+	double systemTime;
+	long bddNodesAllocated;
+	long memoryUsed;
+
+	/**
+	 * Parses the output of the model checker in a single pass
+	 * @param output Reader for the output of the model checker
+	 * @return Verification result
+	 * @throws IOException
+	 */
+	public static VerificationResult parse(BufferedReader output) throws IOException {
+		VerificationResult result = new VerificationResult();
+		String nextLine;
+		while((nextLine = output.readLine()) != null) {
+			result.addLine(nextLine);
+		}
+		return result;
+	}
+
+	/**
+	 * Adds a line of output of the model checker, and extracts the verdict and resource statistics from it
+	 * @param line
+	 */
+	public void addLine(String line) {
+		trace.add(line);
+		//As in ModelCheckingDelegate.findVerificationResult, the first line containing "true" or "false" is the verdict
+		if(verified == null) {
+			if(line.contains("true")) {
+				verified = Boolean.TRUE;
+			} else if(line.contains("false")) {
+				verified = Boolean.FALSE;
+			}
+		}
+		String trimmed = line.trim();
+		if(trimmed.startsWith("User time")) {
+			userTime = parseNumber(trimmed);
+		} else if(trimmed.startsWith("System time")) {
+			systemTime = parseNumber(trimmed);
+		} else if(trimmed.startsWith("BDD nodes allocated")) {
+			bddNodesAllocated = (long) parseNumber(trimmed);
+		} else if(trimmed.startsWith("Memory in use") || trimmed.startsWith("Resident Size")) {
+			memoryUsed = (long) parseNumber(trimmed);
+		}
+	}
+
+	/**
+	 * Returns the first number in the line (e.g., 0.05 in "User time    0.05 seconds"); 0 if there is none
+	 */
+	private static double parseNumber(String line) {
+		int begin = 0;
+		while(begin < line.length() && !Character.isDigit(line.charAt(begin))) {
+			begin++;
+		}
+		int end = begin;
+		while(end < line.length() && (Character.isDigit(line.charAt(end)) || line.charAt(end) == '.')) {
+			end++;
+		}
+		if(begin == end) {
+			return 0;
+		}
+		try {
+			return Double.parseDouble(line.substring(begin, end));
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Returns a reader over the trace, for the trace formatters
+	 * @return Reader for the trace
+	 */
+	public BufferedReader getTraceReader() {
+		StringBuilder builder = new StringBuilder();
+		for (String line : trace) {
+			builder.append(line).append('\n');
+		}
+		return new BufferedReader(new StringReader(builder.toString()));
+	}
+
+	public Boolean isVerified() {
+		return verified;
+	}
+
+	public List<String> getTrace() {
+		return trace;
+	}
+
+	public long getElapsedTime() {
+		return elapsedTime;
+	}
+
+	public void setElapsedTime(long elapsedTime) {
+		this.elapsedTime = elapsedTime;
+	}
+
+	public double getUserTime() {
+		return userTime;
+	}
+
+	public double getSystemTime() {
+		return systemTime;
+	}
+
+	public long getBddNodesAllocated() {
+		return bddNodesAllocated;
+	}
+
+	public long getMemoryUsed() {
+		return memoryUsed;
+	}
+}
@@ -1,8 +1,15 @@
 package model;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
- * Stores PreferenceMetaData about the current preference specification used by the PreferenceReasoner.
- * 
+ * Stores the state of one reasoning session of a PreferenceReasoner: PreferenceMetaData about the preference specification used by the reasoner,
+ * the non-dominated outcomes computed at the current level, the invariants used to remove outcomes from the model, and the outcomes generated so far.
+ * Each PreferenceReasoner has its own WorkingPreferenceModel, which it passes on to the model checker (see verify.ModelCheckingDelegate), 
+ * so that reasoners for different preference specifications (or users) can run concurrently in one JVM.
+ * <p>
+ * Note: A WorkingPreferenceModel is not thread-safe; it must be used by only one thread at a time (the thread running the reasoning tasks of its reasoner).
  * @author gsanthan
  *
  */
@@ -11,23 +18,74 @@ public class WorkingPreferenceModel {
 	/**
 	 * PreferenceMetaData about the current preference specification used by the PreferenceReasoner.
 	 */
-	public static PreferenceMetaData prefMetaData = new PreferenceMetaData();
+	PreferenceMetaData prefMetaData = new PreferenceMetaData();
 	
-	public static PreferenceMetaData prefMetaDataReverse = new PreferenceMetaData();
+	PreferenceMetaData prefMetaDataReverse = new PreferenceMetaData();
+	/**
+	 * List of non-dominated outcomes computed until now
+	 */
+	List<String[]> currentMaximalOutcomes = new ArrayList<String[]>();
+	/**
+	 * List of specs to be added when computing next-preferred outcomes at levels lower than the most preferred outcomes
+	 */
+	List<String> invariants = new ArrayList<String>();
+	/**
+	 * Sequence of outcomes in a total order consistent with the induced preference graph 
+	 */
+	OutcomeSequence outcomesInOrder = new OutcomeSequence();
+	
+	public WorkingPreferenceModel(PreferenceMetaData prefMetaData) {
+		this.prefMetaData = prefMetaData;
+		this.outcomesInOrder = new OutcomeSequence(prefMetaData.getVariables());
+	}
+	
+	public WorkingPreferenceModel(PreferenceMetaData prefMetaData, PreferenceMetaData prefMetaDataReverse) {
+		this.prefMetaData = prefMetaData;
+		this.prefMetaDataReverse = prefMetaDataReverse;
+		this.outcomesInOrder = new OutcomeSequence(prefMetaData.getVariables());
+	}
 
-	public static PreferenceMetaData getPrefMetaDataReverse() {
+	public PreferenceMetaData getPrefMetaDataReverse() {
 		return prefMetaDataReverse;
 	}
 
-	public static void setPrefMetaDataReverse(PreferenceMetaData prefMetaDataReverse) {
-		WorkingPreferenceModel.prefMetaDataReverse = prefMetaDataReverse;
+	public void setPrefMetaDataReverse(PreferenceMetaData prefMetaDataReverse) {
+		this.prefMetaDataReverse = prefMetaDataReverse;
 	}
 
-	public static PreferenceMetaData getPrefMetaData() {
+	public PreferenceMetaData getPrefMetaData() {
 		return prefMetaData;
 	}
 
-	public static void setPrefMetaData(PreferenceMetaData prefMetaData) {
-		WorkingPreferenceModel.prefMetaData = prefMetaData;
+	public void setPrefMetaData(PreferenceMetaData prefMetaData) {
+		this.prefMetaData = prefMetaData;
+	}
+
+	public List<String[]> getCurrentMaximalOutcomes() {
+		return currentMaximalOutcomes;
+	}
+
+	public void setCurrentMaximalOutcomes(List<String[]> currentMaximalOutcomes) {
+		this.currentMaximalOutcomes = currentMaximalOutcomes;
+	}
+
+	public List<String> getInvariants() {
+		return invariants;
+	}
+
+	public void setInvariants(List<String> invariants) {
+		this.invariants = invariants;
+	}
+
+	public OutcomeSequence getOutcomesInOrder() {
+		return outcomesInOrder;
+	}
+
+	/**
+	 * Returns the preference variables of the preference specification
+	 * @return Names of the preference variables
+	 */
+	public String[] getVariables() {
+		return prefMetaData.getVariables();
 	}
 }
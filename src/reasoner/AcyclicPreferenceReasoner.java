@@ -3,19 +3,25 @@ package reasoner;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import exception.PreferenceReasonerException;
 
+import model.CPNet;
+import model.Outcome;
 import model.OutcomeSequence;
-import model.PreferenceMetaData;
-import model.WorkingPreferenceModel;
 
 import util.Constants;
+import util.LongHashSet;
 import util.OutcomeFormatter;
 import verify.ModelCheckingDelegate;
+import verify.ReasoningEngine;
 import verify.SpecHelper;
 import verify.TraceFormatterFactory;
 
@@ -25,6 +31,8 @@ import verify.TraceFormatterFactory;
  * 	<li>Consistency: Is the given preference specification consistent (induced preference graph is cycle-free)?</li>
  * 	<li>Dominance Testing: Does one outcome dominate another with respect to the given preference specification?</li>
  * 	<li>Next Preferred: Compute a sequence of outcomes in order such that an outcome that comes later in the sequence does not dominate a preceding outcome.</li>
+ * 	<li>Ordering: Can one outcome be ranked above another in an order consistent with the induced preference graph? (polynomial time for acyclic CP-nets)</li>
+ * 	<li>Optimal Outcome: Compute an outcome (extending a partial assignment) that no other such outcome dominates (linear time for acyclic CP-nets)</li>
  * </ol>
  * Note: Dominance Testing and Next Preferred reasoning tasks work only for consistent (T)CP-nets and CI-nets.
  * See "Dominance Testing via Model Checking", Santhanam et al. (AAAI 2010) for more details. 
@@ -49,23 +57,54 @@ public class AcyclicPreferenceReasoner extends PreferenceReasoner {
 		System.out.println("Does " + morePreferredOutcome + " dominate " + lessPreferredOutcome + "?");
 		
 		//Don't need to compute anything if the outcomes are the same
+		proofOfDominance = null;
 		if(morePreferredOutcome.equals(lessPreferredOutcome)) {
 			System.out.println("Dominance does not hold");
 			return false;
 		}
 		
-		//Make a copy the original SMV file containing the model so that we can append specs for computing dominance 
-		PreferenceMetaData pmd = new PreferenceMetaData(smvFile);
-		pmd.setWorkingFile(smvFile+"-copy-dominance.smv");
+		//Answer from the results of earlier dominance tests on the same model, if possible
+		Boolean cached = dominatesUsingDominanceCache(morePreferredOutcome, lessPreferredOutcome);
+		if(cached != null) {
+			return cached;
+		}
 		
+		//Let the query planner choose the backend, if it is used
+		QueryPlanner.Decision decision = planQuery(QueryPlanner.QUERY.Dominance, morePreferredOutcome, lessPreferredOutcome);
+		Boolean dominates = null;
+		try {
+			if(decision != null && decision.getBackend() == QueryPlanner.BACKEND.Structural) {
+				dominates = dominatesUsingStructure(decision, morePreferredOutcome, lessPreferredOutcome);
+			} else if(usesInJVMReasoningEngine()) {
+				dominates = dominatesUsingInJVMReasoningEngine(morePreferredOutcome, lessPreferredOutcome);
+			} else {
+				dominates = dominatesUsingModelChecker(morePreferredOutcome, lessPreferredOutcome);
+			}
+			return dominates;
+		} finally {
+			completeQuery(decision, dominates);
+		}
+	}
+	
+	/**
+	 * Dominance Testing using the model checker: verifies that there is no path from lessPreferredOutcome to morePreferredOutcome in the induced preference graph; 
+	 * if there is, the counterexample to the negated spec is stored as the proof of dominance
+	 * 
+	 * @param morePreferredOutcome
+	 * @param lessPreferredOutcome
+	 * @return Result of dominance testing: true or false
+	 * @throws IOException
+	 * @throws PreferenceReasonerException
+	 */
+	private boolean dominatesUsingModelChecker(Set<String> morePreferredOutcome, Set<String> lessPreferredOutcome) throws IOException, PreferenceReasonerException {
 		//Append the spec corresponding to the existence of a path from less preferred to more preferred outcome in the induced preference graph
 		List<String> appendix = new ArrayList<String>();
 		String spec = getDominanceSpec(lessPreferredOutcome,morePreferredOutcome);
 		appendix.add(spec);
 		
 		//Verify
-		ModelCheckingDelegate.verify(WorkingPreferenceModel.getPrefMetaData(), appendix, "dominates");
-		boolean dominates = ModelCheckingDelegate.findVerificationResult(WorkingPreferenceModel.getPrefMetaData());
+		ModelCheckingDelegate.verify(workingModel.getPrefMetaData(), appendix, "dominates");
+		boolean dominates = ModelCheckingDelegate.findVerificationResult(workingModel.getPrefMetaData());
 		
 		if(dominates) {
 			
@@ -76,7 +115,7 @@ public class AcyclicPreferenceReasoner extends PreferenceReasoner {
 /*			
 			//Set the less preferred outcome as the initial state; 
 			//the model checker need only search for a path to the more preferred outcome  
-			String initSpec = SpecHelper.getInitOutcomeSpec(lessPreferredOutcome);
+			String initSpec = SpecHelper.getInitOutcomeSpec(variables, lessPreferredOutcome);
 			
 			//Append the initial state contraints and the property to be verified to the model 
 			appendix.add(initSpec);*/
@@ -84,16 +123,18 @@ public class AcyclicPreferenceReasoner extends PreferenceReasoner {
 			appendix.add(spec);
 			
 			//Verify 
-			ModelCheckingDelegate.verify(WorkingPreferenceModel.getPrefMetaData(), appendix, "counterToDominates");
+			ModelCheckingDelegate.verify(workingModel.getPrefMetaData(), appendix, "counterToDominates");
 			//Model checker must return false, i.e., property is not verified 
-			ModelCheckingDelegate.findVerificationResult(WorkingPreferenceModel.getPrefMetaData());
+			ModelCheckingDelegate.findVerificationResult(workingModel.getPrefMetaData());
 			//Counter example provided by the model checker corresponds to the proof of dominance in the induced preference graph 
-			OutcomeSequence c = TraceFormatterFactory.createTraceFormatter().parsePathFromTrace(WorkingPreferenceModel.getPrefMetaData());
+			OutcomeSequence c = TraceFormatterFactory.createTraceFormatter().parsePathFromTrace(workingModel.getPrefMetaData());
 			System.out.print("Proof of dominance: ");
 			c.printOutcomeSequence();
+			proofOfDominance = c;
 		} else {
 			System.out.println("Dominance does not hold");
 		}
+		cacheDominance(morePreferredOutcome, lessPreferredOutcome, dominates);
 		return dominates;
 	}
 	
@@ -101,19 +142,51 @@ public class AcyclicPreferenceReasoner extends PreferenceReasoner {
 	 * @see translate.PreferenceReasoner#isConsistent()
 	 */
 	public boolean isConsistent() throws Exception {
+		cycle = null;
 
+		//Decide from the structure of the preference specification (or from an earlier test on the same model), if possible
+		Boolean known = isConsistentUsingStructure();
+		if(known != null) {
+			return known;
+		}
+		
+		//Let the query planner choose the backend, if it is used
+		QueryPlanner.Decision decision = planQuery(QueryPlanner.QUERY.Consistency, null, null);
+		Boolean consistent = null;
+		try {
+			if(usesInJVMReasoningEngine()) {
+				consistent = isConsistentUsingInJVMReasoningEngine();
+			} else {
+				consistent = isConsistentUsingModelChecker();
+			}
+			return cacheConsistency(consistent);
+		} finally {
+			completeQuery(decision, consistent);
+		}
+	}
+	
+	/**
+	 * Consistency using the model checker: verifies that there is no cycle in the induced preference graph; 
+	 * if there is, the cycle is parsed from the counterexample 
+	 * 
+	 * @return true if the induced preference graph is cycle-free
+	 * @throws IOException
+	 * @throws PreferenceReasonerException
+	 */
+	private boolean isConsistentUsingModelChecker() throws IOException, PreferenceReasonerException {
 		//Append the spec corresponding to the existence of a cycle in the model (corresponds to a cycle in the induced preference graph)
 		List<String> appendix = new ArrayList<String>();
 		String spec = getConsistencySpec();
 		appendix.add(spec);
 		
 		//Verify
-		ModelCheckingDelegate.verify(WorkingPreferenceModel.getPrefMetaData(), appendix, "consistency");
-		boolean consistent = ModelCheckingDelegate.findVerificationResult(WorkingPreferenceModel.getPrefMetaData());
+		ModelCheckingDelegate.verify(workingModel.getPrefMetaData(), appendix, "consistency");
+		boolean consistent = ModelCheckingDelegate.findVerificationResult(workingModel.getPrefMetaData());
 		
 		if(!consistent) {
 			//Parse and return the cycle 
-			OutcomeSequence c = TraceFormatterFactory.createTraceFormatter().parseCycleFromTrace(WorkingPreferenceModel.getPrefMetaData());
+			OutcomeSequence c = TraceFormatterFactory.createTraceFormatter().parseCycleFromTrace(workingModel.getPrefMetaData());
+			cycle = c;
 
 			System.out.print("Not consistent; Cycle found: ");
 			c.printOutcomeSequence();
@@ -130,8 +203,9 @@ public class AcyclicPreferenceReasoner extends PreferenceReasoner {
 	public void resetReasoner() {
 		//Prepare for a new set of reasoning tasks; 
 		//particularly forget the previously computed outcomes at the current level and model constraints   
-		currentMaximalOutcomes = new ArrayList<String[]>();
-		invariants = new ArrayList<String>();
+		workingModel.setCurrentMaximalOutcomes(new ArrayList<String[]>());
+		workingModel.setInvariants(new ArrayList<String>());
+		removedOutcomes = new OutcomeSequence(variables);
 	}
 	
 	/* (non-Javadoc)
@@ -139,12 +213,38 @@ public class AcyclicPreferenceReasoner extends PreferenceReasoner {
 	 */
 	public Set<String> nextPreferred() throws IOException, PreferenceReasonerException {
 		
+		//Let the query planner choose the backend, if it is used
+		QueryPlanner.Decision decision = planQuery(QueryPlanner.QUERY.NextPreferred, null, null);
+		Boolean found = null;
+		try {
+			Set<String> pref;
+			if(usesInJVMReasoningEngine()) {
+				pref = nextPreferredUsingInJVMReasoningEngine();
+			} else {
+				pref = nextPreferredUsingModelChecker();
+			}
+			found = pref != null;
+			return pref;
+		} finally {
+			completeQuery(decision, found);
+		}
+	}
+	
+	/**
+	 * Next Preferred using the model checker: verifies that every outcome in the current model (from which the removed outcomes are deleted) 
+	 * other than those already returned at the current level has an improving flip; the counterexample, if any, is the next preferred outcome  
+	 * 
+	 * @return Next preferred outcome; null if all the non-dominated outcomes at the current level have been computed
+	 * @throws IOException
+	 * @throws PreferenceReasonerException
+	 */
+	private Set<String> nextPreferredUsingModelChecker() throws IOException, PreferenceReasonerException {
 		//Append the spec corresponding to the property that there is no (maximal) outcome 
 		//in the current (induced preference graph) model 
 		//that has no (improving flip) outgoing transition in which a preference variable is changed  
 		List<String> appendix = new ArrayList<String>();
 		String spec = getNextPreferredSpec();
-		appendix.addAll(invariants);
+		appendix.addAll(workingModel.getInvariants());
 		appendix.add(spec);
 		
 		if(Constants.LOG_VERIFICATION_SPECS) {
@@ -152,8 +252,8 @@ public class AcyclicPreferenceReasoner extends PreferenceReasoner {
 		}
 		
 		//Verify
-		ModelCheckingDelegate.verify(WorkingPreferenceModel.getPrefMetaData(), appendix, "nextPreferred");
-		boolean result = ModelCheckingDelegate.findVerificationResult(WorkingPreferenceModel.getPrefMetaData());
+		ModelCheckingDelegate.verify(workingModel.getPrefMetaData(), appendix, "nextPreferred");
+		boolean result = ModelCheckingDelegate.findVerificationResult(workingModel.getPrefMetaData());
 		
 		if(Constants.LOG_VERIFICATION_SPECS) {
 			System.out.println(result);
@@ -162,17 +262,17 @@ public class AcyclicPreferenceReasoner extends PreferenceReasoner {
 		Set<String> pref;
 		if(result == true) {
 			OutcomeSequence currentMaximal = new OutcomeSequence();
-			currentMaximal.addOutcomeSequenceAsArray(currentMaximalOutcomes);
+			currentMaximal.addOutcomeSequenceAsArray(workingModel.getCurrentMaximalOutcomes());
 			removeOutcomes(currentMaximal);
-			currentMaximalOutcomes.clear();
+			workingModel.getCurrentMaximalOutcomes().clear();
 			//All maximal outcomes at the current level have been computed
 			pref = null;
 		} else {
 			//Parse the found next preferred outcome from the model checker's output file
-			String[] currentPreferred = TraceFormatterFactory.createTraceFormatter().parseCounterExampleFromTrace(WorkingPreferenceModel.getPrefMetaData(), false);
+			String[] currentPreferred = TraceFormatterFactory.createTraceFormatter().parseCounterExampleFromTrace(workingModel.getPrefMetaData(), false);
 			
 			//Keep track of the maximal outcomes at the current level 
-			currentMaximalOutcomes.add(currentPreferred);
+			workingModel.getCurrentMaximalOutcomes().add(currentPreferred);
 			
 			//Return the found next preferred outcome at the current level
 			pref = new HashSet<String>(Arrays.asList(currentPreferred));
@@ -187,21 +287,12 @@ public class AcyclicPreferenceReasoner extends PreferenceReasoner {
 	public List<OutcomeSequence> generateWeakOrder() throws IOException, PreferenceReasonerException {
 		//The to-be-computed weak order as a list of levels - each level has a set of outcome
 		List<OutcomeSequence> weakOrder = new ArrayList<OutcomeSequence>();
-		resetGeneratedOutcomes();
+		WeakOrderIterator levels = weakOrderIterator();
 		OutcomeSequence nextPreferredSet = null;
-		do {
-			//Sequentially compute the outcomes at subsequent levels
-			nextPreferredSet = computeCurrentPreferredSet();
-			if(nextPreferredSet != null && nextPreferredSet.getOutcomeSequence().size()>0) {
-				weakOrder.add(nextPreferredSet);
-			}
-			PreferenceReasoner.currentMaximalOutcomes = new ArrayList<String[]>();
-			if(getOutcomeCount() >= Constants.NUM_OUTCOMES) {
-				return weakOrder;
-			}
-			//After each level has been computed, remove outcomes just computed from the model so that the next level can be computed
-			removeOutcomes(nextPreferredSet);
-		} while (nextPreferredSet != null && !nextPreferredSet.getOutcomeSequence().isEmpty() && !(getOutcomeCount() >= Constants.NUM_OUTCOMES));
+		//Sequentially compute the outcomes at subsequent levels
+		while((nextPreferredSet = levels.nextLevel()) != null) {
+			weakOrder.add(nextPreferredSet);
+		}
 		return weakOrder;
 	}
 
@@ -211,6 +302,16 @@ public class AcyclicPreferenceReasoner extends PreferenceReasoner {
 	 */
 	public OutcomeSequence computeCurrentPreferredSet() throws IOException, PreferenceReasonerException {
 		
+		//The top-most level of an acyclic CP-net with complete CPTs is its optimal outcome: no model checking is needed
+		OutcomeSequence optimalLevel = computeOptimalLevel();
+		if(optimalLevel != null) {
+			return optimalLevel;
+		}
+		
+		if(usesLevelEnumeration()) {
+			return computeCurrentPreferredSetInOnePass();
+		}
+		
 		Set<String> next = null;
 		OutcomeSequence visited = new OutcomeSequence();
 		boolean computedEnoughOutcomes = false;
@@ -231,6 +332,29 @@ public class AcyclicPreferenceReasoner extends PreferenceReasoner {
 		return visited;
 	}
 
+	/**
+	 * Computes the top-most level (non-dominated set) by a forward sweep (see model.CPNet), if the preference specification is an acyclic CP-net
+	 * with complete CPTs, and no outcomes have been removed or computed at the current level yet; then the level is the optimal outcome alone.
+	 * @return Top-most level; null if it has to be computed by the reasoning engine
+	 * @throws IOException
+	 */
+	private OutcomeSequence computeOptimalLevel() throws IOException {
+		if(!removedOutcomes.getOutcomeSequence().isEmpty() || !workingModel.getCurrentMaximalOutcomes().isEmpty()) {
+			return null;
+		}
+		CPNet net = getCPNet();
+		if(net == null || !net.isComplete()) {
+			return null;
+		}
+		OutcomeSequence level = new OutcomeSequence(variables);
+		level.addPackedOutcome(net.getOptimalCompletion(0L, 0L));
+		if(addOutcomeSequenceToGeneratedSequence(level) < Constants.NUM_OUTCOMES) {
+			//All maximal outcomes at the current level have been computed
+			removeOutcomes(level);
+		}
+		return level;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see translate.PreferenceReasoner#computeNextPreferredSetIgnoring(test.OutcomeSequence)
@@ -249,11 +373,12 @@ public class AcyclicPreferenceReasoner extends PreferenceReasoner {
 		//Remove outcomes from the model by making the negation of each outcome invariant 
 		for (String[] outcome : outcomes.getOutcomeSequenceAsListOfStringArray()) {
 			if(Constants.CURRENT_MODEL_CHECKER==Constants.MODEL_CHECKER.CadenceSMV) {
-				invariants.add("INVAR !(" + OutcomeFormatter.formatOutcome(outcome) + ");");
+				workingModel.getInvariants().add("INVAR !(" + OutcomeFormatter.formatOutcome(variables, outcome) + ");");
 			} else {
-				invariants.add("INVAR !(" + OutcomeFormatter.formatOutcome(outcome) + ")");
+				workingModel.getInvariants().add("INVAR !(" + OutcomeFormatter.formatOutcome(variables, outcome) + ")");
 			}
 		}
+		removedOutcomes.addOutcomeSequence(outcomes);
 	}
 
 	/**
@@ -262,8 +387,8 @@ public class AcyclicPreferenceReasoner extends PreferenceReasoner {
 	 */
 	private String getNextPreferredSpec() {
 		String formattedOutcomes = new String();
-		for (String[] outcome : currentMaximalOutcomes) {
-			String currentFormattedOutcome = OutcomeFormatter.formatOutcome(outcome);
+		for (String[] outcome : workingModel.getCurrentMaximalOutcomes()) {
+			String currentFormattedOutcome = OutcomeFormatter.formatOutcome(variables, outcome);
 			formattedOutcomes = formattedOutcomes + " | (" + currentFormattedOutcome + ")";
 		}
 		//CTL property that specifies that there is always an improving flip beginning from the current node
@@ -324,7 +449,7 @@ public class AcyclicPreferenceReasoner extends PreferenceReasoner {
 		}
 		//CTL property specifying that there is a path from outcome1 to outcome 2 (outcome2 is better than outcome1) 	
 //		spec = SpecHelper.getCTLSpec("("+ outcome1 + " -> EX EF (" + outcome2 + ")) ","dominance","-- "+ " (" + readableOutcome1 + ") -> (" + readableOutcome2 + ")");
-		spec = SpecHelper.getCTLSpec("("+ outcome1 + " & " + SpecHelper.getInitChangeVariablesCondition() + " -> EX EF (" + outcome2 + ")) ","dominance","-- "+ " (" + readableOutcome1 + ") -> (" + readableOutcome2 + ")");
+		spec = SpecHelper.getCTLSpec("("+ outcome1 + " & " + SpecHelper.getInitChangeVariablesCondition(variables) + " -> EX EF (" + outcome2 + ")) ","dominance","-- "+ " (" + readableOutcome1 + ") -> (" + readableOutcome2 + ")");
 		return spec;
 	}
 	
@@ -370,11 +495,162 @@ public class AcyclicPreferenceReasoner extends PreferenceReasoner {
 		}
 		//CTL property specifying that there is no path from outcome1 to outcome 2 (outcome2 is better than outcome1) 	
 //		spec = SpecHelper.getCTLSpec("(("+ outcome1 + " -> !EX EF (" + outcome2 + "))) ","counterExampleForDominanceTest"," (" + readableOutcome1 + ") -> (" + readableOutcome2 + ")");
-		spec = SpecHelper.getCTLSpec("(("+ outcome1 + " & " + SpecHelper.getInitChangeVariablesCondition() + " -> !EX EF (" + outcome2 + "))) ","dominance","-- "+ " (" + readableOutcome1 + ") -> (" + readableOutcome2 + ")");
+		spec = SpecHelper.getCTLSpec("(("+ outcome1 + " & " + SpecHelper.getInitChangeVariablesCondition(variables) + " -> !EX EF (" + outcome2 + "))) ","dominance","-- "+ " (" + readableOutcome1 + ") -> (" + readableOutcome2 + ")");
 		
 		return spec;
 	}
 
+	/**
+	 * Ordering query: Can firstOutcome be ranked above secondOutcome in a total order consistent with the induced preference graph?
+	 * Returns true if secondOutcome does not dominate firstOutcome; if false is returned, firstOutcome does not dominate secondOutcome 
+	 * (so secondOutcome can be ranked above firstOutcome). Ordering queries are weaker than dominance queries, but for acyclic CP-nets 
+	 * they are answered from the CPTs in time linear in the number of variables, without any search (see model.CPNet); 
+	 * for other preference specifications, they are answered by a dominance test.
+	 * 
+	 * @param firstOutcome
+	 * @param secondOutcome
+	 * @return true if firstOutcome can be ranked above secondOutcome
+	 * @throws Exception
+	 */
+	public boolean orders(Set<String> firstOutcome, Set<String> secondOutcome) throws Exception {
+		if(firstOutcome.equals(secondOutcome)) {
+			return false;
+		}
+		CPNet net = getCPNet();
+		if(net != null) {
+			return net.compare(Outcome.getBits(variables, firstOutcome), Outcome.getBits(variables, secondOutcome)) < 0;
+		}
+		return !dominates(secondOutcome, firstOutcome);
+	}
+	
+	/**
+	 * Sorts the outcomes in a total order consistent with the induced preference graph: an outcome that comes later in the sorted list 
+	 * does not dominate a preceding outcome. For acyclic CP-nets, the outcomes are sorted with O(n log n) ordering queries (see orders); 
+	 * for other preference specifications, the dominance relation among the outcomes is computed once (O(n^2) dominance tests), 
+	 * and the outcomes are sorted topologically: each outcome placed next is one that is not dominated by any of the remaining outcomes.
+	 * 
+	 * @param outcomes
+	 * @return Sorted list of outcomes (duplicates removed)
+	 * @throws Exception
+	 */
+	public List<Set<String>> sortOutcomes(Collection<Set<String>> outcomes) throws Exception {
+		final CPNet net = getCPNet();
+		if(net != null) {
+			//Encode each outcome once (dropping duplicates), then sort the positions of the outcomes by their encodings
+			final List<Set<String>> distinct = new ArrayList<Set<String>>(outcomes.size());
+			final long[] encodings = new long[outcomes.size()];
+			LongHashSet seen = new LongHashSet(outcomes.size());
+			for (Set<String> outcome : outcomes) {
+				long encoding = Outcome.getBits(variables, outcome);
+				if(seen.add(encoding)) {
+					encodings[distinct.size()] = encoding;
+					distinct.add(outcome);
+				}
+			}
+			Integer[] positions = new Integer[distinct.size()];
+			for (int i = 0; i < positions.length; i++) {
+				positions[i] = i;
+			}
+			Arrays.sort(positions, new Comparator<Integer>() {
+				public int compare(Integer o1, Integer o2) {
+					return net.compare(encodings[o1], encodings[o2]);
+				}
+			});
+			List<Set<String>> sorted = new ArrayList<Set<String>>(positions.length);
+			for (Integer position : positions) {
+				sorted.add(distinct.get(position));
+			}
+			return sorted;
+		}
+		List<Set<String>> distinct = new ArrayList<Set<String>>(new LinkedHashSet<Set<String>>(outcomes));
+		int n = distinct.size();
+		//dominatedOutcomes.get(i) lists the outcomes dominated by outcome i; dominators[j] counts the outcomes not yet placed that dominate outcome j
+		List<List<Integer>> dominatedOutcomes = new ArrayList<List<Integer>>(n);
+		int[] dominators = new int[n];
+		for (int j = 0; j < n; j++) {
+			dominatedOutcomes.add(new ArrayList<Integer>());
+		}
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				if(i != j && dominates(distinct.get(i), distinct.get(j))) {
+					dominatedOutcomes.get(i).add(j);
+					dominators[j]++;
+				}
+			}
+		}
+		//Place the first remaining outcome (in the given order) that is not dominated by any of the remaining outcomes
+		boolean[] placed = new boolean[n];
+		List<Set<String>> sorted = new ArrayList<Set<String>>(n);
+		while(sorted.size() < n) {
+			int next = -1;
+			for (int j = 0; j < n; j++) {
+				if(!placed[j] && dominators[j] == 0) {
+					next = j;
+					break;
+				}
+			}
+			if(next < 0) {
+				throw new PreferenceReasonerException("The outcomes cannot be sorted: the induced preference graph has a cycle among them");
+			}
+			placed[next] = true;
+			sorted.add(distinct.get(next));
+			for (Integer j : dominatedOutcomes.get(next)) {
+				dominators[j]--;
+			}
+		}
+		return sorted;
+	}
+
+	/**
+	 * Optimal Outcome: returns an outcome that is not dominated by any other outcome. For acyclic CP-nets, it is computed by a forward sweep 
+	 * over the CPTs in time linear in the number of variables (see model.CPNet), and it is the unique optimal outcome if the CPTs are complete; 
+	 * for other preference specifications, it is the first non-dominated outcome found by the reasoning engine.
+	 * 
+	 * @return Outcome (names of the variables with valuation 1); null if every outcome is dominated (the preference specification is inconsistent)
+	 * @throws IOException
+	 */
+	public Set<String> optimal() throws IOException {
+		CPNet net = getCPNet();
+		if(net != null) {
+			return Outcome.toSet(variables, net.getOptimalCompletion(0L, 0L));
+		}
+		ReasoningEngine engine = usesInJVMReasoningEngine() ? getInJVMReasoningEngine() : getSymbolicModelChecker();
+		OutcomeSequence nonDominated = engine.findNonDominatedOutcomes(new OutcomeSequence(variables), 1);
+		if(nonDominated.getOutcomeSequence().isEmpty()) {
+			return null;
+		}
+		return nonDominated.getOutcomeSequence().iterator().next();
+	}
+	
+	/**
+	 * Optimal Completion: extends the partial assignment to an outcome that is not dominated by any other outcome extending the partial assignment,
+	 * by a forward sweep over the CPTs in time linear in the number of variables (see model.CPNet). If the CPTs are complete, 
+	 * it is the unique optimal completion of the partial assignment. Supported for acyclic CP-nets only.
+	 * 
+	 * @param partialAssignment Valuations of some of the preference variables
+	 * @return Outcome (names of the variables with valuation 1); null if the preference specification is not an acyclic CP-net
+	 * @throws IOException
+	 */
+	public Set<String> optimalCompletion(Map<String, Boolean> partialAssignment) throws IOException {
+		CPNet net = getCPNet();
+		if(net == null) {
+			return null;
+		}
+		long assigned = 0L;
+		long values = 0L;
+		for (Map.Entry<String, Boolean> valuation : partialAssignment.entrySet()) {
+			int index = Arrays.binarySearch(variables, valuation.getKey());
+			if(index < 0) {
+				throw new RuntimeException("Unknown preference variable in partial assignment: " + valuation.getKey());
+			}
+			assigned |= 1L << index;
+			if(valuation.getValue()) {
+				values |= 1L << index;
+			}
+		}
+		return Outcome.toSet(variables, net.getOptimalCompletion(assigned, values));
+	}
+
 	@Override
 	public OutcomeSequence nextPreferredWithCycles(
 			OutcomeSequence psi_i_minus_1,
@@ -9,12 +9,13 @@ import java.util.Set;
 
 import exception.PreferenceReasonerException;
 
+import model.Outcome;
 import model.OutcomeSequence;
-import model.PreferenceMetaData;
-import model.WorkingPreferenceModel;
 
 import util.Constants;
 import util.OutcomeFormatter;
+import verify.CondensationLevels;
+import verify.ExplicitStateModelChecker;
 import verify.ModelCheckingDelegate;
 import verify.SpecHelper;
 import verify.TraceFormatterFactory;
@@ -27,6 +28,8 @@ import verify.TraceFormatterFactory;
  * 	<li>Next Preferred: Compute a sequence of outcomes in order such that an outcome that comes later in the sequence does not dominate a preceding outcome.</li>
  * </ol>
  * Note: Dominance Testing and Next Preferred reasoning tasks work only for consistent (T)CP-nets and CI-nets.
+ * For up to Constants.SCC_MAX_VARIABLES variables, the levels of the weak order with cycles are computed in memory in a single pass 
+ * over the induced preference graph (see verify.CondensationLevels), instead of with the model checker.
  * See "Dominance Testing via Model Checking", Santhanam et al. (AAAI 2010) for more details. 
  * @author gsanthan
  *
@@ -53,23 +56,54 @@ public class CyclicPreferenceReasoner extends PreferenceReasoner {
 		System.out.println("Does " + morePreferredOutcome + " dominate " + lessPreferredOutcome + "?");
 		
 		//Don't need to compute anything if the outcomes are the same
+		proofOfDominance = null;
 		if(morePreferredOutcome.equals(lessPreferredOutcome)) {
 			System.out.println("Dominance does not hold");
 			return false;
 		}
 		
-		//Make a copy the original SMV file containing the model so that we can append specs for computing dominance 
-		PreferenceMetaData pmd = new PreferenceMetaData(smvFile);
-		pmd.setWorkingFile(smvFile+"-copy-dominance.smv");
+		//Answer from the results of earlier dominance tests on the same model, if possible
+		Boolean cached = dominatesUsingDominanceCache(morePreferredOutcome, lessPreferredOutcome);
+		if(cached != null) {
+			return cached;
+		}
 		
+		//Let the query planner choose the backend, if it is used
+		QueryPlanner.Decision decision = planQuery(QueryPlanner.QUERY.Dominance, morePreferredOutcome, lessPreferredOutcome);
+		Boolean dominates = null;
+		try {
+			if(decision != null && decision.getBackend() == QueryPlanner.BACKEND.Structural) {
+				dominates = dominatesUsingStructure(decision, morePreferredOutcome, lessPreferredOutcome);
+			} else if(usesInJVMReasoningEngine()) {
+				dominates = dominatesUsingInJVMReasoningEngine(morePreferredOutcome, lessPreferredOutcome);
+			} else {
+				dominates = dominatesUsingModelChecker(morePreferredOutcome, lessPreferredOutcome);
+			}
+			return dominates;
+		} finally {
+			completeQuery(decision, dominates);
+		}
+	}
+	
+	/**
+	 * Dominance Testing using the model checker: verifies that there is no path from lessPreferredOutcome to morePreferredOutcome in the induced preference graph; 
+	 * if there is, the counterexample to the negated spec is stored as the proof of dominance
+	 * 
+	 * @param morePreferredOutcome
+	 * @param lessPreferredOutcome
+	 * @return Result of dominance testing: true or false
+	 * @throws IOException
+	 * @throws PreferenceReasonerException
+	 */
+	private boolean dominatesUsingModelChecker(Set<String> morePreferredOutcome, Set<String> lessPreferredOutcome) throws IOException, PreferenceReasonerException {
 		//Append the spec corresponding to the existence of a path from less preferred to more preferred outcome in the induced preference graph
 		List<String> appendix = new ArrayList<String>();
 		String spec = getDominanceSpec(lessPreferredOutcome,morePreferredOutcome);
 		appendix.add(spec);
 		
 		//Verify
-		ModelCheckingDelegate.verify(WorkingPreferenceModel.getPrefMetaData(), appendix, "dominates");
-		boolean dominates = ModelCheckingDelegate.findVerificationResult(WorkingPreferenceModel.getPrefMetaData());
+		ModelCheckingDelegate.verify(workingModel.getPrefMetaData(), appendix, "dominates");
+		boolean dominates = ModelCheckingDelegate.findVerificationResult(workingModel.getPrefMetaData());
 		
 		if(dominates) {
 			
@@ -80,7 +114,7 @@ public class CyclicPreferenceReasoner extends PreferenceReasoner {
 /*			
 			//Set the less preferred outcome as the initial state; 
 			//the model checker need only search for a path to the more preferred outcome  
-			String initSpec = SpecHelper.getInitOutcomeSpec(lessPreferredOutcome);
+			String initSpec = SpecHelper.getInitOutcomeSpec(variables, lessPreferredOutcome);
 			
 			//Append the initial state contraints and the property to be verified to the model 
 			appendix.add(initSpec);*/
@@ -88,16 +122,18 @@ public class CyclicPreferenceReasoner extends PreferenceReasoner {
 			appendix.add(spec);
 			
 			//Verify 
-			ModelCheckingDelegate.verify(WorkingPreferenceModel.getPrefMetaData(), appendix, "counterToDominates");
+			ModelCheckingDelegate.verify(workingModel.getPrefMetaData(), appendix, "counterToDominates");
 			//Model checker must return false, i.e., property is not verified 
-			ModelCheckingDelegate.findVerificationResult(WorkingPreferenceModel.getPrefMetaData());
+			ModelCheckingDelegate.findVerificationResult(workingModel.getPrefMetaData());
 			//Counter example provided by the model checker corresponds to the proof of dominance in the induced preference graph 
-			OutcomeSequence c = TraceFormatterFactory.createTraceFormatter().parsePathFromTrace(WorkingPreferenceModel.getPrefMetaData());
+			OutcomeSequence c = TraceFormatterFactory.createTraceFormatter().parsePathFromTrace(workingModel.getPrefMetaData());
 			System.out.print("Proof of dominance: ");
 			c.printOutcomeSequence();
+			proofOfDominance = c;
 		} else {
 			System.out.println("Dominance does not hold");
 		}
+		cacheDominance(morePreferredOutcome, lessPreferredOutcome, dominates);
 		return dominates;
 	}
 	
@@ -105,19 +141,51 @@ public class CyclicPreferenceReasoner extends PreferenceReasoner {
 	 * @see translate.PreferenceReasoner#isConsistent()
 	 */
 	public boolean isConsistent() throws Exception {
+		cycle = null;
 
+		//Decide from the structure of the preference specification (or from an earlier test on the same model), if possible
+		Boolean known = isConsistentUsingStructure();
+		if(known != null) {
+			return known;
+		}
+		
+		//Let the query planner choose the backend, if it is used
+		QueryPlanner.Decision decision = planQuery(QueryPlanner.QUERY.Consistency, null, null);
+		Boolean consistent = null;
+		try {
+			if(usesInJVMReasoningEngine()) {
+				consistent = isConsistentUsingInJVMReasoningEngine();
+			} else {
+				consistent = isConsistentUsingModelChecker();
+			}
+			return cacheConsistency(consistent);
+		} finally {
+			completeQuery(decision, consistent);
+		}
+	}
+	
+	/**
+	 * Consistency using the model checker: verifies that there is no cycle in the induced preference graph; 
+	 * if there is, the cycle is parsed from the counterexample 
+	 * 
+	 * @return true if the induced preference graph is cycle-free
+	 * @throws IOException
+	 * @throws PreferenceReasonerException
+	 */
+	private boolean isConsistentUsingModelChecker() throws IOException, PreferenceReasonerException {
 		//Append the spec corresponding to the existence of a cycle in the model (corresponds to a cycle in the induced preference graph)
 		List<String> appendix = new ArrayList<String>();
 		String spec = getConsistencySpec();
 		appendix.add(spec);
 		
 		//Verify
-		ModelCheckingDelegate.verify(WorkingPreferenceModel.getPrefMetaData(), appendix, "consistency");
-		boolean consistent = ModelCheckingDelegate.findVerificationResult(WorkingPreferenceModel.getPrefMetaData());
+		ModelCheckingDelegate.verify(workingModel.getPrefMetaData(), appendix, "consistency");
+		boolean consistent = ModelCheckingDelegate.findVerificationResult(workingModel.getPrefMetaData());
 		
 		if(!consistent) {
 			//Parse and return the cycle 
-			OutcomeSequence c = TraceFormatterFactory.createTraceFormatter().parseCycleFromTrace(WorkingPreferenceModel.getPrefMetaData());
+			OutcomeSequence c = TraceFormatterFactory.createTraceFormatter().parseCycleFromTrace(workingModel.getPrefMetaData());
+			cycle = c;
 
 			System.out.print("Not consistent; Cycle found: ");
 			c.printOutcomeSequence();
@@ -134,8 +202,9 @@ public class CyclicPreferenceReasoner extends PreferenceReasoner {
 	public void resetReasoner() {
 		//Prepare for a new set of reasoning tasks; 
 		//particularly forget the previously computed outcomes at the current level and model constraints   
-		currentMaximalOutcomes = new ArrayList<String[]>();
-		invariants = new ArrayList<String>();
+		workingModel.setCurrentMaximalOutcomes(new ArrayList<String[]>());
+		workingModel.setInvariants(new ArrayList<String>());
+		removedOutcomes = new OutcomeSequence(variables);
 		psi_i_minus_1 = new OutcomeSequence();
 		psi_i_minus_2_to_psi_0 = new OutcomeSequence();
 	}
@@ -159,22 +228,22 @@ public class CyclicPreferenceReasoner extends PreferenceReasoner {
 			}
 			
 			//Verify 
-			ModelCheckingDelegate.verify(WorkingPreferenceModel.getPrefMetaData(), appendix, "findCycle");
-			result = ModelCheckingDelegate.findVerificationResult(WorkingPreferenceModel.getPrefMetaData());
+			ModelCheckingDelegate.verify(workingModel.getPrefMetaData(), appendix, "findCycle");
+			result = ModelCheckingDelegate.findVerificationResult(workingModel.getPrefMetaData());
 			
 			if(Constants.LOG_VERIFICATION_SPECS) {
 				System.out.println(result);
 			}
 			
 			if(result == false) {
-				OutcomeSequence outcomesInCycle = TraceFormatterFactory.createTraceFormatter().parsePathFromTrace(WorkingPreferenceModel.getPrefMetaData());
+				OutcomeSequence outcomesInCycle = TraceFormatterFactory.createTraceFormatter().parsePathFromTrace(workingModel.getPrefMetaData());
 				OutcomeSequence newOutcomes = outcomesInCycle.getOutcomeSequenceCopy();
 				newOutcomes.getOutcomeSequence().removeAll(cycle.getOutcomeSequence());
 				cycle.addOutcomeSequence(newOutcomes);
 				
 				if(Constants.LOG_VERIFICATION_SPECS) {
 					for(String[] o : newOutcomes.getOutcomeSequenceAsListOfStringArray()) {
-						System.out.println("   "+"Added to cycle: "+OutcomeFormatter.formatOutcome(o));
+						System.out.println("   "+"Added to cycle: "+OutcomeFormatter.formatOutcome(variables, o));
 					}
 				}
 			}
@@ -185,7 +254,7 @@ public class CyclicPreferenceReasoner extends PreferenceReasoner {
 	private String getOutcomeSequenceAsDefinition(OutcomeSequence outcomes, String definitionName) {
 		String formattedOutcomes = new String();
 		for (String[] outcome : outcomes.getOutcomeSequenceAsListOfStringArray()) {
-			String currentFormattedOutcome = OutcomeFormatter.formatOutcome(outcome);
+			String currentFormattedOutcome = OutcomeFormatter.formatOutcome(variables, outcome);
 			if(formattedOutcomes.trim().length()>0) {
 				formattedOutcomes += " | ";
 			}
@@ -204,7 +273,7 @@ public class CyclicPreferenceReasoner extends PreferenceReasoner {
 	private String getTypeIOutcomeSpec(OutcomeSequence psi_i) {
 		String formattedOutcomes = new String();
 		for (String[] outcome : psi_i.getOutcomeSequenceAsListOfStringArray()) {
-			String currentFormattedOutcome = OutcomeFormatter.formatOutcome(outcome);
+			String currentFormattedOutcome = OutcomeFormatter.formatOutcome(variables, outcome);
 			formattedOutcomes = formattedOutcomes + " | (" + currentFormattedOutcome + ")";
 		}
 		//CTL property that specifies that there is always an improving flip beginning from the current node
@@ -228,8 +297,8 @@ public class CyclicPreferenceReasoner extends PreferenceReasoner {
 		}
 		
 		//Verify
-		ModelCheckingDelegate.verify(WorkingPreferenceModel.getPrefMetaData(), appendix, "nextPreferredTypeIOutcome");
-		boolean result = ModelCheckingDelegate.findVerificationResult(WorkingPreferenceModel.getPrefMetaData());
+		ModelCheckingDelegate.verify(workingModel.getPrefMetaData(), appendix, "nextPreferredTypeIOutcome");
+		boolean result = ModelCheckingDelegate.findVerificationResult(workingModel.getPrefMetaData());
 		
 		if(Constants.LOG_VERIFICATION_SPECS) {
 			System.out.println(result);
@@ -243,10 +312,10 @@ public class CyclicPreferenceReasoner extends PreferenceReasoner {
 			typeIOutcome = null;
 		} else {
 			//Parse the found next preferred outcome from the model checker's output file
-			String[] currentPreferred = TraceFormatterFactory.createTraceFormatter().parseCounterExampleFromTrace(WorkingPreferenceModel.getPrefMetaData(), true);
+			String[] currentPreferred = TraceFormatterFactory.createTraceFormatter().parseCounterExampleFromTrace(workingModel.getPrefMetaData(), true);
 			
 			//Keep track of the maximal outcomes at the current level 
-			currentMaximalOutcomes.add(currentPreferred);
+			workingModel.getCurrentMaximalOutcomes().add(currentPreferred);
 			
 			//Return the found next preferred outcome at the current level
 			typeIOutcome = new HashSet<String>(Arrays.asList(currentPreferred));
@@ -257,7 +326,7 @@ public class CyclicPreferenceReasoner extends PreferenceReasoner {
 	private String getTypeIIOutcomeCandidateSpec(OutcomeSequence psi_i_minus_1, OutcomeSequence psi_i, OutcomeSequence dropOutcomes) {
 		String formattedOutcomes_psi_i_minus_1 = new String();
 		for (String[] outcome : psi_i_minus_1.getOutcomeSequenceAsListOfStringArray()) {
-			String currentFormattedOutcome = OutcomeFormatter.formatOutcome(outcome);
+			String currentFormattedOutcome = OutcomeFormatter.formatOutcome(variables, outcome);
 			if(formattedOutcomes_psi_i_minus_1.length()>0) {
 				formattedOutcomes_psi_i_minus_1+=" | ";
 			}
@@ -266,7 +335,7 @@ public class CyclicPreferenceReasoner extends PreferenceReasoner {
 		String formattedOutcomes_psi_i = new String();
 		if(psi_i != null && psi_i.getOutcomeSequence().size()>0) {
 			for (String[] outcome : psi_i.getOutcomeSequenceAsListOfStringArray()) {
-				String currentFormattedOutcome = OutcomeFormatter.formatOutcome(outcome);
+				String currentFormattedOutcome = OutcomeFormatter.formatOutcome(variables, outcome);
 				if(formattedOutcomes_psi_i.length()>0) {
 					formattedOutcomes_psi_i+=" | ";
 				}
@@ -276,7 +345,7 @@ public class CyclicPreferenceReasoner extends PreferenceReasoner {
 		String drop = new String();
 		if(dropOutcomes != null | dropOutcomes.getOutcomeSequence().size()>0) {
 			for (String[] outcome : dropOutcomes.getOutcomeSequenceAsListOfStringArray()) {
-				String currentFormattedOutcome = OutcomeFormatter.formatOutcome(outcome);
+				String currentFormattedOutcome = OutcomeFormatter.formatOutcome(variables, outcome);
 				if(drop.length()>0) {
 					drop+=" | ";
 				}
@@ -296,9 +365,9 @@ public class CyclicPreferenceReasoner extends PreferenceReasoner {
 	
 	private String getVerifyCandidateCycleSpec(Set<String> outcome) {
 		OutcomeSequence temp = new OutcomeSequence(outcome);
-		String formattedOutcome = OutcomeFormatter.formatOutcome(temp.getOutcomeSequenceAsListOfStringArray().get(0));
+		String formattedOutcome = OutcomeFormatter.formatOutcome(variables, temp.getOutcomeSequenceAsListOfStringArray().get(0));
 		//CTL property that specifies that there is always an improving flip beginning from the current node
-		String spec = SpecHelper.getCTLSpec(formattedOutcome+" -> AG ( ("+SpecHelper.getInitChangeVariablesCondition()+") -> EF (" + formattedOutcome + "))", "verifyCandidateCycle","Verify if outcome is a possible Type II element (non-dominated cycle) at this level");
+		String spec = SpecHelper.getCTLSpec(formattedOutcome+" -> AG ( ("+SpecHelper.getInitChangeVariablesCondition(variables)+") -> EF (" + formattedOutcome + "))", "verifyCandidateCycle","Verify if outcome is a possible Type II element (non-dominated cycle) at this level");
 		return spec;
 	}
 	
@@ -318,8 +387,8 @@ public class CyclicPreferenceReasoner extends PreferenceReasoner {
 		}
 		
 		//Verify
-		ModelCheckingDelegate.verify(WorkingPreferenceModel.getPrefMetaData(), appendix, "nextPreferredTypeIIOutcome_findCandidate");
-		boolean result = ModelCheckingDelegate.findVerificationResult(WorkingPreferenceModel.getPrefMetaData());
+		ModelCheckingDelegate.verify(workingModel.getPrefMetaData(), appendix, "nextPreferredTypeIIOutcome_findCandidate");
+		boolean result = ModelCheckingDelegate.findVerificationResult(workingModel.getPrefMetaData());
 		
 		if(Constants.LOG_VERIFICATION_SPECS) {
 			System.out.println(result);
@@ -333,10 +402,10 @@ public class CyclicPreferenceReasoner extends PreferenceReasoner {
 			typeIIOutcomeCandidate = null;
 		} else {
 			//Parse the found next preferred outcome from the model checker's output file
-			String[] currentPreferred = TraceFormatterFactory.createTraceFormatter().parseCounterExampleFromTrace(WorkingPreferenceModel.getPrefMetaData(), true);
+			String[] currentPreferred = TraceFormatterFactory.createTraceFormatter().parseCounterExampleFromTrace(workingModel.getPrefMetaData(), true);
 			
 			//Keep track of the maximal outcomes at the current level 
-			currentMaximalOutcomes.add(currentPreferred);
+			workingModel.getCurrentMaximalOutcomes().add(currentPreferred);
 			
 			//Return the found next preferred outcome at the current level
 			typeIIOutcomeCandidate = new HashSet<String>(Arrays.asList(currentPreferred));
@@ -360,8 +429,8 @@ public class CyclicPreferenceReasoner extends PreferenceReasoner {
 		}
 		
 		//Verify
-		ModelCheckingDelegate.verify(WorkingPreferenceModel.getPrefMetaData(), appendix, "nextPreferredTypeIIOutcome_verifyCandidate");
-		boolean result = ModelCheckingDelegate.findVerificationResult(WorkingPreferenceModel.getPrefMetaData());
+		ModelCheckingDelegate.verify(workingModel.getPrefMetaData(), appendix, "nextPreferredTypeIIOutcome_verifyCandidate");
+		boolean result = ModelCheckingDelegate.findVerificationResult(workingModel.getPrefMetaData());
 		
 		if(Constants.LOG_VERIFICATION_SPECS) {
 			System.out.println(result);
@@ -399,6 +468,17 @@ public class CyclicPreferenceReasoner extends PreferenceReasoner {
 		OutcomeSequence psi_i_minus_1_to_psi_0 = psi_i_minus_2_to_psi_0.getOutcomeSequenceCopy();
 		psi_i_minus_1_to_psi_0.addOutcomeSequence(psi_i_minus_1);
 		
+		if(usesCondensationLevels()) {
+			try {
+				return nextPreferredWithCyclesUsingCondensationLevels(psi_i_minus_1, psi_i_minus_1_to_psi_0);
+			} catch (OutOfMemoryError e) {
+				//The memory estimated for the levels was not enough (e.g., for a long path of flips): use the model checker from now on
+				condensationLevels = null;
+				condensationLevelsOutOfMemory = true;
+				System.out.println("Not enough memory to compute the levels of the weak order with cycles in memory; using the model checker");
+			}
+		}
+		
 		//Find Type I outcomes first
 		if(!topLevel) {
 			//For the top level, it is assumed that there are no Type I outcomes
@@ -461,6 +541,73 @@ public class CyclicPreferenceReasoner extends PreferenceReasoner {
 		return psi_i;
 	}
 
+	/**
+	 * Returns true if the levels of the weak order with cycles are computed in memory (see verify.CondensationLevels)
+	 */
+	private boolean usesCondensationLevels() {
+		return variables.length <= Math.min(Constants.SCC_MAX_VARIABLES, CondensationLevels.MAX_VARIABLES) 
+				&& !condensationLevelsOutOfMemory && CondensationLevels.fitsInMemory(variables.length);
+	}
+	
+	/**
+	 * Levels of the weak order with cycles of the whole induced preference graph; computed when first used
+	 */
+	CondensationLevels condensationLevels;
+	/**
+	 * Set when the memory ran out while computing the levels in memory; the model checker is used thereafter
+	 */
+	boolean condensationLevelsOutOfMemory;
+	
+	/**
+	 * Next level of the weak order with cycles, computed in memory: all the levels are computed in a single pass over the induced preference graph
+	 * the first time, and the level that follows the given levels is looked up; if the given levels are not the levels computed for the whole graph,
+	 * the level is computed for the graph from which they are removed 
+	 * @param psi_i_minus_1 Outcomes at level i-1
+	 * @param psi_i_minus_1_to_psi_0 Outcomes at levels 0 to i-1
+	 * @return Outcomes at level i
+	 * @throws IOException
+	 */
+	private OutcomeSequence nextPreferredWithCyclesUsingCondensationLevels(OutcomeSequence psi_i_minus_1, OutcomeSequence psi_i_minus_1_to_psi_0) throws IOException {
+		ExplicitStateModelChecker engine = getExplicitStateModelChecker();
+		if(condensationLevels == null) {
+			condensationLevels = engine.findLevelsWithCycles(new OutcomeSequence(variables));
+		}
+		int level = findNextLevel(psi_i_minus_1, psi_i_minus_1_to_psi_0);
+		OutcomeSequence psi_i;
+		if(level >= 0) {
+			psi_i = condensationLevels.getLevel(level);
+		} else {
+			psi_i = engine.findLevelsWithCycles(psi_i_minus_1_to_psi_0).getLevel(0);
+		}
+		psi_i.printEncodedOutcomeSequence(variables);
+		System.out.println("---");
+		return psi_i;
+	}
+	
+	/**
+	 * Returns i if the given outcomes are those at levels 0 to i-1 of the weak order with cycles of the whole graph
+	 * (psi_i_minus_1 is level i-1, and levels 0 to i-1 have as many outcomes as psi_i_minus_1_to_psi_0); -1 otherwise
+	 */
+	private int findNextLevel(OutcomeSequence psi_i_minus_1, OutcomeSequence psi_i_minus_1_to_psi_0) {
+		int next = 0;
+		if(!psi_i_minus_1.getOutcomeSequence().isEmpty()) {
+			next = condensationLevels.getLevel(Outcome.getBits(variables, psi_i_minus_1.getOutcomeSequence().iterator().next())) + 1;
+			if(next == 0 || condensationLevels.getLevelSize(next - 1) != psi_i_minus_1.getOutcomeSequence().size()) {
+				return -1;
+			}
+			for (Set<String> outcome : psi_i_minus_1.getOutcomeSequence()) {
+				if(condensationLevels.getLevel(Outcome.getBits(variables, outcome)) != next - 1) {
+					return -1;
+				}
+			}
+		}
+		int size = 0;
+		for (int level = 0; level < next; level++) {
+			size += condensationLevels.getLevelSize(level);
+		}
+		return size == psi_i_minus_1_to_psi_0.getOutcomeSequence().size() ? next : -1;
+	}
+	
 	OutcomeSequence psi_i_minus_1 = new OutcomeSequence();
 	OutcomeSequence psi_i_minus_2_to_psi_0 = new OutcomeSequence();
 	boolean allLevelsComputed = false;
@@ -494,20 +641,12 @@ public class CyclicPreferenceReasoner extends PreferenceReasoner {
 	 * @see reasoner.PreferenceReasoner#generateWeakOrderWithCycles()
 	 */
 	public List<OutcomeSequence> generateWeakOrderWithCycles() throws IOException, PreferenceReasonerException {
-		OutcomeSequence psi_i_minus_1 = new OutcomeSequence();
-		OutcomeSequence psi_i_minus_2_to_psi_0 = new OutcomeSequence();
-		
 		List<OutcomeSequence> psi_i = new ArrayList<OutcomeSequence>();
-		OutcomeSequence currentLevel = new OutcomeSequence();
-		do {
-			currentLevel = nextPreferredWithCycles(psi_i_minus_1, psi_i_minus_2_to_psi_0);
-			psi_i_minus_2_to_psi_0.addOutcomeSequence(psi_i_minus_1);
-			psi_i_minus_1 = currentLevel;
-			if (currentLevel != null && currentLevel.getOutcomeSequence().size()>0) {
-				psi_i.add(currentLevel);
-			}
-		} while(currentLevel != null && currentLevel.getOutcomeSequence().size()>0);
-		
+		WeakOrderIterator levels = weakOrderWithCyclesIterator();
+		OutcomeSequence currentLevel = null;
+		while((currentLevel = levels.nextLevel()) != null) {
+			psi_i.add(currentLevel);
+		}
 		return psi_i;
 	}
 	
@@ -516,12 +655,16 @@ public class CyclicPreferenceReasoner extends PreferenceReasoner {
 	 */
 	public Set<String> nextPreferred() throws IOException, PreferenceReasonerException {
 		
+		if(usesInJVMReasoningEngine()) {
+			return nextPreferredUsingInJVMReasoningEngine();
+		}
+		
 		//Append the spec corresponding to the property that there is no (maximal) outcome 
 		//in the current (induced preference graph) model 
 		//that has no (improving flip) outgoing transition in which a preference variable is changed  
 		List<String> appendix = new ArrayList<String>();
 		String spec = getNextPreferredSpec();
-		appendix.addAll(invariants);
+		appendix.addAll(workingModel.getInvariants());
 		appendix.add(spec);
 		
 		if(Constants.LOG_VERIFICATION_SPECS) {
@@ -529,8 +672,8 @@ public class CyclicPreferenceReasoner extends PreferenceReasoner {
 		}
 		
 		//Verify
-		ModelCheckingDelegate.verify(WorkingPreferenceModel.getPrefMetaData(), appendix, "nextPreferred");
-		boolean result = ModelCheckingDelegate.findVerificationResult(WorkingPreferenceModel.getPrefMetaData());
+		ModelCheckingDelegate.verify(workingModel.getPrefMetaData(), appendix, "nextPreferred");
+		boolean result = ModelCheckingDelegate.findVerificationResult(workingModel.getPrefMetaData());
 		
 		if(Constants.LOG_VERIFICATION_SPECS) {
 			System.out.println(result);
@@ -539,17 +682,17 @@ public class CyclicPreferenceReasoner extends PreferenceReasoner {
 		Set<String> pref;
 		if(result == true) {
 			OutcomeSequence currentMaximal = new OutcomeSequence();
-			currentMaximal.addOutcomeSequenceAsArray(currentMaximalOutcomes);
+			currentMaximal.addOutcomeSequenceAsArray(workingModel.getCurrentMaximalOutcomes());
 			removeOutcomes(currentMaximal);
-			currentMaximalOutcomes.clear();
+			workingModel.getCurrentMaximalOutcomes().clear();
 			//All maximal outcomes at the current level have been computed
 			pref = null;
 		} else {
 			//Parse the found next preferred outcome from the model checker's output file
-			String[] currentPreferred = TraceFormatterFactory.createTraceFormatter().parseCounterExampleFromTrace(WorkingPreferenceModel.getPrefMetaData(), false);
+			String[] currentPreferred = TraceFormatterFactory.createTraceFormatter().parseCounterExampleFromTrace(workingModel.getPrefMetaData(), false);
 			
 			//Keep track of the maximal outcomes at the current level 
-			currentMaximalOutcomes.add(currentPreferred);
+			workingModel.getCurrentMaximalOutcomes().add(currentPreferred);
 			
 			//Return the found next preferred outcome at the current level
 			pref = new HashSet<String>(Arrays.asList(currentPreferred));
@@ -564,21 +707,12 @@ public class CyclicPreferenceReasoner extends PreferenceReasoner {
 	public List<OutcomeSequence> generateWeakOrder() throws IOException, PreferenceReasonerException {
 		//The to-be-computed weak order as a list of levels - each level has a set of outcome
 		List<OutcomeSequence> weakOrder = new ArrayList<OutcomeSequence>();
-		resetGeneratedOutcomes();
+		WeakOrderIterator levels = weakOrderIterator();
 		OutcomeSequence nextPreferredSet = null;
-		do {
-			//Sequentially compute the outcomes at subsequent levels
-			nextPreferredSet = computeCurrentPreferredSet();
-			if(nextPreferredSet != null && nextPreferredSet.getOutcomeSequence().size()>0) {
-				weakOrder.add(nextPreferredSet);
-			}
-			PreferenceReasoner.currentMaximalOutcomes = new ArrayList<String[]>();
-			if(getOutcomeCount() >= Constants.NUM_OUTCOMES) {
-				return weakOrder;
-			}
-			//After each level has been computed, remove outcomes just computed from the model so that the next level can be computed
-			removeOutcomes(nextPreferredSet);
-		} while (nextPreferredSet != null && !nextPreferredSet.getOutcomeSequence().isEmpty() && !(getOutcomeCount() >= Constants.NUM_OUTCOMES));
+		//Sequentially compute the outcomes at subsequent levels
+		while((nextPreferredSet = levels.nextLevel()) != null) {
+			weakOrder.add(nextPreferredSet);
+		}
 		return weakOrder;
 	}
 
@@ -588,6 +722,10 @@ public class CyclicPreferenceReasoner extends PreferenceReasoner {
 	 */
 	public OutcomeSequence computeCurrentPreferredSet() throws IOException, PreferenceReasonerException {
 		
+		if(usesLevelEnumeration()) {
+			return computeCurrentPreferredSetInOnePass();
+		}
+		
 		Set<String> next = null;
 		OutcomeSequence visited = new OutcomeSequence();
 		boolean computedEnoughOutcomes = false;
@@ -624,9 +762,9 @@ public class CyclicPreferenceReasoner extends PreferenceReasoner {
 		for (String[] outcome : outcomes.getOutcomeSequenceAsListOfStringArray()) {
 			
 			if(Constants.CURRENT_MODEL_CHECKER==Constants.MODEL_CHECKER.CadenceSMV) {
-				removedOutcomesSpec.add("INVAR !(" + OutcomeFormatter.formatOutcome(outcome) + ");");
+				removedOutcomesSpec.add("INVAR !(" + OutcomeFormatter.formatOutcome(variables, outcome) + ");");
 			} else {
-				removedOutcomesSpec.add("INVAR !(" + OutcomeFormatter.formatOutcome(outcome) + ")");
+				removedOutcomesSpec.add("INVAR !(" + OutcomeFormatter.formatOutcome(variables, outcome) + ")");
 			}
 		}
 		return removedOutcomesSpec;
@@ -640,11 +778,12 @@ public class CyclicPreferenceReasoner extends PreferenceReasoner {
 		//Remove outcomes from the model by making the negation of each outcome invariant 
 		for (String[] outcome : outcomes.getOutcomeSequenceAsListOfStringArray()) {
 			if(Constants.CURRENT_MODEL_CHECKER==Constants.MODEL_CHECKER.CadenceSMV) {
-				invariants.add("INVAR !(" + OutcomeFormatter.formatOutcome(outcome) + ");");
+				workingModel.getInvariants().add("INVAR !(" + OutcomeFormatter.formatOutcome(variables, outcome) + ");");
 			} else {
-				invariants.add("INVAR !(" + OutcomeFormatter.formatOutcome(outcome) + ")");
+				workingModel.getInvariants().add("INVAR !(" + OutcomeFormatter.formatOutcome(variables, outcome) + ")");
 			}
 		}
+		removedOutcomes.addOutcomeSequence(outcomes);
 	}
 
 	/**
@@ -653,8 +792,8 @@ public class CyclicPreferenceReasoner extends PreferenceReasoner {
 	 */
 	private String getNextPreferredSpec() {
 		String formattedOutcomes = new String();
-		for (String[] outcome : currentMaximalOutcomes) {
-			String currentFormattedOutcome = OutcomeFormatter.formatOutcome(outcome);
+		for (String[] outcome : workingModel.getCurrentMaximalOutcomes()) {
+			String currentFormattedOutcome = OutcomeFormatter.formatOutcome(variables, outcome);
 			formattedOutcomes = formattedOutcomes + " | (" + currentFormattedOutcome + ")";
 		}
 		//CTL property that specifies that there is always an improving flip beginning from the current node
@@ -715,7 +854,7 @@ public class CyclicPreferenceReasoner extends PreferenceReasoner {
 		}
 		//CTL property specifying that there is a path from outcome1 to outcome 2 (outcome2 is better than outcome1) 	
 //		spec = SpecHelper.getCTLSpec("("+ outcome1 + " -> EX EF (" + outcome2 + ")) ","dominance","-- "+ " (" + readableOutcome1 + ") -> (" + readableOutcome2 + ")");
-		spec = SpecHelper.getCTLSpec("("+ outcome1 + " & " + SpecHelper.getInitChangeVariablesCondition() + " -> EX EF (" + outcome2 + ")) ","dominance","-- "+ " (" + readableOutcome1 + ") -> (" + readableOutcome2 + ")");
+		spec = SpecHelper.getCTLSpec("("+ outcome1 + " & " + SpecHelper.getInitChangeVariablesCondition(variables) + " -> EX EF (" + outcome2 + ")) ","dominance","-- "+ " (" + readableOutcome1 + ") -> (" + readableOutcome2 + ")");
 		
 		return spec;
 	}
@@ -762,7 +901,7 @@ public class CyclicPreferenceReasoner extends PreferenceReasoner {
 		}
 		//CTL property specifying that there is no path from outcome1 to outcome 2 (outcome2 is better than outcome1) 	
 //		spec = SpecHelper.getCTLSpec("(("+ outcome1 + " -> !EX EF (" + outcome2 + "))) ","counterExampleForDominanceTest"," (" + readableOutcome1 + ") -> (" + readableOutcome2 + ")");
-		spec = SpecHelper.getCTLSpec("(("+ outcome1 + " & " + SpecHelper.getInitChangeVariablesCondition() + " -> !EX EF (" + outcome2 + "))) ","dominance","-- "+ " (" + readableOutcome1 + ") -> (" + readableOutcome2 + ")");
+		spec = SpecHelper.getCTLSpec("(("+ outcome1 + " & " + SpecHelper.getInitChangeVariablesCondition(variables) + " -> !EX EF (" + outcome2 + "))) ","dominance","-- "+ " (" + readableOutcome1 + ") -> (" + readableOutcome2 + ")");
 		
 		return spec;
 	}
@@ -0,0 +1,423 @@
+package reasoner;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import model.OutcomeSequence;
+import util.BinaryEncoding;
+import util.Constants;
+import util.FileUtil;
+
+/**
+ * Caches the results of dominance tests on a model, so that repeated dominance queries against an unchanged preference specification
+ * are answered without invoking the model checker (or in-JVM engine) again.
+ * One cache is kept per model, identified by a fingerprint of the contents of its SMV file; outcomes are bit encoded (see BinaryEncoding.getBitEncoding),
+ * hence only models with at most 64 preference variables are cached.
+ * <p>
+ * Besides the results of the dominance tests, every improving flip on the proof of a dominance (flip-path witness) is cached as a known fact.
+ * A positive result that is not cached is inferred by transitivity of dominance: if there is a chain of cached positive facts
+ * from the less preferred to the more preferred outcome, the proofs of the facts on the chain are joined to obtain its proof.
+ * Negative results are only answered from the cache when they were cached.
+ * The size of the cache is bounded (Constants.DOMINANCE_CACHE_SIZE); the least recently used facts are evicted first.
+ * Likewise, caches are kept for at most MAX_CACHED_MODELS models; the cache of the least recently used model is dropped first.
+ * <p>
+ * Note: All the methods are synchronized, so that a cache can be shared by reasoners on the same model.
+ * @author gsanthan
+ *
+ */
+public class DominanceCache {
+
+	/**
+	 * Maximum number of models whose caches are kept
+	 */
+	public static final int MAX_CACHED_MODELS = 32;
+	/**
+	 * Caches indexed by the fingerprint of the model, in the order of their last use
+	 */
+	static LinkedHashMap<String, DominanceCache> caches = new LinkedHashMap<String, DominanceCache>(16, 0.75f, true);
+
+	/**
+	 * Preference variables of the model (bit i of an encoded outcome is the valuation of variables[i])
+	 */
+	String[] variables;
+	/**
+	 * Maximum number of facts in the cache
+	 */
+	int maximumSize;
+	/**
+	 * Cached facts in the order of their last use
+	 */
+	LinkedHashMap<OutcomePair, DominanceFact> facts;
+	/**
+	 * Positive facts indexed by the less preferred outcome: outcome -> outcomes known to dominate it
+	 */
+	Map<Long, Set<Long>> dominatingOutcomes = new HashMap<Long, Set<Long>>();
+
+	long hits;
+	long inferredHits;
+	long misses;
+	long evictions;
+
+	/**
+	 * Returns the cache of the model in smvFile (creates it if this model has not been cached so far);
+	 * null if caching is disabled or the model has more preference variables than can be bit encoded
+	 * @param smvFile SMV file containing the model
+	 * @param variables Preference variables of the model
+	 * @return Cache of dominance results for the model
+	 * @throws IOException
+	 */
+	public static synchronized DominanceCache getCache(String smvFile, String[] variables) throws IOException {
+		if(Constants.DOMINANCE_CACHE_SIZE <= 0 || variables.length > 64) {
+			return null;
+		}
+		String fingerprint = getFingerprint(smvFile, variables);
+		DominanceCache cache = caches.get(fingerprint);
+		if(cache == null) {
+			cache = new DominanceCache(variables, Constants.DOMINANCE_CACHE_SIZE);
+			caches.put(fingerprint, cache);
+			while(caches.size() > MAX_CACHED_MODELS) {
+				caches.remove(caches.keySet().iterator().next());
+			}
+		}
+		return cache;
+	}
+
+	/**
+	 * Removes the caches of all the models
+	 */
+	public static synchronized void clearAllCaches() {
+		caches.clear();
+	}
+
+	/**
+	 * Returns a fingerprint (SHA-1 digest) of the model in smvFile and the order of its preference variables
+	 * @param smvFile SMV file containing the model
+	 * @param variables Preference variables of the model
+	 * @return Fingerprint of the model as a hex string
+	 * @throws IOException
+	 */
+	static String getFingerprint(String smvFile, String[] variables) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException("SHA-1 digest not available for computing the fingerprint of " + smvFile, e);
+		}
+		for (String variable : variables) {
+			digest.update((variable + ",").getBytes("UTF-8"));
+		}
+		BufferedReader r = FileUtil.openFileForRead(smvFile);
+		try {
+			String nextLine;
+			while((nextLine = r.readLine()) != null) {
+				digest.update((nextLine + "\n").getBytes("UTF-8"));
+			}
+		} finally {
+			r.close();
+		}
+		StringBuilder fingerprint = new StringBuilder();
+		for (byte b : digest.digest()) {
+			fingerprint.append(String.format("%02x", b));
+		}
+		return fingerprint.toString();
+	}
+
+	/**
+	 * Creates an empty cache
+	 * @param variables Preference variables of the model
+	 * @param maximumSize Maximum number of facts in the cache
+	 */
+	public DominanceCache(String[] variables, int maximumSize) {
+		this.variables = variables;
+		this.maximumSize = maximumSize;
+		this.facts = new LinkedHashMap<OutcomePair, DominanceFact>(16, 0.75f, true);
+	}
+
+	/**
+	 * Looks up whether morePreferredOutcome dominates lessPreferredOutcome, directly or by transitivity of the cached positive facts
+	 * @param morePreferredOutcome
+	 * @param lessPreferredOutcome
+	 * @return Cached (or inferred) fact; null if the result is not known
+	 */
+	public synchronized DominanceFact lookUp(Set<String> morePreferredOutcome, Set<String> lessPreferredOutcome) {
+		long better = BinaryEncoding.getBitEncoding(variables, morePreferredOutcome);
+		long worse = BinaryEncoding.getBitEncoding(variables, lessPreferredOutcome);
+		DominanceFact fact = facts.get(new OutcomePair(better, worse));
+		if(fact != null) {
+			hits++;
+			return fact;
+		}
+		fact = inferByTransitivity(better, worse);
+		if(fact != null) {
+			inferredHits++;
+			put(new OutcomePair(better, worse), fact);
+			return fact;
+		}
+		misses++;
+		return null;
+	}
+
+	/**
+	 * Caches the result of a dominance test; for a positive result, the improving flips on its proof are cached as well
+	 * @param morePreferredOutcome
+	 * @param lessPreferredOutcome
+	 * @param dominates Result of the dominance test
+	 * @param proofOfDominance Flipping sequence from lessPreferredOutcome to morePreferredOutcome; may be null
+	 */
+	public synchronized void add(Set<String> morePreferredOutcome, Set<String> lessPreferredOutcome, boolean dominates, OutcomeSequence proofOfDominance) {
+		long better = BinaryEncoding.getBitEncoding(variables, morePreferredOutcome);
+		long worse = BinaryEncoding.getBitEncoding(variables, lessPreferredOutcome);
+		if(!dominates) {
+			put(new OutcomePair(better, worse), new DominanceFact(false, null));
+			return;
+		}
+		long[] path = null;
+		if(proofOfDominance != null) {
+			path = new long[proofOfDominance.getOutcomeSequence().size()];
+			int i = 0;
+			for (Set<String> outcome : proofOfDominance.getOutcomeSequence()) {
+				path[i++] = BinaryEncoding.getBitEncoding(variables, outcome);
+			}
+			//Only a proof from the less preferred to the more preferred outcome is a witness
+			if(path.length < 2 || path[0] != worse || path[path.length-1] != better) {
+				path = null;
+			}
+		}
+		if(path != null) {
+			for (int i = 0; i+1 < path.length; i++) {
+				OutcomePair flip = new OutcomePair(path[i+1], path[i]);
+				if(!facts.containsKey(flip)) {
+					put(flip, new DominanceFact(true, new long[]{path[i], path[i+1]}));
+				}
+			}
+		}
+		put(new OutcomePair(better, worse), new DominanceFact(true, path));
+	}
+
+	/**
+	 * Searches (breadth first) for a chain of cached positive facts from worse to better, and joins their proofs
+	 * @param better
+	 * @param worse
+	 * @return Inferred positive fact; null if there is no chain
+	 */
+	DominanceFact inferByTransitivity(long better, long worse) {
+		if(!dominatingOutcomes.containsKey(worse)) {
+			return null;
+		}
+		Map<Long, Long> parent = new HashMap<Long, Long>();
+		ArrayDeque<Long> queue = new ArrayDeque<Long>();
+		parent.put(worse, worse);
+		queue.add(worse);
+		boolean found = false;
+		while(!queue.isEmpty() && !found) {
+			long current = queue.poll();
+			Set<Long> next = dominatingOutcomes.get(current);
+			if(next == null) {
+				continue;
+			}
+			for (long n : next) {
+				if(!parent.containsKey(n)) {
+					parent.put(n, current);
+					if(n == better) {
+						found = true;
+						break;
+					}
+					queue.add(n);
+				}
+			}
+		}
+		if(!found) {
+			return null;
+		}
+
+		//Walk back along the chain, then join the proofs of its facts from the less preferred outcome onwards
+		List<Long> chain = new ArrayList<Long>();
+		long current = better;
+		chain.add(current);
+		while(current != worse) {
+			current = parent.get(current);
+			chain.add(0, current);
+		}
+		List<Long> path = new ArrayList<Long>();
+		for (int i = 0; i+1 < chain.size(); i++) {
+			//The facts on the chain are used again, so they are kept in the cache longer
+			DominanceFact fact = facts.get(new OutcomePair(chain.get(i+1), chain.get(i)));
+			if(fact.witness == null) {
+				return new DominanceFact(true, null);
+			}
+			for (int j = (i == 0 ? 0 : 1); j < fact.witness.length; j++) {
+				path.add(fact.witness[j]);
+			}
+		}
+		return new DominanceFact(true, eraseLoops(path));
+	}
+
+	/**
+	 * Removes the loops from a path (when the proofs that were joined visit the same outcome), so that every outcome occurs at most once
+	 * @param path
+	 * @return Path without loops
+	 */
+	static long[] eraseLoops(List<Long> path) {
+		List<Long> result = new ArrayList<Long>();
+		Map<Long, Integer> position = new HashMap<Long, Integer>();
+		for (long outcome : path) {
+			Integer p = position.get(outcome);
+			if(p != null) {
+				//Cut the loop back to the earlier occurrence of the outcome
+				for (int i = result.size()-1; i > p; i--) {
+					position.remove(result.remove(i));
+				}
+				continue;
+			}
+			position.put(outcome, result.size());
+			result.add(outcome);
+		}
+		long[] array = new long[result.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = result.get(i);
+		}
+		return array;
+	}
+
+	/**
+	 * Caches the fact and evicts the least recently used facts beyond the maximum size
+	 * @param pair
+	 * @param fact
+	 */
+	void put(OutcomePair pair, DominanceFact fact) {
+		DominanceFact previous = facts.put(pair, fact);
+		if(previous != null && previous.dominates) {
+			unindex(pair);
+		}
+		if(fact.dominates) {
+			Set<Long> dominating = dominatingOutcomes.get(pair.worse);
+			if(dominating == null) {
+				dominating = new HashSet<Long>();
+				dominatingOutcomes.put(pair.worse, dominating);
+			}
+			dominating.add(pair.better);
+		}
+		while(facts.size() > maximumSize) {
+			OutcomePair eldest = facts.keySet().iterator().next();
+			if(facts.remove(eldest).dominates) {
+				unindex(eldest);
+			}
+			evictions++;
+		}
+	}
+
+	void unindex(OutcomePair pair) {
+		Set<Long> dominating = dominatingOutcomes.get(pair.worse);
+		if(dominating != null) {
+			dominating.remove(pair.better);
+			if(dominating.isEmpty()) {
+				dominatingOutcomes.remove(pair.worse);
+			}
+		}
+	}
+
+	/**
+	 * Returns the proof of the fact as an OutcomeSequence
+	 * @param fact
+	 * @return Proof of dominance; null if the fact is negative or its proof is not known
+	 */
+	public OutcomeSequence getProofOfDominance(DominanceFact fact) {
+		if(fact.witness == null) {
+			return null;
+		}
+		OutcomeSequence proof = new OutcomeSequence();
+		for (long outcome : fact.witness) {
+			proof.addOutcome(BinaryEncoding.getOutcome(variables, outcome));
+		}
+		return proof;
+	}
+
+	public synchronized int size() {
+		return facts.size();
+	}
+
+	/**
+	 * Returns the number of lookups answered by a cached fact
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of lookups answered by transitivity of cached facts
+	 */
+	public synchronized long getInferredHits() {
+		return inferredHits;
+	}
+
+	/**
+	 * Returns the number of lookups that could not be answered from the cache
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Returns the number of facts evicted from the cache
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public synchronized String getStatistics() {
+		return "Dominance cache: " + hits + " hits, " + inferredHits + " inferred hits, " + misses + " misses, " + evictions + " evictions, " + facts.size() + " facts";
+	}
+
+	/**
+	 * Pair of bit encoded outcomes (better dominates worse)
+	 */
+	static class OutcomePair {
+		final long better;
+		final long worse;
+
+		OutcomePair(long better, long worse) {
+			this.better = better;
+			this.worse = worse;
+		}
+
+		public int hashCode() {
+			long h = better * 31 + worse;
+			return (int) (h ^ (h >>> 32));
+		}
+
+		public boolean equals(Object other) {
+			if(!(other instanceof OutcomePair)) {
+				return false;
+			}
+			OutcomePair o = (OutcomePair) other;
+			return better == o.better && worse == o.worse;
+		}
+	}
+
+	/**
+	 * Cached result of a dominance test, with its proof (bit encoded outcomes from the less preferred to the more preferred outcome) if known
+	 */
+	public static class DominanceFact {
+		final boolean dominates;
+		final long[] witness;
+
+		DominanceFact(boolean dominates, long[] witness) {
+			this.dominates = dominates;
+			this.witness = witness;
+		}
+
+		public boolean dominates() {
+			return dominates;
+		}
+	}
+}
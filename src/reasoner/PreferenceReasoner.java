@@ -1,20 +1,37 @@
 package reasoner;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Set;
 
 import exception.PreferenceReasonerException;
 
+import model.CPNet;
+import model.DependencyGraph;
+import model.InducedPreferenceGraph;
 import model.OutcomeSequence;
 import model.PreferenceMetaData;
 import model.WorkingPreferenceModel;
 
+import util.Constants;
 import util.PerformanceAnalyzer;
+import util.WorkspaceManager;
+import verify.ExplicitStateModelChecker;
+import verify.ModelCheckerSessionManager;
+import verify.ReasoningEngine;
+import verify.BoundedModelChecker;
+import verify.SymbolicModelChecker;
 
 /**
  * The abstract class that defines the model checking based preference reasoning tasks 
+ * <p>
+ * Thread-safety: The state of a reasoning session (see WorkingPreferenceModel) is kept per reasoner, so that different reasoners 
+ * can run their reasoning tasks concurrently in one JVM; the caches shared by the reasoners (dominance results, model checker sessions, models) are synchronized. 
+ * A reasoner itself is not thread-safe and must be used by one thread at a time.
+ * Note: When the model checker is used, the working copies of the model and the outputs of the model checker are written to files named after the SMV file; 
+ * reasoners running concurrently on the same SMV file must hence have their own workspace directories (see util.WorkspaceManager and Constants.WORKSPACE_DIRECTORY), 
+ * which are released by close.  
  *   
  * @author gsanthan
  *
@@ -37,17 +54,75 @@ public abstract class PreferenceReasoner {
 	 */
 	public boolean consistent;
 	/**
-	 * List of non-dominated outcomes computed until now
+	 * State of the reasoning session of this reasoner: metadata of the preference specification, non-dominated outcomes computed until now, 
+	 * invariants used to remove outcomes from the model, and the sequence of outcomes generated so far
 	 */
-	public static List<String[]> currentMaximalOutcomes;
+	protected WorkingPreferenceModel workingModel;
 	/**
-	 * List of specs to be added when computing next-preferred outcomes at levels lower than the most preferred outcomes
+	 * Engine used to answer the reasoning queries of this reasoner; defaults to the engine configured in reasoner.properties
 	 */
-	public static List<String> invariants = new ArrayList<String>();
+	public Constants.REASONING_ENGINE reasoningEngine = Constants.CURRENT_REASONING_ENGINE;
 	/**
-	 * Sequence of outcomes in a total order consistent with the induced preference graph 
+	 * Proof of dominance (flipping sequence from the less preferred to the more preferred outcome) found by the latest dominance test; null if dominance did not hold
 	 */
-	public static OutcomeSequence outcomesInOrder = new OutcomeSequence();
+	public OutcomeSequence proofOfDominance;
+	/**
+	 * Cycle in the induced preference graph found by the latest consistency test; null if the model is consistent, 
+	 * or if the result was known without searching for a cycle (see isConsistentUsingStructure)
+	 */
+	public OutcomeSequence cycle;
+	/**
+	 * Outcomes removed from the model for the in-JVM engines (the model checker uses the corresponding invariants instead); 
+	 * packed over the variables of the model (see model.Outcome), so that the engines can read them without decoding
+	 */
+	public OutcomeSequence removedOutcomes = new OutcomeSequence();
+	/**
+	 * In-JVM explicit state engine for the SMV model; created when first used
+	 */
+	ExplicitStateModelChecker explicitStateModelChecker;
+	/**
+	 * In-JVM symbolic engine for the SMV model; created when first used and kept resident for all later queries
+	 */
+	SymbolicModelChecker symbolicModelChecker;
+	/**
+	 * In-JVM bounded (SAT based) engine for the SMV model; created when first used and kept resident, with its unrolling and learned clauses, for all later queries
+	 */
+	BoundedModelChecker boundedModelChecker;
+	/**
+	 * Cache of the dominance results for the SMV model; looked up when first used
+	 */
+	DominanceCache dominanceCache;
+	boolean dominanceCacheLookedUp;
+	/**
+	 * CP-net (CPTs and dependency graph) encoded by the SMV model; recovered when first used, null if the model does not encode an acyclic CP-net
+	 */
+	CPNet cpNet;
+	boolean cpNetLookedUp;
+	/**
+	 * Maximum number of models whose consistency results are kept
+	 */
+	public static final int MAX_CONSISTENCY_RESULTS = 1000;
+	/**
+	 * Results of the consistency tests, indexed by the fingerprint of the model (see DominanceCache.getFingerprint), in the order of their last use; 
+	 * the results of the least recently used models are evicted first
+	 */
+	static LinkedHashMap<String, Boolean> consistencyResults = new LinkedHashMap<String, Boolean>(16, 0.75f, true);
+	/**
+	 * Fingerprint of the SMV model; computed when first used
+	 */
+	String modelFingerprint;
+	/**
+	 * Specifies whether the backend of each query is chosen by the query planner; defaults to the setting in reasoner.properties
+	 */
+	public boolean useQueryPlanner = Constants.USE_QUERY_PLANNER;
+	/**
+	 * Query planner of the reasoner; created when first used
+	 */
+	QueryPlanner queryPlanner;
+	/**
+	 * Engine chosen by the query planner for the query being answered; null if the reasoning engine of the reasoner is used
+	 */
+	Constants.REASONING_ENGINE plannedReasoningEngine;
 	
 	/**
 	 * Initializes the reasoner with SMV model, and retrieves and stores the preference variables used
@@ -58,10 +133,10 @@ public abstract class PreferenceReasoner {
 			throw new RuntimeException("The translated preference specification SMV file name is empty!");
 		}
 		this.smvFile = smvFile;
-		WorkingPreferenceModel.setPrefMetaData(new PreferenceMetaData(smvFile));
-		this.variables = WorkingPreferenceModel.getPrefMetaData().getVariables();
-		currentMaximalOutcomes = new ArrayList<String[]>();
-		invariants = new ArrayList<String>();
+		this.workingModel = new WorkingPreferenceModel(new PreferenceMetaData(smvFile));
+		assignWorkspace(workingModel.getPrefMetaData());
+		this.variables = workingModel.getVariables();
+		this.removedOutcomes = new OutcomeSequence(variables);
 		resetGeneratedOutcomes();
 	}
 	
@@ -74,14 +149,44 @@ public abstract class PreferenceReasoner {
 		}
 		this.smvFile = smvFile;
 		this.smvFileReverse = smvFileReverse;
-		WorkingPreferenceModel.setPrefMetaData(new PreferenceMetaData(smvFile));
-		WorkingPreferenceModel.setPrefMetaDataReverse(new PreferenceMetaData(smvFileReverse));
-		this.variables = WorkingPreferenceModel.getPrefMetaData().getVariables();
-		currentMaximalOutcomes = new ArrayList<String[]>();
-		invariants = new ArrayList<String>();
+		this.workingModel = new WorkingPreferenceModel(new PreferenceMetaData(smvFile), new PreferenceMetaData(smvFileReverse));
+		assignWorkspace(workingModel.getPrefMetaData());
+		assignWorkspace(workingModel.getPrefMetaDataReverse());
+		this.variables = workingModel.getVariables();
+		this.removedOutcomes = new OutcomeSequence(variables);
 		resetGeneratedOutcomes();
 	}
 	
+	/**
+	 * Moves the working files of the model checker for prefMetaData to a workspace directory of their own, if a base directory is configured
+	 * @param prefMetaData
+	 */
+	private static void assignWorkspace(PreferenceMetaData prefMetaData) {
+		try {
+			WorkspaceManager.assignWorkspace(prefMetaData);
+		} catch (IOException e) {
+			throw new RuntimeException("Error in creating the workspace directory for " + prefMetaData.getSmvFile() + " in " + Constants.WORKSPACE_DIRECTORY + ": " + e.getMessage(), e);
+		}
+	}
+	
+	/**
+	 * Ends the reasoning session: closes the model checker sessions of the reasoner (see verify.ModelCheckerSessionManager) 
+	 * and releases its workspace directories (see util.WorkspaceManager). 
+	 * The reasoner must not be used afterwards.
+	 */
+	public void close() {
+		release(workingModel.getPrefMetaData());
+		release(workingModel.getPrefMetaDataReverse());
+	}
+	
+	private static void release(PreferenceMetaData prefMetaData) {
+		if(prefMetaData != null && prefMetaData.getWorkspaceDirectory() != null) {
+			//The session is used by this reasoner only (reasoners without a workspace share the session of the model)
+			ModelCheckerSessionManager.closeSession(prefMetaData);
+		}
+		WorkspaceManager.releaseWorkspace(prefMetaData);
+	}
+	
 	/**
 	 * Dominance Testing: Does morePreferredOutcome dominate lessPreferredOutcome? Returns true or false.
 	 * 
@@ -177,6 +282,25 @@ public abstract class PreferenceReasoner {
 	 */
 	public abstract List<OutcomeSequence> generateWeakOrderWithCycles() throws IOException, PreferenceReasonerException;
 	
+	/**
+	 * Returns an iterator over the levels of the weak order computed by generateWeakOrder; each level is computed only when it is pulled from the iterator.
+	 * Use this instead of generateWeakOrder when only the top few levels are needed. 
+	 * 
+	 * @return Iterator over the levels of the weak order
+	 */
+	public WeakOrderIterator weakOrderIterator() {
+		return new WeakOrderIterator(this, false);
+	}
+	
+	/**
+	 * Returns an iterator over the levels of the weak order computed by generateWeakOrderWithCycles; each level is computed only when it is pulled from the iterator.
+	 * 
+	 * @return Iterator over the levels of the weak order
+	 */
+	public WeakOrderIterator weakOrderWithCyclesIterator() {
+		return new WeakOrderIterator(this, true);
+	}
+	
 	/**
 	 * Removes specified outcomes in the induced preference graph from the model
 	 *  
@@ -184,19 +308,410 @@ public abstract class PreferenceReasoner {
 	 */
 	public abstract void removeOutcomes(OutcomeSequence outcomes);
 	
+	/**
+	 * Returns the state of the reasoning session of this reasoner
+	 * @return WorkingPreferenceModel of this reasoner
+	 */
+	public WorkingPreferenceModel getWorkingModel() {
+		return workingModel;
+	}
+	
+	public Constants.REASONING_ENGINE getReasoningEngine() {
+		return reasoningEngine;
+	}
+
+	/**
+	 * Sets the engine used to answer the reasoning queries of this reasoner.
+	 * The results shared by the reasoners on the model (dominance and consistency) do not depend on the engine, and are still reused; 
+	 * to have the engine compute them, clear them first (see DominanceCache.clearAllCaches and clearConsistencyResults)
+	 * @param reasoningEngine
+	 */
+	public void setReasoningEngine(Constants.REASONING_ENGINE reasoningEngine) {
+		this.reasoningEngine = reasoningEngine;
+	}
+	
+	public boolean isUseQueryPlanner() {
+		return useQueryPlanner;
+	}
+
+	public void setUseQueryPlanner(boolean useQueryPlanner) {
+		this.useQueryPlanner = useQueryPlanner;
+	}
+	
+	/**
+	 * Returns the query planner of this reasoner, whose decisions can be inspected (see QueryPlanner.getDecisions)
+	 * @return Query planner
+	 */
+	public QueryPlanner getQueryPlanner() {
+		if(queryPlanner == null) {
+			queryPlanner = new QueryPlanner(this);
+		}
+		return queryPlanner;
+	}
+	
+	/**
+	 * Lets the query planner choose the backend for the query, if the planner is used; the engine chosen answers the query until completeQuery is called
+	 * @param query Type of the query
+	 * @param morePreferredOutcome More preferred outcome (dominance queries only; null otherwise)
+	 * @param lessPreferredOutcome Less preferred outcome (dominance queries only; null otherwise)
+	 * @return Decision of the planner; null if the planner is not used
+	 * @throws IOException
+	 */
+	protected QueryPlanner.Decision planQuery(QueryPlanner.QUERY query, Set<String> morePreferredOutcome, Set<String> lessPreferredOutcome) throws IOException {
+		if(!useQueryPlanner) {
+			return null;
+		}
+		QueryPlanner.Decision decision = getQueryPlanner().plan(query, morePreferredOutcome, lessPreferredOutcome);
+		plannedReasoningEngine = decision.getReasoningEngine();
+		if(Constants.LOG_VERIFICATION_SPECS) {
+			System.out.println("   Plan: " + decision);
+		}
+		return decision;
+	}
+	
+	/**
+	 * Records the cost of the query with the query planner, and restores the reasoning engine of the reasoner
+	 * @param decision Decision of the planner (null if the planner is not used)
+	 * @param result Result of the query; null if it could not be answered
+	 */
+	protected void completeQuery(QueryPlanner.Decision decision, Boolean result) {
+		plannedReasoningEngine = null;
+		if(decision != null) {
+			getQueryPlanner().completeQuery(decision, result);
+		}
+	}
+	
+	/**
+	 * Dominance Testing using the structural shortcut chosen by the query planner (see QueryPlanner): the result and the proof of dominance 
+	 * are decided from the CPTs of the acyclic CP-net encoded by the model
+	 * 
+	 * @param decision Decision of the planner
+	 * @param morePreferredOutcome
+	 * @param lessPreferredOutcome
+	 * @return Result of dominance testing: true or false
+	 * @throws IOException
+	 */
+	protected boolean dominatesUsingStructure(QueryPlanner.Decision decision, Set<String> morePreferredOutcome, Set<String> lessPreferredOutcome) throws IOException {
+		proofOfDominance = decision.getProofOfDominance();
+		cacheDominance(morePreferredOutcome, lessPreferredOutcome, decision.getStructuralResult());
+		if(decision.getStructuralResult()) {
+			System.out.print("Proof of dominance: ");
+			proofOfDominance.printOutcomeSequence();
+			return true;
+		}
+		System.out.println("Dominance does not hold");
+		return false;
+	}
+	
+	/**
+	 * Returns the proof of dominance found by the latest dominance test: 
+	 * a sequence of improving flips from the less preferred to the more preferred outcome, or null if dominance did not hold 
+	 * @return Proof of dominance as an OutcomeSequence
+	 */
+	public OutcomeSequence getProofOfDominance() {
+		return proofOfDominance;
+	}
+	
+	/**
+	 * Returns the cache of dominance results for the SMV model of this reasoner (shared by all reasoners on the same model); 
+	 * null if the dominance cache is disabled or cannot be used for the model
+	 * @return Dominance cache for the SMV model
+	 * @throws IOException
+	 */
+	public DominanceCache getDominanceCache() throws IOException {
+		if(!dominanceCacheLookedUp) {
+			dominanceCache = DominanceCache.getCache(smvFile, variables);
+			dominanceCacheLookedUp = true;
+		}
+		return dominanceCache;
+	}
+	
+	/**
+	 * Looks up the result of a dominance test in the dominance cache; on a hit, the cached (or inferred) proof is stored as the proof of dominance 
+	 * @param morePreferredOutcome
+	 * @param lessPreferredOutcome
+	 * @return Result of dominance testing: true or false; null if the result is not known from the cache 
+	 * @throws IOException
+	 */
+	protected Boolean dominatesUsingDominanceCache(Set<String> morePreferredOutcome, Set<String> lessPreferredOutcome) throws IOException {
+		DominanceCache cache = getDominanceCache();
+		if(cache == null) {
+			return null;
+		}
+		DominanceCache.DominanceFact fact = cache.lookUp(morePreferredOutcome, lessPreferredOutcome);
+		if(fact == null) {
+			return null;
+		}
+		if(fact.dominates()) {
+			proofOfDominance = cache.getProofOfDominance(fact);
+			System.out.print("Proof of dominance (cached): ");
+			if(proofOfDominance != null) {
+				proofOfDominance.printOutcomeSequence();
+			} else {
+				System.out.println("not known");
+			}
+			return true;
+		}
+		System.out.println("Dominance does not hold (cached)");
+		return false;
+	}
+	
+	/**
+	 * Adds the result of a dominance test (and the proof of dominance found, if any) to the dominance cache 
+	 * @param morePreferredOutcome
+	 * @param lessPreferredOutcome
+	 * @param dominates Result of dominance testing
+	 * @throws IOException
+	 */
+	protected void cacheDominance(Set<String> morePreferredOutcome, Set<String> lessPreferredOutcome, boolean dominates) throws IOException {
+		DominanceCache cache = getDominanceCache();
+		if(cache != null) {
+			cache.add(morePreferredOutcome, lessPreferredOutcome, dominates, proofOfDominance);
+		}
+	}
+	
+	/**
+	 * Returns the explicit state engine for the SMV model of this reasoner; the model is parsed only once, when the engine is first used
+	 * @return Explicit state engine for the SMV model
+	 * @throws IOException
+	 */
+	public ExplicitStateModelChecker getExplicitStateModelChecker() throws IOException {
+		if(explicitStateModelChecker == null) {
+			explicitStateModelChecker = new ExplicitStateModelChecker(smvFile);
+		}
+		return explicitStateModelChecker;
+	}
+	
+	/**
+	 * Returns the symbolic engine for the SMV model of this reasoner; the model is parsed and encoded only once, when the engine is first used
+	 * @return Symbolic engine for the SMV model
+	 * @throws IOException
+	 */
+	public SymbolicModelChecker getSymbolicModelChecker() throws IOException {
+		if(symbolicModelChecker == null) {
+			symbolicModelChecker = new SymbolicModelChecker(smvFile);
+		}
+		return symbolicModelChecker;
+	}
+	
+	/**
+	 * Returns the bounded (SAT based) engine for the SMV model of this reasoner; the model is parsed only once, when the engine is first used
+	 * @return Bounded engine for the SMV model
+	 * @throws IOException
+	 */
+	public BoundedModelChecker getBoundedModelChecker() throws IOException {
+		if(boundedModelChecker == null) {
+			boundedModelChecker = new BoundedModelChecker(smvFile);
+		}
+		return boundedModelChecker;
+	}
+	
+	/**
+	 * Returns the acyclic CP-net encoded by the SMV model of this reasoner (see model.CPNet); the CPTs are recovered only once, when first used
+	 * @return CP-net; null if the model does not encode an acyclic CP-net (e.g., TCP-nets with relative importance, CI-nets), or has more than 64 variables
+	 * @throws IOException
+	 */
+	public CPNet getCPNet() throws IOException {
+		if(!cpNetLookedUp) {
+			cpNetLookedUp = true;
+			if(variables.length <= InducedPreferenceGraph.MAX_VARIABLES) {
+				cpNet = CPNet.fromGraph(getExplicitStateModelChecker().getGraph());
+			}
+		}
+		return cpNet;
+	}
+	
+	/**
+	 * Returns the in-JVM engine selected for this reasoner; null if the model checker is used
+	 * @return In-JVM engine for the SMV model
+	 * @throws IOException
+	 */
+	public ReasoningEngine getInJVMReasoningEngine() throws IOException {
+		Constants.REASONING_ENGINE engine = getSelectedReasoningEngine();
+		if(engine == Constants.REASONING_ENGINE.ExplicitState) {
+			return getExplicitStateModelChecker();
+		} else if(engine == Constants.REASONING_ENGINE.Symbolic) {
+			return getSymbolicModelChecker();
+		} else if(engine == Constants.REASONING_ENGINE.SAT) {
+			return getBoundedModelChecker();
+		}
+		return null;
+	}
+	
+	/**
+	 * Returns true if the reasoning queries are answered by an in-JVM engine instead of the model checker
+	 * @return true if an in-JVM engine is selected
+	 */
+	protected boolean usesInJVMReasoningEngine() {
+		return getSelectedReasoningEngine() != Constants.REASONING_ENGINE.ModelChecker;
+	}
+	
+	/**
+	 * Returns the engine that answers the current query: the one chosen by the query planner, if any; the reasoning engine of the reasoner otherwise
+	 * @return Reasoning engine
+	 */
+	protected Constants.REASONING_ENGINE getSelectedReasoningEngine() {
+		return plannedReasoningEngine != null ? plannedReasoningEngine : reasoningEngine;
+	}
+	
+	/**
+	 * Dominance Testing using the in-JVM engine: searches the induced preference graph for a sequence of improving flips 
+	 * from lessPreferredOutcome to morePreferredOutcome, without invoking the model checker.
+	 * The sequence found (if any) is stored as the proof of dominance.
+	 * 
+	 * @param morePreferredOutcome
+	 * @param lessPreferredOutcome
+	 * @return Result of dominance testing: true or false
+	 * @throws IOException
+	 */
+	protected boolean dominatesUsingInJVMReasoningEngine(Set<String> morePreferredOutcome, Set<String> lessPreferredOutcome) throws IOException {
+		proofOfDominance = getInJVMReasoningEngine().findFlippingSequence(lessPreferredOutcome, morePreferredOutcome);
+		cacheDominance(morePreferredOutcome, lessPreferredOutcome, proofOfDominance != null);
+		if(proofOfDominance != null) {
+			System.out.print("Proof of dominance: ");
+			proofOfDominance.printOutcomeSequence();
+			return true;
+		}
+		System.out.println("Dominance does not hold");
+		return false;
+	}
+	
+	/**
+	 * Consistency using the in-JVM engine: searches the induced preference graph for a cycle, without invoking the model checker
+	 * 
+	 * @return true if the induced preference graph is cycle-free
+	 * @throws IOException
+	 */
+	protected boolean isConsistentUsingInJVMReasoningEngine() throws IOException {
+		OutcomeSequence c = getInJVMReasoningEngine().findCycle();
+		cycle = c;
+		if(c != null) {
+			System.out.print("Not consistent; Cycle found: ");
+			c.printOutcomeSequence();
+			System.out.println();
+			return false;
+		}
+		System.out.println("Consistent");
+		return true;
+	}
+	
+	/**
+	 * Consistency from the structure of the preference specification: returns the result of an earlier consistency test on the same model, 
+	 * or true if consistency follows from the dependency graph of the model (see model.DependencyGraph), without searching for a cycle
+	 * 
+	 * @return Result of consistency testing; null if it has to be decided by searching for a cycle
+	 * @throws IOException
+	 */
+	protected Boolean isConsistentUsingStructure() throws IOException {
+		if(modelFingerprint == null) {
+			modelFingerprint = DominanceCache.getFingerprint(smvFile, variables);
+		}
+		Boolean result;
+		synchronized (consistencyResults) {
+			result = consistencyResults.get(modelFingerprint);
+		}
+		if(result == null && variables.length <= InducedPreferenceGraph.MAX_VARIABLES 
+				&& DependencyGraph.isConsistentByStructure(getExplicitStateModelChecker().getGraph())) {
+			result = cacheConsistency(true);
+		}
+		if(result != null) {
+			System.out.println(result ? "Consistent" : "Not consistent");
+		}
+		return result;
+	}
+	
+	/**
+	 * Removes the results of the consistency tests of all the models
+	 */
+	public static void clearConsistencyResults() {
+		synchronized (consistencyResults) {
+			consistencyResults.clear();
+		}
+	}
+	
+	/**
+	 * Stores the result of the consistency test for the model, so that later tests on the same model need not be repeated 
+	 * @param consistent
+	 * @return consistent
+	 */
+	protected boolean cacheConsistency(boolean consistent) {
+		this.consistent = consistent;
+		if(modelFingerprint != null) {
+			synchronized (consistencyResults) {
+				consistencyResults.put(modelFingerprint, consistent);
+				while(consistencyResults.size() > MAX_CONSISTENCY_RESULTS) {
+					consistencyResults.remove(consistencyResults.keySet().iterator().next());
+				}
+			}
+		}
+		return consistent;
+	}
+	
+	/**
+	 * Next Preferred using the in-JVM engine: returns a non-dominated outcome of the model (from which the removed outcomes are deleted)
+	 * other than those already returned at the current level; when there is none, the outcomes of the current level are removed and null is returned.
+	 * 
+	 * @return Next preferred outcome; null if all the non-dominated outcomes at the current level have been computed
+	 * @throws IOException
+	 */
+	protected Set<String> nextPreferredUsingInJVMReasoningEngine() throws IOException {
+		OutcomeSequence currentMaximal = new OutcomeSequence();
+		currentMaximal.addOutcomeSequenceAsArray(workingModel.getCurrentMaximalOutcomes());
+		Set<String> pref = getInJVMReasoningEngine().findNonDominatedOutcome(removedOutcomes, currentMaximal);
+		if(pref == null) {
+			//All maximal outcomes at the current level have been computed
+			removeOutcomes(currentMaximal);
+			workingModel.getCurrentMaximalOutcomes().clear();
+		} else {
+			//Keep track of the maximal outcomes at the current level 
+			workingModel.getCurrentMaximalOutcomes().add(pref.toArray(new String[pref.size()]));
+		}
+		return pref;
+	}
+	
+	/**
+	 * Computes the set of outcomes currently at the top-most level in one pass: the entire set of non-dominated outcomes is computed at once (symbolically) 
+	 * and its members are enumerated, instead of calling nextPreferred (one model checker run with a growing model) for each of them.
+	 * The in-JVM engine of the reasoner is used; when the model checker is used, the symbolic engine computes the set on the same SMV model. 
+	 * As in computeCurrentPreferredSet, the outcomes of the level are removed from the model, unless Constants.NUM_OUTCOMES outcomes have been computed. 
+	 * 
+	 * @return The set of non-dominated elements in the current model
+	 * @throws IOException
+	 */
+	protected OutcomeSequence computeCurrentPreferredSetInOnePass() throws IOException {
+		ReasoningEngine engine = usesInJVMReasoningEngine() ? getInJVMReasoningEngine() : getSymbolicModelChecker();
+		//Stop if the user has set a maximum number of outcomes to be computed
+		int limit = Math.max(1, Constants.NUM_OUTCOMES - getOutcomeCount());
+		OutcomeSequence level = engine.findNonDominatedOutcomes(removedOutcomes, limit);
+		workingModel.getCurrentMaximalOutcomes().clear();
+		if(addOutcomeSequenceToGeneratedSequence(level) < Constants.NUM_OUTCOMES) {
+			//All maximal outcomes at the current level have been computed
+			removeOutcomes(level);
+		}
+		return level;
+	}
+	
+	/**
+	 * Returns true if computeCurrentPreferredSet computes the whole level in one pass (see computeCurrentPreferredSetInOnePass)
+	 * @return true if level enumeration is enabled
+	 */
+	protected boolean usesLevelEnumeration() {
+		return Constants.USE_LEVEL_ENUMERATION;
+	}
+	
 	/**
 	 * Returns the number of outcomes generated in session so far
 	 * @return Number of outcomes generated in session so far
 	 */
 	public int getOutcomeCount() {
-		return outcomesInOrder.getOutcomeSequence().size();
+		return workingModel.getOutcomesInOrder().getOutcomeSequence().size();
 	}
 	
 	/**
 	 * Resets the session of the reasoner
 	 */
 	public void resetGeneratedOutcomes() {
-		outcomesInOrder.getOutcomeSequence().clear();
+		workingModel.getOutcomesInOrder().getOutcomeSequence().clear();
 	}
 	
 	/**
@@ -206,12 +721,12 @@ public abstract class PreferenceReasoner {
 	 * @return Total number of outcomes generated so far
 	 * @throws IOException
 	 */
-	public static int addOutcomeSequenceToGeneratedSequence(OutcomeSequence outcomeSequence) throws IOException {
+	public int addOutcomeSequenceToGeneratedSequence(OutcomeSequence outcomeSequence) throws IOException {
 		for(Set<String> outcome : outcomeSequence.getOutcomeSequence()) {
-			outcomesInOrder.addOutcome(outcome);
-//			PerformanceAnalyzer.addLatestPerformanceRecord(outcome);
+			workingModel.getOutcomesInOrder().addOutcome(outcome);
+//			PerformanceAnalyzer.addLatestPerformanceRecord(workingModel.getPrefMetaData(), outcome);
 		}
-		return outcomesInOrder.getOutcomeSequence().size();
+		return workingModel.getOutcomesInOrder().getOutcomeSequence().size();
 	}
 	
 	/**
@@ -221,17 +736,17 @@ public abstract class PreferenceReasoner {
 	 * @return Total number of outcomes generated so far
 	 * @throws IOException
 	 */
-	public static int addOutcomeToGeneratedSequence(Set<String> outcome) throws IOException {
-		outcomesInOrder.addOutcome(outcome);
-		PerformanceAnalyzer.addLatestPerformanceRecord(outcome);
-		return outcomesInOrder.getOutcomeSequence().size();
+	public int addOutcomeToGeneratedSequence(Set<String> outcome) throws IOException {
+		workingModel.getOutcomesInOrder().addOutcome(outcome);
+		PerformanceAnalyzer.addLatestPerformanceRecord(workingModel.getPrefMetaData(), outcome);
+		return workingModel.getOutcomesInOrder().getOutcomeSequence().size();
 	}
 	
 	/**
 	 * Returns a list of specs used to remove outcomes as needed to simulate the in-session reasoning tasks 
 	 * @return A List of invariants as formulas corresponding to negation of the outcomes excluded from the model  
 	 */
-	public static List<String> getInvariants() {
-		return invariants;
+	public List<String> getInvariants() {
+		return workingModel.getInvariants();
 	}
 }
\ No newline at end of file
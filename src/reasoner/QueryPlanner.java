@@ -0,0 +1,408 @@
+package reasoner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import model.CPNet;
+import model.DependencyGraph;
+import model.InducedPreferenceGraph;
+import model.OutcomeSequence;
+import model.PerformanceRecord;
+
+import util.Constants;
+import util.PerformanceAnalyzer;
+
+/**
+ * Chooses the backend that answers each dominance, consistency and next preferred query of a preference reasoner:
+ * the in-JVM explicit state, symbolic or bounded SAT based engine, the configured model checker (NuSMV or Cadence SMV, see verify.ModelChecker),
+ * or, for dominance queries, a structural shortcut that decides the query from the transitions of the model, without a search:
+ * <ul>
+ * 	<li>if the more preferred outcome is reached from the less preferred one by a single improving flip (e.g., of a leaf of the dependency graph 
+ * 		whose CPT prefers the value in the more preferred outcome), dominance holds;</li>
+ * 	<li>if the model encodes an acyclic CP-net and the less preferred outcome comes before the more preferred one in the order of the CP-net 
+ * 		(see model.CPNet.compare), dominance does not hold; in particular, if the outcomes differ in a single variable and the CPT prefers its value in the less preferred outcome.</li>
+ * </ul>
+ * Otherwise, the cost of each backend is estimated from the number of variables, the size of the CPTs (guarded transitions) of the model,
+ * the type of the query and whether the induced preference graph may have cycles (see model.DependencyGraph), and the cheapest backend is chosen.
+ * The planner learns from the time each backend actually took: once a backend has answered a type of query on a model, its estimate is the running average 
+ * of its measured costs, with the latest measurements weighted most, so that the planner adapts its choices as the costs change (e.g., once the symbolic engine has encoded the model).
+ * Only the running averages are kept (not the individual measurements), so that the memory used does not grow with the number of queries.
+ * Performance records of a backend added from earlier sessions (see util.PerformanceAnalyzer.setRecords) are learned from as well.
+ * <p>
+ * The decisions of the planner (the estimated cost of each backend, the backend chosen and its actual cost) are kept for inspection (see getDecisions).
+ * Note: The planner is used only if enabled (see Constants.USE_QUERY_PLANNER and PreferenceReasoner.setUseQueryPlanner).
+ * @author gsanthan
+ *
+ */
+public class QueryPlanner {
+
+	public enum QUERY {Dominance, Consistency, NextPreferred};
+	public enum BACKEND {Structural, ExplicitState, Symbolic, SAT, ModelChecker};
+
+	/**
+	 * Weight of the latest measurement in the running average of the measured costs of a backend
+	 */
+	public static final double LEARNING_RATE = 0.3;
+	/**
+	 * Maximum number of decisions kept for inspection (the oldest decisions are dropped first)
+	 */
+	public static final int MAX_DECISIONS = 1000;
+
+	/**
+	 * Prior cost estimates (in ms), used until the cost of a backend has been measured on the model:
+	 * the explicit state engine may explore every outcome, each with a flip per transition;
+	 * the symbolic engine encodes the model once and computes fixpoints whose cost grows with the number of variables and transitions;
+	 * the bounded engine unrolls the transitions for a few flips and solves the unrolling, whose size grows with the number of variables and transitions;
+	 * the model checker does the same in a process of its own, started for every query.
+	 * Cyclic models need more iterations to reach a fixpoint (and a cycle to be found for consistency).
+	 */
+	static final double EXPLICIT_STATE_COST_PER_FLIP = 0.0002;
+	static final double SYMBOLIC_ENCODING_COST_PER_TRANSITION = 0.02;
+	static final double SYMBOLIC_COST_PER_TRANSITION = 0.005;
+	static final double NUSMV_STARTUP_COST = 50;
+	static final double CADENCE_SMV_STARTUP_COST = 80;
+	static final double SAT_COST_PER_TRANSITION = 0.01;
+	static final double MODEL_CHECKER_COST_PER_TRANSITION = 0.01;
+	static final double CYCLIC_COST_FACTOR = 4;
+
+	/**
+	 * Running averages of the measured costs (in ms), indexed by SMV file, query and backend (see getKey)
+	 */
+	static Map<String, Double> measuredCosts = new HashMap<String, Double>();
+	/**
+	 * Number of performance records (see util.PerformanceAnalyzer) already learned from
+	 */
+	static int recordsLearned = 0;
+
+	PreferenceReasoner reasoner;
+	/**
+	 * Decisions of the planner, oldest first
+	 */
+	List<Decision> decisions = new LinkedList<Decision>();
+	/**
+	 * Size of the model: number of guarded transitions, and whether the induced preference graph may have cycles; analyzed when first used
+	 */
+	int transitionCount;
+	boolean possiblyCyclic;
+	boolean analyzed;
+
+	/**
+	 * A decision of the planner for one query
+	 */
+	public static class Decision {
+		QUERY query;
+		BACKEND backend;
+		/**
+		 * Estimated cost (in ms) of each backend that can answer the query
+		 */
+		Map<BACKEND, Double> estimatedCosts = new LinkedHashMap<BACKEND, Double>();
+		/**
+		 * Backends whose estimates are learned from measurements (the others are priors)
+		 */
+		List<BACKEND> measured = new ArrayList<BACKEND>();
+		/**
+		 * Answer of the structural shortcut (with its proof of dominance); null if it does not decide the query
+		 */
+		Boolean structuralResult;
+		OutcomeSequence proofOfDominance;
+		long startTime;
+		/**
+		 * Cost (in ms) the chosen backend actually took; -1 until the query has been answered
+		 */
+		double actualCost = -1;
+
+		public QUERY getQuery() {
+			return query;
+		}
+
+		public BACKEND getBackend() {
+			return backend;
+		}
+
+		/**
+		 * Returns the reasoning engine corresponding to the backend chosen; null for the structural shortcut
+		 */
+		public Constants.REASONING_ENGINE getReasoningEngine() {
+			if(backend == BACKEND.ExplicitState) {
+				return Constants.REASONING_ENGINE.ExplicitState;
+			} else if(backend == BACKEND.Symbolic) {
+				return Constants.REASONING_ENGINE.Symbolic;
+			} else if(backend == BACKEND.SAT) {
+				return Constants.REASONING_ENGINE.SAT;
+			} else if(backend == BACKEND.ModelChecker) {
+				return Constants.REASONING_ENGINE.ModelChecker;
+			}
+			return null;
+		}
+
+		public Map<BACKEND, Double> getEstimatedCosts() {
+			return Collections.unmodifiableMap(estimatedCosts);
+		}
+
+		/**
+		 * Returns true if the estimate of the backend was learned from measurements of its cost on the model, false if it is a prior
+		 * @param backend
+		 */
+		public boolean isMeasured(BACKEND backend) {
+			return measured.contains(backend);
+		}
+
+		public Boolean getStructuralResult() {
+			return structuralResult;
+		}
+
+		public OutcomeSequence getProofOfDominance() {
+			return proofOfDominance;
+		}
+
+		public double getActualCost() {
+			return actualCost;
+		}
+
+		/**
+		 * Formats the decision in a single line; prior estimates are marked with *
+		 */
+		public String toString() {
+			String formatted = query + " -> " + getBackendName(backend) + " (estimated:";
+			for (Map.Entry<BACKEND, Double> e : estimatedCosts.entrySet()) {
+				formatted += " " + getBackendName(e.getKey()) + "=" + String.format("%.3f", e.getValue()) + "ms" + (measured.contains(e.getKey()) ? "" : "*");
+			}
+			formatted += (actualCost < 0 ? ")" : "; actual: " + String.format("%.3f", actualCost) + "ms)");
+			return formatted;
+		}
+	}
+
+	/**
+	 * Initializes the planner for the queries of the reasoner
+	 * @param reasoner
+	 */
+	public QueryPlanner(PreferenceReasoner reasoner) {
+		this.reasoner = reasoner;
+	}
+
+	/**
+	 * Chooses the backend for a query; the cost of answering it is measured from now until completeQuery is called
+	 * @param query Type of the query
+	 * @param morePreferredOutcome More preferred outcome (dominance queries only; null otherwise)
+	 * @param lessPreferredOutcome Less preferred outcome (dominance queries only; null otherwise)
+	 * @return Decision of the planner
+	 * @throws IOException
+	 */
+	public Decision plan(QUERY query, Set<String> morePreferredOutcome, Set<String> lessPreferredOutcome) throws IOException {
+		analyze();
+		learn();
+		Decision decision = new Decision();
+		decision.query = query;
+		if(query == QUERY.Dominance && morePreferredOutcome != null && lessPreferredOutcome != null) {
+			decideByStructure(decision, morePreferredOutcome, lessPreferredOutcome);
+		}
+		if(reasoner.variables.length <= InducedPreferenceGraph.MAX_VARIABLES) {
+			estimate(decision, BACKEND.ExplicitState);
+			estimate(decision, BACKEND.Symbolic);
+		}
+		estimate(decision, BACKEND.SAT);
+		estimate(decision, BACKEND.ModelChecker);
+		for (Map.Entry<BACKEND, Double> e : decision.estimatedCosts.entrySet()) {
+			if(decision.backend == null || e.getValue() < decision.estimatedCosts.get(decision.backend)) {
+				decision.backend = e.getKey();
+			}
+		}
+		if(decision.structuralResult != null) {
+			//The query has been decided from the CPTs while planning; the structural shortcut costs nothing more
+			decision.estimatedCosts.put(BACKEND.Structural, 0.0);
+			decision.measured.add(BACKEND.Structural);
+			decision.backend = BACKEND.Structural;
+		}
+		synchronized (decisions) {
+			decisions.add(decision);
+			if(decisions.size() > MAX_DECISIONS) {
+				decisions.remove(0);
+			}
+		}
+		decision.startTime = System.nanoTime();
+		return decision;
+	}
+
+	/**
+	 * Learns the cost of answering the query with the backend chosen (see class comment).
+	 * If the backend failed to answer the query (e.g., the model checker could not be invoked), it is not chosen again for this type of query on the model.
+	 * @param decision Decision returned by plan
+	 * @param result Result of the query; null if the backend failed
+	 */
+	public void completeQuery(Decision decision, Boolean result) {
+		decision.actualCost = (System.nanoTime() - decision.startTime) / 1000000.0;
+		if(result == null) {
+			synchronized (measuredCosts) {
+				measuredCosts.put(getKey(reasoner.smvFile, decision.query.toString(), getBackendName(decision.backend)), Double.POSITIVE_INFINITY);
+			}
+			return;
+		}
+		synchronized (measuredCosts) {
+			addMeasuredCost(getKey(reasoner.smvFile, decision.query.toString(), getBackendName(decision.backend)), decision.actualCost);
+		}
+	}
+
+	/**
+	 * Returns the decisions of the planner for the queries of the reasoner (at most MAX_DECISIONS, oldest first)
+	 */
+	public List<Decision> getDecisions() {
+		synchronized (decisions) {
+			return new ArrayList<Decision>(decisions);
+		}
+	}
+
+	/**
+	 * Returns the latest decision of the planner; null if no query has been planned
+	 */
+	public Decision getLastDecision() {
+		synchronized (decisions) {
+			return decisions.isEmpty() ? null : decisions.get(decisions.size() - 1);
+		}
+	}
+
+	/**
+	 * Forgets all the costs learned (e.g., when the configuration of the model checker has changed)
+	 */
+	public static void clearMeasuredCosts() {
+		synchronized (measuredCosts) {
+			measuredCosts.clear();
+			recordsLearned = PerformanceAnalyzer.getRecords().size();
+		}
+	}
+
+	/**
+	 * Decides dominance from the transitions of the model, or the CPTs if the model encodes an acyclic CP-net (see class comment); 
+	 * the answer (and proof of dominance) is stored in the decision
+	 */
+	private void decideByStructure(Decision decision, Set<String> morePreferredOutcome, Set<String> lessPreferredOutcome) throws IOException {
+		if(reasoner.variables.length > InducedPreferenceGraph.MAX_VARIABLES) {
+			return;
+		}
+		InducedPreferenceGraph graph = reasoner.getExplicitStateModelChecker().getGraph();
+		long more = graph.encode(morePreferredOutcome);
+		long less = graph.encode(lessPreferredOutcome);
+		for (long successor : graph.getSuccessors(less)) {
+			if(successor == more) {
+				decision.structuralResult = true;
+				decision.proofOfDominance = new OutcomeSequence(graph.getVariables());
+				decision.proofOfDominance.addPackedOutcome(less);
+				decision.proofOfDominance.addPackedOutcome(more);
+				return;
+			}
+		}
+		CPNet net = reasoner.getCPNet();
+		if(net != null && net.compare(more, less) > 0) {
+			decision.structuralResult = false;
+		}
+	}
+
+	/**
+	 * Estimates the cost of the backend for the query: its measured cost on the model, if known; a prior estimate otherwise (see class comment)
+	 */
+	private void estimate(Decision decision, BACKEND backend) {
+		Double measured;
+		synchronized (measuredCosts) {
+			measured = measuredCosts.get(getKey(reasoner.smvFile, decision.query.toString(), getBackendName(backend)));
+		}
+		if(measured != null) {
+			decision.estimatedCosts.put(backend, measured);
+			decision.measured.add(backend);
+			return;
+		}
+		int n = reasoner.variables.length;
+		double size = (double) transitionCount * n * (possiblyCyclic ? CYCLIC_COST_FACTOR : 1);
+		double cost;
+		if(backend == BACKEND.ExplicitState) {
+			cost = EXPLICIT_STATE_COST_PER_FLIP * Math.pow(2, n) * Math.max(1, transitionCount - n);
+		} else if(backend == BACKEND.Symbolic) {
+			cost = SYMBOLIC_COST_PER_TRANSITION * size;
+			if(reasoner.symbolicModelChecker == null) {
+				cost += SYMBOLIC_ENCODING_COST_PER_TRANSITION * transitionCount * n;
+			}
+		} else if(backend == BACKEND.SAT) {
+			cost = SAT_COST_PER_TRANSITION * size;
+		} else {
+			cost = (Constants.CURRENT_MODEL_CHECKER == Constants.MODEL_CHECKER.CadenceSMV ? CADENCE_SMV_STARTUP_COST : NUSMV_STARTUP_COST)
+					+ MODEL_CHECKER_COST_PER_TRANSITION * size;
+			if(decision.query == QUERY.Dominance) {
+				//A second run returns the proof if dominance holds
+				cost *= 1.5;
+			}
+		}
+		decision.estimatedCosts.put(backend, cost);
+	}
+
+	/**
+	 * Analyzes the size of the model, and whether its induced preference graph may have cycles (unless its consistency follows from its structure)
+	 */
+	private void analyze() throws IOException {
+		if(analyzed) {
+			return;
+		}
+		analyzed = true;
+		int n = reasoner.variables.length;
+		if(n <= InducedPreferenceGraph.MAX_VARIABLES) {
+			InducedPreferenceGraph graph = reasoner.getExplicitStateModelChecker().getGraph();
+			transitionCount = graph.getTransitionCount();
+			possiblyCyclic = !DependencyGraph.isConsistentByStructure(graph);
+		} else {
+			transitionCount = 2 * n;
+			possiblyCyclic = true;
+		}
+	}
+
+	/**
+	 * Updates the running averages of the measured costs with the performance records added since they were last updated
+	 */
+	private static void learn() {
+		List<PerformanceRecord> records = PerformanceAnalyzer.getRecords();
+		synchronized (measuredCosts) {
+			synchronized (records) {
+				if(recordsLearned > records.size()) {
+					//The records have been cleared
+					recordsLearned = 0;
+				}
+				for (; recordsLearned < records.size(); recordsLearned++) {
+					PerformanceRecord record = records.get(recordsLearned);
+					if(record.getBackend() == null) {
+						//Not recorded by a planner
+						continue;
+					}
+					String key = getKey(record.getSmvFile(), record.getProperty(), record.getBackend());
+					addMeasuredCost(key, (record.getUserTimeElapsed() + record.getSystemTimeElapsed()) * 1000.0);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Updates the running average of the measured costs with the key (the caller must hold the lock of measuredCosts)
+	 * @param key Key of the SMV file, query and backend (see getKey)
+	 * @param cost Measured cost (in ms)
+	 */
+	private static void addMeasuredCost(String key, double cost) {
+		Double average = measuredCosts.get(key);
+		measuredCosts.put(key, average == null || average.isInfinite() ? cost : average + LEARNING_RATE * (cost - average));
+	}
+
+	/**
+	 * Returns the name of the backend in the performance records: the model checker is named after the one configured, so that its costs are learned separately
+	 */
+	static String getBackendName(BACKEND backend) {
+		if(backend == BACKEND.ModelChecker) {
+			return Constants.CURRENT_MODEL_CHECKER.toString();
+		}
+		return backend.toString();
+	}
+
+	private static String getKey(String smvFile, String query, String backend) {
+		return smvFile + "|" + query + "|" + backend;
+	}
+}
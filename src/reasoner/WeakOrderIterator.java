@@ -0,0 +1,144 @@
+package reasoner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import exception.PreferenceReasonerException;
+
+import model.OutcomeSequence;
+
+import util.Constants;
+
+/**
+ * Iterates over the levels of the weak order computed by a PreferenceReasoner (see PreferenceReasoner.generateWeakOrder and generateWeakOrderWithCycles).
+ * Each level is computed on demand, only when it is pulled by hasNext/next (or nextLevel), so a consumer that needs only the top few levels
+ * pays only for computing those levels. The iteration can be stopped at any time by cancel (or by simply not pulling any more levels).
+ * As in generateWeakOrder, the iteration also ends once Constants.NUM_OUTCOMES outcomes have been computed (not applicable to the weak order with cycles).
+ * <p>
+ * Note: The levels are computed by removing the outcomes of the previous levels from the model of the reasoner;
+ * hence a reasoner must be used by only one iterator at a time, and no other reasoning tasks on the reasoner should be interleaved with the iteration.
+ * @author gsanthan
+ *
+ */
+public class WeakOrderIterator implements Iterator<OutcomeSequence> {
+
+	PreferenceReasoner reasoner;
+	/**
+	 * true if the levels include the outcomes in cycles/SCCs (see PreferenceReasoner.nextPreferredWithCycles)
+	 */
+	boolean withCycles;
+	/**
+	 * Level computed by hasNext and not yet returned by next
+	 */
+	OutcomeSequence nextLevel;
+	/**
+	 * Last level returned
+	 */
+	OutcomeSequence previousLevel;
+	/**
+	 * Outcomes of the levels before the previous level (for the weak order with cycles)
+	 */
+	OutcomeSequence previousLevels = new OutcomeSequence();
+	boolean started = false;
+	boolean done = false;
+
+	/**
+	 * Creates an iterator over the levels of the weak order; no level is computed until it is pulled
+	 * @param reasoner Reasoner used to compute the levels
+	 * @param withCycles true to compute the weak order with cycles (generateWeakOrderWithCycles), false otherwise (generateWeakOrder)
+	 */
+	WeakOrderIterator(PreferenceReasoner reasoner, boolean withCycles) {
+		this.reasoner = reasoner;
+		this.withCycles = withCycles;
+	}
+
+	/**
+	 * Computes and returns the next level of the weak order
+	 * @return Next level; null if all the levels have been computed or the iteration has been cancelled
+	 * @throws IOException
+	 * @throws PreferenceReasonerException
+	 */
+	public OutcomeSequence nextLevel() throws IOException, PreferenceReasonerException {
+		if(nextLevel != null) {
+			OutcomeSequence level = nextLevel;
+			nextLevel = null;
+			return level;
+		}
+		if(done) {
+			return null;
+		}
+		OutcomeSequence level;
+		if(withCycles) {
+			if(previousLevel == null) {
+				previousLevel = new OutcomeSequence();
+			}
+			level = reasoner.nextPreferredWithCycles(previousLevel, previousLevels);
+			previousLevels.addOutcomeSequence(previousLevel);
+		} else {
+			if(!started) {
+				reasoner.resetGeneratedOutcomes();
+			} else {
+				//After each level has been computed, remove outcomes just computed from the model so that the next level can be computed
+				reasoner.removeOutcomes(previousLevel);
+			}
+			level = reasoner.computeCurrentPreferredSet();
+			reasoner.getWorkingModel().setCurrentMaximalOutcomes(new ArrayList<String[]>());
+		}
+		started = true;
+		previousLevel = level;
+		if(level == null || level.getOutcomeSequence().isEmpty()) {
+			done = true;
+			return null;
+		}
+		if(!withCycles && reasoner.getOutcomeCount() >= Constants.NUM_OUTCOMES) {
+			//The user has set a maximum number of outcomes to be computed
+			done = true;
+		}
+		return level;
+	}
+
+	/**
+	 * Stops the iteration; no more levels are computed
+	 */
+	public void cancel() {
+		done = true;
+		nextLevel = null;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.Iterator#hasNext()
+	 */
+	public boolean hasNext() {
+		if(nextLevel == null && !done) {
+			try {
+				nextLevel = nextLevel();
+			} catch (IOException e) {
+				throw new RuntimeException("Error in computing the next level of the weak order: " + e.getMessage(), e);
+			} catch (PreferenceReasonerException e) {
+				throw new RuntimeException("Error in computing the next level of the weak order: " + e.getMessage(), e);
+			}
+		}
+		return nextLevel != null;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.Iterator#next()
+	 */
+	public OutcomeSequence next() {
+		if(!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		OutcomeSequence level = nextLevel;
+		nextLevel = null;
+		return level;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.Iterator#remove()
+	 */
+	public void remove() {
+		throw new UnsupportedOperationException("Levels of the weak order cannot be removed");
+	}
+}
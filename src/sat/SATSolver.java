@@ -0,0 +1,652 @@
+package sat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A conflict-driven clause learning (CDCL) SAT solver for formulas in conjunctive normal form, in the style of MiniSat
+ * (Een and Sorensson, "An Extensible SAT-solver", SAT 2003): unit propagation with two watched literals per clause,
+ * learning of first-UIP conflict clauses (minimized by removing the literals implied by the others), non-chronological backjumping,
+ * the VSIDS decision heuristic with phase saving, Luby restarts, and periodic deletion of the less active learned clauses.
+ * <p>
+ * The solver is incremental: clauses and variables may be added between calls to solve, and each call may assume a set of literals
+ * (e.g., to select a bound or a query); the learned clauses and the activities of the variables are kept across calls.
+ * Variables are numbered from 1, and a literal is a variable (positive literal) or its negation (negative literal), as in the DIMACS format.
+ * Note: The solver is not thread-safe.
+ * @author gsanthan
+ *
+ */
+public class SATSolver {
+
+	/**
+	 * Values of literals
+	 */
+	static final byte TRUE = 1;
+	static final byte FALSE = -1;
+	static final byte UNDEFINED = 0;
+
+	/**
+	 * Decay factors of the activities of the variables and of the learned clauses
+	 */
+	static final double VARIABLE_DECAY = 0.95;
+	static final double CLAUSE_DECAY = 0.999;
+	/**
+	 * Number of conflicts before the first restart (multiplied by the Luby sequence for the later restarts)
+	 */
+	static final int RESTART_BASE = 100;
+
+	/**
+	 * A clause; the first two literals are watched (in a clause that implied a literal, the first literal is the implied one)
+	 */
+	static class Clause {
+		int[] literals;
+		boolean learned;
+		boolean deleted;
+		double activity;
+
+		Clause(int[] literals, boolean learned) {
+			this.literals = literals;
+			this.learned = learned;
+		}
+	}
+
+	/**
+	 * Number of variables; internally, the literals of variable v are 2v (positive) and 2v+1 (negative)
+	 */
+	int variableCount = 0;
+	/**
+	 * Value of each (internal) literal
+	 */
+	byte[] values = new byte[2];
+	/**
+	 * Decision level at which each variable was assigned, and the clause that implied its value (null for decisions)
+	 */
+	int[] levels = new int[1];
+	Clause[] reasons = new Clause[1];
+	/**
+	 * Saved value of each variable (phase saving), activity of each variable for the decision heuristic, and marks used in conflict analysis
+	 */
+	boolean[] phases = new boolean[1];
+	double[] activities = new double[1];
+	boolean[] seen = new boolean[1];
+	/**
+	 * Clauses watching each literal
+	 */
+	Clause[][] watches = new Clause[2][];
+	int[] watchCounts = new int[2];
+	/**
+	 * Assigned literals in the order of assignment, and the position in the trail at which each decision level starts
+	 */
+	int[] trail = new int[1];
+	int trailSize = 0;
+	int[] levelStarts = new int[1];
+	int decisionLevel = 0;
+	/**
+	 * Position in the trail of the next literal to be propagated
+	 */
+	int propagationHead = 0;
+	/**
+	 * Unassigned variables ordered by activity (binary max-heap), and the position of each variable in the heap (-1 if not in the heap)
+	 */
+	int[] heap = new int[1];
+	int heapSize = 0;
+	int[] heapPositions = new int[1];
+
+	List<Clause> clauses = new ArrayList<Clause>();
+	List<Clause> learnedClauses = new ArrayList<Clause>();
+	double variableIncrement = 1;
+	double clauseIncrement = 1;
+	double maxLearnedClauses;
+	/**
+	 * false if the clauses are unsatisfiable (independently of any assumptions)
+	 */
+	boolean ok = true;
+	/**
+	 * Value of each variable in the model found by the latest successful call of solve
+	 */
+	boolean[] model = new boolean[1];
+
+	long conflicts;
+	long decisions;
+	long propagations;
+
+	/**
+	 * Adds a new variable
+	 * @return Number of the variable
+	 */
+	public int newVariable() {
+		int v = ++variableCount;
+		if(v >= levels.length) {
+			int capacity = Math.max(2 * levels.length, v + 1);
+			values = Arrays.copyOf(values, 2 * capacity);
+			levels = Arrays.copyOf(levels, capacity);
+			reasons = Arrays.copyOf(reasons, capacity);
+			phases = Arrays.copyOf(phases, capacity);
+			activities = Arrays.copyOf(activities, capacity);
+			seen = Arrays.copyOf(seen, capacity);
+			watches = Arrays.copyOf(watches, 2 * capacity);
+			watchCounts = Arrays.copyOf(watchCounts, 2 * capacity);
+			trail = Arrays.copyOf(trail, capacity);
+			levelStarts = Arrays.copyOf(levelStarts, capacity);
+			heap = Arrays.copyOf(heap, capacity);
+			heapPositions = Arrays.copyOf(heapPositions, capacity);
+			model = Arrays.copyOf(model, capacity);
+		}
+		watches[2 * v] = new Clause[4];
+		watches[2 * v + 1] = new Clause[4];
+		heapPositions[v] = -1;
+		insertIntoHeap(v);
+		return v;
+	}
+
+	/**
+	 * Returns the number of variables
+	 */
+	public int getVariableCount() {
+		return variableCount;
+	}
+
+	/**
+	 * Adds a clause (disjunction of literals); must not be called during solve
+	 * @param literals Literals of the clause (DIMACS style: v or -v for variable v)
+	 * @return false if the clauses have become unsatisfiable
+	 */
+	public boolean addClause(int... literals) {
+		if(!ok) {
+			return false;
+		}
+		int[] clause = new int[literals.length];
+		int size = 0;
+		for (int literal : literals) {
+			int l = toInternal(literal);
+			if(values[l] == TRUE) {
+				//Satisfied at level 0
+				return true;
+			}
+			if(values[l] == FALSE) {
+				continue;
+			}
+			boolean duplicate = false;
+			for (int k = 0; k < size; k++) {
+				if(clause[k] == l) {
+					duplicate = true;
+				} else if(clause[k] == (l ^ 1)) {
+					//Tautology
+					return true;
+				}
+			}
+			if(!duplicate) {
+				clause[size++] = l;
+			}
+		}
+		if(size == 0) {
+			ok = false;
+		} else if(size == 1) {
+			assign(clause[0], null);
+			ok = propagate() == null;
+		} else {
+			Clause c = new Clause(Arrays.copyOf(clause, size), false);
+			clauses.add(c);
+			watch(c);
+		}
+		return ok;
+	}
+
+	/**
+	 * Decides whether the clauses are satisfiable
+	 * @return true if satisfiable (the model is available from getValue)
+	 */
+	public boolean solve() {
+		return solve(new int[0]);
+	}
+
+	/**
+	 * Decides whether the clauses are satisfiable when the given literals are assumed to be true
+	 * @param assumptions Literals (DIMACS style)
+	 * @return true if satisfiable under the assumptions (the model is available from getValue)
+	 */
+	public boolean solve(int[] assumptions) {
+		if(!ok) {
+			return false;
+		}
+		int[] assumed = new int[assumptions.length];
+		for (int k = 0; k < assumptions.length; k++) {
+			assumed[k] = toInternal(assumptions[k]);
+		}
+		maxLearnedClauses = Math.max(maxLearnedClauses, clauses.size() / 3.0 + 1000);
+		Boolean result = null;
+		for (int restart = 0; result == null; restart++) {
+			result = search((long) (RESTART_BASE * luby(2, restart)), assumed);
+		}
+		if(result) {
+			for (int v = 1; v <= variableCount; v++) {
+				model[v] = values[2 * v] == TRUE;
+			}
+		}
+		backtrack(0);
+		return result;
+	}
+
+	/**
+	 * Returns the value of the variable in the model found by the latest successful call of solve
+	 * @param variable
+	 */
+	public boolean getValue(int variable) {
+		return model[variable];
+	}
+
+	/**
+	 * Returns the counts of conflicts, decisions and propagations, and the number of clauses and learned clauses
+	 */
+	public String getStatistics() {
+		return "Conflicts: " + conflicts + ", Decisions: " + decisions + ", Propagations: " + propagations
+				+ ", Clauses: " + clauses.size() + ", Learned clauses: " + learnedClauses.size();
+	}
+
+	/**
+	 * Runs CDCL search until a model is found, the clauses are refuted (under the assumptions), or the number of conflicts reaches the budget
+	 * @return true/false if decided; null when the search is to be restarted
+	 */
+	private Boolean search(long conflictBudget, int[] assumptions) {
+		long conflictCount = 0;
+		List<Integer> learned = new ArrayList<Integer>();
+		while(true) {
+			Clause conflict = propagate();
+			if(conflict != null) {
+				conflicts++;
+				conflictCount++;
+				if(decisionLevel == 0) {
+					ok = false;
+					return false;
+				}
+				learned.clear();
+				int backjumpLevel = analyze(conflict, learned);
+				backtrack(backjumpLevel);
+				if(learned.size() == 1) {
+					assign(learned.get(0), null);
+				} else {
+					int[] literals = new int[learned.size()];
+					for (int k = 0; k < literals.length; k++) {
+						literals[k] = learned.get(k);
+					}
+					Clause c = new Clause(literals, true);
+					learnedClauses.add(c);
+					watch(c);
+					bumpClause(c);
+					assign(literals[0], c);
+				}
+				variableIncrement /= VARIABLE_DECAY;
+				clauseIncrement /= CLAUSE_DECAY;
+				continue;
+			}
+			if(conflictCount >= conflictBudget) {
+				backtrack(0);
+				return null;
+			}
+			if(learnedClauses.size() - trailSize >= maxLearnedClauses) {
+				reduceLearnedClauses();
+				maxLearnedClauses *= 1.1;
+			}
+			int next = -1;
+			while(decisionLevel < assumptions.length) {
+				int p = assumptions[decisionLevel];
+				if(values[p] == TRUE) {
+					//Already implied: open a dummy decision level
+					newDecisionLevel();
+				} else if(values[p] == FALSE) {
+					backtrack(0);
+					return false;
+				} else {
+					next = p;
+					break;
+				}
+			}
+			if(next == -1) {
+				next = pickBranchLiteral();
+				if(next == -1) {
+					//All variables are assigned
+					return true;
+				}
+			}
+			decisions++;
+			newDecisionLevel();
+			assign(next, null);
+		}
+	}
+
+	/**
+	 * Propagates the assigned literals that have not been propagated yet
+	 * @return Conflicting clause; null if there is no conflict
+	 */
+	private Clause propagate() {
+		Clause conflict = null;
+		while(propagationHead < trailSize) {
+			int p = trail[propagationHead++];
+			int falseLiteral = p ^ 1;
+			Clause[] watching = watches[falseLiteral];
+			int count = watchCounts[falseLiteral];
+			int i = 0;
+			int j = 0;
+			propagations++;
+			while(i < count) {
+				Clause c = watching[i++];
+				if(c.deleted) {
+					continue;
+				}
+				int[] literals = c.literals;
+				if(literals[0] == falseLiteral) {
+					literals[0] = literals[1];
+					literals[1] = falseLiteral;
+				}
+				if(values[literals[0]] == TRUE) {
+					watching[j++] = c;
+					continue;
+				}
+				boolean moved = false;
+				for (int k = 2; k < literals.length; k++) {
+					if(values[literals[k]] != FALSE) {
+						literals[1] = literals[k];
+						literals[k] = falseLiteral;
+						addWatch(literals[1], c);
+						moved = true;
+						break;
+					}
+				}
+				if(moved) {
+					continue;
+				}
+				watching[j++] = c;
+				if(values[literals[0]] == FALSE) {
+					conflict = c;
+					while(i < count) {
+						watching[j++] = watching[i++];
+					}
+					propagationHead = trailSize;
+				} else {
+					assign(literals[0], c);
+				}
+			}
+			watchCounts[falseLiteral] = j;
+			if(conflict != null) {
+				return conflict;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Analyzes the conflict: computes a first-UIP learned clause (asserting literal first, a literal of the backjump level second)
+	 * @param conflict Conflicting clause
+	 * @param learned List to which the literals of the learned clause are added
+	 * @return Backjump level
+	 */
+	private int analyze(Clause conflict, List<Integer> learned) {
+		learned.add(-1);
+		int pathCount = 0;
+		int p = -1;
+		int index = trailSize - 1;
+		Clause reason = conflict;
+		do {
+			if(reason.learned) {
+				bumpClause(reason);
+			}
+			int[] literals = reason.literals;
+			for (int k = (p == -1 ? 0 : 1); k < literals.length; k++) {
+				int q = literals[k];
+				int v = q >> 1;
+				if(!seen[v] && levels[v] > 0) {
+					seen[v] = true;
+					bumpVariable(v);
+					if(levels[v] >= decisionLevel) {
+						pathCount++;
+					} else {
+						learned.add(q);
+					}
+				}
+			}
+			while(!seen[trail[index] >> 1]) {
+				index--;
+			}
+			p = trail[index--];
+			reason = reasons[p >> 1];
+			seen[p >> 1] = false;
+			pathCount--;
+		} while(pathCount > 0);
+		learned.set(0, p ^ 1);
+
+		//Remove the literals implied by other literals of the clause (at level 0 or marked as seen)
+		int size = 1;
+		List<Integer> marked = new ArrayList<Integer>(learned);
+		for (int k = 1; k < learned.size(); k++) {
+			int q = learned.get(k);
+			Clause r = reasons[q >> 1];
+			boolean redundant = r != null;
+			if(redundant) {
+				for (int m = 1; m < r.literals.length; m++) {
+					int v = r.literals[m] >> 1;
+					if(!seen[v] && levels[v] > 0) {
+						redundant = false;
+						break;
+					}
+				}
+			}
+			if(!redundant) {
+				learned.set(size++, q);
+			}
+		}
+		while(learned.size() > size) {
+			learned.remove(learned.size() - 1);
+		}
+		for (int q : marked) {
+			seen[q >> 1] = false;
+		}
+
+		//The backjump level is the greatest level of the other literals
+		int backjumpLevel = 0;
+		if(learned.size() > 1) {
+			int max = 1;
+			for (int k = 2; k < learned.size(); k++) {
+				if(levels[learned.get(k) >> 1] > levels[learned.get(max) >> 1]) {
+					max = k;
+				}
+			}
+			int q = learned.get(max);
+			learned.set(max, learned.get(1));
+			learned.set(1, q);
+			backjumpLevel = levels[q >> 1];
+		}
+		return backjumpLevel;
+	}
+
+	/**
+	 * Deletes half of the learned clauses (the least active ones), except binary clauses and clauses that are reasons of assigned literals
+	 */
+	private void reduceLearnedClauses() {
+		Collections.sort(learnedClauses, new Comparator<Clause>() {
+			public int compare(Clause c1, Clause c2) {
+				return Double.compare(c1.activity, c2.activity);
+			}
+		});
+		List<Clause> kept = new ArrayList<Clause>();
+		int half = learnedClauses.size() / 2;
+		for (int k = 0; k < learnedClauses.size(); k++) {
+			Clause c = learnedClauses.get(k);
+			boolean locked = reasons[c.literals[0] >> 1] == c && values[c.literals[0]] == TRUE;
+			if(k < half && c.literals.length > 2 && !locked) {
+				c.deleted = true;
+			} else {
+				kept.add(c);
+			}
+		}
+		learnedClauses = kept;
+	}
+
+	/**
+	 * Picks the unassigned variable with the greatest activity, with its saved phase
+	 * @return Literal; -1 if all variables are assigned
+	 */
+	private int pickBranchLiteral() {
+		while(heapSize > 0) {
+			int v = removeMaxFromHeap();
+			if(values[2 * v] == UNDEFINED) {
+				return phases[v] ? 2 * v : 2 * v + 1;
+			}
+		}
+		return -1;
+	}
+
+	private void assign(int literal, Clause reason) {
+		int v = literal >> 1;
+		values[literal] = TRUE;
+		values[literal ^ 1] = FALSE;
+		levels[v] = decisionLevel;
+		reasons[v] = reason;
+		trail[trailSize++] = literal;
+	}
+
+	private void newDecisionLevel() {
+		levelStarts[decisionLevel++] = trailSize;
+	}
+
+	/**
+	 * Undoes the assignments above the level
+	 * @param level
+	 */
+	private void backtrack(int level) {
+		if(decisionLevel <= level) {
+			return;
+		}
+		for (int k = trailSize - 1; k >= levelStarts[level]; k--) {
+			int literal = trail[k];
+			int v = literal >> 1;
+			values[literal] = UNDEFINED;
+			values[literal ^ 1] = UNDEFINED;
+			reasons[v] = null;
+			phases[v] = (literal & 1) == 0;
+			if(heapPositions[v] == -1) {
+				insertIntoHeap(v);
+			}
+		}
+		trailSize = levelStarts[level];
+		propagationHead = trailSize;
+		decisionLevel = level;
+	}
+
+	private void watch(Clause c) {
+		addWatch(c.literals[0], c);
+		addWatch(c.literals[1], c);
+	}
+
+	private void addWatch(int literal, Clause c) {
+		if(watchCounts[literal] == watches[literal].length) {
+			watches[literal] = Arrays.copyOf(watches[literal], 2 * watches[literal].length);
+		}
+		watches[literal][watchCounts[literal]++] = c;
+	}
+
+	private void bumpVariable(int v) {
+		activities[v] += variableIncrement;
+		if(activities[v] > 1e100) {
+			for (int u = 1; u <= variableCount; u++) {
+				activities[u] *= 1e-100;
+			}
+			variableIncrement *= 1e-100;
+		}
+		if(heapPositions[v] != -1) {
+			siftUp(heapPositions[v]);
+		}
+	}
+
+	private void bumpClause(Clause c) {
+		c.activity += clauseIncrement;
+		if(c.activity > 1e20) {
+			for (Clause learnedClause : learnedClauses) {
+				learnedClause.activity *= 1e-20;
+			}
+			clauseIncrement *= 1e-20;
+		}
+	}
+
+	private void insertIntoHeap(int v) {
+		heap[heapSize] = v;
+		heapPositions[v] = heapSize;
+		siftUp(heapSize++);
+	}
+
+	private int removeMaxFromHeap() {
+		int v = heap[0];
+		heapPositions[v] = -1;
+		heapSize--;
+		if(heapSize > 0) {
+			heap[0] = heap[heapSize];
+			heapPositions[heap[0]] = 0;
+			siftDown(0);
+		}
+		return v;
+	}
+
+	private void siftUp(int position) {
+		int v = heap[position];
+		while(position > 0) {
+			int parent = (position - 1) >> 1;
+			if(activities[heap[parent]] >= activities[v]) {
+				break;
+			}
+			heap[position] = heap[parent];
+			heapPositions[heap[position]] = position;
+			position = parent;
+		}
+		heap[position] = v;
+		heapPositions[v] = position;
+	}
+
+	private void siftDown(int position) {
+		int v = heap[position];
+		while(true) {
+			int child = 2 * position + 1;
+			if(child >= heapSize) {
+				break;
+			}
+			if(child + 1 < heapSize && activities[heap[child + 1]] > activities[heap[child]]) {
+				child++;
+			}
+			if(activities[heap[child]] <= activities[v]) {
+				break;
+			}
+			heap[position] = heap[child];
+			heapPositions[heap[position]] = position;
+			position = child;
+		}
+		heap[position] = v;
+		heapPositions[v] = position;
+	}
+
+	private int toInternal(int literal) {
+		int v = Math.abs(literal);
+		if(literal == 0 || v > variableCount) {
+			throw new RuntimeException("Unknown variable in literal " + literal);
+		}
+		return literal > 0 ? 2 * v : 2 * v + 1;
+	}
+
+	/**
+	 * Returns the i-th element of the Luby sequence with base y (1, 1, 2, 1, 1, 2, 4, ... for y = 2)
+	 */
+	private static double luby(double y, int i) {
+		int size = 1;
+		int sequence = 0;
+		while(size < i + 1) {
+			sequence++;
+			size = 2 * size + 1;
+		}
+		while(size - 1 != i) {
+			size = (size - 1) >> 1;
+			sequence--;
+			i = i % size;
+		}
+		return Math.pow(y, sequence);
+	}
+}
@@ -0,0 +1,53 @@
+package test;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import translate.CINetToSMVTranslator;
+import util.Constants;
+
+/**
+ * A Test driver for the translation of CI-nets (no model checker needed): the forward and reverse models translated together
+ * by convertToSMVModels must be the same as those translated one direction at a time by convertToSMV.
+ *
+ * @author gsanthan
+ *
+ */
+public class CINetTranslationTest {
+
+	public static void main(String[] args) throws Exception {
+
+		boolean minimizedTranslation = Constants.USE_MINIMIZED_TRANSLATION;
+		try {
+			for (boolean minimized : new boolean[]{true, false}) {
+				Constants.USE_MINIMIZED_TRANSLATION = minimized;
+				testForwardAndReverseModels("examples\\nocycle-cinet.txt");
+				testForwardAndReverseModels("examples\\cinet.txt");
+			}
+		} finally {
+			Constants.USE_MINIMIZED_TRANSLATION = minimizedTranslation;
+		}
+	}
+
+	private static void testForwardAndReverseModels(String cinetFile) throws Exception {
+		System.out.println("Testing Forward and Reverse Models (minimized: " + Constants.USE_MINIMIZED_TRANSLATION + ")...");
+
+		CINetToSMVTranslator translator = new CINetToSMVTranslator();
+		String smvFile = translator.convertToSMV(cinetFile, 0);
+		byte[] forward = Files.readAllBytes(new File(smvFile).toPath());
+		String smvFileReverse = translator.convertToSMV(cinetFile, 0, false);
+		byte[] reverse = Files.readAllBytes(new File(smvFileReverse).toPath());
+
+		String[] smvFiles = translator.convertToSMVModels(cinetFile, 0);
+		if(!smvFiles[0].equals(smvFile) || !smvFiles[1].equals(smvFileReverse)) {
+			throw new RuntimeException("The models of " + cinetFile + " are saved to " + Arrays.toString(smvFiles) + " instead of [" + smvFile + ", " + smvFileReverse + "]");
+		}
+		if(!Arrays.equals(Files.readAllBytes(new File(smvFiles[0]).toPath()), forward)) {
+			throw new RuntimeException("The forward model of " + cinetFile + " differs from the one translated by convertToSMV");
+		}
+		if(!Arrays.equals(Files.readAllBytes(new File(smvFiles[1]).toPath()), reverse)) {
+			throw new RuntimeException("The reverse model of " + cinetFile + " differs from the one translated by convertToSMV");
+		}
+		System.out.println(cinetFile + ": " + smvFiles[0] + ", " + smvFiles[1]);
+	}
+}
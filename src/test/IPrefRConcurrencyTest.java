@@ -0,0 +1,132 @@
+package test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import model.OutcomeSequence;
+import reasoner.AcyclicPreferenceReasoner;
+import reasoner.PreferenceReasoner;
+import translate.PreferenceInputTranslator;
+import translate.PreferenceInputTranslatorFactory;
+import translate.PreferenceInputType;
+import util.Constants;
+
+/**
+ * A Test driver for running many reasoners concurrently in one JVM (in-JVM engines, no model checker needed).
+ * Each task computes the weak order, the outcomes of the top level one by one, some dominance tests and consistency with its own reasoner;
+ * the results computed under contention must be the same as those computed by a single reasoner with the same engine.
+ *
+ * @author gsanthan
+ *
+ */
+public class IPrefRConcurrencyTest {
+
+	static final int THREADS = 8;
+	static final int TASKS = 72;
+	static final Constants.REASONING_ENGINE[] ENGINES = new Constants.REASONING_ENGINE[]{
+		Constants.REASONING_ENGINE.ExplicitState, Constants.REASONING_ENGINE.Symbolic, Constants.REASONING_ENGINE.SAT
+	};
+
+	public static void main(String[] args) throws Exception {
+
+		//The dominance cache is shared by all the reasoners on a model; disable it, so that every task computes its dominance tests under contention
+		Constants.DOMINANCE_CACHE_SIZE = 0;
+
+		final String[] smvFiles = new String[]{
+			translate("examples\\nocycle-cpnet.xml", PreferenceInputType.TCPnet),
+			translate("examples\\nocycle-tcpnet.xml", PreferenceInputType.TCPnet),
+			translate("examples\\nocycle-cinet.txt", PreferenceInputType.CInet)
+		};
+
+		//Expected results for every model and engine, computed by one reasoner at a time
+		final List<String> expected = new ArrayList<String>();
+		for (String smvFile : smvFiles) {
+			for (Constants.REASONING_ENGINE engine : ENGINES) {
+				expected.add(runReasoningTasks(smvFile, engine));
+			}
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+		for (int i = 0; i < TASKS; i++) {
+			final int run = i % expected.size();
+			results.add(executor.submit(new Callable<Boolean>() {
+				public Boolean call() throws Exception {
+					return runReasoningTasks(smvFiles[run / ENGINES.length], ENGINES[run % ENGINES.length]).equals(expected.get(run));
+				}
+			}));
+		}
+		int failed = 0;
+		for (Future<Boolean> result : results) {
+			if(!result.get()) {
+				failed++;
+			}
+		}
+		executor.shutdown();
+		System.out.println("Concurrent reasoning tasks: " + TASKS + ", failed: " + failed);
+		if(failed > 0) {
+			throw new RuntimeException(failed + " of " + TASKS + " concurrent reasoning tasks did not compute the results of a single reasoner!");
+		}
+	}
+
+	private static String translate(String inputFile, PreferenceInputType type) throws Exception {
+		PreferenceInputTranslator translator = PreferenceInputTranslatorFactory.createTranslator(type);
+		return translator.convertToSMV(inputFile, 0);
+	}
+
+	/**
+	 * Computes the weak order, computes the outcomes of the top level one by one (next preferred), 
+	 * tests dominance of every outcome of the top level over every outcome of the bottom level, and tests consistency
+	 * @param smvFile
+	 * @param engine
+	 * @return Results formatted as a string
+	 * @throws Exception
+	 */
+	private static String runReasoningTasks(String smvFile, Constants.REASONING_ENGINE engine) throws Exception {
+		PreferenceReasoner p1 = new AcyclicPreferenceReasoner(smvFile);
+		p1.setReasoningEngine(engine);
+		List<OutcomeSequence> weakOrder = p1.generateWeakOrder();
+
+		StringBuilder result = new StringBuilder();
+		for (OutcomeSequence level : weakOrder) {
+			result.append(format(level.getOutcomeSequence())).append(";");
+		}
+		p1.resetReasoner();
+		List<Set<String>> topLevel = new ArrayList<Set<String>>();
+		for (Set<String> outcome = p1.nextPreferred(); outcome != null; outcome = p1.nextPreferred()) {
+			topLevel.add(outcome);
+		}
+		if(!format(topLevel).equals(format(weakOrder.get(0).getOutcomeSequence()))) {
+			throw new RuntimeException("The next preferred outcomes of " + smvFile + " (" + engine + ") are not the top level of the weak order: " + format(topLevel));
+		}
+		for (Set<String> top : weakOrder.get(0).getOutcomeSequence()) {
+			for (Set<String> bottom : weakOrder.get(weakOrder.size()-1).getOutcomeSequence()) {
+				result.append(p1.dominates(new HashSet<String>(top), new HashSet<String>(bottom))).append(",");
+			}
+		}
+		result.append(p1.isConsistent());
+		return result.toString();
+	}
+
+	/**
+	 * Formats the outcomes as a string; the order of the outcomes (within a level) is not significant
+	 */
+	private static String format(Collection<Set<String>> outcomes) {
+		List<String> formatted = new ArrayList<String>();
+		for (Set<String> outcome : outcomes) {
+			String[] sorted = outcome.toArray(new String[outcome.size()]);
+			Arrays.sort(sorted);
+			formatted.add(Arrays.toString(sorted));
+		}
+		String[] sorted = formatted.toArray(new String[formatted.size()]);
+		Arrays.sort(sorted);
+		return Arrays.toString(sorted);
+	}
+}
@@ -0,0 +1,333 @@
+package test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import model.OutcomeSequence;
+import reasoner.AcyclicPreferenceReasoner;
+import reasoner.CyclicPreferenceReasoner;
+import reasoner.DominanceCache;
+import reasoner.PreferenceReasoner;
+import reasoner.QueryPlanner;
+import reasoner.WeakOrderIterator;
+import translate.PreferenceInputTranslator;
+import translate.PreferenceInputTranslatorFactory;
+import translate.PreferenceInputType;
+import util.Constants;
+
+/**
+ * A Test driver for the in-JVM reasoning engines of the IPrefR preference reasoner (no model checker needed).
+ *
+ * @author gsanthan
+ *
+ */
+public class IPrefREngineTest {
+
+	public static void main(String[] args) throws Exception {
+
+		String smvFile = new String();
+
+		smvFile = translate("examples\\nocycle-cpnet.xml", PreferenceInputType.TCPnet);
+		testDominanceTesting(smvFile, Constants.REASONING_ENGINE.ExplicitState);
+		testDominanceTesting(smvFile, Constants.REASONING_ENGINE.Symbolic);
+		testDominanceTesting(smvFile, Constants.REASONING_ENGINE.SAT);
+		testWeakOrder(smvFile, Constants.REASONING_ENGINE.Symbolic);
+		testWeakOrder(smvFile, Constants.REASONING_ENGINE.SAT);
+		testDominanceCache(smvFile, Constants.REASONING_ENGINE.Symbolic);
+		testOrdering(smvFile, Constants.REASONING_ENGINE.Symbolic, null);
+		testQueryPlanner(smvFile);
+
+		testMinimizedTranslation("examples\\acyclic-cpnet.xml");
+
+		smvFile = translate("examples\\acyclic-cpnet.xml", PreferenceInputType.TCPnet);
+		//The total order of the CP-net: a=0 is preferred, then the preferred value of b given a, then that of c given b 
+		testOrdering(smvFile, Constants.REASONING_ENGINE.Symbolic, Arrays.asList(new String[]{"bc", "b", "", "c", "a", "ac", "abc", "ab"}));
+		testOptimal(smvFile, Constants.REASONING_ENGINE.Symbolic);
+		testDominanceInference(smvFile, Constants.REASONING_ENGINE.Symbolic);
+
+		smvFile = translate("examples\\nocycle-tcpnet.xml", PreferenceInputType.TCPnet);
+		testDominanceTesting(smvFile, Constants.REASONING_ENGINE.ExplicitState);
+		testDominanceTesting(smvFile, Constants.REASONING_ENGINE.Symbolic);
+		testDominanceTesting(smvFile, Constants.REASONING_ENGINE.SAT);
+
+		smvFile = translate("examples\\nocycle-cinet.txt", PreferenceInputType.CInet);
+		testDominanceTesting(smvFile, Constants.REASONING_ENGINE.ExplicitState);
+		testDominanceTesting(smvFile, Constants.REASONING_ENGINE.Symbolic);
+		testDominanceTesting(smvFile, Constants.REASONING_ENGINE.SAT);
+		testWeakOrder(smvFile, Constants.REASONING_ENGINE.Symbolic);
+		testWeakOrder(smvFile, Constants.REASONING_ENGINE.SAT);
+
+		smvFile = translate("examples\\cycle-cpnet.xml", PreferenceInputType.TCPnet);
+		testConsistency(smvFile, Constants.REASONING_ENGINE.ExplicitState);
+		testConsistency(smvFile, Constants.REASONING_ENGINE.Symbolic);
+		testConsistency(smvFile, Constants.REASONING_ENGINE.SAT);
+		testWeakOrderWithCycles(smvFile);
+	}
+
+	private static String translate(String inputFile, PreferenceInputType type) throws Exception {
+		PreferenceInputTranslator translator = PreferenceInputTranslatorFactory.createTranslator(type);
+		return translator.convertToSMV(inputFile, 0);
+	}
+
+	private static void testDominanceTesting(String smvFile, Constants.REASONING_ENGINE engine) throws Exception {
+		System.out.println("Testing Dominance ("+engine+")...");
+
+		//The dominance cache is shared by all the reasoners on the model; without clearing it, the answers would come from the previous engine
+		DominanceCache.clearAllCaches();
+		PreferenceReasoner p1 = new AcyclicPreferenceReasoner(smvFile);
+		p1.setReasoningEngine(engine);
+
+		System.out.println(p1.dominates(new HashSet<String>(Arrays.asList(new String[]{})),new HashSet<String>(Arrays.asList(new String[]{}))));
+		System.out.println(p1.dominates(new HashSet<String>(Arrays.asList(new String[]{})),new HashSet<String>(Arrays.asList(new String[]{"a"}))));
+		System.out.println(p1.dominates(new HashSet<String>(Arrays.asList(new String[]{"a"})),new HashSet<String>(Arrays.asList(new String[]{}))));
+		System.out.println(p1.dominates(new HashSet<String>(Arrays.asList(new String[]{"b"})),new HashSet<String>(Arrays.asList(new String[]{}))));
+		System.out.println(p1.dominates(new HashSet<String>(Arrays.asList(new String[]{"b"})),new HashSet<String>(Arrays.asList(new String[]{"a","c"}))));
+	}
+
+	private static void testDominanceCache(String smvFile, Constants.REASONING_ENGINE engine) throws Exception {
+		System.out.println("Testing Dominance Cache ("+engine+")...");
+
+		DominanceCache.clearAllCaches();
+		PreferenceReasoner p1 = new AcyclicPreferenceReasoner(smvFile);
+		p1.setReasoningEngine(engine);
+
+		//Repeated queries are answered from the cache
+		System.out.println(p1.dominates(new HashSet<String>(Arrays.asList(new String[]{"a","b","c"})),new HashSet<String>(Arrays.asList(new String[]{}))));
+		System.out.println(p1.dominates(new HashSet<String>(Arrays.asList(new String[]{"a","b","c"})),new HashSet<String>(Arrays.asList(new String[]{}))));
+		System.out.println(p1.dominates(new HashSet<String>(Arrays.asList(new String[]{})),new HashSet<String>(Arrays.asList(new String[]{"a","b","c"}))));
+		System.out.println(p1.dominates(new HashSet<String>(Arrays.asList(new String[]{})),new HashSet<String>(Arrays.asList(new String[]{"a","b","c"}))));
+		System.out.println(p1.getDominanceCache().getStatistics());
+
+		//Another reasoner on the same model (with another engine) shares the cache, and gets the results without computing them
+		PreferenceReasoner p2 = new AcyclicPreferenceReasoner(smvFile);
+		p2.setReasoningEngine(Constants.REASONING_ENGINE.SAT);
+		long hits = p2.getDominanceCache().getHits() + p2.getDominanceCache().getInferredHits();
+		System.out.println(p2.dominates(new HashSet<String>(Arrays.asList(new String[]{"a","b","c"})),new HashSet<String>(Arrays.asList(new String[]{}))));
+		System.out.println(p2.dominates(new HashSet<String>(Arrays.asList(new String[]{})),new HashSet<String>(Arrays.asList(new String[]{"a","b","c"}))));
+		if(p2.getDominanceCache().getHits() + p2.getDominanceCache().getInferredHits() != hits + 2) {
+			throw new RuntimeException("Dominance results cached by another reasoner on " + smvFile + " are not reused!");
+		}
+		System.out.println(p2.getDominanceCache().getStatistics());
+	}
+
+	private static void testDominanceInference(String smvFile, Constants.REASONING_ENGINE engine) throws Exception {
+		System.out.println("Testing Dominance Inference ("+engine+")...");
+
+		DominanceCache.clearAllCaches();
+		AcyclicPreferenceReasoner p1 = new AcyclicPreferenceReasoner(smvFile);
+		p1.setReasoningEngine(engine);
+
+		//bc > a takes several flips (a -> {} -> b -> bc), each of which is cached
+		if(!p1.dominates(getOutcome("bc"), getOutcome("a"))) {
+			throw new RuntimeException("bc does not dominate a in " + smvFile);
+		}
+		List<Set<String>> proof = new ArrayList<Set<String>>(p1.getProofOfDominance().getOutcomeSequence());
+		if(proof.size() < 3) {
+			throw new RuntimeException("The proof of bc > a in " + smvFile + " has less than 2 flips: " + proof);
+		}
+
+		//A sub-pair of the proof is inferred from its flips
+		testInferredDominance(p1, proof.get(2), proof.get(0));
+
+		//ab > a is computed, and bc > ab is inferred from the chain ab -> a -> ... -> bc, by joining the proofs of ab > a and bc > a
+		if(!p1.dominates(getOutcome("a"), getOutcome("ab"))) {
+			throw new RuntimeException("a does not dominate ab in " + smvFile);
+		}
+		testInferredDominance(p1, getOutcome("bc"), getOutcome("ab"));
+		System.out.println(p1.getDominanceCache().getStatistics());
+	}
+
+	/**
+	 * Checks that the dominance of better over worse is inferred from the cache, with a proof of improving flips from worse to better
+	 */
+	private static void testInferredDominance(AcyclicPreferenceReasoner p1, Set<String> better, Set<String> worse) throws Exception {
+		long inferredHits = p1.getDominanceCache().getInferredHits();
+		if(!p1.dominates(better, worse) || p1.getDominanceCache().getInferredHits() != inferredHits + 1) {
+			throw new RuntimeException("The dominance of " + better + " over " + worse + " is not inferred from the cache!");
+		}
+		List<Set<String>> proof = new ArrayList<Set<String>>(p1.getProofOfDominance().getOutcomeSequence());
+		if(!proof.get(0).equals(worse) || !proof.get(proof.size()-1).equals(better)) {
+			throw new RuntimeException("The inferred proof " + proof + " does not lead from " + worse + " to " + better);
+		}
+		for (int i = 0; i+1 < proof.size(); i++) {
+			//An improving flip changes a single variable to its preferred value, which ranks the outcome higher in the order of the CP-net
+			Set<String> flipped = new HashSet<String>(proof.get(i));
+			flipped.addAll(proof.get(i+1));
+			Set<String> unchanged = new HashSet<String>(proof.get(i));
+			unchanged.retainAll(proof.get(i+1));
+			flipped.removeAll(unchanged);
+			if(flipped.size() != 1 || !p1.orders(proof.get(i+1), proof.get(i))) {
+				throw new RuntimeException("The inferred proof " + proof + " has a step that is not an improving flip: " + proof.get(i) + " -> " + proof.get(i+1));
+			}
+		}
+	}
+
+	/**
+	 * Sorts all the outcomes over the variables a, b and c, and checks the order against the dominance tests 
+	 * (and against the expected order, given as the names of the variables with valuation 1, if it is not null);
+	 * the outcomes are sorted using the CPTs if expected is not null, by the dominance relation otherwise
+	 */
+	private static void testOrdering(String smvFile, Constants.REASONING_ENGINE engine, List<String> expected) throws Exception {
+		System.out.println("Testing Ordering ("+engine+")...");
+
+		AcyclicPreferenceReasoner p1 = new AcyclicPreferenceReasoner(smvFile);
+		p1.setReasoningEngine(engine);
+		if((p1.getCPNet() != null) != (expected != null)) {
+			throw new RuntimeException("Acyclic CP-net encoded by " + smvFile + ": " + (p1.getCPNet() != null));
+		}
+
+		List<Set<String>> outcomes = new ArrayList<Set<String>>();
+		for (String outcome : new String[]{"abc", "ab", "ac", "a", "bc", "b", "c", ""}) {
+			outcomes.add(getOutcome(outcome));
+		}
+		List<Set<String>> sorted = p1.sortOutcomes(outcomes);
+		System.out.println(sorted);
+		if(expected != null) {
+			List<Set<String>> expectedOutcomes = new ArrayList<Set<String>>();
+			for (String outcome : expected) {
+				expectedOutcomes.add(getOutcome(outcome));
+			}
+			if(!sorted.equals(expectedOutcomes)) {
+				throw new RuntimeException("The outcomes of " + smvFile + " are sorted as " + sorted + " instead of " + expectedOutcomes);
+			}
+		}
+		if(sorted.size() != outcomes.size()) {
+			throw new RuntimeException("The outcomes of " + smvFile + " are sorted as " + sorted);
+		}
+		//No outcome dominates an outcome ranked above it
+		for (int i = 0; i < sorted.size(); i++) {
+			for (int j = i + 1; j < sorted.size(); j++) {
+				if(!p1.orders(sorted.get(i), sorted.get(j)) || p1.dominates(sorted.get(j), sorted.get(i))) {
+					throw new RuntimeException("The order of " + sorted.get(i) + " and " + sorted.get(j) + " in " + smvFile + " is not consistent with dominance!");
+				}
+			}
+		}
+	}
+
+	private static void testOptimal(String smvFile, Constants.REASONING_ENGINE engine) throws Exception {
+		System.out.println("Testing Optimal Outcome ("+engine+")...");
+
+		AcyclicPreferenceReasoner p1 = new AcyclicPreferenceReasoner(smvFile);
+		p1.setReasoningEngine(engine);
+		if(p1.getCPNet() == null) {
+			throw new RuntimeException("The CP-net encoded by " + smvFile + " is not recovered!");
+		}
+
+		//Computed by a forward sweep over the CPTs; the optimal outcome is the only outcome at the top level of the weak order
+		Set<String> optimal = p1.optimal();
+		System.out.println(optimal);
+		PreferenceReasoner p2 = new AcyclicPreferenceReasoner(smvFile);
+		p2.setReasoningEngine(engine);
+		Set<Set<String>> topLevel = p2.generateWeakOrder().get(0).getOutcomeSequence();
+		if(topLevel.size() != 1 || !topLevel.contains(optimal)) {
+			throw new RuntimeException("The optimal outcome " + optimal + " of " + smvFile + " is not the top level " + topLevel + " of the weak order!");
+		}
+
+		//The optimal completion of a=1 extends it, and is not dominated by any other outcome extending it
+		Map<String, Boolean> partialAssignment = new HashMap<String, Boolean>();
+		partialAssignment.put("a", true);
+		Set<String> completion = p1.optimalCompletion(partialAssignment);
+		System.out.println(completion);
+		if(!completion.equals(getOutcome("a"))) {
+			throw new RuntimeException("The optimal completion of a=1 in " + smvFile + " is " + completion + " instead of [a]");
+		}
+		for (String outcome : new String[]{"ab", "ac", "abc"}) {
+			if(p1.dominates(getOutcome(outcome), completion)) {
+				throw new RuntimeException("The optimal completion " + completion + " of a=1 in " + smvFile + " is dominated by " + outcome);
+			}
+		}
+	}
+
+	/**
+	 * Returns the outcome in which the variables named by the letters of the string have valuation 1
+	 */
+	private static Set<String> getOutcome(String variables) {
+		Set<String> outcome = new HashSet<String>();
+		for (char variable : variables.toCharArray()) {
+			outcome.add(String.valueOf(variable));
+		}
+		return outcome;
+	}
+
+	private static void testMinimizedTranslation(String xmlFile) throws Exception {
+		System.out.println("Testing Minimized Translation...");
+
+		boolean minimizedTranslation = Constants.USE_MINIMIZED_TRANSLATION;
+		Constants.USE_MINIMIZED_TRANSLATION = true;
+		try {
+			//The frame conditions defined in the minimized model are inlined into the guards, which must still reveal the CPTs of the acyclic CP-net
+			AcyclicPreferenceReasoner p1 = new AcyclicPreferenceReasoner(translate(xmlFile, PreferenceInputType.TCPnet));
+			if(p1.getCPNet() == null) {
+				throw new RuntimeException("The CP-net encoded by the minimized model of " + xmlFile + " is not recovered!");
+			}
+			System.out.println("Acyclic CP-net: " + (p1.getCPNet() != null));
+		} finally {
+			Constants.USE_MINIMIZED_TRANSLATION = minimizedTranslation;
+		}
+	}
+
+	private static void testQueryPlanner(String smvFile) throws Exception {
+		System.out.println("Testing Query Planner...");
+
+		PreferenceReasoner p1 = new AcyclicPreferenceReasoner(smvFile);
+		p1.setUseQueryPlanner(true);
+
+		//{} > a is decided structurally (a single improving flip); the other queries are answered by the backend estimated to be the cheapest
+		System.out.println(p1.dominates(new HashSet<String>(Arrays.asList(new String[]{})),new HashSet<String>(Arrays.asList(new String[]{"a"}))));
+		System.out.println(p1.dominates(new HashSet<String>(Arrays.asList(new String[]{"a"})),new HashSet<String>(Arrays.asList(new String[]{}))));
+		System.out.println(p1.dominates(new HashSet<String>(Arrays.asList(new String[]{"b"})),new HashSet<String>(Arrays.asList(new String[]{"a","c"}))));
+		System.out.println(p1.isConsistent());
+		for (QueryPlanner.Decision decision : p1.getQueryPlanner().getDecisions()) {
+			System.out.println(decision);
+		}
+	}
+
+	private static void testConsistency(String smvFile, Constants.REASONING_ENGINE engine) throws Exception {
+		System.out.println("Testing Consistency ("+engine+")...");
+
+		//The consistency results are shared by all the reasoners on the model; without clearing them, the answer would come from the previous engine
+		PreferenceReasoner.clearConsistencyResults();
+		PreferenceReasoner p1 = new AcyclicPreferenceReasoner(smvFile);
+		p1.setReasoningEngine(engine);
+		System.out.println(p1.isConsistent());
+		if(p1.cycle == null) {
+			throw new RuntimeException("No cycle found in " + smvFile + " by the " + engine + " engine!");
+		}
+	}
+
+	private static void testWeakOrder(String smvFile, Constants.REASONING_ENGINE engine) throws Exception {
+		System.out.println("Testing Weak Order ("+engine+")...");
+
+		PreferenceReasoner p1 = new AcyclicPreferenceReasoner(smvFile);
+		p1.setReasoningEngine(engine);
+		List<OutcomeSequence> weakOrder = p1.generateWeakOrder();
+		for (OutcomeSequence level : weakOrder) {
+			level.printOutcomeSequence();
+		}
+
+
+		//Only the top two levels are computed
+		System.out.println("Top two levels:");
+		p1.resetReasoner();
+		WeakOrderIterator levels = p1.weakOrderIterator();
+		for (int i = 0; i < 2 && levels.hasNext(); i++) {
+			levels.next().printOutcomeSequence();
+		}
+		levels.cancel();
+	}
+
+	private static void testWeakOrderWithCycles(String smvFile) throws Exception {
+		System.out.println("Testing Weak Order with Cycles...");
+
+		//The levels are computed in memory, in a single pass over the induced preference graph (see verify.CondensationLevels)
+		PreferenceReasoner p1 = new CyclicPreferenceReasoner(smvFile);
+		List<OutcomeSequence> weakOrder = p1.generateWeakOrderWithCycles();
+		for (OutcomeSequence level : weakOrder) {
+			level.printOutcomeSequence();
+		}
+	}
+}
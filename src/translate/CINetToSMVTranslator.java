@@ -9,6 +9,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -46,14 +47,119 @@ public class CINetToSMVTranslator implements PreferenceInputTranslator {
 	 * 
 	 */
 	public String convertToSMV(String cinetFile, int sampleSize, boolean improvingFlip) throws ParserConfigurationException, SAXException, IOException, XPathExpressionException {
-		
-		String smvFile = new String();
-		if(improvingFlip) {
-			smvFile = cinetFile.substring(0, cinetFile.length()-4).concat(".smv");
-		} else {
-			smvFile = cinetFile.substring(0, cinetFile.length()-4).concat("-reverse").concat(".smv");
+		return convertToSMV(cinetFile, new int[]{sampleSize}, new boolean[]{improvingFlip})[0];
+	}
+	
+	/**
+	 * Translates CI-nets specified in text format into both the forward model (improving flips) and the reverse model (worsening flips), 
+	 * reading the CI-net only once. Equivalent to convertToSMV(cinetFile, sampleSize) followed by convertToSMV(cinetFile, 0, false), 
+	 * i.e., the random 'sampleSize' specs are generated with the forward model.
+	 * 
+	 * @param cinetFile Name of file specifying the input CI-net
+	 * @param sampleSize Number of sample dominance test cases to be generated
+	 * @return Names of the saved SMV files of the forward and the reverse model, in this order
+	 * @throws IOException
+	 */
+	public String[] convertToSMVModels(String cinetFile, int sampleSize) throws ParserConfigurationException, SAXException, IOException, XPathExpressionException {
+		return convertToSMV(cinetFile, new int[]{sampleSize, 0}, new boolean[]{true, false});
+	}
+	
+	/**
+	 * Translates the CI-net into the model of each direction (with the corresponding number of sample specs), 
+	 * reading the CI-net once if any of the models is not cached
+	 * @return Names of the saved SMV files, in the order of the directions
+	 */
+	private String[] convertToSMV(String cinetFile, int[] sampleSizes, boolean[] improvingFlips) throws IOException {
+		String[] smvFiles = new String[improvingFlips.length];
+		CINet cinet = null;
+		for (int i = 0; i < improvingFlips.length; i++) {
+			String smvFile = new String();
+			if(improvingFlips[i]) {
+				smvFile = cinetFile.substring(0, cinetFile.length()-4).concat(".smv");
+			} else {
+				smvFile = cinetFile.substring(0, cinetFile.length()-4).concat("-reverse").concat(".smv");
+			}
+			smvFiles[i] = smvFile;
+			String specFile = sampleSizes[i] > 0 ? cinetFile.substring(0, cinetFile.length()-4).concat(".spec") : null;
+			// Reuse the artifacts of a previous translation of the same CI-net in the same direction with the same options, if cached
+			String cacheKey = null;
+			String outputFile = smvFile;
+			String outputSpecFile = specFile;
+			if(TranslationCache.isEnabled()) {
+				cacheKey = TranslationCache.getKey(cinetFile, "cinet", improvingFlips[i], sampleSizes[i]);
+				if(TranslationCache.restore(cacheKey, smvFile, specFile)) {
+					continue;
+				}
+				outputFile = TranslationCache.getStagingFile(smvFile);
+				outputSpecFile = specFile == null ? null : TranslationCache.getStagingFile(specFile);
+			}
+			try {
+				if(cinet == null) {
+					cinet = readCINet(cinetFile);
+				}
+				writeModel(cinet, improvingFlips[i], outputFile);
+				
+				if(sampleSizes[i] > 0) {
+					// Generate and write randomly generated 'sampleSize' specs to the spec file
+					BufferedWriter wSpec = FileUtil.openFile(outputSpecFile);
+					SpecGenerator specGen = new SpecGenerator();
+					String[] specs = specGen.createRandomDominanceTestSpecs(cinet.variables, cinet.getVariableDomains(), sampleSizes[i]);
+					for (int j = 0; j < specs.length; j++) {
+						FileUtil.writeLineToFile(wSpec, specs[j]);
+					}
+					
+					FileUtil.closeFile(wSpec);
+				} 
+				
+				if(cacheKey != null) {
+					TranslationCache.publish(cacheKey, outputFile, outputSpecFile, smvFile, specFile);
+				}
+			} finally {
+				if(cacheKey != null) {
+					TranslationCache.discard(outputFile, outputSpecFile);
+				}
+			}
 		}
+		return smvFiles;
+	}
+	
+	/**
+	 * Reads the preference variables and the conditional importance statements of the CI-net, 
+	 * and splits each statement into its sets of variables (see parseStatement)
+	 * @param cinetFile Name of file specifying the input CI-net
+	 * @return CI-net
+	 * @throws IOException
+	 */
+	private CINet readCINet(String cinetFile) throws IOException {
+		CINet cinet = new CINet();
 		BufferedReader r = new BufferedReader(new FileReader(cinetFile));
+		try {
+			String test = r.readLine();
+			if(test !=null && test.equals("VARIABLES")) {
+				// Extract preference variables
+				cinet.variables = r.readLine().split(",");
+			}
+			
+			//Extract the conditional importance statements
+			String line = r.readLine(); // This is just the title "PREFERENCES"
+			while((line = r.readLine())!=null) {
+				cinet.statements.add(parseStatement(line));
+			}
+		} finally {
+			r.close();
+		}
+		return cinet;
+	}
+	
+	/**
+	 * Writes the SMV model of the CI-net for the given direction of the flips
+	 * @param cinet CI-net
+	 * @param improvingFlip true for the forward model (improving flips); false for the reverse model
+	 * @param smvFile Name of the SMV file to be written
+	 * @throws IOException
+	 */
+	private void writeModel(CINet cinet, boolean improvingFlip, String smvFile) throws IOException {
+		String[] variables = cinet.variables;
 		
 		// Create/open the smv file where we are going to save the translated code 
 		BufferedWriter w = FileUtil.openFile(smvFile);
@@ -67,27 +173,10 @@ public class CINetToSMVTranslator implements PreferenceInputTranslator {
 		
 		FileUtil.writeLineToFile(w, "");
 		
-		String[] variables=null;
-		String test = r.readLine();
-		if(test !=null && test.equals("VARIABLES")) {
-			// Extract preference variables
-			variables = r.readLine().split(",");
-		}
-		
-		//Binary variables
-		String[][] variableDomains = new String[variables.length][];
-		for (int i=0; i<variableDomains.length; i++) {
-			variableDomains[i] = new String[]{"0","1"};
-		}
-		
-		//Extract the conditional importance statements
-		List<String> preferenceLines = new ArrayList<String>();
-		String line = r.readLine(); // This is just the title "PREFERENCES"
-		while((line = r.readLine())!=null) {
-			preferenceLines.add(line);
-		}
 		//This map contains the statements to be added to each variable's "next" assignment
-		Map<String, List<String>> variableMap = processConditionalImportancePreferences(preferenceLines, variables, improvingFlip);
+		//(and the next one the frame conditions to be defined for them, if the statements are minimized)
+		Map<String, String> frames = new LinkedHashMap<String, String>();
+		Map<String, List<String>> variableMap = processConditionalImportancePreferences(cinet.statements, variables, improvingFlip, frames);
 		List<String> globalChange = new ArrayList<String>();
 		
 		// Start writing the SMV file
@@ -127,6 +216,15 @@ public class CINetToSMVTranslator implements PreferenceInputTranslator {
 		
 		FileUtil.writeLineToFile(w, "");
 		
+		if(!frames.isEmpty()) {
+			//Define the frame conditions (which variables change) shared by the minimized conditional importance transitions
+			FileUtil.writeLineToFile(w, "DEFINE");
+			for (Map.Entry<String, String> frame : frames.entrySet()) {
+				FileUtil.writeLineToFile(w, "  " + frame.getValue() + " := " + frame.getKey() + ";");
+			}
+			FileUtil.writeLineToFile(w, "");
+		}
+		
 		// Conditional Preferences - Each CPT entry is a transition specification in the model
 		FileUtil.writeLineToFile(w, "ASSIGN");
 		
@@ -224,69 +322,69 @@ public class CINetToSMVTranslator implements PreferenceInputTranslator {
 		}
 		
 		FileUtil.closeFile(w);
+	}
+	
+	/**
+	 * Splits the conditional importance statement into its sets of variables: the variables that must be 1 and 0 in the condition, 
+	 * and the variables of the preferred and the less preferred side of the preference (which are the better and worse sets of the reverse model, 
+	 * and the other way round in the forward model)
+	 * @param preferenceLine Conditional importance statement
+	 * @return Positive, negative, preferred and less preferred variables, in this order
+	 */
+	private String[][] parseStatement(String preferenceLine) {
+		String condition = preferenceLine.split(":")[0];
+		String preference = preferenceLine.split(":")[1];
 		
-		if(sampleSize > 0) {
-			// Generate and write randomly generated 'sampleSize' specs to the spec file
-			String specFile = cinetFile.substring(0, cinetFile.length()-4).concat(".spec");
-			BufferedWriter wSpec = FileUtil.openFile(specFile);
-			SpecGenerator specGen = new SpecGenerator();
-			String[] specs = specGen.createRandomDominanceTestSpecs(variables, variableDomains, sampleSize);
-			for (int i = 0; i < specs.length; i++) {
-				FileUtil.writeLineToFile(wSpec, specs[i]);
-			}
-			
-			FileUtil.closeFile(wSpec);
-		} 
+		String positiveSet = condition.split(";")[0];positiveSet=positiveSet.substring(1,positiveSet.length()-1); if(positiveSet.equals("{}")) positiveSet=""; 
+		String negativeSet = condition.split(";")[1];negativeSet=negativeSet.substring(1,negativeSet.length()-1); if(negativeSet.equals("{}")) negativeSet="";
+		String preferredSet = preference.split(";")[0];preferredSet=preferredSet.substring(1,preferredSet.length()-1); if(preferredSet.equals("{}")) preferredSet="";
+		String lessPreferredSet = preference.split(";")[1];lessPreferredSet=lessPreferredSet.substring(1,lessPreferredSet.length()-1); if(lessPreferredSet.equals("{}")) lessPreferredSet="";
 		
-		return smvFile;
+		return new String[][]{split(positiveSet), split(negativeSet), split(preferredSet), split(lessPreferredSet)};
+	}
+	
+	private static String[] split(String set) {
+		if (set.trim().length()>0) {
+			return set.split(",");
+		}
+		return new String[0];
 	}
 
-	private Map<String, List<String>> processConditionalImportancePreferences(List<String> preferenceLines, String[] variables, boolean improvingFlip) {
+	/**
+	 * Translates the conditional importance statements into guarded transitions of the variables they flip.
+	 * If Constants.USE_MINIMIZED_TRANSLATION is set, the transitions of each variable with the same frame condition (set of variables that change) 
+	 * and next value are merged into minimized guards (see GuardMinimizer), and the frame conditions are added to frames to be defined in the model
+	 * @param statements Conditional importance statements, split by parseStatement
+	 * @param variables Preference variables
+	 * @param improvingFlip true for the forward model (improving flips); false for the reverse model
+	 * @param frames Frame conditions of the minimized transitions, mapped to the names of their definitions
+	 * @return Guarded transitions of each variable
+	 */
+	private Map<String, List<String>> processConditionalImportancePreferences(List<String[][]> statements, String[] variables, boolean improvingFlip, Map<String, String> frames) {
 		
 		Map<String,List<String>> variableMap = new HashMap<String,List<String>>();
+		Map<String,GuardMinimizer> minimizers = new HashMap<String,GuardMinimizer>();
+		Map<String,List<String>> domains = new HashMap<String,List<String>>();
+		for(String variable : variables) {
+			domains.put(variable, Arrays.asList("0", "1"));
+		}
 		for(String variable : variables) {
 			variableMap.put(variable, new ArrayList<String>());
+			minimizers.put(variable, new GuardMinimizer(domains));
 		}
 		
-		for (String preferenceLine : preferenceLines) {
-			String condition = preferenceLine.split(":")[0];
-			String preference = preferenceLine.split(":")[1];
-			
-			String positiveSet = condition.split(";")[0];positiveSet=positiveSet.substring(1,positiveSet.length()-1); if(positiveSet.equals("{}")) positiveSet=""; 
-			String negativeSet = condition.split(";")[1];negativeSet=negativeSet.substring(1,negativeSet.length()-1); if(negativeSet.equals("{}")) negativeSet="";
-			
-			String betterSet;
-			String worseSet;
+		for (String[][] statement : statements) {
+			String[] positive = statement[0];
+			String[] negative = statement[1];
+			String[] better, worse;
 			if(improvingFlip) {
 				//Reversed Direction of Transition
-				betterSet = preference.split(";")[1];betterSet=betterSet.substring(1,betterSet.length()-1); if(betterSet.equals("{}")) betterSet="";
-				worseSet = preference.split(";")[0];worseSet=worseSet.substring(1,worseSet.length()-1); if(worseSet.equals("{}")) worseSet="";
+				better = statement[3];
+				worse = statement[2];
 			} else {
 				//Worsening Flip
-				betterSet = preference.split(";")[0];betterSet=betterSet.substring(1,betterSet.length()-1); if(betterSet.equals("{}")) betterSet="";
-				worseSet = preference.split(";")[1];worseSet=worseSet.substring(1,worseSet.length()-1); if(worseSet.equals("{}")) worseSet="";
-			}
-			
-			String[] positive = null, negative = null, better = null, worse = null ;
-			if (positiveSet.trim().length()>0) {
-				positive = positiveSet.split(",");				
-			} else {
-				positive = new String[0];
-			}
-			if (negativeSet.trim().length()>0) {
-				negative = negativeSet.split(",");
-			} else {
-				negative = new String[0];
-			}
-			if (betterSet.trim().length()>0) {
-				better = betterSet.split(",");				
-			} else {
-				better = new String[0];
-			}
-			if (worseSet.trim().length()>0) {
-				worse = worseSet.split(",");
-			} else {
-				worse = new String[0];
+				better = statement[2];
+				worse = statement[3];
 			}
 			List<String> betterList = Arrays.asList(better);
 			List<String> worseList = Arrays.asList(worse);
@@ -339,6 +437,31 @@ public class CINetToSMVTranslator implements PreferenceInputTranslator {
 				}
 			}
 			
+			if(Constants.USE_MINIMIZED_TRANSLATION) {
+				//Literals of the guard other than the change variables, which are in the frame condition
+				List<String> literals = new ArrayList<String>();
+				for (String p : positive) {
+					literals.add(p + "=1");
+				}
+				for (String n : negative) {
+					literals.add(n + "=0");
+				}
+				for (String b : better) {
+					literals.add(b + (improvingFlip ? "=1" : "=0"));
+				}
+				for (String w : worse) {
+					literals.add(w + (improvingFlip ? "=0" : "=1"));
+				}
+				String frame = getFrameName(betterList, worseList, variables, frames);
+				for (String b : better) {
+					minimizers.get(b).addTransition(literals, frame, improvingFlip ? "0" : "1", linePrefix + ": " + (improvingFlip ? "0" : "1") + ";");
+				}
+				for (String w : worse) {
+					minimizers.get(w).addTransition(literals, frame, improvingFlip ? "1" : "0", linePrefix + ": " + (improvingFlip ? "1" : "0") + ";");
+				}
+				continue;
+			}
+			
 			for (String b : better) {
 				if(improvingFlip) {
 					variableMap.get(b).add(linePrefix + ": 0;");
@@ -354,6 +477,63 @@ public class CINetToSMVTranslator implements PreferenceInputTranslator {
 				}
 			}
 		}
+		
+		if(Constants.USE_MINIMIZED_TRANSLATION) {
+			for(String variable : variables) {
+				variableMap.put(variable, minimizers.get(variable).getLines("      "));
+			}
+		}
 		return variableMap;
+	}
+	
+	/**
+	 * Returns the name of the definition of the frame condition in which exactly the variables in the better and worse sets change;
+	 * adds the frame condition to frames if it is not defined yet
+	 * @param betterList
+	 * @param worseList
+	 * @param variables Preference variables
+	 * @param frames Frame conditions defined so far, mapped to the names of their definitions
+	 * @return Name of the definition
+	 */
+	private String getFrameName(List<String> betterList, List<String> worseList, String[] variables, Map<String, String> frames) {
+		String frame = "";
+		String name = "frame";
+		for (String v : variables) {
+			if(frame.length() > 0) {
+				frame += " & ";
+			}
+			if(betterList.contains(v) || worseList.contains(v)) {
+				frame += "ch" + v + "=1";
+				name += "_" + v;
+			} else {
+				frame += "ch" + v + "=0";
+			}
+		}
+		if(!frames.containsKey(frame)) {
+			//Names are unique unless variable names contain '_'
+			String unique = name;
+			for (int i = 1; frames.containsValue(unique) || Arrays.asList(variables).contains(unique); i++) {
+				unique = name + "_" + i;
+			}
+			frames.put(frame, unique);
+		}
+		return frames.get(frame);
 	} 
+	
+	/**
+	 * CI-net read from its text file: the (binary) preference variables and the conditional importance statements, split by parseStatement
+	 */
+	private static class CINet {
+		String[] variables;
+		List<String[][]> statements = new ArrayList<String[][]>();
+		
+		String[][] getVariableDomains() {
+			//Binary variables
+			String[][] variableDomains = new String[variables.length][];
+			for (int i=0; i<variableDomains.length; i++) {
+				variableDomains[i] = new String[]{"0","1"};
+			}
+			return variableDomains;
+		}
+	}
 }
\ No newline at end of file
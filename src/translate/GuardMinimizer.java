@@ -0,0 +1,382 @@
+package translate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Logic minimization of the guarded transitions of a next(var) := case ... esac; assignment generated by the translators.
+ * Each transition (one per CPT row or CI-net statement) is given as a cube (a conjunction of literals var=value over the preference variables),
+ * a frame condition (the name of a DEFINE fixing the change variables of the flip) and the value of var in the next state.
+ * The transitions with the same frame condition and next value are merged into a minimum number of cubes (Quine-McCluskey over multi-valued variables):
+ * the prime implicants of their union are generated by merging cubes that differ in the values of one variable only, and a cover of the union is chosen
+ * greedily among them. For unions with too many minterms, cubes are merged only while one contains another or two differ in one variable.
+ * Either way the merged guards hold in exactly the same states as the original ones.
+ * <p>
+ * If transitions with different next values may hold in the same state (in which case the order of the case statement matters),
+ * or a literal is not of the form var=value over a known domain, the transitions are kept as given.
+ * @author gsanthan
+ *
+ */
+public class GuardMinimizer {
+
+	/**
+	 * Maximum number of minterms of the union of the cubes to be merged for which the prime implicants are generated
+	 */
+	public static final int MAX_MINTERMS = 4096;
+
+	/**
+	 * Domain (list of values) of each variable
+	 */
+	Map<String, List<String>> domains;
+	List<Map<String, String>> cubes = new ArrayList<Map<String, String>>();
+	List<String> frames = new ArrayList<String>();
+	List<String> values = new ArrayList<String>();
+	/**
+	 * Transitions as given, written if they cannot be minimized
+	 */
+	List<String> lines = new ArrayList<String>();
+	boolean minimizable = true;
+
+	/**
+	 * @param domains Domain (list of values) of each preference variable
+	 */
+	public GuardMinimizer(Map<String, List<String>> domains) {
+		this.domains = domains;
+	}
+
+	/**
+	 * Adds a transition
+	 * @param literals Literals var=value of the guard, other than the frame condition
+	 * @param frame Name of the definition of the frame condition
+	 * @param value Value in the next state
+	 * @param line Transition as written without minimization
+	 */
+	public void addTransition(List<String> literals, String frame, String value, String line) {
+		lines.add(line);
+		Map<String, String> cube = new LinkedHashMap<String, String>();
+		for (String literal : literals) {
+			int index = literal.indexOf('=');
+			String variable = index == -1 ? null : literal.substring(0, index).trim();
+			String val = index == -1 ? null : literal.substring(index + 1).trim();
+			if(variable == null || !domains.containsKey(variable) || !domains.get(variable).contains(val) || domains.get(variable).size() > 31) {
+				minimizable = false;
+				return;
+			}
+			if(cube.containsKey(variable) && !cube.get(variable).equals(val)) {
+				//The guard never holds
+				minimizable = false;
+				return;
+			}
+			cube.put(variable, val);
+		}
+		cubes.add(cube);
+		frames.add(frame);
+		values.add(value);
+	}
+
+	/**
+	 * Returns the minimized transitions (in the order of the first transition of each frame condition and next value),
+	 * or the transitions as given if they cannot be minimized
+	 * @param indent Indentation of the transitions
+	 * @return Lines of the transitions
+	 */
+	public List<String> getLines(String indent) {
+		if(!minimizable) {
+			return lines;
+		}
+		Map<String, List<Integer>> groups = new LinkedHashMap<String, List<Integer>>();
+		for (int i = 0; i < cubes.size(); i++) {
+			String key = frames.get(i) + " : " + values.get(i);
+			if(!groups.containsKey(key)) {
+				groups.put(key, new ArrayList<Integer>());
+			}
+			groups.get(key).add(i);
+		}
+		List<String> groupFrames = new ArrayList<String>();
+		List<String> groupValues = new ArrayList<String>();
+		List<String[]> groupVariables = new ArrayList<String[]>();
+		List<List<int[]>> covers = new ArrayList<List<int[]>>();
+		for (List<Integer> group : groups.values()) {
+			//Variables of the group, in the order in which they first appear
+			Set<String> variableSet = new LinkedHashSet<String>();
+			for (int i : group) {
+				variableSet.addAll(cubes.get(i).keySet());
+			}
+			String[] variables = variableSet.toArray(new String[variableSet.size()]);
+			int[] sizes = new int[variables.length];
+			for (int k = 0; k < variables.length; k++) {
+				sizes[k] = domains.get(variables[k]).size();
+			}
+			List<int[]> masks = new ArrayList<int[]>();
+			for (int i : group) {
+				int[] mask = new int[variables.length];
+				for (int k = 0; k < variables.length; k++) {
+					String val = cubes.get(i).get(variables[k]);
+					mask[k] = val == null ? (1 << sizes[k]) - 1 : 1 << domains.get(variables[k]).indexOf(val);
+				}
+				masks.add(mask);
+			}
+			groupFrames.add(frames.get(group.get(0)));
+			groupValues.add(values.get(group.get(0)));
+			groupVariables.add(variables);
+			covers.add(minimize(masks, sizes));
+		}
+		//The merged guards of a group hold in the same states as its transitions, 
+		//so transitions with different next values hold in a common state if and only if their merged guards do
+		for (int g = 0; g < covers.size(); g++) {
+			for (int h = g + 1; h < covers.size(); h++) {
+				if(groupFrames.get(g).equals(groupFrames.get(h)) && intersect(groupVariables.get(g), covers.get(g), groupVariables.get(h), covers.get(h))) {
+					return lines;
+				}
+			}
+		}
+		List<String> result = new ArrayList<String>();
+		for (int g = 0; g < covers.size(); g++) {
+			String[] variables = groupVariables.get(g);
+			int[] sizes = new int[variables.length];
+			for (int k = 0; k < variables.length; k++) {
+				sizes[k] = domains.get(variables[k]).size();
+			}
+			for (int[] mask : covers.get(g)) {
+				result.add(indent + format(variables, mask, sizes, groupFrames.get(g)) + " : " + groupValues.get(g) + ";");
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns true if a cube of the first cover and a cube of the second cover (over the given variables) hold in a common state
+	 */
+	private static boolean intersect(String[] variables, List<int[]> cover, String[] otherVariables, List<int[]> otherCover) {
+		//Positions of the common variables in both covers
+		List<int[]> common = new ArrayList<int[]>();
+		for (int k = 0; k < variables.length; k++) {
+			int l = Arrays.asList(otherVariables).indexOf(variables[k]);
+			if(l >= 0) {
+				common.add(new int[]{k, l});
+			}
+		}
+		for (int[] cube : cover) {
+			for (int[] other : otherCover) {
+				boolean intersect = true;
+				for (int i = 0; i < common.size() && intersect; i++) {
+					intersect = (cube[common.get(i)[0]] & other[common.get(i)[1]]) != 0;
+				}
+				if(intersect) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Formats the cube followed by the frame condition as a guard
+	 */
+	private String format(String[] variables, int[] mask, int[] sizes, String frame) {
+		StringBuilder guard = new StringBuilder();
+		for (int k = 0; k < variables.length; k++) {
+			if(mask[k] == (1 << sizes[k]) - 1) {
+				continue;
+			}
+			List<String> domain = domains.get(variables[k]);
+			if(Integer.bitCount(mask[k]) == 1) {
+				guard.append(variables[k]).append("=").append(domain.get(Integer.numberOfTrailingZeros(mask[k])));
+			} else {
+				guard.append("(");
+				for (int rest = mask[k]; rest != 0; rest &= rest - 1) {
+					guard.append(variables[k]).append("=").append(domain.get(Integer.numberOfTrailingZeros(rest)));
+					if((rest & (rest - 1)) != 0) {
+						guard.append(" | ");
+					}
+				}
+				guard.append(")");
+			}
+			guard.append(" & ");
+		}
+		return guard.append(frame).toString();
+	}
+
+	/**
+	 * Merges the cubes into cubes with the same union
+	 * @param cubes Cubes as masks of the allowed values (indices into the domain) of each variable
+	 * @param sizes Size of the domain of each variable
+	 * @return Merged cubes
+	 */
+	static List<int[]> minimize(List<int[]> cubes, int[] sizes) {
+		long minterms = 1;
+		for (int size : sizes) {
+			minterms *= size;
+			if(minterms > MAX_MINTERMS) {
+				return merge(cubes);
+			}
+		}
+		//Minterms of the union
+		Set<Cube> onSet = new LinkedHashSet<Cube>();
+		for (int[] cube : cubes) {
+			expand(cube, 0, new int[cube.length], onSet);
+		}
+		//Prime implicants: cubes that cannot be merged with another cube differing in the values of one variable only
+		//(the cubes that may be merged at a position are found by hashing them with the position masked out)
+		List<Cube> primes = new ArrayList<Cube>();
+		Set<Cube> current = onSet;
+		while(!current.isEmpty()) {
+			Set<Cube> next = new LinkedHashSet<Cube>();
+			Set<Cube> merged = new HashSet<Cube>();
+			for (int position = 0; position < sizes.length; position++) {
+				Map<Cube, List<Cube>> buckets = new LinkedHashMap<Cube, List<Cube>>();
+				for (Cube cube : current) {
+					int[] key = cube.masks.clone();
+					key[position] = 0;
+					List<Cube> bucket = buckets.get(new Cube(key));
+					if(bucket == null) {
+						bucket = new ArrayList<Cube>();
+						buckets.put(new Cube(key), bucket);
+					}
+					bucket.add(cube);
+				}
+				for (List<Cube> bucket : buckets.values()) {
+					for (int i = 0; i < bucket.size(); i++) {
+						for (int j = i + 1; j < bucket.size(); j++) {
+							int[] union = bucket.get(i).masks.clone();
+							union[position] |= bucket.get(j).masks[position];
+							next.add(new Cube(union));
+							merged.add(bucket.get(i));
+							merged.add(bucket.get(j));
+						}
+					}
+				}
+			}
+			for (Cube cube : current) {
+				if(!merged.contains(cube)) {
+					primes.add(cube);
+				}
+			}
+			current = next;
+		}
+		//Cover the minterms greedily, by the prime implicant covering most of the minterms not covered so far
+		List<List<Cube>> primeMinterms = new ArrayList<List<Cube>>();
+		for (Cube prime : primes) {
+			List<Cube> covered = new ArrayList<Cube>();
+			expand(prime.masks, 0, new int[prime.masks.length], covered);
+			primeMinterms.add(covered);
+		}
+		List<int[]> cover = new ArrayList<int[]>();
+		Set<Cube> uncovered = new HashSet<Cube>(onSet);
+		while(!uncovered.isEmpty()) {
+			int best = -1;
+			int bestCount = 0;
+			for (int p = 0; p < primes.size(); p++) {
+				int count = 0;
+				for (Cube minterm : primeMinterms.get(p)) {
+					if(uncovered.contains(minterm)) {
+						count++;
+					}
+				}
+				if(count > bestCount) {
+					best = p;
+					bestCount = count;
+				}
+			}
+			cover.add(primes.get(best).masks);
+			uncovered.removeAll(primeMinterms.get(best));
+		}
+		return cover;
+	}
+
+	/**
+	 * Merges the cubes while two differ in the values of one variable only, then drops the cubes contained in another
+	 */
+	private static List<int[]> merge(List<int[]> cubes) {
+		Set<Cube> current = new LinkedHashSet<Cube>();
+		for (int[] cube : cubes) {
+			current.add(new Cube(cube));
+		}
+		boolean changed = true;
+		while(changed) {
+			changed = false;
+			for (int position = 0; position < cubes.get(0).length; position++) {
+				//Cubes equal but for the values at the position are merged into one
+				Map<Cube, int[]> buckets = new LinkedHashMap<Cube, int[]>();
+				for (Cube cube : current) {
+					int[] key = cube.masks.clone();
+					key[position] = 0;
+					int[] union = buckets.get(new Cube(key));
+					if(union == null) {
+						buckets.put(new Cube(key), cube.masks.clone());
+					} else {
+						union[position] |= cube.masks[position];
+						changed = true;
+					}
+				}
+				current = new LinkedHashSet<Cube>();
+				for (int[] union : buckets.values()) {
+					current.add(new Cube(union));
+				}
+			}
+		}
+		List<int[]> result = new ArrayList<int[]>();
+		for (Cube cube : current) {
+			boolean contained = false;
+			for (Cube other : current) {
+				if(other != cube && contains(other.masks, cube.masks)) {
+					contained = true;
+					break;
+				}
+			}
+			if(!contained) {
+				result.add(cube.masks);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Adds the minterms of the cube
+	 */
+	private static void expand(int[] cube, int position, int[] minterm, Collection<Cube> minterms) {
+		if(position == cube.length) {
+			minterms.add(new Cube(minterm.clone()));
+			return;
+		}
+		for (int rest = cube[position]; rest != 0; rest &= rest - 1) {
+			minterm[position] = rest & -rest;
+			expand(cube, position + 1, minterm, minterms);
+		}
+	}
+
+	private static boolean contains(int[] cube, int[] other) {
+		for (int k = 0; k < cube.length; k++) {
+			if((other[k] & ~cube[k]) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Cube as a key of hash sets
+	 */
+	static class Cube {
+		int[] masks;
+
+		Cube(int[] masks) {
+			this.masks = masks;
+		}
+
+		public boolean equals(Object other) {
+			return other instanceof Cube && Arrays.equals(masks, ((Cube) other).masks);
+		}
+
+		public int hashCode() {
+			return Arrays.hashCode(masks);
+		}
+	}
+}
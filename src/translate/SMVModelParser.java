@@ -0,0 +1,208 @@
+package translate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import model.GuardExpression;
+import model.SMVModel;
+import util.FileUtil;
+
+/**
+ * Parses an SMV model generated by TCPNetToSMVTranslator or CINetToSMVTranslator (in NuSMV or Cadence SMV syntax) back into memory.
+ * Reads the DEFINE section and the next(var) := case ... esac; assignments of the preference variables;
+ * the assignments of the change variables and the global change variable are not needed to explore the induced preference graph and are skipped.
+ * @author gsanthan
+ *
+ */
+public class SMVModelParser {
+
+	/**
+	 * Parses the SMV model in smvFile and returns the guarded transitions of its preference variables
+	 * @param smvFile Name of file containing the SMV model
+	 * @return SMVModel containing the guarded transitions of each preference variable
+	 * @throws IOException
+	 */
+	public static SMVModel parse(String smvFile) throws IOException {
+		String[] variables = TCPNetToSMVTranslator.getVariablesFromSMVModel(smvFile);
+		Arrays.sort(variables);
+		SMVModel model = new SMVModel(smvFile, variables);
+		List<String> variableList = Arrays.asList(variables);
+
+		BufferedReader r = FileUtil.openFileForRead(smvFile);
+		try{
+			String section = "";
+			String assignedVariable = null;
+			String statement = "";
+			String nextLine = null;
+			while((nextLine = r.readLine()) != null) {
+				nextLine = stripComment(nextLine).trim();
+				if(nextLine.length() == 0) {
+					continue;
+				}
+				if(nextLine.equals("VAR") || nextLine.equals("DEFINE") || nextLine.equals("ASSIGN")) {
+					section = nextLine;
+					continue;
+				}
+				if(section.equals("DEFINE")) {
+					//Definitions are of the form 'name := expression;' and may span several lines
+					statement = statement + " " + nextLine;
+					if(statement.trim().endsWith(";")) {
+						String definition = statement.trim();
+						int index = definition.indexOf(":=");
+						if(index != -1) {
+							String name = definition.substring(0, index).trim();
+							String expression = definition.substring(index+2, definition.length()-1);
+							model.addDefinition(name, parseExpression(expression));
+						}
+						statement = "";
+					}
+				} else if(section.equals("ASSIGN")) {
+					if(nextLine.startsWith("next(")) {
+						String variable = nextLine.substring("next(".length(), nextLine.indexOf(")")).trim();
+						assignedVariable = variableList.contains(variable) ? variable : null;
+						statement = "";
+					} else if(nextLine.startsWith("case") || nextLine.startsWith("init(")) {
+						continue;
+					} else if(nextLine.startsWith("esac") || nextLine.startsWith("}")) {
+						assignedVariable = null;
+						statement = "";
+					} else if(assignedVariable != null) {
+						//Guarded transitions are of the form 'guard : value;' and may span several lines
+						statement = statement + " " + nextLine;
+						if(statement.trim().endsWith(";")) {
+							String transition = statement.trim();
+							int index = transition.lastIndexOf(":");
+							String guard = transition.substring(0, index);
+							String value = transition.substring(index+1, transition.length()-1).trim();
+							model.addTransition(assignedVariable, parseExpression(guard), parseValue(value));
+							statement = "";
+						}
+					}
+				}
+			}
+		} finally {
+			r.close();
+		}
+		return model;
+	}
+
+	/**
+	 * Removes the comment (beginning with "--" or enclosed in C style comment delimiters) from the line
+	 * @param line
+	 * @return Line without comment
+	 */
+	private static String stripComment(String line) {
+		int index = line.indexOf("--");
+		if(index != -1) {
+			line = line.substring(0, index);
+		}
+		index = line.indexOf("/*");
+		if(index != -1) {
+			line = line.substring(0, index);
+		}
+		return line;
+	}
+
+	/**
+	 * Parses the value assigned in the next state: either a constant (0/1/TRUE/FALSE) or a variable whose current value is copied
+	 * @param value
+	 * @return Constant or literal var=1 denoting the current value of var
+	 */
+	private static GuardExpression parseValue(String value) {
+		if(value.equals("1") || value.equalsIgnoreCase("TRUE")) {
+			return GuardExpression.constant(true);
+		} else if(value.equals("0") || value.equalsIgnoreCase("FALSE")) {
+			return GuardExpression.constant(false);
+		}
+		return GuardExpression.literal(value, 1);
+	}
+
+	/**
+	 * Parses a boolean expression built from literals (var=value, var, !var), constants, negation, conjunction, disjunction and parentheses
+	 * @param expression Expression in SMV syntax
+	 * @return Parsed expression tree
+	 */
+	public static GuardExpression parseExpression(String expression) {
+		List<String> tokens = tokenize(expression);
+		int[] position = new int[]{0};
+		GuardExpression e = parseDisjunction(tokens, position);
+		if(position[0] != tokens.size()) {
+			throw new RuntimeException("Error in parsing expression: " + expression);
+		}
+		return e;
+	}
+
+	private static List<String> tokenize(String expression) {
+		List<String> tokens = new ArrayList<String>();
+		int i = 0;
+		while(i < expression.length()) {
+			char c = expression.charAt(i);
+			if(Character.isWhitespace(c)) {
+				i++;
+			} else if(c == '(' || c == ')' || c == '&' || c == '|' || c == '!' || c == '=') {
+				tokens.add(String.valueOf(c));
+				i++;
+			} else {
+				int start = i;
+				while(i < expression.length() && (Character.isLetterOrDigit(expression.charAt(i)) || "_$#.".indexOf(expression.charAt(i)) != -1)) {
+					i++;
+				}
+				if(start == i) {
+					throw new RuntimeException("Unexpected character '" + c + "' in expression: " + expression);
+				}
+				tokens.add(expression.substring(start, i));
+			}
+		}
+		return tokens;
+	}
+
+	private static GuardExpression parseDisjunction(List<String> tokens, int[] position) {
+		List<GuardExpression> operands = new ArrayList<GuardExpression>();
+		operands.add(parseConjunction(tokens, position));
+		while(position[0] < tokens.size() && tokens.get(position[0]).equals("|")) {
+			position[0]++;
+			operands.add(parseConjunction(tokens, position));
+		}
+		return GuardExpression.or(operands);
+	}
+
+	private static GuardExpression parseConjunction(List<String> tokens, int[] position) {
+		List<GuardExpression> operands = new ArrayList<GuardExpression>();
+		operands.add(parseUnary(tokens, position));
+		while(position[0] < tokens.size() && tokens.get(position[0]).equals("&")) {
+			position[0]++;
+			operands.add(parseUnary(tokens, position));
+		}
+		return GuardExpression.and(operands);
+	}
+
+	private static GuardExpression parseUnary(List<String> tokens, int[] position) {
+		String token = tokens.get(position[0]++);
+		if(token.equals("!")) {
+			return GuardExpression.not(parseUnary(tokens, position));
+		} else if(token.equals("(")) {
+			GuardExpression e = parseDisjunction(tokens, position);
+			position[0]++; //Skip ")"
+			return e;
+		} else if(token.equals("1") || token.equalsIgnoreCase("TRUE")) {
+			return GuardExpression.constant(true);
+		} else if(token.equals("0") || token.equalsIgnoreCase("FALSE")) {
+			return GuardExpression.constant(false);
+		}
+		//Literal over a variable: var=value or just var (for var=1)
+		if(position[0] < tokens.size() && tokens.get(position[0]).equals("=")) {
+			position[0]++;
+			String value = tokens.get(position[0]++);
+			if(value.equals("1") || value.equalsIgnoreCase("TRUE")) {
+				return GuardExpression.literal(token, 1);
+			} else if(value.equals("0") || value.equalsIgnoreCase("FALSE")) {
+				return GuardExpression.literal(token, 0);
+			}
+			throw new RuntimeException("Only binary variables are supported: " + token + "=" + value);
+		}
+		return GuardExpression.literal(token, 1);
+	}
+}
@@ -0,0 +1,172 @@
+package translate;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import model.TCPNet;
+
+/**
+ * Reads a TCP-net (or CP-net) specified in XML into memory (TCPNet) in a single streaming (StAX) pass over the file.
+ * The network is read exactly as the XPath queries the translator used to evaluate on the DOM of the file, e.g., //VARIABLE[NAME='x']/OUTCOME
+ * for the domain of x or //CONDITIONAL-PREFERENCE[FOR='x']/TABLE/CPTROW/PARENTVALUE for the parent assignments of its CPT rows:
+ * the text of each element is taken as is (not trimmed), elements are matched by their parents, and the values are kept in document order.
+ * Reading the network is linear in the size of the file, whereas evaluating the queries for each variable is quadratic.
+ * @author gsanthan
+ *
+ */
+public class TCPNetReader {
+
+	/**
+	 * Elements whose text is read
+	 */
+	static final List<String> TEXT_ELEMENTS = Arrays.asList("NAME", "OUTCOME", "FOR", "GIVEN", "PARENTVALUE", "PREFERENCE", "IMP-VARIABLE", "IMP-THAN");
+
+	/**
+	 * Reads the TCP-net in xmlFile
+	 * @param xmlFile XML file containing the input preference specification
+	 * @return TCP-net
+	 * @throws IOException If the file cannot be read or is not well-formed
+	 */
+	public static TCPNet read(String xmlFile) throws IOException {
+		InputStream in = new FileInputStream(xmlFile);
+		try {
+			XMLInputFactory factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+			XMLStreamReader r = factory.createXMLStreamReader(in);
+			try {
+				return read(r);
+			} finally {
+				r.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException("Error in parsing " + xmlFile + ": " + e.getMessage(), e);
+		} finally {
+			in.close();
+		}
+	}
+
+	private static TCPNet read(XMLStreamReader r) throws XMLStreamException {
+		TCPNet net = new TCPNet();
+		//Names of the open elements
+		List<String> path = new ArrayList<String>();
+		StringBuilder text = new StringBuilder();
+		int textDepth = -1;
+
+		//Children of the VARIABLE, CONDITIONAL-PREFERENCE or REL-IMP element being read
+		List<String> names = new ArrayList<String>();
+		List<String> outcomes = new ArrayList<String>();
+		List<String> parents = new ArrayList<String>();
+		List<String> keys = new ArrayList<String>();
+		List<String> values = new ArrayList<String>();
+		List<String> moreImportant = new ArrayList<String>();
+		List<String> lessImportant = new ArrayList<String>();
+
+		while(r.hasNext()) {
+			int event = r.next();
+			if(event == XMLStreamConstants.START_ELEMENT) {
+				String element = r.getLocalName();
+				path.add(element);
+				if(textDepth == -1 && TEXT_ELEMENTS.contains(element)) {
+					textDepth = path.size();
+					text.setLength(0);
+				}
+			} else if(event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA || event == XMLStreamConstants.SPACE) {
+				if(textDepth != -1) {
+					text.append(r.getText());
+				}
+			} else if(event == XMLStreamConstants.END_ELEMENT) {
+				String element = path.remove(path.size() - 1);
+				if(textDepth == path.size() + 1) {
+					textDepth = -1;
+					String value = text.toString();
+					if(isChildOf(path, "VARIABLE")) {
+						if(element.equals("NAME")) {
+							names.add(value);
+							net.addVariable(value);
+						} else if(element.equals("OUTCOME")) {
+							outcomes.add(value);
+						}
+					} else if(isChildOf(path, "CONDITIONAL-PREFERENCE")) {
+						if(element.equals("FOR")) {
+							names.add(value);
+						} else if(element.equals("GIVEN")) {
+							parents.add(value);
+						}
+					} else if(isChildOf(path, "CONDITIONAL-PREFERENCE", "TABLE", "CPTROW")) {
+						if(element.equals("PARENTVALUE")) {
+							keys.add(value);
+						} else if(element.equals("PREFERENCE")) {
+							values.add(value);
+						}
+					} else if(isChildOf(path, "REL-IMP")) {
+						if(element.equals("IMP-VARIABLE")) {
+							moreImportant.add(value);
+						} else if(element.equals("IMP-THAN")) {
+							lessImportant.add(value);
+						}
+					}
+				} else if(element.equals("VARIABLE")) {
+					for (String name : new LinkedHashSet<String>(names)) {
+						for (String outcome : outcomes) {
+							net.addOutcome(name, outcome);
+						}
+					}
+					names.clear();
+					outcomes.clear();
+				} else if(element.equals("CONDITIONAL-PREFERENCE")) {
+					for (String name : new LinkedHashSet<String>(names)) {
+						for (String parent : parents) {
+							net.addParent(name, parent);
+						}
+						for (String key : keys) {
+							net.addCPTKey(name, key);
+						}
+						for (String value : values) {
+							net.addCPTValue(name, value);
+						}
+					}
+					names.clear();
+					parents.clear();
+					keys.clear();
+					values.clear();
+				} else if(element.equals("REL-IMP")) {
+					for (String variable : new LinkedHashSet<String>(moreImportant)) {
+						for (String lessImportantVariable : lessImportant) {
+							net.addLessImportantVariable(variable, lessImportantVariable);
+						}
+					}
+					for (String variable : new LinkedHashSet<String>(lessImportant)) {
+						for (String moreImportantVariable : moreImportant) {
+							net.addMoreImportantVariable(variable, moreImportantVariable);
+						}
+					}
+					moreImportant.clear();
+					lessImportant.clear();
+				}
+			}
+		}
+		return net;
+	}
+
+	/**
+	 * Returns true if the open elements end with the given elements, i.e., the element just read is a child of the last of them
+	 * @param path Names of the open elements
+	 * @param ancestors Names of the ancestors of the element
+	 */
+	private static boolean isChildOf(List<String> path, String... ancestors) {
+		if(path.size() < ancestors.length) {
+			return false;
+		}
+		return path.subList(path.size() - ancestors.length, path.size()).equals(Arrays.asList(ancestors));
+	}
+}
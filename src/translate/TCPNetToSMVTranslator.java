@@ -7,20 +7,22 @@ import java.io.BufferedWriter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.xpath.XPathExpressionException;
 
-import org.w3c.dom.Document;
+import model.TCPNet;
+
 import org.xml.sax.SAXException;
 
 import util.Constants;
 import util.FileUtil;
-import util.XPathUtil;
 
 /**
  * Translates TCP-nets specified in XML format into SMV model suitable as input for model checkers Cadence SMV and NuSMV.
@@ -33,6 +35,11 @@ import util.XPathUtil;
  */
 public class TCPNetToSMVTranslator implements PreferenceInputTranslator {
 	
+	/**
+	 * Names of the definitions of the frame conditions of the variables of the network being translated (see getFrameName)
+	 */
+	Map<String, String> frameNames = new HashMap<String, String>();
+	
 	/**
 	 * Parses XML file and saves a SMV file fit for model checking by NuSMV or Cadence SMV.
 	 * Also generates random 'sampleSize' specs, i.e., dominance test cases and saves them in a separate '.spec' file. 
@@ -49,10 +56,46 @@ public class TCPNetToSMVTranslator implements PreferenceInputTranslator {
 	public String convertToSMV(String xmlFile, int sampleSize) throws ParserConfigurationException, SAXException, IOException, XPathExpressionException {
 		
 		String smvFile = xmlFile.substring(0, xmlFile.length()-4).concat(".smv");
-		Document doc = XPathUtil.makeDocument(xmlFile);
+		String specFile = sampleSize > 0 ? xmlFile.substring(0, xmlFile.length()-4).concat(".spec") : null;
+		// Reuse the artifacts of a previous translation of the same network with the same options, if cached
+		String cacheKey = null;
+		String outputFile = smvFile;
+		String outputSpecFile = specFile;
+		if(TranslationCache.isEnabled()) {
+			cacheKey = TranslationCache.getKey(xmlFile, "tcpnet", true, sampleSize);
+			if(TranslationCache.restore(cacheKey, smvFile, specFile)) {
+				return smvFile;
+			}
+			outputFile = TranslationCache.getStagingFile(smvFile);
+			outputSpecFile = specFile == null ? null : TranslationCache.getStagingFile(specFile);
+		}
+		try {
+			writeModel(xmlFile, sampleSize, outputFile, outputSpecFile);
+			if(cacheKey != null) {
+				TranslationCache.publish(cacheKey, outputFile, outputSpecFile, smvFile, specFile);
+			}
+		} finally {
+			if(cacheKey != null) {
+				TranslationCache.discard(outputFile, outputSpecFile);
+			}
+		}
+		return smvFile;
+	}
+	
+	/**
+	 * Translates the TCP-net in xmlFile into an SMV model saved in outputFile, and saves 'sampleSize' random specs in outputSpecFile
+	 * @param xmlFile Name of file specifying the input TCP-net
+	 * @param sampleSize Number of sample dominance test cases to be generated
+	 * @param outputFile Name of file to which the SMV model is written
+	 * @param outputSpecFile Name of file to which the specs are written; null if no specs are generated
+	 * @throws IOException
+	 */
+	private void writeModel(String xmlFile, int sampleSize, String outputFile, String outputSpecFile) throws IOException {
+		// Read the network in a single pass over the XML file; all queries below are lookups in memory
+		TCPNet net = TCPNetReader.read(xmlFile);
 		
 		// Create/open the smv file where we are going to save the translated code 
-		BufferedWriter w = FileUtil.openFile(smvFile);
+		BufferedWriter w = FileUtil.openFile(outputFile);
 		
 		if(Constants.CURRENT_MODEL_CHECKER == Constants.MODEL_CHECKER.CadenceSMV) {
 			FileUtil.writeLineToFile(w, "module main(){");
@@ -68,11 +111,11 @@ public class TCPNetToSMVTranslator implements PreferenceInputTranslator {
 		 * 	a : {a1, a2};
 		 */
 		// Extract preference variables
-		String xpathExprVarName = "//VARIABLE/NAME";
-		List<String> variableNames = XPathUtil.evaluateListExpr(xpathExprVarName, doc);
+		List<String> variableNames = new ArrayList<String>(net.getVariables());
 		
 		String[] variables = variableNames.toArray(new String[0]);
 		String[][] variableDomains = new String[variables.length][];
+		Map<String, List<String>> domains = new HashMap<String, List<String>>();
 		
 		List<String> globalChange = new ArrayList<String>();
 		
@@ -86,9 +129,9 @@ public class TCPNetToSMVTranslator implements PreferenceInputTranslator {
 			String varLine = "  " + variableName + " : " ;
 			
 			//Extract domain of the current variable
-			String xpathExprDomain = "//VARIABLE[NAME='" + variableName + "']/OUTCOME";
-			List<String> variableDomain = XPathUtil.evaluateListExpr(xpathExprDomain, doc);
+			List<String> variableDomain = net.getDomain(variableName);
 			variableDomains[varIndex] = variableDomain.toArray(new String[0]);
+			domains.put(variableName, variableDomain);
 			Set<String> setOfDomainValues = new HashSet<String>(variableDomain);
 			
 			if(Constants.CURRENT_MODEL_CHECKER == Constants.MODEL_CHECKER.CadenceSMV) {
@@ -148,16 +191,23 @@ public class TCPNetToSMVTranslator implements PreferenceInputTranslator {
 		//Define a variable that is true whenever at least one of the change variables is true -- used in defining next(gch)
 		FileUtil.writeLineToFile(w, "DEFINE");
 		varIndex=0;
-		String atLeastOneChange = "  change := ";
+		StringBuilder atLeastOneChange = new StringBuilder("  change := ");
 		for (Iterator<String> iterator = variableNames.iterator(); iterator.hasNext(); varIndex++) {
 			String variableName = (String) iterator.next();
 			if(varIndex > 0) { 
-				atLeastOneChange = atLeastOneChange + " | ";
+				atLeastOneChange.append(" | ");
+			}
+			atLeastOneChange.append("ch").append(variableName);
+		}
+		atLeastOneChange.append(";");
+		FileUtil.writeLineToFile(w, atLeastOneChange.toString());
+		if(Constants.USE_MINIMIZED_TRANSLATION) {
+			//Define the frame condition of each variable: only the variable changes -- shared by the minimized transitions of the variable
+			frameNames.clear();
+			for (String variableName : variableNames) {
+				FileUtil.writeLineToFile(w, "  " + getFrameName(variableName, variableNames) + " := " + getFrameCondition(variableName, variableNames) + ";");
 			}
-			atLeastOneChange = atLeastOneChange + "ch" + variableName;
 		}
-		atLeastOneChange = atLeastOneChange + ";";
-		FileUtil.writeLineToFile(w, atLeastOneChange);
 		FileUtil.writeLineToFile(w, "");
 		
 		// Conditional Preferences - Each CPT entry is a transition specification in the model
@@ -199,15 +249,13 @@ public class TCPNetToSMVTranslator implements PreferenceInputTranslator {
 			}
 			
 			
-			String xpathExprCptKey = "//CONDITIONAL-PREFERENCE[FOR='" + variableName + "']/TABLE/CPTROW/PARENTVALUE";
-			String xpathExprCptValue = "//CONDITIONAL-PREFERENCE[FOR='" + variableName + "']/TABLE/CPTROW/PREFERENCE";
-			List<String> cptKeys = XPathUtil.evaluateListExpr(xpathExprCptKey, doc);
-			List<String> cptValues = XPathUtil.evaluateListExpr(xpathExprCptValue, doc);
+			List<String> cptKeys = net.getCPTKeys(variableName);
+			List<String> cptValues = net.getCPTValues(variableName);
 			
 			String[] linesToWrite = new String[0]; //used to store conditional preference rules
 			
 			//Conditional preference -- for multiple CPT rows -- translate each
-			linesToWrite = processOrderedValuesForConditional(variableName, cptKeys, cptValues, variableNames, doc);
+			linesToWrite = processOrderedValuesForConditional(variableName, cptKeys, cptValues, variableNames, domains, net);
 			
 			// Dump the translated lines for current variable into the smv file
 			for (int i = 0; i < linesToWrite.length; i++) {
@@ -219,16 +267,14 @@ public class TCPNetToSMVTranslator implements PreferenceInputTranslator {
 			
 			//Relative importance -- translate 
 			// Extract variables less important than current node
-			String xpathExprLessImpVariables = "//REL-IMP[IMP-VARIABLE='"+variableName+"']/IMP-THAN";	
-			List<String> lessImpVariables = XPathUtil.evaluateListExpr(xpathExprLessImpVariables, doc);
+			List<String> lessImpVariables = net.getVariablesLessImportantThan(variableName);
 			
 			// Extract variables more important than current variable
-			String xpathExprMoreImpVariables = "//REL-IMP[IMP-THAN='"+variableName+"']/IMP-VARIABLE";
-			List<String> moreImpVariables = XPathUtil.evaluateListExpr(xpathExprMoreImpVariables, doc);
+			List<String> moreImpVariables = net.getVariablesMoreImportantThan(variableName);
 			
 			//Extract domain of variable from XML file
-			String domain = getDomainRHSForVariable(variableName, doc);
-			linesToWrite = processOrderedValuesForRelativeImportance(variableName, domain, cptKeys, cptValues, variableNames, lessImpVariables, moreImpVariables, doc);
+			String domain = getDomainRHSForVariable(variableName, net);
+			linesToWrite = processOrderedValuesForRelativeImportance(variableName, domain, cptKeys, cptValues, variableNames, lessImpVariables, moreImpVariables, net);
 
 			// Dump the translated lines for current variable into the smv file
 			for (int i = 0; i < linesToWrite.length; i++) {
@@ -285,8 +331,7 @@ public class TCPNetToSMVTranslator implements PreferenceInputTranslator {
 		
 		if(sampleSize > 0) {
 			// Generate and write randomly generated 'sampleSize' specs to the spec file
-			String specFile = xmlFile.substring(0, xmlFile.length()-4).concat(".spec");
-			BufferedWriter wSpec = FileUtil.openFile(specFile);
+			BufferedWriter wSpec = FileUtil.openFile(outputSpecFile);
 			SpecGenerator specGen = new SpecGenerator();
 			String[] specs = specGen.createRandomDominanceTestSpecs(variables, variableDomains, sampleSize);
 			for (int i = 0; i < specs.length; i++) {
@@ -295,8 +340,6 @@ public class TCPNetToSMVTranslator implements PreferenceInputTranslator {
 			
 			FileUtil.closeFile(wSpec);
 		}
-		
-		return smvFile;
 	}
 	
 	/**
@@ -310,19 +353,16 @@ public class TCPNetToSMVTranslator implements PreferenceInputTranslator {
 	 * @param cptKeys Conditions under which intra-variable preferences are specified in the CPT of variableName
 	 * @param cptValues Intra-variable preferences corresponding to conditions in the CPT of variableName
 	 * @param variableNames List of all variableNames
-	 * @param doc XML file containing the input preference specification 
+	 * @param domains Domain of each variable, used to minimize the transitions if Constants.USE_MINIMIZED_TRANSLATION is set
+	 * @param net Input preference specification 
 	 * @return Array of strings that have to be included as guarded transitions to the next(variableName) in the SMV model 
-	 * @throws XPathExpressionException
-	 * @throws SAXException
-	 * @throws IOException
-	 * @throws ParserConfigurationException
 	 */
-	private String[] processOrderedValuesForConditional(String variableName, List<String> cptKeys, List<String> cptValues, List<String> variableNames, Document doc) throws XPathExpressionException, SAXException, IOException, ParserConfigurationException {
+	private String[] processOrderedValuesForConditional(String variableName, List<String> cptKeys, List<String> cptValues, List<String> variableNames, Map<String, List<String>> domains, TCPNet net) {
 		List<String> linesToWrite = new ArrayList<String>();
+		GuardMinimizer minimizer = new GuardMinimizer(domains);
 		
 		// Extract parents of current node -- Not absolutely needed for translation or reasoning.
-		String xpathExprParents = "//CONDITIONAL-PREFERENCE[FOR='" + variableName + "']/GIVEN";
-		List<String> parents = XPathUtil.evaluateListExpr(xpathExprParents, doc);
+		List<String> parents = net.getParents(variableName);
 		linesToWrite.add("      -- conditional preference: "+variableName+" depends on "+Arrays.toString(parents.toArray(new String[0])));
 		
 		// For each CPT row, define a transition:
@@ -348,6 +388,8 @@ public class TCPNetToSMVTranslator implements PreferenceInputTranslator {
 								
 				// Model the transition from the worse to the better value of current variable
 				String currentLine = "      " + variableName + "=" + orderedValues[1];
+				List<String> literals = new ArrayList<String>();
+				literals.add(variableName + "=" + orderedValues[1]);
 				
 				// For all PARENT variables of the current one, 
 				// enforce the assignment specified in LHS of CPT row
@@ -357,6 +399,7 @@ public class TCPNetToSMVTranslator implements PreferenceInputTranslator {
 					// If it is unconditional, then there is exactly one CPT row with empty LHS
 					if(temp[i].trim().length()>0) {
 						currentLine = currentLine + " & " + temp[i];
+						literals.add(temp[i]);
 					}
 				}
 				
@@ -364,21 +407,68 @@ public class TCPNetToSMVTranslator implements PreferenceInputTranslator {
 				
 				// For all variables OTHER than the current one, 
 				// enforce equality in the current and next state of the transition
+				StringBuilder frame = new StringBuilder(currentLine);
 				for (Iterator<String> iterator = variableNames.iterator(); iterator.hasNext(); ) {
 					String var = iterator.next();
 					if(!var.equals(variableName)) {
-						currentLine = currentLine + " & " + "ch" + var + "=0";
+						frame.append(" & ch").append(var).append("=0");
 					}
 				}
+				currentLine = frame.toString();
 				
 				// Specify the better value in the next state of the transition
 				currentLine = currentLine + " : " + orderedValues[0] + ";";
-				linesToWrite.add(currentLine);
+				if(Constants.USE_MINIMIZED_TRANSLATION) {
+					minimizer.addTransition(literals, getFrameName(variableName, variableNames), orderedValues[0], currentLine);
+				} else {
+					linesToWrite.add(currentLine);
+				}
 			}
 		}
+		
+		if(Constants.USE_MINIMIZED_TRANSLATION) {
+			// Merge the CPT rows with the same better value into minimized guards on the frame condition of the variable
+			linesToWrite.addAll(minimizer.getLines("      "));
+		}
 
 		return linesToWrite.toArray(new String[]{});
 	}
+	
+	/**
+	 * Returns the name of the definition of the frame condition of variableName (only variableName changes in the transition), 
+	 * which differs from the names of the variables and of the other definitions
+	 * @param variableName
+	 * @param variableNames List of all variableNames
+	 * @return Name of the definition
+	 */
+	private String getFrameName(String variableName, List<String> variableNames) {
+		if(!frameNames.containsKey(variableName)) {
+			//Names are unique unless variable names start with 'frame_'
+			String name = "frame_" + variableName;
+			String unique = name;
+			for (int i = 1; frameNames.containsValue(unique) || variableNames.contains(unique); i++) {
+				unique = name + "_" + i;
+			}
+			frameNames.put(variableName, unique);
+		}
+		return frameNames.get(variableName);
+	}
+	
+	/**
+	 * Returns the frame condition of variableName: the change variable of variableName is 1 and the change variables of all other variables are 0
+	 * @param variableName
+	 * @param variableNames List of all variableNames
+	 * @return Frame condition in SMV syntax
+	 */
+	private String getFrameCondition(String variableName, List<String> variableNames) {
+		StringBuilder frame = new StringBuilder("ch" + variableName + "=1");
+		for (String var : variableNames) {
+			if(!var.equals(variableName)) {
+				frame.append(" & ch").append(var).append("=0");
+			}
+		}
+		return frame.toString();
+	}
 
 	/**
 	 * Parses relative importance preferences with respect to variableName (and variables that are more/less important with respect to variableName); and 
@@ -394,14 +484,10 @@ public class TCPNetToSMVTranslator implements PreferenceInputTranslator {
 	 * @param variableNames List of all variableNames
 	 * @param lessImpVariableNames List of variables less important than variableName
 	 * @param moreImpVariableNames List of variables more important than variableName
-	 * @param doc XML file containing the input preference specification 
+	 * @param net Input preference specification 
 	 * @return Array of strings that have to be included as guarded transitions to the next(variableName) in the SMV model   
-	 * @throws XPathExpressionException
-	 * @throws ParserConfigurationException
-	 * @throws SAXException
-	 * @throws IOException
 	 */
-	private String[] processOrderedValuesForRelativeImportance(String variableName, String domain, List<String> cptKeys, List<String> cptValues, List<String> variableNames, List<String> lessImpVariableNames, List<String> moreImpVariableNames, Document doc) throws XPathExpressionException, ParserConfigurationException, SAXException, IOException {
+	private String[] processOrderedValuesForRelativeImportance(String variableName, String domain, List<String> cptKeys, List<String> cptValues, List<String> variableNames, List<String> lessImpVariableNames, List<String> moreImpVariableNames, TCPNet net) {
 		List<String> linesToWrite = new ArrayList<String>();
 		// This method translates the relative importance preferences using Wilson's semantics.
 		linesToWrite.add("      -- relative importance interpreted according to Wilson's semantics:");
@@ -449,12 +535,14 @@ public class TCPNetToSMVTranslator implements PreferenceInputTranslator {
 					List<String> tempVarNames = new ArrayList<String>(variableNames);
 					tempVarNames.removeAll(lessImpVariableNames);
 					tempVarNames.remove(variableName);
+					StringBuilder frame = new StringBuilder(currentLine);
 					for (Iterator<String> iterator = tempVarNames.iterator(); iterator.hasNext(); ) {
 						String var = iterator.next();
 						if(!var.equals(variableName)) {
-							currentLine = currentLine + " & " + "ch" + var + "=0";
+							frame.append(" & ch").append(var).append("=0");
 						}
 					}
+					currentLine = frame.toString();
 					
 					//Specify a rule allowing the SAME value in the next state of the transition with change variable = 0
 					//String currentLine1 = currentLine + " & ch" + variableName + "=0 : " + orderedValues[1] + ";";
@@ -481,7 +569,7 @@ public class TCPNetToSMVTranslator implements PreferenceInputTranslator {
 					.hasNext();) {
 				String moreImpVariable = iterator.next();
 				linesToWrite.add("      -- relative importance: "+variableName+" << "+moreImpVariable);
-				List<List<String>> cpt = getCPTForVariable(moreImpVariable, doc);
+				List<List<String>> cpt = getCPTForVariable(moreImpVariable, net);
 				List<String> moreImpVarCptKeys = cpt.get(0);
 				List<String> moreImpVarCptValues = cpt.get(1);
 				
@@ -524,14 +612,16 @@ public class TCPNetToSMVTranslator implements PreferenceInputTranslator {
 						// For all variables OTHER than this more imp. one except current variable, 
 						// enforce equality in the current and next state of the transition
 						List<String> tempVarNames = new ArrayList<String>(variableNames);
-						List<String> siblingsThroughMoreImpVariable = getVariablesLessImportantThan(moreImpVariable, doc);
+						List<String> siblingsThroughMoreImpVariable = getVariablesLessImportantThan(moreImpVariable, net);
 						tempVarNames.removeAll(siblingsThroughMoreImpVariable);
 						tempVarNames.remove(variableName);
 						tempVarNames.remove(moreImpVariable);
+						StringBuilder frame = new StringBuilder(currentLine);
 						for (Iterator<String> iterator4 = tempVarNames.iterator(); iterator4.hasNext(); ) {
 							String var = iterator4.next();
-							currentLine = currentLine + " & " + "ch" + var + "=0";
+							frame.append(" & ch").append(var).append("=0");
 						}
+						currentLine = frame.toString();
 						// There are 4 possibilities for the current variable when the currently considered more important variable changes
 						String currentLine1 = currentLine + " & "+variableName+"=0 & ch" + variableName + "=0 : 0;";
 						String currentLine2 = currentLine + " & "+variableName+"=0 & ch" + variableName + "=1 : 1;";
@@ -550,22 +640,17 @@ public class TCPNetToSMVTranslator implements PreferenceInputTranslator {
 	}
 	
 	/**
-	 * Parses the domain of a variable from the xml document holding the preference specification. 
-	 * Returns a comma separated list of strings with domain values for variableName.
+	 * Returns the domain of a variable in the preference specification read from the xml file,
+	 * as a comma separated list of strings with domain values for variableName.
 	 * 
 	 * @param variableName Input variable 
-	 * @param doc XML file containing the input preference specification 
+	 * @param net Input preference specification 
 	 * @return List of variables less important than variableName
-	 * @throws XPathExpressionException
-	 * @throws SAXException
-	 * @throws IOException
-	 * @throws ParserConfigurationException
 	 */
-	public String getDomainRHSForVariable(String variableName, Document doc) throws XPathExpressionException, SAXException, IOException, ParserConfigurationException {
+	public String getDomainRHSForVariable(String variableName, TCPNet net) {
 		String varLine = "";
 		//Extract domain of the current variable
-		String xpathExprDomain = "//VARIABLE[NAME='" + variableName + "']/OUTCOME";
-		List<String> variableDomain = XPathUtil.evaluateListExpr(xpathExprDomain, doc);
+		List<String> variableDomain = net.getDomain(variableName);
 		for (Iterator<String> iterator2 = variableDomain.iterator(); iterator2.hasNext();) {
 			String value = iterator2.next();
 			varLine = varLine + value;
@@ -577,40 +662,27 @@ public class TCPNetToSMVTranslator implements PreferenceInputTranslator {
 	}
 	
 	/**
-	 * Parses the variables less important than variableName from the xml document holding the preference specification 
-	 * Returns the list of variables less important than variableName
+	 * Returns the list of variables less important than variableName in the preference specification read from the xml file
 	 * 
 	 * @param variableName Input variable 
-	 * @param doc XML file containing the input preference specification 
+	 * @param net Input preference specification 
 	 * @return List of variables less important than variableName
-	 * @throws XPathExpressionException
-	 * @throws SAXException
-	 * @throws IOException
-	 * @throws ParserConfigurationException
 	 */
-	public List<String> getVariablesLessImportantThan(String variableName, Document doc) throws XPathExpressionException, SAXException, IOException, ParserConfigurationException {
-		String xpathExprVariablesLessImpThan = "//REL-IMP[IMP-VARIABLE='"+variableName+"']/IMP-THAN";
-		List<String> lessImpVariables = XPathUtil.evaluateListExpr(xpathExprVariablesLessImpThan, doc);
-		return lessImpVariables;
+	public List<String> getVariablesLessImportantThan(String variableName, TCPNet net) {
+		return net.getVariablesLessImportantThan(variableName);
 	}
 	
 	/**
-	 * Parses the conditional preference table of variableName from the xml document holding the preference specification. 
-	 * Returns a list of 2 string lists: <list of cpt keys, list of corresponding values>
+	 * Returns the conditional preference table of variableName in the preference specification read from the xml file,
+	 * as a list of 2 string lists: <list of cpt keys, list of corresponding values>
 	 * 
-	 * @param variableName Variable name for which conditional preference table is to be parsed
-	 * @param doc XML file containing the input preference specification 
+	 * @param variableName Variable name for which conditional preference table is to be returned
+	 * @param net Input preference specification 
 	 * @return List of 2 string lists: <list of cpt keys, list of corresponding values>
-	 * @throws ParserConfigurationException
-	 * @throws SAXException
-	 * @throws IOException
-	 * @throws XPathExpressionException
 	 */
-	public List<List<String>> getCPTForVariable(String variableName, Document doc) throws ParserConfigurationException, SAXException, IOException, XPathExpressionException {
-		String xpathExprCptKey = "//CONDITIONAL-PREFERENCE[FOR='" + variableName + "']/TABLE/CPTROW/PARENTVALUE";
-		String xpathExprCptValue = "//CONDITIONAL-PREFERENCE[FOR='" + variableName + "']/TABLE/CPTROW/PREFERENCE";
-		List<String> cptKeys = XPathUtil.evaluateListExpr(xpathExprCptKey, doc);
-		List<String> cptValues = XPathUtil.evaluateListExpr(xpathExprCptValue, doc);
+	public List<List<String>> getCPTForVariable(String variableName, TCPNet net) {
+		List<String> cptKeys = net.getCPTKeys(variableName);
+		List<String> cptValues = net.getCPTValues(variableName);
 		List<List<String>> cpt = new ArrayList<List<String>>();
 		cpt.add(cptKeys);
 		cpt.add(cptValues);
@@ -618,51 +690,22 @@ public class TCPNetToSMVTranslator implements PreferenceInputTranslator {
 	}
 	
 	/**
-	 * This is a no-op method for simply parsing the xml and retrieving all the details using xpath
+	 * Parses the xml file holding the preference specification and returns the network with all the details, 
+	 * read in a single pass over the file (see TCPNetReader)
 	 * 
 	 * @param xmlFile
-	 * @throws ParserConfigurationException
-	 * @throws SAXException
+	 * @return Input preference specification
 	 * @throws IOException
-	 * @throws XPathExpressionException
 	 */
-	public void parsePreferenceXML(String xmlFile) throws ParserConfigurationException, SAXException, IOException, XPathExpressionException {
-		Document doc = XPathUtil.makeDocument(xmlFile);
-		
-		// Extract preference variables
-		String xpathExprVarName = "//VARIABLE/NAME";
-		List<String> variableNames = XPathUtil.evaluateListExpr(xpathExprVarName, doc);
-		
-		for (Iterator<String> iterator = variableNames.iterator(); iterator.hasNext();) {
-			
-			String variableName = (String) iterator.next();
-
-			// Extract parents of current node -- Not absolutely needed for translation or reasoning.
-			String xpathExprParents = "//CONDITIONAL-PREFERENCE[FOR='" + variableName + "']/GIVEN";
-			@SuppressWarnings("unused")
-			List<String> parents = XPathUtil.evaluateListExpr(xpathExprParents, doc);
-
-			//Extract domain of the current variable
-			String xpathExprDomain = "//VARIABLE[NAME='" + variableName + "']/OUTCOME";
-			List<String> variableDomains = XPathUtil.evaluateListExpr(xpathExprDomain, doc);
-			
-			Set<String> domain = new HashSet<String>();
-			domain.addAll(variableDomains);
-			
-			String xpathExprCptKey = "//CONDITIONAL-PREFERENCE[FOR='" + variableName + "']/TABLE/CPTROW/PARENTVALUE";
-			String xpathExprCptValue = "//CONDITIONAL-PREFERENCE[FOR='" + variableName + "']/TABLE/CPTROW/PREFERENCE";
-			List<String> cptKeys = XPathUtil.evaluateListExpr(xpathExprCptKey, doc);
-			List<String> cptValues = XPathUtil.evaluateListExpr(xpathExprCptValue, doc);
-			for (Iterator<String> iterator2 = cptKeys.iterator(), iterator3 = cptValues.iterator(); iterator2.hasNext();) {
-				@SuppressWarnings("unused")
-				String key = (String) iterator2.next();
-				@SuppressWarnings("unused")
-				String value = (String) iterator3.next();
-			}
-		}
+	public TCPNet parsePreferenceXML(String xmlFile) throws IOException {
+		return TCPNetReader.read(xmlFile);
 	}
 
 	public static String[] getVariablesFromSMVModel(String smvFile) throws IOException {
+		String[] cachedVariables = TranslationCache.getVariables(smvFile);
+		if(cachedVariables != null) {
+			return cachedVariables;
+		}
 		Set<String> variables = new HashSet<String>();
 		BufferedReader r = FileUtil.openFileForRead(smvFile);
 		
@@ -689,7 +732,7 @@ public class TCPNetToSMVTranslator implements PreferenceInputTranslator {
 					}
 				}
 			}
-		} while (nextLine != null && !nextLine.trim().equalsIgnoreCase("ASSIGN"));
+		} while (nextLine != null && !nextLine.trim().equalsIgnoreCase("ASSIGN") && !nextLine.trim().equalsIgnoreCase("DEFINE"));
 		}finally{r.close();}
 		return variables.toArray(new String[]{});
 	}
@@ -0,0 +1,277 @@
+package translate;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import util.Constants;
+import util.FileUtil;
+
+/**
+ * Content-addressed cache of the artifacts of the translators (the SMV model, the spec file and the variables of the model),
+ * so that a preference file that was translated before (by this or another JVM, e.g., before a restart or in another session) is not translated again.
+ * <p>
+ * An entry is a directory under Constants.TRANSLATION_CACHE_DIRECTORY named by the key of the translation: a hash of the contents of the input file,
+ * the translator and its options (direction of the flips, number of sample specs, minimization of the guards), the target model checker
+ * and the version of the translation (FORMAT_VERSION, to be incremented whenever the output of the translators changes).
+ * Entries are published atomically: the artifacts are copied to a temporary directory, which is renamed to the entry, so that concurrent sessions
+ * either see a complete entry or none (if two sessions publish the same translation, the first rename wins and the other copy is dropped).
+ * Likewise, the artifacts are written to their usual locations (next to the input file) by renaming a temporary file in the same directory;
+ * a file that already has the contents of the entry is not rewritten, so that it keeps its time stamp (and the caches keyed by it stay valid).
+ * <p>
+ * The variables of the SMV models restored or published are kept in memory (with the time stamp of the model), so that
+ * TCPNetToSMVTranslator.getVariablesFromSMVModel does not read the model again.
+ * @author gsanthan
+ *
+ */
+public class TranslationCache {
+
+	/**
+	 * Version of the translation, part of the key of every entry
+	 */
+	public static final String FORMAT_VERSION = "1";
+	static final String MODEL_FILE = "model.smv";
+	static final String SPEC_FILE = "model.spec";
+	/**
+	 * Properties of an entry (content hashes of the artifacts and the variables of the model); written last, so an entry without it is incomplete
+	 */
+	static final String ENTRY_FILE = "entry.properties";
+
+	/**
+	 * Variables of the SMV models (indexed by file name), with the time at which each file was last modified when its variables were recorded
+	 */
+	static Map<String, String[]> variables = new HashMap<String, String[]>();
+	static Map<String, Long> variableTimestamps = new HashMap<String, Long>();
+
+	/**
+	 * Returns true if a cache directory is configured
+	 */
+	public static boolean isEnabled() {
+		return Constants.TRANSLATION_CACHE_DIRECTORY != null && Constants.TRANSLATION_CACHE_DIRECTORY.trim().length() > 0;
+	}
+
+	/**
+	 * Returns the key of the translation of inputFile with the given translator and options (see class comment)
+	 * @param inputFile Preference input file
+	 * @param translator Name of the translator
+	 * @param improvingFlip true for the forward model; false for the reverse model
+	 * @param sampleSize Number of sample specs generated
+	 * @return Key of the translation
+	 * @throws IOException
+	 */
+	public static String getKey(String inputFile, String translator, boolean improvingFlip, int sampleSize) throws IOException {
+		String key = FileUtil.getContentHash(inputFile) + "|" + translator + "|" + (improvingFlip ? "forward" : "reverse") + "|" + sampleSize
+				+ "|" + Constants.USE_MINIMIZED_TRANSLATION + "|" + Constants.CURRENT_MODEL_CHECKER
+				+ "|" + Constants.PREFERENCE_SYMBOL_IN_XML + "|" + Constants.PREFERENCE_DELIMITER_IN_XML + "|" + FORMAT_VERSION;
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException("SHA-1 digest not available for computing the key of the translation of " + inputFile, e);
+		}
+		StringBuilder hash = new StringBuilder();
+		for (byte b : digest.digest(key.getBytes("UTF-8"))) {
+			hash.append(String.format("%02x", b));
+		}
+		return hash.toString();
+	}
+
+	/**
+	 * Returns the file to which the translator writes an artifact before it is published: a new temporary file in the directory of the artifact
+	 * @param file Usual location of the artifact
+	 * @return Name of the temporary file
+	 * @throws IOException
+	 */
+	public static String getStagingFile(String file) throws IOException {
+		File target = new File(file).getAbsoluteFile();
+		return File.createTempFile(target.getName() + ".", ".tmp", target.getParentFile()).getPath();
+	}
+
+	/**
+	 * Writes the artifacts of the cached translation to their usual locations
+	 * @param key Key of the translation
+	 * @param smvFile Location of the SMV model
+	 * @param specFile Location of the spec file; null if no specs are generated
+	 * @return true if the translation is cached (and the artifacts were restored); false otherwise
+	 * @throws IOException
+	 */
+	public static boolean restore(String key, String smvFile, String specFile) throws IOException {
+		File entry = new File(Constants.TRANSLATION_CACHE_DIRECTORY, key);
+		Properties properties = readEntry(entry);
+		if(properties == null || (specFile != null && properties.getProperty("specHash") == null)) {
+			return false;
+		}
+		restoreArtifact(new File(entry, MODEL_FILE), properties.getProperty("modelHash"), smvFile);
+		if(specFile != null) {
+			restoreArtifact(new File(entry, SPEC_FILE), properties.getProperty("specHash"), specFile);
+		}
+		String variableList = properties.getProperty("variables", "");
+		putVariables(smvFile, variableList.length() == 0 ? new String[0] : variableList.split(","));
+		return true;
+	}
+
+	/**
+	 * Publishes the artifacts written by the translator to the cache, and moves them to their usual locations.
+	 * If the cache cannot be written, the artifacts are still moved to their usual locations.
+	 * @param key Key of the translation
+	 * @param stagedSmvFile Temporary file containing the SMV model
+	 * @param stagedSpecFile Temporary file containing the specs; null if no specs are generated
+	 * @param smvFile Location of the SMV model
+	 * @param specFile Location of the spec file; null if no specs are generated
+	 * @throws IOException If the artifacts cannot be moved to their usual locations
+	 */
+	public static void publish(String key, String stagedSmvFile, String stagedSpecFile, String smvFile, String specFile) throws IOException {
+		String[] modelVariables = TCPNetToSMVTranslator.getVariablesFromSMVModel(stagedSmvFile);
+		try {
+			publishEntry(key, stagedSmvFile, stagedSpecFile, modelVariables);
+		} catch (IOException e) {
+			System.out.println("Error in publishing the translation of " + smvFile + " to " + Constants.TRANSLATION_CACHE_DIRECTORY + ": " + e.getMessage());
+		}
+		Files.move(new File(stagedSmvFile).toPath(), new File(smvFile).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		if(stagedSpecFile != null) {
+			Files.move(new File(stagedSpecFile).toPath(), new File(specFile).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		putVariables(smvFile, modelVariables);
+	}
+
+	/**
+	 * Deletes the artifacts written by the translator that were not published (and moved to their usual locations), 
+	 * e.g., when the translation failed, so that no temporary files are left next to the input file
+	 * @param stagedSmvFile Temporary file containing the SMV model
+	 * @param stagedSpecFile Temporary file containing the specs; null if no specs are generated
+	 */
+	public static void discard(String stagedSmvFile, String stagedSpecFile) {
+		new File(stagedSmvFile).delete();
+		if(stagedSpecFile != null) {
+			new File(stagedSpecFile).delete();
+		}
+	}
+
+	/**
+	 * Returns the variables of the SMV model restored or published (or read before) in this JVM, if the model has not been modified since
+	 * @param smvFile Name of file containing the SMV model
+	 * @return Variables of the model; null if they are not known (or the cache is not enabled)
+	 */
+	public static synchronized String[] getVariables(String smvFile) {
+		if(!isEnabled()) {
+			return null;
+		}
+		String[] modelVariables = variables.get(smvFile);
+		if(modelVariables == null || variableTimestamps.get(smvFile) != new File(smvFile).lastModified()) {
+			return null;
+		}
+		return modelVariables.clone();
+	}
+
+	/**
+	 * Records the variables of the SMV model (if the cache is enabled)
+	 * @param smvFile Name of file containing the SMV model
+	 * @param modelVariables Variables of the model
+	 */
+	public static synchronized void putVariables(String smvFile, String[] modelVariables) {
+		if(!isEnabled()) {
+			return;
+		}
+		variables.put(smvFile, modelVariables.clone());
+		variableTimestamps.put(smvFile, new File(smvFile).lastModified());
+	}
+
+	/**
+	 * Copies the artifacts to a temporary directory in the cache, which is renamed to the entry of the translation
+	 */
+	private static void publishEntry(String key, String stagedSmvFile, String stagedSpecFile, String[] modelVariables) throws IOException {
+		File base = new File(Constants.TRANSLATION_CACHE_DIRECTORY);
+		File entry = new File(base, key);
+		if(readEntry(entry) != null) {
+			return;
+		}
+		base.mkdirs();
+		File temporary = Files.createTempDirectory(base.toPath(), key + ".tmp-").toFile();
+		try {
+			Properties properties = new Properties();
+			FileUtil.copyFile(new File(stagedSmvFile), new File(temporary, MODEL_FILE));
+			properties.setProperty("modelHash", FileUtil.getContentHash(stagedSmvFile));
+			if(stagedSpecFile != null) {
+				FileUtil.copyFile(new File(stagedSpecFile), new File(temporary, SPEC_FILE));
+				properties.setProperty("specHash", FileUtil.getContentHash(stagedSpecFile));
+			}
+			StringBuilder variableList = new StringBuilder();
+			for (String variable : modelVariables) {
+				if(variableList.length() > 0) {
+					variableList.append(",");
+				}
+				variableList.append(variable);
+			}
+			properties.setProperty("variables", variableList.toString());
+			OutputStream out = new FileOutputStream(new File(temporary, ENTRY_FILE));
+			try {
+				properties.store(out, "Translation " + key);
+			} finally {
+				out.close();
+			}
+			try {
+				Files.move(temporary.toPath(), entry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			} catch (IOException e) {
+				if(readEntry(entry) == null) {
+					throw e;
+				}
+				//Published concurrently by another session
+			}
+		} finally {
+			delete(temporary);
+		}
+	}
+
+	/**
+	 * Returns the properties of the entry; null if there is no complete entry
+	 */
+	private static Properties readEntry(File entry) throws IOException {
+		File entryFile = new File(entry, ENTRY_FILE);
+		if(!entryFile.exists()) {
+			return null;
+		}
+		Properties properties = new Properties();
+		InputStream in = new FileInputStream(entryFile);
+		try {
+			properties.load(in);
+		} finally {
+			in.close();
+		}
+		return properties;
+	}
+
+	/**
+	 * Writes the cached artifact to the file (by renaming a copy in the same directory), unless the file already has the same contents
+	 */
+	private static void restoreArtifact(File artifact, String hash, String file) throws IOException {
+		if(new File(file).exists() && FileUtil.getContentHash(file).equals(hash)) {
+			return;
+		}
+		String stagingFile = getStagingFile(file);
+		FileUtil.copyFile(artifact, new File(stagingFile));
+		Files.move(new File(stagingFile).toPath(), new File(file).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Deletes the file, or the directory with all its contents
+	 */
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if(children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+}
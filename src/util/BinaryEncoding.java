@@ -49,4 +49,37 @@ public class BinaryEncoding {
 		}
 		return outcome;
 	}
+	
+	/**
+	 * Returns a bitset encoding of the outcome, where bit i is set iff variableNames[i] is true in the outcome 
+	 * Note: At most 64 variables can be encoded
+	 * @param variableNames Names of preference variables
+	 * @param outcome Outcome to be encoded
+	 * @return Constructed bitset encoding
+	 */
+	public static long getBitEncoding(String[] variableNames, Set<String> outcome) {
+		long encoding = 0L;
+		for (int i = 0; i < variableNames.length; i++) {
+			if(outcome.contains(variableNames[i])) {
+				encoding |= (1L << i);
+			}
+		}
+		return encoding;
+	}
+	
+	/**
+	 * Returns an outcome (as a set of variable names) corresponding to the given bitset encoded outcome
+	 * @param variableNames Names of preference variables
+	 * @param encoding Bitset encoded outcome
+	 * @return Constructed outcome
+	 */
+	public static Set<String> getOutcome(String[] variableNames, long encoding) {
+		Set<String> outcome = new HashSet<String>();
+		for (int i = 0; i < variableNames.length; i++) {
+			if(((encoding >>> i) & 1L) == 1L) {
+				outcome.add(variableNames[i]);
+			}
+		}
+		return outcome;
+	}
 }
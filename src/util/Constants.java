@@ -130,6 +130,91 @@ public class Constants {
 	 */
 	public static MODEL_CHECKER CURRENT_MODEL_CHECKER;
 	
+	/**
+	 * Engines supported for answering reasoning queries:
+	 * the external model checker, an in-JVM explicit state search over the induced preference graph, in-JVM symbolic (BDD based) reachability, 
+	 * or in-JVM bounded model checking with an embedded SAT solver (for models with many variables)
+	 * @author gsanthan
+	 *
+	 */
+	public enum REASONING_ENGINE {ModelChecker, ExplicitState, Symbolic, SAT};
+	/**
+	 * Engine used by default for answering reasoning queries (can be changed for each PreferenceReasoner)
+	 */
+	public static REASONING_ENGINE CURRENT_REASONING_ENGINE = REASONING_ENGINE.ModelChecker;
+	/**
+	 * Specifies whether queries are verified in persistent interactive model checker sessions (NuSMV only), 
+	 * instead of invoking the model checker for every query
+	 */
+	public static boolean USE_MODEL_CHECKER_SESSIONS = false;
+	/**
+	 * Specifies whether the model and specs are streamed to the model checker (NuSMV only) and its output is parsed in memory, 
+	 * instead of writing a working copy of the model and the output to files
+	 */
+	public static boolean USE_STREAMING_VERIFICATION = false;
+	/**
+	 * Specifies whether a static BDD variable ordering derived from the dependency graph of the preference variables (see verify.VariableOrdering)
+	 * is passed to the model checker (NuSMV only), instead of the default ordering of the model checker
+	 */
+	public static boolean USE_VARIABLE_ORDERING = true;
+	/**
+	 * Specifies whether the options of the model checker (NuSMV only) are tuned for each model by a calibration suite of queries (see verify.ModelCheckerTuner), 
+	 * instead of always invoking the model checker with model_checker_command
+	 */
+	public static boolean USE_MODEL_CHECKER_AUTOTUNING = false;
+	/**
+	 * Specifies whether the translators merge the transitions of each variable with the same frame condition and next value into minimized guards 
+	 * (see translate.GuardMinimizer), with the frame conditions factored into definitions, instead of writing one transition per CPT row or CI-net statement
+	 */
+	public static boolean USE_MINIMIZED_TRANSLATION = true;
+	/**
+	 * Specifies whether computeCurrentPreferredSet computes all the non-dominated outcomes at a level in one pass (with the in-JVM engine, 
+	 * or the symbolic engine when the model checker is used), instead of computing them one at a time with nextPreferred
+	 */
+	public static boolean USE_LEVEL_ENUMERATION = true;
+	/**
+	 * Maximum number of preference variables for which the levels of the weak order with cycles are computed in memory in a single pass 
+	 * (see verify.CondensationLevels), instead of with the model checker; 0 always uses the model checker.
+	 * The levels take about 8.25 bytes of heap per outcome (2^n outcomes for n variables, e.g., about 2.1 GiB for 28 variables); 
+	 * if the maximum heap size of the JVM (-Xmx) is smaller, the model checker is used instead
+	 */
+	public static int SCC_MAX_VARIABLES = 28;
+	/**
+	 * Specifies whether the backend of each dominance, consistency and next preferred query is chosen by the query planner (see reasoner.QueryPlanner), 
+	 * instead of always using the configured reasoning engine
+	 */
+	public static boolean USE_QUERY_PLANNER = false;
+	/**
+	 * Maximum number of flips of the flipping sequences (and cycles) searched for by the bounded model checker (see verify.BoundedModelChecker)
+	 */
+	public static int SAT_MAX_BOUND = 30;
+	/**
+	 * Maximum number of dominance facts cached per model (see reasoner.DominanceCache); 0 disables the cache
+	 */
+	public static int DOMINANCE_CACHE_SIZE = 10000;
+	/**
+	 * Maximum number of model checker processes run concurrently when the specs in a spec file are verified individually 
+	 */
+	public static int MODEL_CHECKER_THREADS = Runtime.getRuntime().availableProcessors();
+	/**
+	 * Base directory of the per-session workspaces for the working files of the model checker (see util.WorkspaceManager), 
+	 * e.g., a RAM-backed directory such as /dev/shm/iprefr; empty to write the working files next to the SMV file 
+	 */
+	public static String WORKSPACE_DIRECTORY = "";
+	/**
+	 * Retention policy for the workspaces: "delete" (remove a workspace when its session is closed or the JVM exits) or "keep"
+	 */
+	public static String WORKSPACE_RETENTION = "delete";
+	/**
+	 * Directory of the content-addressed cache of the translated models, spec files and variable lists (see translate.TranslationCache), 
+	 * shared by the sessions that translate the same preference files; empty to always translate
+	 */
+	public static String TRANSLATION_CACHE_DIRECTORY = "";
+	/**
+	 * Age (in minutes) after which workspaces left behind by earlier runs are removed; 0 never removes them
+	 */
+	public static int WORKSPACE_MAX_AGE_MINUTES = 1440;
+	
 	
 	/**
 	 * Command line used to invoke the model checker from the preference reasoner; depends on the currently used model checker
@@ -166,6 +251,46 @@ public class Constants {
 		if(SMV_EXEC_COMMAND == null || SMV_EXEC_COMMAND.trim().length() == 0){
 			throw new RuntimeException("Invalid Model Checker Command");
 		}
+		
+		String reasoningEngine = null;
+		try {
+			reasoningEngine = PropertiesManager.getProperty(CONFIG_REASONER_PROPERTIES,"reasoning_engine", "modelChecker");
+		} catch (PreferenceReasonerException e) {
+			// TODO Auto-generated catch block
+			e.printStackTrace();
+		}
+		if(reasoningEngine == null || reasoningEngine.equals("modelChecker")) {
+			CURRENT_REASONING_ENGINE = REASONING_ENGINE.ModelChecker;
+		} else if(reasoningEngine.equals("explicitState")) {
+			CURRENT_REASONING_ENGINE = REASONING_ENGINE.ExplicitState;
+		} else if(reasoningEngine.equals("symbolic")) {
+			CURRENT_REASONING_ENGINE = REASONING_ENGINE.Symbolic;
+		} else if(reasoningEngine.equals("sat")) {
+			CURRENT_REASONING_ENGINE = REASONING_ENGINE.SAT;
+		} else {
+			throw new RuntimeException("Unsupported reasoning engine");
+		}
+		
+		try {
+			USE_MODEL_CHECKER_SESSIONS = Boolean.parseBoolean(PropertiesManager.getProperty(CONFIG_REASONER_PROPERTIES,"model_checker_sessions", "false"));
+			USE_STREAMING_VERIFICATION = Boolean.parseBoolean(PropertiesManager.getProperty(CONFIG_REASONER_PROPERTIES,"model_checker_streaming", "false"));
+			USE_VARIABLE_ORDERING = Boolean.parseBoolean(PropertiesManager.getProperty(CONFIG_REASONER_PROPERTIES,"variable_ordering", "true"));
+			USE_MODEL_CHECKER_AUTOTUNING = Boolean.parseBoolean(PropertiesManager.getProperty(CONFIG_REASONER_PROPERTIES,"model_checker_autotuning", "false"));
+			USE_MINIMIZED_TRANSLATION = Boolean.parseBoolean(PropertiesManager.getProperty(CONFIG_REASONER_PROPERTIES,"minimized_translation", "true"));
+			USE_LEVEL_ENUMERATION = Boolean.parseBoolean(PropertiesManager.getProperty(CONFIG_REASONER_PROPERTIES,"level_enumeration", "true"));
+			SCC_MAX_VARIABLES = Integer.parseInt(PropertiesManager.getProperty(CONFIG_REASONER_PROPERTIES,"scc_max_variables", "28"));
+			USE_QUERY_PLANNER = Boolean.parseBoolean(PropertiesManager.getProperty(CONFIG_REASONER_PROPERTIES,"query_planner", "false"));
+			SAT_MAX_BOUND = Integer.parseInt(PropertiesManager.getProperty(CONFIG_REASONER_PROPERTIES,"sat_max_bound", "30"));
+			DOMINANCE_CACHE_SIZE = Integer.parseInt(PropertiesManager.getProperty(CONFIG_REASONER_PROPERTIES,"dominance_cache_size", "10000"));
+			MODEL_CHECKER_THREADS = Integer.parseInt(PropertiesManager.getProperty(CONFIG_REASONER_PROPERTIES,"model_checker_threads", ""+MODEL_CHECKER_THREADS));
+			WORKSPACE_DIRECTORY = PropertiesManager.getProperty(CONFIG_REASONER_PROPERTIES,"workspace_directory", "");
+			WORKSPACE_RETENTION = PropertiesManager.getProperty(CONFIG_REASONER_PROPERTIES,"workspace_retention", "delete");
+			WORKSPACE_MAX_AGE_MINUTES = Integer.parseInt(PropertiesManager.getProperty(CONFIG_REASONER_PROPERTIES,"workspace_max_age_minutes", "1440"));
+			TRANSLATION_CACHE_DIRECTORY = PropertiesManager.getProperty(CONFIG_REASONER_PROPERTIES,"translation_cache_directory", "");
+		} catch (PreferenceReasonerException e) {
+			// TODO Auto-generated catch block
+			e.printStackTrace();
+		}
 	}
 	
 	/**
@@ -9,6 +9,8 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 /**
  * Provides basic file related utility methods for opening, closing, reading, appending, writing text with or without line breaks, etc. 
@@ -189,4 +191,34 @@ public class FileUtil {
 		}
 		FileUtil.closeFile(writer);
 	}
+	
+	/**
+	 * Returns the content hash (SHA-1 digest of the bytes) of the file, e.g., for keying data derived from an SMV model by the contents of the model
+	 * @param fileName
+	 * @return Content hash as a hex string
+	 * @throws IOException
+	 */
+	public static String getContentHash(String fileName) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException("SHA-1 digest not available for computing the content hash of " + fileName, e);
+		}
+		FileInputStream in = new FileInputStream(fileName);
+		try {
+			byte[] buffer = new byte[8192];
+			int read;
+			while((read = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		} finally {
+			in.close();
+		}
+		StringBuilder hash = new StringBuilder();
+		for (byte b : digest.digest()) {
+			hash.append(String.format("%02x", b));
+		}
+		return hash.toString();
+	}
 }
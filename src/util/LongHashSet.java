@@ -0,0 +1,202 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * A set of primitive longs (e.g., bitset encoded outcomes) that keeps the order in which its elements were added, without boxing the elements.
+ * The elements are stored in insertion order in an array, which is indexed by an open addressing hash table (linear probing) of positions in that array.
+ * Removed elements leave a gap in the array (skipped while iterating) that is reclaimed when the array has to grow,
+ * so that the positions of the elements do not change while the set is iterated over, even if elements are removed.
+ * @author gsanthan
+ *
+ */
+public class LongHashSet {
+
+	/**
+	 * Elements in the order in which they were added (including removed elements, up to count)
+	 */
+	long[] elements;
+	/**
+	 * Positions (in elements) of the removed elements
+	 */
+	boolean[] removed;
+	/**
+	 * Hash table of positions in elements (+1, so that 0 marks an empty slot); the size of the table is a power of 2
+	 */
+	int[] table;
+	/**
+	 * Number of positions used in elements
+	 */
+	int count;
+	/**
+	 * Number of elements in the set
+	 */
+	int size;
+
+	public LongHashSet() {
+		this(16);
+	}
+
+	/**
+	 * Creates a set that can hold expectedSize elements without growing
+	 * @param expectedSize
+	 */
+	public LongHashSet(int expectedSize) {
+		int capacity = 16;
+		while(capacity < expectedSize * 2) {
+			capacity <<= 1;
+		}
+		elements = new long[capacity / 2];
+		removed = new boolean[capacity / 2];
+		table = new int[capacity];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean contains(long value) {
+		return findSlot(value) >= 0;
+	}
+
+	/**
+	 * Adds the value to the set, at the end of the insertion order
+	 * @param value
+	 * @return true if the value was not already in the set
+	 */
+	public boolean add(long value) {
+		if(findSlot(value) >= 0) {
+			return false;
+		}
+		if(count == elements.length) {
+			grow();
+		}
+		elements[count] = value;
+		removed[count] = false;
+		count++;
+		int mask = table.length - 1;
+		int slot = hash(value) & mask;
+		while(table[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		table[slot] = count;
+		size++;
+		return true;
+	}
+
+	/**
+	 * Removes the value from the set
+	 * @param value
+	 * @return true if the value was in the set
+	 */
+	public boolean remove(long value) {
+		int slot = findSlot(value);
+		if(slot < 0) {
+			return false;
+		}
+		removed[table[slot] - 1] = true;
+		size--;
+		//Shift the following entries of the probe sequence back, so that no entry becomes unreachable from its hash slot
+		int mask = table.length - 1;
+		int gap = slot;
+		int next = (gap + 1) & mask;
+		while(table[next] != 0) {
+			int home = hash(elements[table[next] - 1]) & mask;
+			if(((next - home) & mask) >= ((next - gap) & mask)) {
+				table[gap] = table[next];
+				gap = next;
+			}
+			next = (next + 1) & mask;
+		}
+		table[gap] = 0;
+		return true;
+	}
+
+	public void clear() {
+		Arrays.fill(table, 0);
+		count = 0;
+		size = 0;
+	}
+
+	/**
+	 * Returns the number of positions that can be iterated over (see isPresent and get); positions are in insertion order
+	 * @return Number of positions
+	 */
+	public int positions() {
+		return count;
+	}
+
+	/**
+	 * Returns true if the element at the position has not been removed
+	 * @param position
+	 */
+	public boolean isPresent(int position) {
+		return position < count && !removed[position];
+	}
+
+	/**
+	 * Returns the element at the position
+	 * @param position
+	 */
+	public long get(int position) {
+		return elements[position];
+	}
+
+	/**
+	 * Returns the elements of the set in insertion order
+	 * @return Array of elements
+	 */
+	public long[] toArray() {
+		long[] array = new long[size];
+		int i = 0;
+		for (int position = 0; position < count; position++) {
+			if(!removed[position]) {
+				array[i++] = elements[position];
+			}
+		}
+		return array;
+	}
+
+	/**
+	 * Returns the slot of the table that holds the position of the value; -1 if the value is not in the set
+	 */
+	private int findSlot(long value) {
+		int mask = table.length - 1;
+		int slot = hash(value) & mask;
+		while(table[slot] != 0) {
+			if(elements[table[slot] - 1] == value) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Drops the removed elements, and doubles the capacity if the set is more than half full
+	 */
+	private void grow() {
+		long[] live = toArray();
+		int capacity = table.length;
+		if(live.length * 2 >= elements.length) {
+			capacity <<= 1;
+		}
+		elements = new long[capacity / 2];
+		removed = new boolean[capacity / 2];
+		table = new int[capacity];
+		count = 0;
+		size = 0;
+		for (long value : live) {
+			add(value);
+		}
+	}
+
+	private static int hash(long value) {
+		long h = value * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
@@ -2,11 +2,12 @@ package util;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
 import model.PerformanceRecord;
-import model.WorkingPreferenceModel;
+import model.PreferenceMetaData;
 
 import verify.TraceFormatter;
 import verify.TraceFormatterFactory;
@@ -19,9 +20,9 @@ import verify.TraceFormatterFactory;
 public class PerformanceAnalyzer {
 	
 	/**
-	 * Stores a list of performance records of all the verifications 
+	 * Stores a list of performance records of all the verifications (of all the reasoners)
 	 */
-	private static List<PerformanceRecord> records = new ArrayList<PerformanceRecord>();
+	private static List<PerformanceRecord> records = Collections.synchronizedList(new ArrayList<PerformanceRecord>());
 
 	public static List<PerformanceRecord> getRecords() {
 		return records;
@@ -61,21 +62,25 @@ public class PerformanceAnalyzer {
 	
 	/**
 	 * Add the performance corresponding to the latest verification task by parsing the model checker's trace output file and stores it along with an associated outcome   
+	 * @param pmd PreferenceMetaData of the preference specification that was verified
 	 * @param outcome
 	 * @throws IOException
 	 */
-	public static void addLatestPerformanceRecord(Set<String> outcome ) throws IOException {
-		addPerformanceRecord(getPerformanceRecordForLastQuery(), outcome);
+	public static void addLatestPerformanceRecord(PreferenceMetaData pmd, Set<String> outcome ) throws IOException {
+		PerformanceRecord record = getPerformanceRecordForLastQuery(pmd);
+		record.setVariables(pmd.getVariables());
+		addPerformanceRecord(record, outcome);
 	}
 	
 	/**
 	 * Parses the latest performance record from the model checker's trace output file
+	 * @param pmd PreferenceMetaData of the preference specification that was verified
 	 * @return PerformanceRecord for the latest query run by the model checker
 	 * @throws IOException
 	 */
-	public static PerformanceRecord getPerformanceRecordForLastQuery() throws IOException {
+	public static PerformanceRecord getPerformanceRecordForLastQuery(PreferenceMetaData pmd) throws IOException {
 		TraceFormatter f = TraceFormatterFactory.createTraceFormatter();
-		PerformanceRecord pr = f.getPerformanceRecord(WorkingPreferenceModel.getPrefMetaData().getOutputFile());
+		PerformanceRecord pr = f.getPerformanceRecord(pmd.getOutputFile());
 		return pr;
 	}
 }
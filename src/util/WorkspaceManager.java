@@ -0,0 +1,157 @@
+package util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import model.PreferenceMetaData;
+
+/**
+ * Manages the scratch directories (workspaces) in which the working copies of the models, the outputs and the counter examples of the model checker are written.
+ * Each reasoning session (PreferenceReasoner) gets its own directory with a unique name under Constants.WORKSPACE_DIRECTORY,
+ * so that sessions for the same SMV file can run concurrently without overwriting each other's working files and without any locking;
+ * the queries of a session are run one at a time and reuse the files in the directory of the session.
+ * The base directory may be on a RAM-backed file system (e.g., /dev/shm or a tmpfs mount), so that the working files never reach the disk.
+ * If no base directory is configured, the working files are written next to the SMV file (one set of working files per SMV file).
+ * <p>
+ * Retention policy (Constants.WORKSPACE_RETENTION):
+ * "delete" removes the directory of a session when the session is closed (or when the JVM exits, for sessions that are not closed);
+ * "keep" leaves the directories for inspection. In both cases, directories of earlier runs older than Constants.WORKSPACE_MAX_AGE_MINUTES
+ * (e.g., left behind by a JVM that crashed) are removed when the first workspace is created.
+ * @author gsanthan
+ *
+ */
+public class WorkspaceManager {
+
+	/**
+	 * Prefix of the names of the workspace directories (only such directories are ever removed from the base directory)
+	 */
+	public static final String WORKSPACE_PREFIX = "iprefr-";
+	public static final String RETENTION_DELETE = "delete";
+	public static final String RETENTION_KEEP = "keep";
+
+	/**
+	 * Workspace directories created in this JVM and not yet released
+	 */
+	static List<File> openWorkspaces = new ArrayList<File>();
+	static boolean initialized = false;
+
+	/**
+	 * Returns true if the working files are written to workspace directories under a configured base directory
+	 */
+	public static boolean isEnabled() {
+		return Constants.WORKSPACE_DIRECTORY != null && Constants.WORKSPACE_DIRECTORY.trim().length() > 0;
+	}
+
+	/**
+	 * Creates a new workspace directory for a session and switches the working, output, counter example and result files of prefMetaData to it.
+	 * Does nothing if no base directory is configured (the working files remain next to the SMV file).
+	 * @param prefMetaData Metadata of the session
+	 * @return Workspace directory; null if no base directory is configured
+	 * @throws IOException If the workspace directory cannot be created
+	 */
+	public static File assignWorkspace(PreferenceMetaData prefMetaData) throws IOException {
+		if(!isEnabled()) {
+			return null;
+		}
+		File workspace = createWorkspace(prefMetaData.getSmvFileWithoutPath());
+		prefMetaData.setWorkspaceDirectory(workspace.getPath());
+		return workspace;
+	}
+
+	/**
+	 * Creates a uniquely named workspace directory under the base directory
+	 * @param name Name (e.g., of the SMV file) included in the name of the directory, for readability
+	 * @return Workspace directory
+	 * @throws IOException If the workspace directory cannot be created
+	 */
+	public static File createWorkspace(String name) throws IOException {
+		File base = new File(Constants.WORKSPACE_DIRECTORY);
+		synchronized (WorkspaceManager.class) {
+			if(!initialized) {
+				initialize(base);
+			}
+		}
+		String prefix = WORKSPACE_PREFIX + name.replaceAll("[^A-Za-z0-9_.-]", "_") + "-";
+		File workspace = Files.createTempDirectory(base.toPath(), prefix).toFile();
+		synchronized (WorkspaceManager.class) {
+			openWorkspaces.add(workspace);
+		}
+		return workspace;
+	}
+
+	/**
+	 * Releases the workspace directory of a session; the directory and its files are removed if the retention policy is "delete"
+	 * @param prefMetaData Metadata of the session
+	 */
+	public static void releaseWorkspace(PreferenceMetaData prefMetaData) {
+		if(prefMetaData == null || prefMetaData.getWorkspaceDirectory() == null) {
+			return;
+		}
+		releaseWorkspace(new File(prefMetaData.getWorkspaceDirectory()));
+	}
+
+	/**
+	 * Releases the workspace directory; the directory and its files are removed if the retention policy is "delete"
+	 * @param workspace
+	 */
+	public static void releaseWorkspace(File workspace) {
+		synchronized (WorkspaceManager.class) {
+			if(!openWorkspaces.remove(workspace)) {
+				//Already released
+				return;
+			}
+		}
+		if(RETENTION_DELETE.equals(Constants.WORKSPACE_RETENTION)) {
+			delete(workspace);
+		}
+	}
+
+	/**
+	 * Creates the base directory, removes stale workspaces of earlier runs and registers the removal of the workspaces of this JVM on exit
+	 * @param base
+	 */
+	private static void initialize(File base) {
+		initialized = true;
+		base.mkdirs();
+		long maxAge = Constants.WORKSPACE_MAX_AGE_MINUTES * 60L * 1000L;
+		File[] files = base.listFiles();
+		if(files != null && maxAge > 0) {
+			long now = System.currentTimeMillis();
+			for (File file : files) {
+				if(file.isDirectory() && file.getName().startsWith(WORKSPACE_PREFIX) && now - file.lastModified() > maxAge) {
+					delete(file);
+				}
+			}
+		}
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			public void run() {
+				List<File> workspaces;
+				synchronized (WorkspaceManager.class) {
+					workspaces = new ArrayList<File>(openWorkspaces);
+				}
+				for (File workspace : workspaces) {
+					releaseWorkspace(workspace);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Deletes the file, or the directory with all its contents
+	 * @param file
+	 */
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if(children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		if(!file.delete() && file.exists()) {
+			System.out.println("Could not delete workspace file " + file.getPath());
+		}
+	}
+}
@@ -0,0 +1,1014 @@
+package verify;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import model.GuardExpression;
+import model.OutcomeSequence;
+import model.SMVModel;
+import sat.SATSolver;
+import translate.SMVModelParser;
+import util.Constants;
+
+/**
+ * An in-JVM bounded model checking (SAT based) alternative to the external model checker, for models with too many variables
+ * for the explicit state and symbolic engines (e.g., wide CP-nets and CI-nets with 100+ variables), in which proofs of dominance are short flipping sequences.
+ * The transition relation of the SMV model is unrolled for k steps into a formula in conjunctive normal form (Tseitin encoding of the guards,
+ * with the first guard that holds determining the next value of each variable), which is solved by an embedded CDCL solver (see sat.SATSolver).
+ * Each step either flips the variables as the transitions allow or keeps the outcome, so that a path of k steps covers the flipping sequences of at most k flips.
+ * <p>
+ * Queries deepen the bound k iteratively, so that the first flipping sequence found is a shortest one.
+ * Since a flip changes at most a few variables (one in CP-nets; see getFlipWidth), the bounds below the number of variables in which the outcomes differ
+ * (divided by that width) are skipped: proving that there is no flipping sequence that short is as hard for the solver as the pigeonhole principle.
+ * The unrolling is kept by the engine and extended as needed; the outcomes of a query are selected by assumptions,
+ * so that the clauses learned by the solver are reused by all the later queries.
+ * That no flipping sequence exists is proved either by an over-approximation of the values each variable can take in the outcomes reachable from the first outcome
+ * (computed in three-valued logic, without the solver), or by the recurrence diameter: if there is no simple (loop-free) path of k flips from the first outcome
+ * (or to the second outcome), every outcome reachable from it (or reaching it) is reached within k-1 flips.
+ * Similarly, if there is no simple path of k flips at all, there is no cycle longer than k flips;
+ * before searching for a cycle, the guards of the model are checked for a proof that there is none (see isCycleFreeByStructure), as in acyclic CP-nets.
+ * If neither a flipping sequence nor such a proof is found within Constants.SAT_MAX_BOUND flips, the query is not decided and an exception is thrown
+ * (as in acyclic CP-nets with many variables, whose simple paths may be exponentially long, when dominance does not hold and the over-approximation does not show it).
+ * <p>
+ * Next preferred queries (a non-dominated outcome, i.e., one without a flip to an outcome that is not removed) are answered in a session kept for the whole
+ * enumeration, by one solver instance (see getSession): a candidate outcome is found by the solver, and one step of the unrolling from it is searched for a flip to an outcome
+ * that is not removed. If there is none, the candidate is non-dominated. Otherwise, a lemma is learned for the choice of the change variables of the flip:
+ * from a non-dominated candidate, the flip either keeps the outcome or leads to a removed outcome, i.e., not to an outcome in a cube of literals
+ * of the dominating outcome that no removed outcome has (all outcomes, if none is removed: in the first level, the flip must keep the outcome).
+ * The outcomes removed and found are excluded from the candidates by blocking clauses, so that each query costs a few incremental solves,
+ * with the clauses learned by the solver and the activities of its variables kept from the earlier queries.
+ * When outcomes are removed, the lemmas are learned again without the outcomes removed.
+ * Note: This engine is not thread-safe.
+ * @author gsanthan
+ *
+ */
+public class BoundedModelChecker implements ReasoningEngine {
+
+	SMVModel model;
+	/**
+	 * Preference variables (sorted, as in PreferenceMetaData)
+	 */
+	String[] variables;
+	Map<String, Integer> indices = new HashMap<String, Integer>();
+	/**
+	 * Maximum number of flips of the flipping sequences searched for
+	 */
+	int maxBound = Constants.SAT_MAX_BOUND;
+
+	SATSolver solver = new SATSolver();
+	/**
+	 * Variable that is always true (for constants in the guards)
+	 */
+	int trueLiteral;
+	/**
+	 * SAT variables of each preference variable in the outcome after each step (states.get(0) is the first outcome)
+	 */
+	List<int[]> states = new ArrayList<int[]>();
+	/**
+	 * SAT variables of the change variables of each step (changes.get(0) selects the flip from the first outcome)
+	 */
+	List<int[]> changes = new ArrayList<int[]>();
+	/**
+	 * For each step t: stays.get(t) is true if the step keeps the outcome;
+	 * distinct.get(t) is true if the outcome after the step differs from all the outcomes before it (simple paths);
+	 * loops.get(t) is true if the outcome after the step is the first outcome (cycles; created when first used)
+	 */
+	List<Integer> stays = new ArrayList<Integer>();
+	List<Integer> distinct = new ArrayList<Integer>();
+	List<Integer> loops = new ArrayList<Integer>();
+	/**
+	 * Gates encoded for the guards of the current step, indexed by their operands (structural hashing), and the encoded definitions of the current step
+	 */
+	Map<String, Integer> gates = new HashMap<String, Integer>();
+	Map<String, Integer> definitionLiterals = new HashMap<String, Integer>();
+	/**
+	 * Maximum number of variables changed by a flip; computed when first used (-1 until then)
+	 */
+	int flipWidth = -1;
+	/**
+	 * Whether the guards of the model prove that there is no cycle; checked when first used
+	 */
+	Boolean cycleFree;
+	/**
+	 * Engine that holds the session of next preferred queries (see getSession); created when first used
+	 */
+	BoundedModelChecker session;
+	/**
+	 * Session of next preferred queries (see findNonDominatedOutcome), kept for a whole enumeration: SAT variables of the candidate outcome,
+	 * the outcomes excluded from the candidates (removed or found) and the removed outcomes, the literal that excludes the removed outcomes from the outcome
+	 * after the first step of the unrolling, the copies of the transitions for the flip choices found so far and the lemmas learned from them,
+	 * whose clauses hold while the selector literal is assumed; null candidate until the first query
+	 */
+	int[] candidate;
+	Set<Set<String>> blocked;
+	Set<Set<String>> removed;
+	int notRemovedNext;
+	int lemmaSelector;
+	Map<String, FlipChoice> flipChoices;
+	List<Lemma> lemmas;
+
+	/**
+	 * Parses the SMV model in smvFile
+	 * @param smvFile
+	 * @throws IOException
+	 */
+	public BoundedModelChecker(String smvFile) throws IOException {
+		this(SMVModelParser.parse(smvFile));
+	}
+
+	public BoundedModelChecker(SMVModel model) {
+		this.model = model;
+		this.variables = model.getVariables();
+		for (int i = 0; i < variables.length; i++) {
+			indices.put(variables[i], i);
+		}
+		trueLiteral = solver.newVariable();
+		solver.addClause(trueLiteral);
+		states.add(newState());
+	}
+
+	public String[] getVariables() {
+		return variables;
+	}
+
+	public SATSolver getSolver() {
+		return solver;
+	}
+
+	public void setMaxBound(int maxBound) {
+		this.maxBound = maxBound;
+	}
+
+	/* (non-Javadoc)
+	 * @see verify.ReasoningEngine#findFlippingSequence(java.util.Set, java.util.Set)
+	 */
+	public OutcomeSequence findFlippingSequence(Set<String> from, Set<String> to) {
+		boolean cycle = from.equals(to);
+		if(cycle ? isCycleFreeByStructure() : !mayReach(from, to)) {
+			return null;
+		}
+		int distance = 0;
+		for (String variable : variables) {
+			if(from.contains(variable) != to.contains(variable)) {
+				distance++;
+			}
+		}
+		int width = getFlipWidth();
+		if(width == 0) {
+			return null;
+		}
+		for (int k = Math.max(1, (distance + width - 1) / width); k <= maxBound; k++) {
+			extendTo(k);
+			//Is there a path of at most k flips (of at least one flip to the same outcome)?
+			List<Integer> assumptions = new ArrayList<Integer>();
+			assumeOutcome(assumptions, 0, from);
+			assumeOutcome(assumptions, k, to);
+			if(cycle) {
+				assumptions.add(-stays.get(0));
+				assumptions.add(distinct.get(0));
+			}
+			if(solver.solve(toArray(assumptions))) {
+				return getPath(k);
+			}
+			//Is there a simple path of k flips from the first outcome, or to the second one?
+			assumptions.clear();
+			assumeOutcome(assumptions, 0, from);
+			assumeSimplePath(assumptions, k);
+			if(!solver.solve(toArray(assumptions))) {
+				return null;
+			}
+			assumptions.clear();
+			assumeOutcome(assumptions, k, to);
+			assumeSimplePath(assumptions, k);
+			if(!solver.solve(toArray(assumptions))) {
+				return null;
+			}
+		}
+		throw new RuntimeException("Dominance is not decided within " + maxBound + " flips; increase sat_max_bound or use another reasoning engine");
+	}
+
+	/* (non-Javadoc)
+	 * @see verify.ReasoningEngine#findCycle()
+	 */
+	public OutcomeSequence findCycle() {
+		if(isCycleFreeByStructure()) {
+			return null;
+		}
+		for (int k = 1; k <= maxBound; k++) {
+			extendTo(k);
+			//Is there a cycle of at most k flips?
+			int[] assumptions = new int[]{getLoop(k), -stays.get(0), distinct.get(0)};
+			if(solver.solve(assumptions)) {
+				//The first outcome is not repeated at the end (an OutcomeSequence holds each outcome once)
+				return getPath(k);
+			}
+			//Is there a simple path of k flips?
+			List<Integer> simple = new ArrayList<Integer>();
+			assumeSimplePath(simple, k);
+			if(!solver.solve(toArray(simple))) {
+				return null;
+			}
+		}
+		throw new RuntimeException("Consistency is not decided within " + maxBound + " flips; increase sat_max_bound or use another reasoning engine");
+	}
+
+	/* (non-Javadoc)
+	 * @see verify.ReasoningEngine#findNonDominatedOutcome(model.OutcomeSequence, model.OutcomeSequence)
+	 */
+	public Set<String> findNonDominatedOutcome(OutcomeSequence removedOutcomes, OutcomeSequence foundOutcomes) {
+		return getSession(removedOutcomes, foundOutcomes).nextNonDominatedOutcome();
+	}
+
+	/* (non-Javadoc)
+	 * @see verify.ReasoningEngine#findNonDominatedOutcomes(model.OutcomeSequence, int)
+	 */
+	public OutcomeSequence findNonDominatedOutcomes(OutcomeSequence removedOutcomes, int limit) {
+		BoundedModelChecker session = getSession(removedOutcomes, new OutcomeSequence());
+		OutcomeSequence outcomes = new OutcomeSequence(variables);
+		while(outcomes.getOutcomeSequence().size() < limit) {
+			Set<String> outcome = session.nextNonDominatedOutcome();
+			if(outcome == null) {
+				break;
+			}
+			outcomes.addOutcome(outcome);
+			session.block(outcome);
+		}
+		return outcomes;
+	}
+
+	/**
+	 * Returns the session of next preferred queries, updated with the outcomes removed and found since the last query.
+	 * The session is a separate engine on the same model, so that its solver holds only the clauses of the session (and not the unrolling of the other queries);
+	 * a new session is started if an outcome excluded in the current one is neither removed nor found any longer (e.g., a new enumeration has been started).
+	 * @param removedOutcomes
+	 * @param foundOutcomes
+	 * @return Session
+	 */
+	private BoundedModelChecker getSession(OutcomeSequence removedOutcomes, OutcomeSequence foundOutcomes) {
+		if(session == null || !session.updateSession(removedOutcomes, foundOutcomes)) {
+			session = new BoundedModelChecker(model);
+			session.updateSession(removedOutcomes, foundOutcomes);
+		}
+		return session;
+	}
+
+	/**
+	 * Searches for a non-dominated outcome in the session: a candidate outcome that is not blocked and satisfies the lemmas is found by the solver,
+	 * and its flips are searched for one to an outcome that is not removed (one step of the unrolling from the candidate).
+	 * If there is none, the candidate is non-dominated; otherwise, a lemma that excludes the candidate (and the outcomes dominated in the same way) is learned.
+	 * @return Non-dominated outcome; null if there is none other than the blocked outcomes
+	 */
+	private Set<String> nextNonDominatedOutcome() {
+		while(solver.solve(new int[]{lemmaSelector})) {
+			Set<String> outcome = getOutcome(candidate);
+			List<Integer> assumptions = new ArrayList<Integer>();
+			assumeOutcome(assumptions, 0, outcome);
+			assumptions.add(-stays.get(0));
+			assumptions.add(distinct.get(0));
+			assumptions.add(notRemovedNext);
+			if(!solver.solve(toArray(assumptions))) {
+				return outcome;
+			}
+			//The candidate is dominated by the outcome after the step
+			int[] change = changes.get(0);
+			String key = new String();
+			for (int i = 0; i < variables.length; i++) {
+				key += solver.getValue(change[i]) ? '1' : '0';
+			}
+			FlipChoice choice = flipChoices.get(key);
+			if(choice == null) {
+				choice = new FlipChoice(key);
+				flipChoices.put(key, choice);
+			}
+			Lemma lemma = new Lemma(choice, getOutcome(states.get(1)));
+			lemmas.add(lemma);
+			addLemma(lemma);
+		}
+		return null;
+	}
+
+	/**
+	 * Starts the session of next preferred queries of this engine, or updates it with the outcomes removed and found since the last query
+	 * @param removedOutcomes
+	 * @param foundOutcomes
+	 * @return false if an outcome excluded in the session is neither removed nor found (the session cannot be updated)
+	 */
+	private boolean updateSession(OutcomeSequence removedOutcomes, OutcomeSequence foundOutcomes) {
+		if(candidate != null) {
+			int removedKept = 0;
+			int blockedKept = 0;
+			for (Set<String> outcome : removedOutcomes.getOutcomeSequence()) {
+				if(removed.contains(outcome)) {
+					removedKept++;
+				}
+				if(blocked.contains(outcome)) {
+					blockedKept++;
+				}
+			}
+			for (Set<String> outcome : foundOutcomes.getOutcomeSequence()) {
+				if(blocked.contains(outcome) && !removedOutcomes.containsOutcome(outcome)) {
+					blockedKept++;
+				}
+			}
+			if(removedKept < removed.size() || blockedKept < blocked.size()) {
+				return false;
+			}
+		} else {
+			extendTo(1);
+			candidate = newState();
+			blocked = new HashSet<Set<String>>();
+			removed = new HashSet<Set<String>>();
+			notRemovedNext = solver.newVariable();
+			lemmaSelector = solver.newVariable();
+			flipChoices = new HashMap<String, FlipChoice>();
+			lemmas = new ArrayList<Lemma>();
+		}
+		List<Set<String>> newlyRemoved = new ArrayList<Set<String>>();
+		for (Set<String> outcome : removedOutcomes.getOutcomeSequence()) {
+			if(removed.add(outcome)) {
+				newlyRemoved.add(outcome);
+				solver.addClause(differs(states.get(1), outcome, -notRemovedNext));
+				block(outcome);
+			}
+		}
+		for (Set<String> outcome : foundOutcomes.getOutcomeSequence()) {
+			block(outcome);
+		}
+		if(!newlyRemoved.isEmpty() && !lemmas.isEmpty()) {
+			//The lemmas are learned again, without those whose outcomes are now removed
+			solver.addClause(-lemmaSelector);
+			lemmaSelector = solver.newVariable();
+			List<Lemma> kept = new ArrayList<Lemma>();
+			for (Lemma lemma : lemmas) {
+				if(removed.contains(lemma.dominating)) {
+					continue;
+				}
+				for (Set<String> outcome : newlyRemoved) {
+					if(lemma.matches(outcome)) {
+						lemma.cube = getCube(lemma.dominating);
+						break;
+					}
+				}
+				kept.add(lemma);
+				addLemma(lemma);
+			}
+			lemmas = kept;
+		}
+		return true;
+	}
+
+	/**
+	 * Excludes the outcome from the candidates of the session
+	 */
+	private void block(Set<String> outcome) {
+		if(blocked.add(outcome)) {
+			solver.addClause(differs(candidate, outcome));
+		}
+	}
+
+	/**
+	 * Adds the clause of the lemma: for the candidate, the flip choice either keeps the outcome or leads to an outcome outside the cube of the lemma
+	 */
+	private void addLemma(Lemma lemma) {
+		int[] clause = new int[lemma.cube.size() + 2];
+		clause[0] = -lemmaSelector;
+		clause[1] = lemma.choice.same;
+		int k = 2;
+		for (Map.Entry<Integer, Boolean> literal : lemma.cube.entrySet()) {
+			int variable = lemma.choice.next[literal.getKey()];
+			clause[k++] = literal.getValue() ? -variable : variable;
+		}
+		solver.addClause(clause);
+	}
+
+	/**
+	 * Returns a small set of the literals of an outcome that is not removed, such that no removed outcome has all of them
+	 * (chosen greedily: the literal in which most of the remaining removed outcomes differ from the outcome, until none remains)
+	 * @param outcome Outcome that is not removed
+	 * @return Values of the variables (by index) in the literals
+	 */
+	private Map<Integer, Boolean> getCube(Set<String> outcome) {
+		Map<Integer, Boolean> cube = new HashMap<Integer, Boolean>();
+		List<Set<String>> remaining = new ArrayList<Set<String>>(removed);
+		while(!remaining.isEmpty()) {
+			int best = -1;
+			int bestCount = 0;
+			for (int i = 0; i < variables.length; i++) {
+				if(cube.containsKey(i)) {
+					continue;
+				}
+				boolean value = outcome.contains(variables[i]);
+				int count = 0;
+				for (Set<String> other : remaining) {
+					if(other.contains(variables[i]) != value) {
+						count++;
+					}
+				}
+				if(count > bestCount) {
+					best = i;
+					bestCount = count;
+				}
+			}
+			boolean value = outcome.contains(variables[best]);
+			cube.put(best, value);
+			List<Set<String>> matching = new ArrayList<Set<String>>();
+			for (Set<String> other : remaining) {
+				if(other.contains(variables[best]) == value) {
+					matching.add(other);
+				}
+			}
+			remaining = matching;
+		}
+		return cube;
+	}
+
+	/**
+	 * Returns the clause that holds if the SAT variables of an outcome differ from the given outcome
+	 * @param state SAT variables of an outcome
+	 * @param outcome
+	 * @param literals Additional literals of the clause
+	 */
+	private int[] differs(int[] state, Set<String> outcome, int... literals) {
+		int[] clause = Arrays.copyOf(literals, literals.length + variables.length);
+		for (int i = 0; i < variables.length; i++) {
+			clause[literals.length + i] = outcome.contains(variables[i]) ? -state[i] : state[i];
+		}
+		return clause;
+	}
+
+	/**
+	 * Copy of the transitions from the candidate outcome of a session of next preferred queries for one choice of the values of the change variables
+	 * (a flip found to dominate some candidate), and the literal that is true if the flip keeps the candidate
+	 */
+	private class FlipChoice {
+		int[] next;
+		int same;
+
+		FlipChoice(String key) {
+			int[] change = new int[variables.length];
+			for (int i = 0; i < variables.length; i++) {
+				change[i] = key.charAt(i) == '1' ? trueLiteral : -trueLiteral;
+			}
+			//Only the variables that the flip choice may change get variables of their own
+			next = new int[variables.length];
+			encodeTransitions(candidate, change, next, -trueLiteral);
+			same = solver.newVariable();
+			for (int i = 0; i < variables.length; i++) {
+				if(next[i] != candidate[i]) {
+					addClause(-same, -next[i], candidate[i]);
+					addClause(-same, next[i], -candidate[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Lemma learned from a candidate dominated by an outcome that is not removed: no outcome in the cube (a set of literals of the dominating outcome
+	 * that no removed outcome has, see getCube) is reached from a non-dominated candidate by the flip choice
+	 */
+	private class Lemma {
+		FlipChoice choice;
+		Set<String> dominating;
+		Map<Integer, Boolean> cube;
+
+		Lemma(FlipChoice choice, Set<String> dominating) {
+			this.choice = choice;
+			this.dominating = dominating;
+			this.cube = getCube(dominating);
+		}
+
+		/**
+		 * Returns true if the outcome has all the literals of the cube
+		 */
+		boolean matches(Set<String> outcome) {
+			for (Map.Entry<Integer, Boolean> literal : cube.entrySet()) {
+				if(outcome.contains(variables[literal.getKey()]) != literal.getValue()) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Returns the maximum number of variables changed by a flip, found by asking the solver for a flip that changes at least m variables, for m = 1, 2, ...
+	 * (with a sequential counter over the variables changed by the first step)
+	 * @return Maximum number of variables changed by a flip; 0 if there is no flip at all
+	 */
+	public int getFlipWidth() {
+		if(flipWidth >= 0) {
+			return flipWidth;
+		}
+		extendTo(1);
+		int[] first = states.get(0);
+		int[] second = states.get(1);
+		int[] changed = new int[variables.length];
+		for (int i = 0; i < variables.length; i++) {
+			changed[i] = solver.newVariable();
+			addClause(-changed[i], first[i], second[i]);
+			addClause(-changed[i], -first[i], -second[i]);
+		}
+		//atLeast[i] is true if at least m of the first i+1 variables are changed (for the current m), given that at least m-1 of the first i are (previous)
+		int[] previous = null;
+		for (int m = 1; m <= variables.length; m++) {
+			int[] atLeast = new int[variables.length];
+			for (int i = 0; i < variables.length; i++) {
+				atLeast[i] = solver.newVariable();
+				int before = i > 0 ? atLeast[i - 1] : -trueLiteral;
+				int enough = previous == null ? trueLiteral : (i > 0 ? previous[i - 1] : -trueLiteral);
+				addClause(-atLeast[i], before, changed[i]);
+				addClause(-atLeast[i], before, enough);
+			}
+			if(!solver.solve(new int[]{-stays.get(0), atLeast[variables.length - 1]})) {
+				flipWidth = m - 1;
+				return flipWidth;
+			}
+			previous = atLeast;
+		}
+		flipWidth = variables.length;
+		return flipWidth;
+	}
+
+	/**
+	 * Checks whether the guards of the model prove that there is no cycle, without the solver: a variable is constant along every cycle if no guard of a transition
+	 * that changes it to 1 can hold together with a guard of a transition that changes it to 0, given that the variables found to be constant so far have the same values
+	 * (i.e., the guards require different values of such a variable; the other variables, the change variables and the order of the guards are ignored).
+	 * If all the variables are constant along every cycle, there is no cycle: in an acyclic CP-net, the variables are found to be constant in the order of the dependency graph.
+	 * @return true if there is no cycle; false if a cycle is possible
+	 */
+	public boolean isCycleFreeByStructure() {
+		if(cycleFree != null) {
+			return cycleFree;
+		}
+		//For each variable, the literals over the preference variables required by the guards of the transitions that change it to 1 (to 0)
+		List<List<Map<Integer, Integer>>> increasing = new ArrayList<List<Map<Integer, Integer>>>();
+		List<List<Map<Integer, Integer>>> decreasing = new ArrayList<List<Map<Integer, Integer>>>();
+		boolean[] constant = new boolean[variables.length];
+		boolean[] unknown = new boolean[variables.length];
+		for (int i = 0; i < variables.length; i++) {
+			increasing.add(new ArrayList<Map<Integer, Integer>>());
+			decreasing.add(new ArrayList<Map<Integer, Integer>>());
+			List<GuardExpression> guards = model.getGuards(variables[i]);
+			List<GuardExpression> values = model.getValues(variables[i]);
+			for (int j = 0; j < guards.size(); j++) {
+				GuardExpression value = values.get(j);
+				if(value.getType() == GuardExpression.TYPE.LITERAL && variables[i].equals(value.getVariable()) && value.getValue() == 1) {
+					continue;
+				}
+				if(value.getType() != GuardExpression.TYPE.CONSTANT) {
+					unknown[i] = true;
+					continue;
+				}
+				Map<Integer, Integer> literals = new HashMap<Integer, Integer>();
+				List<GuardExpression> conjuncts = guards.get(j).getType() == GuardExpression.TYPE.AND ? guards.get(j).getOperands() : Arrays.asList(guards.get(j));
+				for (GuardExpression conjunct : conjuncts) {
+					if(conjunct.getType() == GuardExpression.TYPE.LITERAL && indices.containsKey(conjunct.getVariable())) {
+						literals.put(indices.get(conjunct.getVariable()), conjunct.getValue());
+					}
+				}
+				(value.getValue() == GuardExpression.TRUE ? increasing : decreasing).get(i).add(literals);
+			}
+		}
+		int constants = 0;
+		boolean changed = true;
+		while(changed) {
+			changed = false;
+			for (int i = 0; i < variables.length; i++) {
+				if(constant[i] || unknown[i] || !isConstantAlongCycles(increasing.get(i), decreasing.get(i), constant)) {
+					continue;
+				}
+				constant[i] = true;
+				constants++;
+				changed = true;
+			}
+		}
+		cycleFree = constants == variables.length;
+		return cycleFree;
+	}
+
+	/**
+	 * Returns true if each guard of a transition that changes a variable to 1 requires a different value of a constant variable than each guard of a transition that changes it to 0
+	 */
+	private boolean isConstantAlongCycles(List<Map<Integer, Integer>> increasing, List<Map<Integer, Integer>> decreasing, boolean[] constant) {
+		for (Map<Integer, Integer> up : increasing) {
+			for (Map<Integer, Integer> down : decreasing) {
+				boolean exclusive = false;
+				for (Map.Entry<Integer, Integer> literal : up.entrySet()) {
+					Integer other = down.get(literal.getKey());
+					if(constant[literal.getKey()] && other != null && !other.equals(literal.getValue())) {
+						exclusive = true;
+						break;
+					}
+				}
+				if(!exclusive) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Over-approximates the outcomes reachable from an outcome by the values each variable can take in them:
+	 * starting from the values in the outcome, a variable can take the value of a transition whose guard may hold (is not false in three-valued logic,
+	 * see evaluate) given the values the variables can take so far, until a fixpoint is reached
+	 * @param from
+	 * @param to
+	 * @return false if a variable cannot take its value in 'to' (i.e., there is no flipping sequence from 'from' to 'to'); true otherwise
+	 */
+	private boolean mayReach(Set<String> from, Set<String> to) {
+		//Values each variable can take: bit 0 for 0, bit 1 for 1
+		int[] possible = new int[variables.length];
+		for (int i = 0; i < variables.length; i++) {
+			possible[i] = from.contains(variables[i]) ? 2 : 1;
+		}
+		boolean changed = true;
+		while(changed) {
+			changed = false;
+			for (int i = 0; i < variables.length; i++) {
+				if(possible[i] == 3) {
+					continue;
+				}
+				List<GuardExpression> guards = model.getGuards(variables[i]);
+				List<GuardExpression> values = model.getValues(variables[i]);
+				for (int j = 0; j < guards.size() && possible[i] != 3; j++) {
+					int guard = evaluate(guards.get(j), possible);
+					if(guard == GuardExpression.FALSE) {
+						continue;
+					}
+					int value = evaluate(values.get(j), possible);
+					int next = value == GuardExpression.UNKNOWN ? 3 : (value == GuardExpression.TRUE ? 2 : 1);
+					if((possible[i] | next) != possible[i]) {
+						possible[i] |= next;
+						changed = true;
+					}
+					if(guard == GuardExpression.TRUE) {
+						break;
+					}
+				}
+			}
+		}
+		for (int i = 0; i < variables.length; i++) {
+			if((possible[i] & (to.contains(variables[i]) ? 2 : 1)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Evaluates an expression in three-valued logic: a preference variable is known if it can take only one value (see mayReach), a change variable is unknown
+	 * @return GuardExpression.TRUE, GuardExpression.FALSE or GuardExpression.UNKNOWN
+	 */
+	private int evaluate(GuardExpression e, int[] possible) {
+		switch (e.getType()) {
+		case CONSTANT:
+			return e.getValue();
+		case LITERAL:
+			if(model.getDefinitions().containsKey(e.getVariable())) {
+				int result = evaluate(model.getDefinitions().get(e.getVariable()), possible);
+				return result == GuardExpression.UNKNOWN || e.getValue() == 1 ? result : 1 - result;
+			}
+			Integer index = indices.get(e.getVariable());
+			if(index == null || possible[index] == 3) {
+				return GuardExpression.UNKNOWN;
+			}
+			return (possible[index] == 2 ? 1 : 0) == e.getValue() ? GuardExpression.TRUE : GuardExpression.FALSE;
+		case NOT:
+			int result = evaluate(e.getOperands().get(0), possible);
+			return result == GuardExpression.UNKNOWN ? result : 1 - result;
+		case AND:
+			boolean unknown = false;
+			for (GuardExpression operand : e.getOperands()) {
+				result = evaluate(operand, possible);
+				if(result == GuardExpression.FALSE) {
+					return GuardExpression.FALSE;
+				} else if(result == GuardExpression.UNKNOWN) {
+					unknown = true;
+				}
+			}
+			return unknown ? GuardExpression.UNKNOWN : GuardExpression.TRUE;
+		default:
+			unknown = false;
+			for (GuardExpression operand : e.getOperands()) {
+				result = evaluate(operand, possible);
+				if(result == GuardExpression.TRUE) {
+					return GuardExpression.TRUE;
+				} else if(result == GuardExpression.UNKNOWN) {
+					unknown = true;
+				}
+			}
+			return unknown ? GuardExpression.UNKNOWN : GuardExpression.FALSE;
+		}
+	}
+
+	/**
+	 * Unrolls the transition relation for (at least) k steps
+	 * @param k
+	 */
+	private void extendTo(int k) {
+		while(states.size() <= k) {
+			addStep();
+		}
+	}
+
+	/**
+	 * Adds a step to the unrolling: the outcome after the step is the next state of the outcome before it (unless the step keeps the outcome),
+	 * and it differs from all the earlier outcomes if the step is on a simple path
+	 */
+	private void addStep() {
+		int t = states.size() - 1;
+		int[] current = states.get(t);
+		int[] change = new int[variables.length];
+		for (int i = 0; i < variables.length; i++) {
+			change[i] = solver.newVariable();
+		}
+		int[] next = newState();
+		int stay = solver.newVariable();
+		if(t > 0) {
+			//The steps that keep the outcome come last, so that the solver does not try every position of the flips among them
+			addClause(-stays.get(t - 1), stay);
+		}
+		encodeTransitions(current, change, next, stay);
+		//The outcome after the step differs from each earlier outcome
+		int differs = solver.newVariable();
+		for (int[] earlier : states) {
+			int[] clause = new int[variables.length + 1];
+			clause[0] = -differs;
+			for (int i = 0; i < variables.length; i++) {
+				int difference = solver.newVariable();
+				addClause(-difference, earlier[i], next[i]);
+				addClause(-difference, -earlier[i], -next[i]);
+				clause[i + 1] = difference;
+			}
+			solver.addClause(clause);
+		}
+		states.add(next);
+		changes.add(change);
+		stays.add(stay);
+		distinct.add(differs);
+	}
+
+	/**
+	 * Encodes the transitions of the model from one outcome to the next, unless the step keeps the outcome
+	 * @param current SAT variables of the outcome before the step
+	 * @param change SAT variables (or constant literals) of the change variables of the step
+	 * @param next SAT variables of the outcome after the step; a variable given as 0 is created, unless only the transitions that keep its value can hold
+	 * (e.g., for constant change variables), in which case the variable of the outcome before the step is used
+	 * @param stay Literal that is true if the step keeps the outcome (false for a step that always follows the transitions)
+	 */
+	private void encodeTransitions(int[] current, int[] change, int[] next, int stay) {
+		gates.clear();
+		definitionLiterals.clear();
+		for (int i = 0; i < variables.length; i++) {
+			//next(var) := case g1 : v1; g2 : v2; ... esac; the value of the first guard that holds (the current value if none holds)
+			List<GuardExpression> guards = model.getGuards(variables[i]);
+			List<GuardExpression> values = model.getValues(variables[i]);
+			List<Integer> guardLiterals = new ArrayList<Integer>();
+			List<Integer> valueLiterals = new ArrayList<Integer>();
+			boolean keeps = true;
+			for (int j = 0; j < guards.size(); j++) {
+				int guard = encode(guards.get(j), current, change);
+				if(guard != -trueLiteral) {
+					int value = encode(values.get(j), current, change);
+					guardLiterals.add(guard);
+					valueLiterals.add(value);
+					keeps &= value == current[i];
+				}
+				if(guard == trueLiteral) {
+					break;
+				}
+			}
+			if(next[i] == 0) {
+				if(keeps) {
+					next[i] = current[i];
+					continue;
+				}
+				next[i] = solver.newVariable();
+			}
+			//Whether one of the guards so far holds
+			int previous = -trueLiteral;
+			for (int j = 0; j < guardLiterals.size(); j++) {
+				int guard = guardLiterals.get(j);
+				int value = valueLiterals.get(j);
+				addClause(stay, previous, -guard, -value, next[i]);
+				addClause(stay, previous, -guard, value, -next[i]);
+				previous = or(previous, guard);
+			}
+			addClause(stay, previous, -current[i], next[i]);
+			addClause(stay, previous, current[i], -next[i]);
+			addClause(-stay, -current[i], next[i]);
+			addClause(-stay, current[i], -next[i]);
+		}
+	}
+
+	/**
+	 * Returns the literal that makes the outcome after k steps equal to the first outcome (a cycle); encoded when first used
+	 * @param k
+	 */
+	private int getLoop(int k) {
+		while(loops.size() < k) {
+			int loop = solver.newVariable();
+			int[] last = states.get(loops.size() + 1);
+			int[] first = states.get(0);
+			for (int i = 0; i < variables.length; i++) {
+				addClause(-loop, -first[i], last[i]);
+				addClause(-loop, first[i], -last[i]);
+			}
+			loops.add(loop);
+		}
+		return loops.get(k - 1);
+	}
+
+	/**
+	 * Encodes an expression over the preference and change variables of a step as a literal (Tseitin encoding)
+	 * @param e
+	 * @param current SAT variables of the outcome before the step
+	 * @param change SAT variables of the change variables of the step
+	 * @return Literal equivalent to the expression
+	 */
+	private int encode(GuardExpression e, int[] current, int[] change) {
+		switch (e.getType()) {
+		case CONSTANT:
+			return e.getValue() == GuardExpression.TRUE ? trueLiteral : -trueLiteral;
+		case LITERAL:
+			int literal;
+			Integer index = indices.get(e.getVariable());
+			if(model.getDefinitions().containsKey(e.getVariable())) {
+				Integer definition = definitionLiterals.get(e.getVariable());
+				if(definition == null) {
+					definition = encode(model.getDefinitions().get(e.getVariable()), current, change);
+					definitionLiterals.put(e.getVariable(), definition);
+				}
+				literal = definition;
+			} else if(index != null) {
+				literal = current[index];
+			} else if(e.getVariable().startsWith("ch") && indices.containsKey(e.getVariable().substring(2))) {
+				literal = change[indices.get(e.getVariable().substring(2))];
+			} else {
+				throw new RuntimeException("Unknown variable "+e.getVariable()+" in transition guard: "+e);
+			}
+			return e.getValue() == 1 ? literal : -literal;
+		case NOT:
+			return -encode(e.getOperands().get(0), current, change);
+		case AND:
+			//The literals over change variables are encoded as a gate of their own, shared by the guards that flip the same variables
+			List<Integer> operands = new ArrayList<Integer>();
+			List<Integer> changeOperands = new ArrayList<Integer>();
+			for (GuardExpression operand : e.getOperands()) {
+				int l = encode(operand, current, change);
+				if(operand.getType() == GuardExpression.TYPE.LITERAL && !indices.containsKey(operand.getVariable())
+						&& !model.getDefinitions().containsKey(operand.getVariable())) {
+					changeOperands.add(l);
+				} else {
+					operands.add(l);
+				}
+			}
+			if(changeOperands.size() > 1 && !operands.isEmpty()) {
+				operands.add(and(changeOperands));
+			} else {
+				operands.addAll(changeOperands);
+			}
+			return and(operands);
+		default:
+			int result = -trueLiteral;
+			for (GuardExpression operand : e.getOperands()) {
+				result = or(result, encode(operand, current, change));
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Returns a literal equivalent to the conjunction of the literals; gates with the same operands are shared
+	 */
+	private int and(List<Integer> operands) {
+		int[] literals = new int[operands.size()];
+		int size = 0;
+		for (int l : operands) {
+			if(l == -trueLiteral) {
+				return -trueLiteral;
+			}
+			if(l != trueLiteral) {
+				literals[size++] = l;
+			}
+		}
+		if(size == 0) {
+			return trueLiteral;
+		}
+		if(size == 1) {
+			return literals[0];
+		}
+		literals = Arrays.copyOf(literals, size);
+		Arrays.sort(literals);
+		String key = Arrays.toString(literals);
+		Integer gate = gates.get(key);
+		if(gate == null) {
+			gate = solver.newVariable();
+			int[] clause = new int[size + 1];
+			clause[0] = gate;
+			for (int k = 0; k < size; k++) {
+				solver.addClause(-gate, literals[k]);
+				clause[k + 1] = -literals[k];
+			}
+			solver.addClause(clause);
+			gates.put(key, gate);
+		}
+		return gate;
+	}
+
+	private int or(int l1, int l2) {
+		List<Integer> negated = new ArrayList<Integer>();
+		negated.add(-l1);
+		negated.add(-l2);
+		return -and(negated);
+	}
+
+	/**
+	 * Adds a clause, leaving out the literals that are false and the clauses that are true
+	 */
+	private void addClause(int... literals) {
+		int[] clause = new int[literals.length];
+		int size = 0;
+		for (int l : literals) {
+			if(l == trueLiteral) {
+				return;
+			}
+			if(l != -trueLiteral) {
+				clause[size++] = l;
+			}
+		}
+		solver.addClause(Arrays.copyOf(clause, size));
+	}
+
+	private int[] newState() {
+		int[] state = new int[variables.length];
+		for (int i = 0; i < variables.length; i++) {
+			state[i] = solver.newVariable();
+		}
+		return state;
+	}
+
+	/**
+	 * Adds the assumptions that the outcome after step t is the given outcome
+	 */
+	private void assumeOutcome(List<Integer> assumptions, int t, Set<String> outcome) {
+		int[] state = states.get(t);
+		for (int i = 0; i < variables.length; i++) {
+			assumptions.add(outcome.contains(variables[i]) ? state[i] : -state[i]);
+		}
+	}
+
+	/**
+	 * Adds the assumptions that the first k steps form a simple path (each flips to an outcome that differs from the earlier ones)
+	 */
+	private void assumeSimplePath(List<Integer> assumptions, int k) {
+		for (int t = 0; t < k; t++) {
+			assumptions.add(-stays.get(t));
+			assumptions.add(distinct.get(t));
+		}
+	}
+
+	/**
+	 * Returns the outcomes of the first k steps in the model found by the solver, leaving out the steps that keep the outcome
+	 */
+	private OutcomeSequence getPath(int k) {
+		List<Set<String>> outcomes = new ArrayList<Set<String>>();
+		for (int t = 0; t <= k; t++) {
+			Set<String> outcome = getOutcome(states.get(t));
+			if(outcomes.isEmpty() || !outcomes.get(outcomes.size() - 1).equals(outcome)) {
+				outcomes.add(outcome);
+			}
+		}
+		OutcomeSequence path = new OutcomeSequence();
+		path.addOutcomeSequence(outcomes);
+		return path;
+	}
+
+	/**
+	 * Returns the outcome of the SAT variables in the model found by the solver
+	 */
+	private Set<String> getOutcome(int[] state) {
+		Set<String> outcome = new HashSet<String>();
+		for (int i = 0; i < variables.length; i++) {
+			if(solver.getValue(state[i])) {
+				outcome.add(variables[i]);
+			}
+		}
+		return outcome;
+	}
+
+	private static int[] toArray(List<Integer> literals) {
+		int[] array = new int[literals.size()];
+		for (int k = 0; k < array.length; k++) {
+			array[k] = literals.get(k);
+		}
+		return array;
+	}
+}
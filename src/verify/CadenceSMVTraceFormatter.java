@@ -4,8 +4,6 @@ import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
-import java.util.HashSet;
-import java.util.Set;
 
 import model.OutcomeSequence;
 import model.PerformanceRecord;
@@ -25,31 +23,7 @@ public class CadenceSMVTraceFormatter implements TraceFormatter {
 	 * @see verify.TraceFormatter#parseCycleFromTrace(model.PreferenceMetaData)
 	 */
 	public OutcomeSequence parseCycleFromTrace(PreferenceMetaData pmd) throws FileNotFoundException, IOException {
-		BufferedReader reader = new BufferedReader(new FileReader(pmd.getCounterExampleFile()));
-		OutcomeSequence c = new OutcomeSequence();
-		String nextLine = null;
-		Set<String> outcome = new HashSet<String>();
-		boolean loopStarted = false;
-		try{
-		while ((nextLine = reader.readLine())!=null){
-			if (nextLine.indexOf("/* loop begins here") != -1) {
-				loopStarted = true;
-				break;
-			}
-		}
-		
-		if(loopStarted) {
-			while ((nextLine = reader.readLine()) != null) {
-				if (nextLine.indexOf("/* state ") != -1) {
-					outcome = parseOutcome(pmd, reader, nextLine);
-					c.addOutcome(outcome);
-				} else if (nextLine.indexOf("/* loop back to state ") != -1) {
-					break;
-				}
-			}
-		}
-		}finally{reader.close();}
-		return c;
+		return parseOutcomes(pmd, true);
 	}
 
 	/*
@@ -57,20 +31,47 @@ public class CadenceSMVTraceFormatter implements TraceFormatter {
 	 * @see verify.TraceFormatter#parsePathFromTrace(model.PreferenceMetaData)
 	 */
 	public OutcomeSequence parsePathFromTrace(PreferenceMetaData pmd) throws FileNotFoundException, IOException {
+		return parseOutcomes(pmd, false);
+	}
+	
+	/**
+	 * Parses the sequence of outcomes in the states of the trace (up to the line "loop back to state") in a single pass.
+	 * Cadence SMV lists all variables in each state, from the line "state" to the next line starting with "}".
+	 * @param pmd
+	 * @param loopOnly true if only the outcomes in the loop (after "loop begins here") are to be returned
+	 * @return OutcomeSequence of the outcomes in the trace
+	 * @throws IOException
+	 */
+	private OutcomeSequence parseOutcomes(PreferenceMetaData pmd, boolean loopOnly) throws IOException {
+		String[] variables = pmd.getVariables();
+		TraceStateParser parser = new TraceStateParser(variables, false);
+		OutcomeSequence c = new OutcomeSequence(variables);
 		BufferedReader reader = new BufferedReader(new FileReader(pmd.getCounterExampleFile()));
-		OutcomeSequence c = new OutcomeSequence();
 		String nextLine = null;
-		Set<String> outcome = new HashSet<String>();
+		boolean loopStarted = !loopOnly;
+		boolean inState = false;
 		try{
 			while ((nextLine = reader.readLine()) != null) {
-				if (nextLine.indexOf("/* state ") != -1) {
-					outcome = parseOutcome(pmd, reader, nextLine);
-					c.addOutcome(outcome);
+				if(inState) {
+					if(nextLine.startsWith("}")) {
+						inState = false;
+						c.addOutcome(variables, parser.getOutcome());
+					} else {
+						parser.parse(nextLine);
+					}
+				} else if (!loopStarted) {
+					loopStarted = nextLine.indexOf("/* loop begins here") != -1;
+				} else if (nextLine.indexOf("/* state ") != -1) {
+					parser.clear();
+					parser.parse(nextLine);
+					inState = true;
 				} else if (nextLine.indexOf("/* loop back to state ") != -1) {
 					break;
 				}
 			}
-		
+			if(inState) {
+				c.addOutcome(variables, parser.getOutcome());
+			}
 		} finally {
 			reader.close();
 		}
@@ -78,79 +79,36 @@ public class CadenceSMVTraceFormatter implements TraceFormatter {
 	}
 	
 	/**
-	 * Parses and returns an outcome by making delta changes to the previously parsed outcome from the current position of the BufferedReader
+	 * Parses the last state (from the line "state" to the next line starting with "}") in the trace, or the first state if firstStateOnly
 	 * @param pmd
-	 * @param reader
-	 * @param line
-	 * @return
+	 * @param parser Parser indexing the variables to be parsed
+	 * @param firstStateOnly
 	 * @throws IOException
 	 */
-	private Set<String> parseOutcome(PreferenceMetaData pmd, BufferedReader reader, String line) throws IOException {
-		Set<String> outcome = new HashSet<String>();// First state/outcome in the trace
-		
-		do {
-			for (String var : pmd.getVariables()) {
-				if (line.indexOf("\\" + var + "  = ") != -1) {
-					line = line.trim();
-					String varValuation = line.substring(line.indexOf("=") + 2);
-					if (varValuation.startsWith("1") || varValuation.startsWith("TRUE")) {
-						outcome.add(var);
-						// variableAssigned = true;//This means there is a new outcome to be added
-					} else if (varValuation.startsWith("0") || varValuation.startsWith("FALSE")) {
-						outcome.remove(var);
-						// variableAssigned = true;//This means there is a new outcome to be added
-					}
-				}
-			}
-			line = reader.readLine();
-		} while (line != null && !line.startsWith("}"));
-		return outcome;
-	}
-	
-	/**
-	 * Parses and returns an outcome by making delta changes to the previously parsed outcome from the current position of the BufferedReader.
-	 * Takes into account change variables as part of the outcome description.
-	 * @param pmd
-	 * @param reader
-	 * @param line
-	 * @return
-	 * @throws IOException
-	 */
-	private Set<String> parseOutcomeWithChangeVariables(PreferenceMetaData pmd, BufferedReader reader, String line) throws IOException {
-		Set<String> outcome = new HashSet<String>();// First state/outcome in the trace
-		
-		do {
-			for (String var : pmd.getVariables()) {
-				if (line.indexOf("\\" + var + "  = ") != -1) {
-					line = line.trim();
-					String varValuation = line.substring(line.indexOf("=") + 2);
-					if (varValuation.startsWith("1") || varValuation.startsWith("TRUE")) {
-						outcome.add(var);
-						// variableAssigned = true;//This means there is a new outcome to be added
-					} else if (varValuation.startsWith("0") || varValuation.startsWith("FALSE")) {
-						outcome.remove(var);
-						// variableAssigned = true;//This means there is a new outcome to be added
-					}
-				}
-				
-				
-				//Look for change variables
-				if (line.indexOf("\\ch" + var + "  = ") != -1) {
-					line = line.trim();
-					String varValuation = line.substring(line.indexOf("=") + 2);
-					if (varValuation.startsWith("1") || varValuation.startsWith("TRUE")) {
-						outcome.add("ch"+var);
-						// variableAssigned = true;//This means there is a new outcome to be added
-					} else if (varValuation.startsWith("0") || varValuation.startsWith("FALSE")) {
-						outcome.remove("ch"+var);
-						// variableAssigned = true;//This means there is a new outcome to be added
+	private void parseState(PreferenceMetaData pmd, TraceStateParser parser, boolean firstStateOnly) throws IOException {
+		BufferedReader reader = new BufferedReader(new FileReader(pmd.getCounterExampleFile()));
+		String nextLine = "";
+		boolean inState = false;
+		try{
+		while ((nextLine = reader.readLine()) != null) {
+			if(inState) {
+				if(nextLine.startsWith("}")) {
+					inState = false;
+					if(firstStateOnly) {
+						break;
 					}
+					// Otherwise, don't stop with the first outcome in the counter example file. 
+					// If the counter example is a path, we will return the last outcome in the path.  
+				} else {
+					parser.parse(nextLine);
 				}
-				
+			} else if (nextLine.indexOf("/* state ") != -1) {
+				parser.clear();
+				parser.parse(nextLine);
+				inState = true;
 			}
-			line = reader.readLine();
-		} while (line != null && !line.startsWith("}"));
-		return outcome;
+		}
+		}finally{reader.close();}
 	}
 	
 	/*
@@ -158,22 +116,9 @@ public class CadenceSMVTraceFormatter implements TraceFormatter {
 	 * @see verify.TraceFormatter#parseCounterExampleFromTrace(model.PreferenceMetaData)
 	 */
 	public String[] parseCounterExampleFromTrace(PreferenceMetaData pmd, boolean firstStateOnly) throws FileNotFoundException, IOException {
-		Set<String> outcome = new HashSet<String>();// First state/outcome in the trace
-		BufferedReader reader = new BufferedReader(new FileReader(pmd.getCounterExampleFile()));
-		String nextLine = "";
-		try{
-		while ((nextLine = reader.readLine()) != null) {
-			if (nextLine.indexOf("/* state ") != -1) {
-				outcome = parseOutcome(pmd, reader, nextLine);
-				if(firstStateOnly) {
-					break;
-				}
-				// Otherwise, don't stop with the first outcome in the counter example file. 
-				// If the counter example is a path, we will return the last outcome in the path.  
-			}
-		}
-		}finally{reader.close();}
-		return outcome.toArray(new String[]{});
+		TraceStateParser parser = new TraceStateParser(pmd.getVariables(), false);
+		parseState(pmd, parser, firstStateOnly);
+		return parser.getTrueVariables();
 	}
 	
 	/*
@@ -181,19 +126,9 @@ public class CadenceSMVTraceFormatter implements TraceFormatter {
 	 * @see verify.TraceFormatter#parseCounterExampleWithChangeVariablesFromTrace(model.PreferenceMetaData)
 	 */
 	public String[] parseCounterExampleWithChangeVariablesFromTrace(PreferenceMetaData pmd) throws FileNotFoundException, IOException {
-		Set<String> outcome = new HashSet<String>();// First state/outcome in the trace
-		BufferedReader reader = new BufferedReader(new FileReader(pmd.getCounterExampleFile()));
-		String nextLine = "";
-		try{
-		while ((nextLine = reader.readLine()) != null) {
-			if (nextLine.indexOf("/* state ") != -1) {
-				outcome = parseOutcomeWithChangeVariables(pmd, reader, nextLine);
-//				break; // Don't stop with the first outcome in the counter example file. 
-				// If the counter example is a path, we will return the last outcome in the path.  
-			}
-		}
-		}finally{reader.close();}
-		return outcome.toArray(new String[]{});
+		TraceStateParser parser = new TraceStateParser(pmd.getVariables(), true);
+		parseState(pmd, parser, false);
+		return parser.getTrueVariables();
 	}
 	
 	/*
@@ -0,0 +1,236 @@
+package verify;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import model.InducedPreferenceGraph;
+import model.OutcomeSequence;
+import util.LongHashSet;
+
+/**
+ * The levels of the weak order with cycles of an induced preference graph, computed in memory in a single pass over the graph:
+ * the strongly connected components (SCCs, i.e., cycles of outcomes) are found by an iterative version of Tarjan's algorithm,
+ * and each SCC is assigned the length of the longest path from it to a terminal SCC in the condensation (the DAG of the SCCs).
+ * Level 0 holds the outcomes in the terminal SCCs (the non-dominated outcomes and cycles), and level i holds the outcomes in the SCCs that are terminal
+ * once the levels 0 to i-1 are removed, as computed with one model checker run per outcome/cycle by CyclicPreferenceReasoner.nextPreferredWithCycles.
+ * <p>
+ * Tarjan's algorithm emits an SCC only after all the SCCs reachable from it, so the level of an SCC is known when it is emitted
+ * (one more than the greatest level of the SCCs its outcomes flip to). The outcomes are enumerated implicitly (their flips are computed from the
+ * guarded transitions of the model when visited), and one int per outcome holds its low-link while it is being visited and its level thereafter
+ * (the space-efficient variant of Tarjan's algorithm due to Pearce, "A space-efficient algorithm for finding strongly connected components", IPL 2016).
+ * @author gsanthan
+ *
+ */
+public class CondensationLevels {
+
+	/**
+	 * Maximum number of preference variables for which the levels can be computed (one int per outcome is kept in memory)
+	 */
+	public static final int MAX_VARIABLES = 30;
+
+	/**
+	 * Returns the memory (in bytes) needed to compute the levels of a graph over the given number of variables: one int and one bit per outcome, 
+	 * and as much again for the outcomes on the depth-first path and their flips
+	 * @param variables Number of preference variables
+	 * @return Estimated memory in bytes
+	 */
+	public static long getEstimatedMemory(int variables) {
+		long count = 1L << variables;
+		return 2 * (count * 4 + count / 8);
+	}
+
+	/**
+	 * Returns true if the memory estimated for the levels of a graph over the given number of variables (see getEstimatedMemory) 
+	 * is available in the heap of the JVM (up to its maximum size, -Xmx)
+	 * @param variables Number of preference variables
+	 * @return true if the levels can be computed in memory
+	 */
+	public static boolean fitsInMemory(int variables) {
+		Runtime runtime = Runtime.getRuntime();
+		long available = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+		return getEstimatedMemory(variables) <= available;
+	}
+
+	InducedPreferenceGraph graph;
+	/**
+	 * Level of each outcome (-1 for removed outcomes); low-link (DFS index) of the outcomes being visited
+	 */
+	int[] levels;
+	/**
+	 * Outcomes whose SCC has been emitted (or that are removed)
+	 */
+	BitSet completed;
+	/**
+	 * Number of outcomes at each level
+	 */
+	int[] levelSizes;
+
+	/**
+	 * Computes the levels of the outcomes of the graph from which the removed outcomes are deleted
+	 * @param graph Induced preference graph (improving flips)
+	 * @param removed Encoded removed outcomes (e.g., the outcomes of the levels computed earlier)
+	 */
+	public CondensationLevels(InducedPreferenceGraph graph, LongHashSet removed) {
+		this.graph = graph;
+		int n = graph.getVariables().length;
+		if(n > MAX_VARIABLES) {
+			throw new RuntimeException("The levels of the weak order with cycles can be computed in memory for at most "+MAX_VARIABLES+" variables");
+		}
+		int count = 1 << n;
+		levels = new int[count];
+		completed = new BitSet(count);
+		for (int position = 0; position < removed.positions(); position++) {
+			if(removed.isPresent(position) && removed.get(position) < count) {
+				int outcome = (int) removed.get(position);
+				completed.set(outcome);
+				levels[outcome] = -1;
+			}
+		}
+		levelSizes = new int[computeLevels()];
+		for (int outcome = 0; outcome < count; outcome++) {
+			if(levels[outcome] >= 0) {
+				levelSizes[levels[outcome]]++;
+			}
+		}
+	}
+
+	/**
+	 * Visits all outcomes depth first (iteratively), emitting the SCCs and their levels
+	 * @return Number of levels
+	 */
+	private int computeLevels() {
+		int count = levels.length;
+		//Stack of the outcomes being visited, with their flips, the position of the next flip to explore,
+		//whether each is the root of its SCC so far, and the greatest level (+1) of the emitted SCCs it reaches
+		int[] path = new int[64];
+		long[][] successors = new long[64][];
+		int[] positions = new int[64];
+		boolean[] roots = new boolean[64];
+		int[] bounds = new int[64];
+		int depth = 0;
+		//Stack of the visited outcomes that are not roots and whose SCC has not been emitted
+		int[] stack = new int[64];
+		int stackSize = 0;
+		int index = 1;
+		int levelCount = 0;
+		for (int start = 0; start < count; start++) {
+			if(completed.get(start) || levels[start] != 0) {
+				continue;
+			}
+			path[0] = start;
+			successors[0] = graph.getSuccessors(start);
+			positions[0] = 0;
+			roots[0] = true;
+			bounds[0] = 0;
+			levels[start] = index++;
+			depth = 1;
+			while(depth > 0) {
+				int top = depth - 1;
+				int outcome = path[top];
+				if(positions[top] < successors[top].length) {
+					int next = (int) successors[top][positions[top]++];
+					if(completed.get(next)) {
+						//Flip to an outcome in an emitted SCC (or a removed outcome, whose level is -1)
+						bounds[top] = Math.max(bounds[top], levels[next] + 1);
+					} else if(levels[next] == 0) {
+						if(depth == path.length) {
+							int length = path.length * 2;
+							path = Arrays.copyOf(path, length);
+							successors = Arrays.copyOf(successors, length);
+							positions = Arrays.copyOf(positions, length);
+							roots = Arrays.copyOf(roots, length);
+							bounds = Arrays.copyOf(bounds, length);
+						}
+						path[depth] = next;
+						successors[depth] = graph.getSuccessors(next);
+						positions[depth] = 0;
+						roots[depth] = true;
+						bounds[depth] = 0;
+						levels[next] = index++;
+						depth++;
+					} else if(levels[next] < levels[outcome]) {
+						//Flip to an outcome being visited: it is in the same SCC
+						levels[outcome] = levels[next];
+						roots[top] = false;
+					}
+					continue;
+				}
+				//All flips of the outcome have been explored
+				successors[top] = null;
+				depth--;
+				if(roots[top]) {
+					//Emit the SCC: the outcome and the outcomes visited after it that are still on the stack
+					int level = bounds[top];
+					while(stackSize > 0 && levels[stack[stackSize - 1]] >= levels[outcome]) {
+						int member = stack[--stackSize];
+						completed.set(member);
+						levels[member] = level;
+					}
+					completed.set(outcome);
+					levels[outcome] = level;
+					levelCount = Math.max(levelCount, level + 1);
+					if(depth > 0) {
+						bounds[depth - 1] = Math.max(bounds[depth - 1], level + 1);
+					}
+				} else {
+					//The outcome is in the SCC of its parent
+					if(stackSize == stack.length) {
+						stack = Arrays.copyOf(stack, stack.length * 2);
+					}
+					stack[stackSize++] = outcome;
+					int parent = depth - 1;
+					bounds[parent] = Math.max(bounds[parent], bounds[top]);
+					if(levels[outcome] < levels[path[parent]]) {
+						levels[path[parent]] = levels[outcome];
+						roots[parent] = false;
+					}
+				}
+			}
+		}
+		return levelCount;
+	}
+
+	/**
+	 * Returns the number of levels
+	 */
+	public int getLevelCount() {
+		return levelSizes.length;
+	}
+
+	/**
+	 * Returns the outcomes at the level, in the order of their encoding (the levels are not kept as outcome sequences, to save memory)
+	 * @param level
+	 * @return Outcomes at the level; empty if there is no such level
+	 */
+	public OutcomeSequence getLevel(int level) {
+		OutcomeSequence outcomes = new OutcomeSequence(graph.getVariables());
+		if(level >= 0 && level < levelSizes.length) {
+			for (int outcome = 0; outcome < levels.length; outcome++) {
+				if(levels[outcome] == level) {
+					outcomes.addPackedOutcome(outcome);
+				}
+			}
+		}
+		return outcomes;
+	}
+
+	/**
+	 * Returns the number of outcomes at the level
+	 * @param level
+	 */
+	public int getLevelSize(int level) {
+		if(level < 0 || level >= levelSizes.length) {
+			return 0;
+		}
+		return levelSizes[level];
+	}
+
+	/**
+	 * Returns the level of the outcome
+	 * @param outcome Encoded outcome
+	 * @return Level; -1 if the outcome was removed
+	 */
+	public int getLevel(long outcome) {
+		return levels[(int) outcome];
+	}
+}
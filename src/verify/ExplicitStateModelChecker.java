@@ -0,0 +1,271 @@
+package verify;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+
+import model.InducedPreferenceGraph;
+import model.OutcomeSequence;
+import translate.SMVModelParser;
+import util.LongHashSet;
+
+/**
+ * An in-JVM alternative to the external model checker for preference reasoning tasks on small and medium sized preference specifications.
+ * Parses the SMV model once, and then answers queries by an explicit state search over the induced preference graph,
+ * encoding outcomes as bitsets and computing the flips directly from the guarded transitions of the model.
+ * This avoids copying the SMV file, invoking the model checker from the OS shell and parsing its trace for every query.
+ *
+ * @author gsanthan
+ *
+ */
+public class ExplicitStateModelChecker implements ReasoningEngine {
+
+	/**
+	 * Maximum number of preference variables for which the queries that enumerate all outcomes (consistency, next preferred) are supported
+	 */
+	public static final int MAX_ENUMERATED_VARIABLES = 30;
+
+	/**
+	 * The induced preference graph encoded by the SMV model
+	 */
+	InducedPreferenceGraph graph;
+	/**
+	 * Encoded removed outcomes, and the sequence of removed outcomes (and its size) from which they were encoded
+	 */
+	LongHashSet removed = new LongHashSet();
+	OutcomeSequence removedOutcomes;
+	int removedCount;
+
+	/**
+	 * Parses the SMV model in smvFile and prepares the induced preference graph for explicit state search
+	 * @param smvFile
+	 * @throws IOException
+	 */
+	public ExplicitStateModelChecker(String smvFile) throws IOException {
+		this.graph = new InducedPreferenceGraph(SMVModelParser.parse(smvFile));
+	}
+
+	public ExplicitStateModelChecker(InducedPreferenceGraph graph) {
+		this.graph = graph;
+	}
+
+	public InducedPreferenceGraph getGraph() {
+		return graph;
+	}
+
+	/* (non-Javadoc)
+	 * Uses breadth first search, so that the sequence found is one with the least number of flips.
+	 * @see verify.ReasoningEngine#findFlippingSequence(java.util.Set, java.util.Set)
+	 */
+	public OutcomeSequence findFlippingSequence(Set<String> from, Set<String> to) {
+		long source = graph.encode(from);
+		long target = graph.encode(to);
+
+		//Each visited outcome is mapped to the outcome from which it was first reached
+		Map<Long, Long> parent = new HashMap<Long, Long>();
+		ArrayDeque<Long> queue = new ArrayDeque<Long>();
+		parent.put(source, source);
+		queue.add(source);
+		boolean found = false;
+		while(!queue.isEmpty() && !found) {
+			long current = queue.poll();
+			for (long next : graph.getSuccessors(current)) {
+				if(!parent.containsKey(next)) {
+					parent.put(next, current);
+					if(next == target) {
+						found = true;
+						break;
+					}
+					queue.add(next);
+				}
+			}
+		}
+		if(!found) {
+			return null;
+		}
+
+		//Walk back from the target to the source to obtain the flipping sequence
+		LinkedList<Long> path = new LinkedList<Long>();
+		long current = target;
+		path.addFirst(current);
+		while(current != source) {
+			current = parent.get(current);
+			path.addFirst(current);
+		}
+		OutcomeSequence sequence = new OutcomeSequence(graph.getVariables());
+		for (Long outcome : path) {
+			sequence.addPackedOutcome(outcome);
+		}
+		return sequence;
+	}
+
+	/* (non-Javadoc)
+	 * Uses depth first search over all outcomes; a back edge closes a cycle.
+	 * @see verify.ReasoningEngine#findCycle()
+	 */
+	public OutcomeSequence findCycle() {
+		long count = getOutcomeCount();
+		BitSet visited = new BitSet();
+		BitSet onStack = new BitSet();
+		//Stack of the outcomes on the current path of the search, and of the flips of each that are yet to be explored
+		LinkedList<Long> path = new LinkedList<Long>();
+		LinkedList<long[]> successors = new LinkedList<long[]>();
+		LinkedList<Integer> positions = new LinkedList<Integer>();
+		for (long start = 0; start < count; start++) {
+			if(visited.get((int) start)) {
+				continue;
+			}
+			visited.set((int) start);
+			onStack.set((int) start);
+			path.addLast(start);
+			successors.addLast(graph.getSuccessors(start));
+			positions.addLast(0);
+			while(!path.isEmpty()) {
+				long[] next = successors.getLast();
+				int position = positions.removeLast();
+				if(position == next.length) {
+					onStack.clear(path.removeLast().intValue());
+					successors.removeLast();
+					continue;
+				}
+				positions.addLast(position + 1);
+				long outcome = next[position];
+				if(onStack.get((int) outcome)) {
+					//The outcome is on the current path: the path from it to the current outcome and the flip back to it form a cycle
+					OutcomeSequence cycle = new OutcomeSequence(graph.getVariables());
+					boolean inCycle = false;
+					for (Long o : path) {
+						inCycle = inCycle || o == outcome;
+						if(inCycle) {
+							cycle.addPackedOutcome(o);
+						}
+					}
+					return cycle;
+				}
+				if(!visited.get((int) outcome)) {
+					visited.set((int) outcome);
+					onStack.set((int) outcome);
+					path.addLast(outcome);
+					successors.addLast(graph.getSuccessors(outcome));
+					positions.addLast(0);
+				}
+			}
+		}
+		return null;
+	}
+
+	/* (non-Javadoc)
+	 * Enumerates the outcomes in the order of their encoding and returns the first one that has no flip to an outcome that is not removed.
+	 * @see verify.ReasoningEngine#findNonDominatedOutcome(model.OutcomeSequence, model.OutcomeSequence)
+	 */
+	public Set<String> findNonDominatedOutcome(OutcomeSequence removedOutcomes, OutcomeSequence foundOutcomes) {
+		updateRemovedOutcomes(removedOutcomes);
+		LongHashSet found = new LongHashSet();
+		if(foundOutcomes.isPackedOver(graph.getVariables())) {
+			for (long outcome : foundOutcomes.getPackedOutcomes()) {
+				found.add(outcome);
+			}
+		} else {
+			for (Set<String> outcome : foundOutcomes.getOutcomeSequence()) {
+				found.add(graph.encode(outcome));
+			}
+		}
+		long count = getOutcomeCount();
+		for (long outcome = 0; outcome < count; outcome++) {
+			if(removed.contains(outcome) || found.contains(outcome)) {
+				continue;
+			}
+			boolean dominated = false;
+			for (long next : graph.getSuccessors(outcome)) {
+				if(!removed.contains(next)) {
+					dominated = true;
+					break;
+				}
+			}
+			if(!dominated) {
+				return graph.decode(outcome);
+			}
+		}
+		return null;
+	}
+
+	/* (non-Javadoc)
+	 * @see verify.ReasoningEngine#findNonDominatedOutcomes(model.OutcomeSequence, int)
+	 */
+	public OutcomeSequence findNonDominatedOutcomes(OutcomeSequence removedOutcomes, int limit) {
+		updateRemovedOutcomes(removedOutcomes);
+		OutcomeSequence outcomes = new OutcomeSequence(graph.getVariables());
+		long count = getOutcomeCount();
+		for (long outcome = 0; outcome < count && outcomes.getOutcomeSequence().size() < limit; outcome++) {
+			if(removed.contains(outcome)) {
+				continue;
+			}
+			boolean dominated = false;
+			for (long next : graph.getSuccessors(outcome)) {
+				if(!removed.contains(next)) {
+					dominated = true;
+					break;
+				}
+			}
+			if(!dominated) {
+				outcomes.addPackedOutcome(outcome);
+			}
+		}
+		return outcomes;
+	}
+
+	/**
+	 * Computes the levels of the weak order with cycles of the induced preference graph from which the removed outcomes are deleted,
+	 * in a single pass over the graph (see CondensationLevels)
+	 * @param removedOutcomes
+	 * @return Levels of the outcomes
+	 */
+	public CondensationLevels findLevelsWithCycles(OutcomeSequence removedOutcomes) {
+		updateRemovedOutcomes(removedOutcomes);
+		return new CondensationLevels(graph, removed);
+	}
+
+	/**
+	 * Encodes the removed outcomes; only the outcomes added since the last call are encoded, if the same sequence is passed again
+	 * @param removedOutcomes
+	 */
+	private void updateRemovedOutcomes(OutcomeSequence removedOutcomes) {
+		if(removedOutcomes != this.removedOutcomes || removedOutcomes.getOutcomeSequence().size() < removedCount) {
+			this.removedOutcomes = removedOutcomes;
+			removedCount = 0;
+			removed.clear();
+		}
+		if(removedOutcomes.isPackedOver(graph.getVariables())) {
+			long[] packed = removedOutcomes.getPackedOutcomes();
+			for (int i = removedCount; i < packed.length; i++) {
+				removed.add(packed[i]);
+			}
+		} else {
+			Iterator<Set<String>> iterator = removedOutcomes.getOutcomeSequence().iterator();
+			for (int i = 0; iterator.hasNext(); i++) {
+				Set<String> outcome = iterator.next();
+				if(i >= removedCount) {
+					removed.add(graph.encode(outcome));
+				}
+			}
+		}
+		removedCount = removedOutcomes.getOutcomeSequence().size();
+	}
+
+	/**
+	 * Returns the number of outcomes, for the queries that enumerate all outcomes
+	 * @return Number of outcomes
+	 */
+	private long getOutcomeCount() {
+		int n = graph.getVariables().length;
+		if(n > MAX_ENUMERATED_VARIABLES) {
+			throw new RuntimeException("Enumerating all outcomes is supported for at most "+MAX_ENUMERATED_VARIABLES+" variables; use the symbolic engine or the model checker");
+		}
+		return 1L << n;
+	}
+}
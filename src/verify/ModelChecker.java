@@ -6,11 +6,20 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import model.PreferenceMetaData;
-import model.WorkingPreferenceModel;
+import model.VerificationResult;
+import util.Constants;
 import util.FileUtil;
 import util.StringUtil;
 
@@ -27,6 +36,12 @@ import util.StringUtil;
  */
 public class ModelChecker {
 	
+	/**
+	 * Contents of the SMV models streamed to the model checker (indexed by file name), with the time at which each file was last modified when it was read
+	 */
+	static Map<String, List<String>> modelCache = new HashMap<String, List<String>>();
+	static Map<String, Long> modelCacheTimestamps = new HashMap<String, Long>();
+	
 	/**
 	 * Uses the OS shell command to invoke a model checking tool to verify the model given in the smvFile against each spec in specFile using the variable ordering listed in voFile
 	 * Note: The variable ordering file is optional (may be specified as null if none is used) 
@@ -47,13 +62,17 @@ public class ModelChecker {
 		}
 		
 		//Verify each prepared file and save the raw output generated by the model checker 
-		String[] outputFiles = new String[smvFiles.length];
-		for (int i = 0; i < smvFiles.length; i++) {
-			outputFiles[i] = invokeModelChecker(prefMetaData, command, smvFiles[i], voFile);
+		String[] outputFiles;
+		if(specFileName != null) {
+			//Each spec is verified by a separate process (with its own output file); up to MODEL_CHECKER_THREADS processes run concurrently 
+			outputFiles = invokeModelCheckerInParallel(command, smvFiles, voFile);
+		} else {
+			outputFiles = new String[]{invokeModelChecker(prefMetaData, command, smvFileName, voFile)};
 		}
 		
 		//Format results so that list of verification results (true/false) for the specs in specFile can be consolidated and returned as a single file 
-		String formattedOutputFileName = formatNuSMVOutputFiles(outputFiles);
+		String outputFile = prefMetaData.getOutputFile();
+		String formattedOutputFileName = formatNuSMVOutputFiles(outputFiles, outputFile.substring(0, outputFile.length()-15)+"-formatted.txt");
 		//Switch the outputFile to the file that contains the consolidated results for all specs in specFile
 		prefMetaData.setOutputFile(formattedOutputFileName);
 		
@@ -61,6 +80,49 @@ public class ModelChecker {
 		return formattedOutputFileName;
 	}
 	
+	/**
+	 * Verifies each of the smvFiles (each containing the model and a single spec) in a separate model checker process; 
+	 * runs up to Constants.MODEL_CHECKER_THREADS processes concurrently.
+	 * The raw output of each process is saved in its own output file (smvFile + "-output.txt").
+	 * 
+	 * @param command Actual command line (corresponding to the model checker) to be invoked from the OS shell
+	 * @param smvFiles Files to be model-checked
+	 * @param voFile Optional variable ordering file (for custom variable ordering)
+	 * @return Names of the output files, in the same order as smvFiles (irrespective of the order in which the processes finish)
+	 * @throws Exception
+	 */
+	public String[] invokeModelCheckerInParallel(final String command, String[] smvFiles, final String voFile) throws Exception {
+		String[] outputFiles = new String[smvFiles.length];
+		if(smvFiles.length == 0) {
+			return outputFiles;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(Constants.MODEL_CHECKER_THREADS, smvFiles.length)));
+		try {
+			List<Future<String>> results = new ArrayList<Future<String>>();
+			for (int i = 0; i < smvFiles.length; i++) {
+				final String smvFile = smvFiles[i];
+				results.add(executor.submit(new Callable<String>() {
+					public String call() throws Exception {
+						return invokeModelChecker(command, smvFile, voFile, smvFile + "-output.txt");
+					}
+				}));
+			}
+			for (int i = 0; i < smvFiles.length; i++) {
+				try {
+					outputFiles[i] = results.get(i).get();
+				} catch (ExecutionException e) {
+					if(e.getCause() instanceof Exception) {
+						throw (Exception) e.getCause();
+					}
+					throw e;
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		return outputFiles;
+	}
+	
 	/**
 	 * Uses the OS shell command to invoke a model checking tool to verify the model and spec(s) given in the smvFile using the variable ordering listed in voFile.
 	 * Returns the name of the file that stores the raw (console) output generated by the model checker when the model and spec(s) in smvFile are verified.  
@@ -74,6 +136,21 @@ public class ModelChecker {
 	 * @throws Exception
 	 */
 	public String invokeModelChecker(PreferenceMetaData prefMetaData, String command, String smvFile, String voFile) throws Exception {
+		return invokeModelChecker(command, smvFile, voFile, prefMetaData.getOutputFile());
+	}
+	
+	/**
+	 * Uses the OS shell command to invoke a model checking tool to verify the model and spec(s) given in the smvFile using the variable ordering listed in voFile,
+	 * and saves the raw (console) output generated by the model checker in outputFile.
+	 * 
+	 * @param command Actual command line (corresponding to the model checker) to be invoked from the OS shell
+	 * @param smvFile File to be model-checked for the specification given in the same file
+	 * @param voFile Optional variable ordering file (for custom variable ordering)
+	 * @param outputFile File to which the raw output is saved
+	 * @return outputFile
+	 * @throws Exception
+	 */
+	public String invokeModelChecker(String command, String smvFile, String voFile, String outputFile) throws Exception {
 		
 		long timer = System.currentTimeMillis();
 		
@@ -86,7 +163,6 @@ public class ModelChecker {
 		
 		command = command + smvFile ;
 		Process proc =null;
-		String outputFile;
 		try {
 			
 		//Invoke the Command from the OS shell using Java Runtime 
@@ -94,7 +170,6 @@ public class ModelChecker {
 		BufferedReader output = new BufferedReader(new InputStreamReader(proc.getInputStream()));
 		BufferedReader error = new BufferedReader(new InputStreamReader(proc.getErrorStream()));
 		
-		outputFile = prefMetaData.getOutputFile(); 
 		BufferedWriter w = FileUtil.openFile(outputFile); 
 		String nextLine;
 		
@@ -125,6 +200,116 @@ public class ModelChecker {
 		return outputFile;
 	}
 	
+	/**
+	 * Streams the model in smvFile followed by the appendix (constraints and specs) to the standard input of the model checker, 
+	 * and parses its standard output in a single pass; no working copy of the model or output file is written.
+	 * Note: Supported for NuSMV, which reads the model from its standard input when no input file is given. 
+	 * 
+	 * @param command Actual command line (corresponding to the model checker) to be invoked from the OS shell
+	 * @param smvFile File containing the model
+	 * @param appendix Constraints and specs to be verified for the model
+	 * @return Verification result
+	 * @throws IOException
+	 */
+	public VerificationResult invokeModelCheckerStreaming(String command, String smvFile, final List<String> appendix) throws IOException {
+		return invokeModelCheckerStreaming(command, smvFile, appendix, null);
+	}
+	
+	/**
+	 * Streams the model in smvFile followed by the appendix (constraints and specs) to the standard input of the model checker, 
+	 * using the variable ordering listed in voFile, and parses its standard output in a single pass.
+	 * 
+	 * @param command Actual command line (corresponding to the model checker) to be invoked from the OS shell
+	 * @param smvFile File containing the model
+	 * @param appendix Constraints and specs to be verified for the model
+	 * @param voFile Optional variable ordering file (for custom variable ordering)
+	 * @return Verification result
+	 * @throws IOException
+	 */
+	public VerificationResult invokeModelCheckerStreaming(String command, String smvFile, final List<String> appendix, String voFile) throws IOException {
+		long timer = System.currentTimeMillis();
+		final List<String> model = readModel(smvFile);
+		
+		List<String> commandLine = new ArrayList<String>();
+		for (String token : command.trim().split("\\s+")) {
+			commandLine.add(token);
+		}
+		//Report the resources used, so that they can be recorded in the result
+		commandLine.add("-r");
+		if(voFile != null && voFile.trim().length()!=0) {
+			commandLine.add("-i");
+			commandLine.add(voFile);
+		}
+		ProcessBuilder builder = new ProcessBuilder(commandLine);
+		builder.redirectErrorStream(true);
+		final Process proc = builder.start();
+		VerificationResult result;
+		try {
+			//Write the model and appendix in a separate thread, so that the model checker never blocks on a full output pipe while the input is written
+			final IOException[] writeError = new IOException[1];
+			Thread writer = new Thread() {
+				public void run() {
+					try {
+						BufferedWriter w = new BufferedWriter(new OutputStreamWriter(proc.getOutputStream()));
+						for (String line : model) {
+							FileUtil.writeLineToFile(w, line);
+						}
+						for (String a : appendix) {
+							FileUtil.writeLineToFile(w, "");
+							FileUtil.writeLineToFile(w, a);
+						}
+						FileUtil.closeFile(w);
+					} catch (IOException e) {
+						writeError[0] = e;
+					}
+				}
+			};
+			writer.start();
+			result = VerificationResult.parse(new BufferedReader(new InputStreamReader(proc.getInputStream())));
+			try {
+				writer.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if(writeError[0] != null && result.isVerified() == null) {
+				throw writeError[0];
+			}
+		} finally {
+			proc.getInputStream().close();
+			proc.getOutputStream().close();
+			proc.getErrorStream().close();
+			proc.destroy();
+		}
+		result.setElapsedTime(System.currentTimeMillis() - timer);
+		return result;
+	}
+	
+	/**
+	 * Returns the lines of the SMV model in smvFile; the file is read again only if it was modified since it was last read
+	 * @param smvFile
+	 * @return Lines of the model
+	 * @throws IOException
+	 */
+	private static synchronized List<String> readModel(String smvFile) throws IOException {
+		long lastModified = new File(smvFile).lastModified();
+		List<String> model = modelCache.get(smvFile);
+		if(model == null || modelCacheTimestamps.get(smvFile) != lastModified) {
+			model = new ArrayList<String>();
+			BufferedReader r = FileUtil.openFileForRead(smvFile);
+			try {
+				String nextLine;
+				while((nextLine = r.readLine()) != null) {
+					model.add(nextLine);
+				}
+			} finally {
+				r.close();
+			}
+			modelCache.put(smvFile, model);
+			modelCacheTimestamps.put(smvFile, lastModified);
+		}
+		return model;
+	}
+	
 	/**
 	 * Prepares multiple specs for verification against the model in smvFile.
 	 * Makes a copy of the original smv file for each spec in specFile; then adds the spec to this copy; 
@@ -198,10 +383,24 @@ public class ModelChecker {
 	 * @throws IOException
 	 */
 	public String formatNuSMVOutputFiles(String[] outputFileNames) throws IOException {
+		String formattedOutputFileName = outputFileNames[0].substring(0, outputFileNames[0].length()-15)+"-formatted.txt";
+		return formatNuSMVOutputFiles(outputFileNames, formattedOutputFileName);
+	}
+	
+	/**
+	 * Extracts the verification results (true/false) from the raw outputs generated from multiple verification runs.
+	 * Verification results are enumerated in the order of outputFileNames (i.e., the order of the specs), 
+	 * irrespective of the order in which the verification runs finished, and saved in formattedOutputFileName.  
+	 * 
+	 * @param outputFileNames
+	 * @param formattedOutputFileName
+	 * @return formattedOutputFileName 
+	 * @throws IOException
+	 */
+	public String formatNuSMVOutputFiles(String[] outputFileNames, String formattedOutputFileName) throws IOException {
 		float cumulatedProcTime = 0;
 		String procTimes = "";
 		
-		String formattedOutputFileName = outputFileNames[0].substring(0, outputFileNames[0].length()-15)+"-formatted.txt";
 		BufferedWriter w = FileUtil.openFile(formattedOutputFileName);
 		int lineNum = 0;
 		for (int i = 0; i < outputFileNames.length; i++) {
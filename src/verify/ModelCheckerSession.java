@@ -0,0 +1,215 @@
+package verify;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import model.VerificationResult;
+
+/**
+ * A model checker (NuSMV) process running in interactive mode for a single model.
+ * The model is read, flattened, encoded and built only once, when the session is started;
+ * each verification afterwards only sends the check_ctlspec/check_ltlspec commands over the standard input of the process
+ * and parses the results from its standard output (in memory), instead of starting a new process (and encoding the model again) for every query.
+ * The end of the output of each command is detected by an echo command that prints a marker line.
+ * Note: Sessions are not thread-safe; a session is used by one verification at a time.
+ * @author gsanthan
+ *
+ */
+public class ModelCheckerSession {
+
+	/**
+	 * Prompt printed by NuSMV in interactive mode before reading a command
+	 */
+	public static final String PROMPT = "NuSMV > ";
+	/**
+	 * Line printed (by the echo command) after the output of each command
+	 */
+	public static final String END_OF_OUTPUT_MARKER = "__IPREFR_END_OF_OUTPUT__";
+
+	/**
+	 * Name of file containing the model (including any constraints) read by the session
+	 */
+	String modelFile;
+	/**
+	 * Constraints (e.g., INVAR) that were appended to the model before it was read
+	 */
+	List<String> constraints;
+	Process process;
+	BufferedWriter input;
+	BufferedReader output;
+
+	/**
+	 * Starts the model checker in interactive mode and builds the model in modelFile
+	 * @param command Command line used to invoke the model checker (without the model file)
+	 * @param modelFile Name of file containing the model
+	 * @param constraints Constraints that were appended to the model in modelFile
+	 * @throws IOException If the model checker cannot be started or reports an error while building the model
+	 */
+	public ModelCheckerSession(String command, String modelFile, List<String> constraints) throws IOException {
+		this(command, modelFile, constraints, null);
+	}
+
+	/**
+	 * Starts the model checker in interactive mode and builds the model in modelFile using the variable ordering listed in voFile
+	 * @param command Command line used to invoke the model checker (without the model file)
+	 * @param modelFile Name of file containing the model
+	 * @param constraints Constraints that were appended to the model in modelFile
+	 * @param voFile Optional variable ordering file (for custom variable ordering)
+	 * @throws IOException If the model checker cannot be started or reports an error while building the model
+	 */
+	public ModelCheckerSession(String command, String modelFile, List<String> constraints, String voFile) throws IOException {
+		this.modelFile = modelFile;
+		this.constraints = new ArrayList<String>(constraints);
+
+		List<String> commandLine = new ArrayList<String>();
+		for (String token : command.trim().split("\\s+")) {
+			commandLine.add(token);
+		}
+		commandLine.add("-int");
+		ProcessBuilder builder = new ProcessBuilder(commandLine);
+		builder.redirectErrorStream(true);
+		process = builder.start();
+		input = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()));
+		output = new BufferedReader(new InputStreamReader(process.getInputStream()));
+
+		//Skip the banner, then read, flatten, encode and build the model once for all later queries
+		execute(null);
+		List<String> commands = new ArrayList<String>();
+		commands.add("read_model -i " + modelFile);
+		commands.add("flatten_hierarchy");
+		if(voFile != null) {
+			//The ordering is read when the variables are encoded
+			commands.add("set input_order_file " + voFile);
+		}
+		commands.add("encode_variables");
+		commands.add("build_model");
+		for (String c : commands) {
+			List<String> lines = execute(c);
+			for (String line : lines) {
+				if(line.contains("ERROR") || line.contains("rror:")) {
+					close();
+					throw new IOException("Error in building the model " + modelFile + " in the model checker session: " + line);
+				}
+			}
+		}
+	}
+
+	public String getModelFile() {
+		return modelFile;
+	}
+
+	public List<String> getConstraints() {
+		return constraints;
+	}
+
+	/**
+	 * Returns true if the model checker process of the session is still running
+	 * @return true if the session can be used for verification
+	 */
+	public boolean isAlive() {
+		if(process == null) {
+			return false;
+		}
+		try {
+			process.exitValue();
+			return false;
+		} catch (IllegalThreadStateException e) {
+			return true;
+		}
+	}
+
+	/**
+	 * Verifies the specs (SPEC or LTLSPEC lines, as generated by SpecHelper) against the model of the session,
+	 * and parses the output of the model checker (verification results and counter examples), which has the same format as the output of a batch run.
+	 *
+	 * @param specs Specs to be verified
+	 * @return Verification result
+	 * @throws IOException If the session has terminated
+	 */
+	public VerificationResult verify(List<String> specs) throws IOException {
+		long timer = System.currentTimeMillis();
+		VerificationResult result = new VerificationResult();
+		for (String spec : specs) {
+			for (String line : execute(getCheckCommand(spec))) {
+				result.addLine(line);
+			}
+		}
+		result.setElapsedTime(System.currentTimeMillis() - timer);
+		return result;
+	}
+
+	/**
+	 * Returns the interactive command that checks the spec
+	 * @param spec SPEC or LTLSPEC line
+	 * @return check_ctlspec or check_ltlspec command
+	 */
+	private String getCheckCommand(String spec) {
+		spec = spec.trim();
+		if(spec.startsWith("LTLSPEC")) {
+			return "check_ltlspec -p \"" + spec.substring("LTLSPEC".length()).trim() + "\"";
+		} else if(spec.startsWith("SPEC")) {
+			return "check_ctlspec -p \"" + spec.substring("SPEC".length()).trim() + "\"";
+		}
+		throw new RuntimeException("Unsupported specification for model checker session: " + spec);
+	}
+
+	/**
+	 * Sends the command to the model checker and returns its output
+	 * @param command Command to be executed; null to only read the output until the marker
+	 * @return Lines of output (without the prompt)
+	 * @throws IOException If the session has terminated
+	 */
+	private List<String> execute(String command) throws IOException {
+		if(command != null) {
+			input.write(command);
+			input.newLine();
+		}
+		input.write("echo " + END_OF_OUTPUT_MARKER);
+		input.newLine();
+		input.flush();
+
+		List<String> lines = new ArrayList<String>();
+		String nextLine;
+		while((nextLine = output.readLine()) != null) {
+			while(nextLine.startsWith(PROMPT)) {
+				nextLine = nextLine.substring(PROMPT.length());
+			}
+			if(nextLine.contains(END_OF_OUTPUT_MARKER)) {
+				return lines;
+			}
+			lines.add(nextLine);
+		}
+		close();
+		throw new IOException("Model checker session for " + modelFile + " terminated unexpectedly: " + lines);
+	}
+
+	/**
+	 * Quits the model checker and releases the streams of the process
+	 */
+	public void close() {
+		if(process == null) {
+			return;
+		}
+		try {
+			input.write("quit");
+			input.newLine();
+			input.flush();
+		} catch (IOException e) {
+			//The process has already terminated
+		}
+		try {
+			process.getInputStream().close();
+			process.getOutputStream().close();
+			process.getErrorStream().close();
+		} catch (IOException e) {
+			//Nothing more to release
+		}
+		process.destroy();
+		process = null;
+	}
+}
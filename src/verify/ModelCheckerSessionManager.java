@@ -0,0 +1,164 @@
+package verify;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import model.PreferenceMetaData;
+import util.Constants;
+import util.FileUtil;
+
+/**
+ * Keeps one interactive model checker session (see ModelCheckerSession) per SMV model and workspace (see util.WorkspaceManager), 
+ * so that the model is encoded once and reused by all queries.
+ * Constraints such as the INVAR used to remove outcomes are part of the model and cannot be changed after the model is built:
+ * a session is reused while the constraints stay the same (e.g., all the next preferred queries at one level of the weak order),
+ * and is restarted with the new constraints otherwise.
+ * If workspaces are enabled, every reasoner has its own session (whose copy of the model is written to the workspace of the reasoner), 
+ * so that reasoners on the same model with different constraints do not restart each other's session; 
+ * otherwise, the reasoners on a model share one session (and one copy of the model, next to the model).
+ * The sessions of a reasoner are closed when the reasoner is closed, and all the sessions are closed when the JVM shuts down.
+ * @author gsanthan
+ *
+ */
+public class ModelCheckerSessionManager {
+
+	/**
+	 * Open sessions, indexed by the name of the SMV file of the model and the workspace (see getKey)
+	 */
+	static Map<String, ModelCheckerSession> sessions = new HashMap<String, ModelCheckerSession>();
+	/**
+	 * Locks held while a session is (re)started and used for verification, indexed like the sessions
+	 */
+	static Map<String, Object> locks = new HashMap<String, Object>();
+
+	static {
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			public void run() {
+				closeAllSessions();
+			}
+		});
+	}
+
+	/**
+	 * Returns true if the queries can be verified in interactive sessions with the current model checker and configuration
+	 * @return true if sessions are enabled and supported
+	 */
+	public static boolean isSessionSupported() {
+		//Cadence SMV has no interactive mode
+		return Constants.USE_MODEL_CHECKER_SESSIONS && Constants.CURRENT_MODEL_CHECKER == Constants.MODEL_CHECKER.NuSMV;
+	}
+
+	/**
+	 * Returns the lock to be held while getting and using the session of the model and workspace of prefMetaData, 
+	 * so that concurrent reasoners sharing the session neither interleave their commands nor restart the session while it is used
+	 * @param prefMetaData Metadata of the model (and workspace) of the reasoner
+	 * @return Lock for the session
+	 */
+	public static synchronized Object getLock(PreferenceMetaData prefMetaData) {
+		String key = getKey(prefMetaData);
+		Object lock = locks.get(key);
+		if(lock == null) {
+			lock = new Object();
+			locks.put(key, lock);
+		}
+		return lock;
+	}
+
+	/**
+	 * Returns the session for the model and workspace of prefMetaData with the given constraints; 
+	 * starts a new session (and closes the previous session of the model and workspace) if needed
+	 * @param prefMetaData Metadata of the model (and workspace) of the reasoner
+	 * @param constraints Constraints (e.g., INVAR) to be appended to the model
+	 * @return Session in which the model with the constraints has been built
+	 * @throws IOException If the session cannot be started
+	 */
+	public static synchronized ModelCheckerSession getSession(PreferenceMetaData prefMetaData, List<String> constraints) throws IOException {
+		String key = getKey(prefMetaData);
+		String smvFile = prefMetaData.getSmvFile();
+		ModelCheckerSession session = sessions.get(key);
+		if(session != null && session.isAlive() && session.getConstraints().equals(constraints)) {
+			return session;
+		}
+		if(session != null) {
+			session.close();
+			sessions.remove(key);
+		}
+
+		//The session reads a copy of the model to which the constraints are appended
+		String modelFile = getModelFile(prefMetaData);
+		File model = new File(modelFile);
+		model.delete();
+		FileUtil.copyFile(new File(smvFile), model);
+		if(!constraints.isEmpty()) {
+			BufferedWriter w = FileUtil.openFileForAppend(modelFile);
+			try {
+				for (String constraint : constraints) {
+					FileUtil.writeLineToFile(w, "");
+					FileUtil.writeLineToFile(w, constraint);
+				}
+			} finally {
+				FileUtil.closeFile(w);
+			}
+		}
+
+		String voFile = null;
+		if(VariableOrdering.isVariableOrderingSupported()) {
+			voFile = VariableOrdering.getOrderFile(smvFile);
+		}
+		session = new ModelCheckerSession(ModelCheckerTuner.getCommand(smvFile), modelFile, constraints, voFile);
+		sessions.put(key, session);
+		return session;
+	}
+
+	/**
+	 * Closes the session of the model and workspace of prefMetaData (if any)
+	 * @param prefMetaData
+	 */
+	public static synchronized void closeSession(PreferenceMetaData prefMetaData) {
+		String key = getKey(prefMetaData);
+		ModelCheckerSession session = sessions.remove(key);
+		if(prefMetaData.getWorkspaceDirectory() != null) {
+			//Only the reasoner of the workspace uses (and locks) its session
+			locks.remove(key);
+		}
+		if(session != null) {
+			session.close();
+		}
+	}
+
+	/**
+	 * Returns the key of the session of the model and workspace of prefMetaData
+	 */
+	static String getKey(PreferenceMetaData prefMetaData) {
+		if(prefMetaData.getWorkspaceDirectory() == null) {
+			return prefMetaData.getSmvFile();
+		}
+		return prefMetaData.getSmvFile() + File.pathSeparator + prefMetaData.getWorkspaceDirectory();
+	}
+
+	/**
+	 * Returns the name of the copy of the model read by the session: in the workspace of prefMetaData, if any; next to the model otherwise
+	 */
+	static String getModelFile(PreferenceMetaData prefMetaData) {
+		String smvFile = prefMetaData.getSmvFile();
+		if(prefMetaData.getWorkspaceDirectory() == null) {
+			return smvFile + "-session.smv";
+		}
+		return new File(prefMetaData.getWorkspaceDirectory(), new File(smvFile).getName() + "-session.smv").getPath();
+	}
+
+	/**
+	 * Closes all the open sessions
+	 */
+	public static synchronized void closeAllSessions() {
+		for (ModelCheckerSession session : new ArrayList<ModelCheckerSession>(sessions.values())) {
+			session.close();
+		}
+		sessions.clear();
+	}
+}
@@ -0,0 +1,356 @@
+package verify;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+import model.PreferenceMetaData;
+import util.Constants;
+import util.FileUtil;
+import util.OutcomeFormatter;
+import util.WorkspaceManager;
+
+/**
+ * Tunes the options of the model checker (NuSMV) for each model.
+ * A short calibration suite of queries (consistency, next preferred and dominance) is verified for the model with each option profile,
+ * which differ in dynamic reordering of the BDD variables, cone of influence reduction and the partitioning of the transition relation;
+ * the profile that verifies the suite fastest (with the same results as the default options) is used for all later queries on the model.
+ * <p>
+ * The winning profile is persisted in a sidecar file next to the SMV file (smvFile + "-profile.properties"), keyed by the content hash of the model,
+ * so that the calibration is run again only if the model is modified.
+ * Several JVMs may tune the same model: the calibration runs on uniquely named working files (in a workspace of its own, if workspaces are enabled),
+ * and the sidecar file is published by renaming a temporary file, so that it is never read half written.
+ * Note: Bounded model checking is not among the profiles, since it can only refute the specs within a bound, and does not decide the CTL specs of the queries.
+ * @author gsanthan
+ *
+ */
+public class ModelCheckerTuner {
+
+	/**
+	 * Options of the model checker, named for the sidecar file
+	 * @author gsanthan
+	 *
+	 */
+	public static class Profile {
+		String name;
+		String options;
+
+		public Profile(String name, String options) {
+			this.name = name;
+			this.options = options;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getOptions() {
+			return options;
+		}
+
+		/**
+		 * Returns the command line of the model checker with the options of the profile
+		 * @param command Command line used to invoke the model checker (without options)
+		 */
+		public String getCommand(String command) {
+			if(options.length() == 0) {
+				return command;
+			}
+			return command.trim() + " " + options + " ";
+		}
+	}
+
+	/**
+	 * Option profiles calibrated for each model; the first profile (default options) is the reference for the results of the calibration suite
+	 */
+	public static final Profile[] PROFILES = new Profile[]{
+		new Profile("default", ""),
+		new Profile("dynamic", "-dynamic"),
+		new Profile("coi", "-coi"),
+		new Profile("dynamic-coi", "-dynamic -coi"),
+		new Profile("monolithic", "-mono"),
+		new Profile("threshold", "-thresh 1000"),
+		new Profile("iwls95", "-iwls95 1000")
+	};
+
+	/**
+	 * Number of dominance queries (between pseudo-random outcomes) in the calibration suite
+	 */
+	public static final int CALIBRATION_DOMINANCE_QUERIES = 3;
+
+	/**
+	 * Profiles of the models tuned so far (indexed by content hash of the model)
+	 */
+	static Map<String, Profile> profiles = new HashMap<String, Profile>();
+	/**
+	 * Content hashes of the models (indexed by file name), with the time at which each file was last modified when it was hashed
+	 */
+	static Map<String, String> contentHashes = new HashMap<String, String>();
+	static Map<String, Long> contentHashTimestamps = new HashMap<String, Long>();
+
+	/**
+	 * Returns true if the options of the model checker are tuned for each model (NuSMV only) and autotuning is enabled
+	 */
+	public static boolean isAutotuningSupported() {
+		return Constants.USE_MODEL_CHECKER_AUTOTUNING && Constants.CURRENT_MODEL_CHECKER == Constants.MODEL_CHECKER.NuSMV;
+	}
+
+	/**
+	 * Returns the command line used to invoke the model checker for the model in smvFile:
+	 * Constants.SMV_EXEC_COMMAND with the options of the profile tuned for the model, if autotuning is enabled.
+	 * The model is calibrated when it is first verified (unless its profile has been persisted).
+	 * @param smvFile Name of file containing the SMV model
+	 * @return Command line (without the model file)
+	 */
+	public static String getCommand(String smvFile) {
+		if(!isAutotuningSupported()) {
+			return Constants.SMV_EXEC_COMMAND;
+		}
+		try {
+			return getProfile(smvFile).getCommand(Constants.SMV_EXEC_COMMAND);
+		} catch (IOException e) {
+			//Fall back to the options given in model_checker_command
+			System.out.println(e.getMessage());
+			return Constants.SMV_EXEC_COMMAND;
+		}
+	}
+
+	/**
+	 * Returns the profile tuned for the model in smvFile; reads the profile from the sidecar file of the model, or calibrates the model if the sidecar file
+	 * has no profile for the current contents of the model
+	 * @param smvFile Name of file containing the SMV model
+	 * @return Fastest profile for the model
+	 * @throws IOException
+	 */
+	public static synchronized Profile getProfile(String smvFile) throws IOException {
+		String hash = getContentHash(smvFile);
+		Profile profile = profiles.get(hash);
+		if(profile != null) {
+			return profile;
+		}
+		String sidecarFile = smvFile + "-profile.properties";
+		Properties sidecar = new Properties();
+		if(new File(sidecarFile).exists()) {
+			InputStream in = new FileInputStream(sidecarFile);
+			try {
+				sidecar.load(in);
+			} finally {
+				in.close();
+			}
+			profile = getProfileByName(sidecar.getProperty(hash));
+		}
+		if(profile == null) {
+			profile = calibrate(smvFile);
+			publishProfile(smvFile, sidecarFile, hash, profile);
+		}
+		profiles.put(hash, profile);
+		return profile;
+	}
+
+	/**
+	 * Adds the profile of the model to the sidecar file: the sidecar file is read again (it may have been updated by another JVM while the model was calibrated),
+	 * written to a temporary file in the same directory, and renamed to the sidecar file
+	 * @param smvFile Name of file containing the SMV model
+	 * @param sidecarFile Name of the sidecar file
+	 * @param hash Content hash of the model
+	 * @param profile Profile tuned for the model
+	 * @throws IOException
+	 */
+	private static void publishProfile(String smvFile, String sidecarFile, String hash, Profile profile) throws IOException {
+		File sidecar = new File(sidecarFile).getAbsoluteFile();
+		Properties properties = new Properties();
+		if(sidecar.exists()) {
+			InputStream in = new FileInputStream(sidecar);
+			try {
+				properties.load(in);
+			} finally {
+				in.close();
+			}
+		}
+		properties.setProperty(hash, profile.getName());
+		File temporary = File.createTempFile(sidecar.getName() + ".", ".tmp", sidecar.getParentFile());
+		try {
+			OutputStream out = new FileOutputStream(temporary);
+			try {
+				properties.store(out, "Model checker profiles tuned for " + new File(smvFile).getName() + " (by content hash of the model)");
+			} finally {
+				out.close();
+			}
+			Files.move(temporary.toPath(), sidecar.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			temporary.delete();
+		}
+	}
+
+	/**
+	 * Returns the profile with the given name
+	 * @param name
+	 * @return Profile; null if there is no such profile
+	 */
+	public static Profile getProfileByName(String name) {
+		for (Profile profile : PROFILES) {
+			if(profile.getName().equals(name)) {
+				return profile;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the content hash of the model in smvFile; the file is hashed again only if it was modified since it was last hashed
+	 * @param smvFile
+	 * @return Content hash of the model
+	 * @throws IOException
+	 */
+	private static String getContentHash(String smvFile) throws IOException {
+		long lastModified = new File(smvFile).lastModified();
+		String hash = contentHashes.get(smvFile);
+		if(hash == null || contentHashTimestamps.get(smvFile) != lastModified) {
+			hash = FileUtil.getContentHash(smvFile);
+			contentHashes.put(smvFile, hash);
+			contentHashTimestamps.put(smvFile, lastModified);
+		}
+		return hash;
+	}
+
+	/**
+	 * Verifies the calibration suite for the model with each profile, and returns the profile that verifies it fastest.
+	 * A profile is dropped as soon as it takes longer than the fastest profile so far, or if it does not give the same results as the default options.
+	 * @param smvFile Name of file containing the SMV model
+	 * @return Fastest profile for the model
+	 * @throws IOException If the calibration suite cannot be verified with the default options
+	 */
+	public static Profile calibrate(String smvFile) throws IOException {
+		PreferenceMetaData prefMetaData = new PreferenceMetaData(smvFile);
+		List<String> suite = getCalibrationSuite(prefMetaData.getVariables());
+		String voFile = VariableOrdering.isVariableOrderingSupported() ? VariableOrdering.getOrderFile(smvFile) : null;
+		//Uniquely named working files, so that concurrent calibrations of the model do not overwrite each other's files
+		File model = new File(smvFile).getAbsoluteFile();
+		File workspace = WorkspaceManager.isEnabled() ? WorkspaceManager.createWorkspace(model.getName() + "-tune") : null;
+		String workingFile = File.createTempFile(model.getName() + "-tune.", ".smv", workspace != null ? workspace : model.getParentFile()).getPath();
+		String outputFile = workingFile + "-output.txt";
+
+		Profile best = null;
+		long bestTime = Long.MAX_VALUE;
+		Boolean[] reference = null;
+		try {
+			for (Profile profile : PROFILES) {
+				long time = 0;
+				Boolean[] results = new Boolean[suite.size()];
+				for (int i = 0; i < suite.size() && results != null && time <= bestTime; i++) {
+					long timer = System.currentTimeMillis();
+					results[i] = verify(profile.getCommand(Constants.SMV_EXEC_COMMAND), smvFile, suite.get(i), voFile, workingFile, outputFile);
+					time += System.currentTimeMillis() - timer;
+					if(results[i] == null || (reference != null && !results[i].equals(reference[i]))) {
+						results = null;
+					}
+				}
+				if(reference == null) {
+					if(results == null) {
+						throw new IOException("The calibration suite cannot be verified for " + smvFile + " with the options of model_checker_command");
+					}
+					reference = results;
+				}
+				if(results != null && time < bestTime) {
+					best = profile;
+					bestTime = time;
+				}
+				if(Constants.LOG_VERIFICATION_SPECS) {
+					System.out.println("   Profile " + profile.getName() + ": " + (results == null ? "dropped" : (time > bestTime ? "stopped after " : "") + time + " ms"));
+				}
+			}
+		} finally {
+			new File(workingFile).delete();
+			new File(outputFile).delete();
+			if(workspace != null) {
+				WorkspaceManager.releaseWorkspace(workspace);
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Returns the specs of the calibration suite: consistency, the next preferred outcome (of the whole induced preference graph),
+	 * and dominance between pseudo-random outcomes (the same for all profiles)
+	 * @param variables Preference variables of the model
+	 * @return Specs to be verified
+	 */
+	private static List<String> getCalibrationSuite(String[] variables) {
+		List<String> suite = new ArrayList<String>();
+		suite.add(SpecHelper.getLTLSpec("F G (gch=0)", "consistency", "consistency: no cycle in the induced preference graph"));
+		suite.add(SpecHelper.getCTLSpec("EF (gch=1)", "topElement", "top element (non-dominated)"));
+		Random random = new Random(variables.length);
+		for (int q = 0; q < CALIBRATION_DOMINANCE_QUERIES; q++) {
+			String worse = OutcomeFormatter.formatOutcome(variables, getRandomOutcome(variables, random));
+			String better = OutcomeFormatter.formatOutcome(variables, getRandomOutcome(variables, random));
+			suite.add(SpecHelper.getCTLSpec("(" + worse + " & " + SpecHelper.getInitChangeVariablesCondition(variables) + " -> EX EF (" + better + ")) ", "dominance", "dominance"));
+		}
+		return suite;
+	}
+
+	/**
+	 * Returns the names of the variables with valuation 1 in a pseudo-random outcome
+	 * @param variables
+	 * @param random
+	 */
+	private static String[] getRandomOutcome(String[] variables, Random random) {
+		List<String> outcome = new ArrayList<String>();
+		for (String variable : variables) {
+			if(random.nextBoolean()) {
+				outcome.add(variable);
+			}
+		}
+		return outcome.toArray(new String[outcome.size()]);
+	}
+
+	/**
+	 * Verifies the spec for the model in a batch run of the model checker
+	 * @param command Command line of the model checker with the options of a profile
+	 * @param smvFile Name of file containing the SMV model
+	 * @param spec
+	 * @param voFile Optional variable ordering file
+	 * @param workingFile Copy of the model to which the spec is appended
+	 * @param outputFile File to which the output of the model checker is saved
+	 * @return Verification result; null if the output of the model checker has no result (e.g., the options are not supported)
+	 * @throws IOException
+	 */
+	private static Boolean verify(String command, String smvFile, String spec, String voFile, String workingFile, String outputFile) throws IOException {
+		File working = new File(workingFile);
+		working.delete();
+		FileUtil.copyFile(new File(smvFile), working);
+		FileUtil.appendLineToFile(workingFile, "");
+		FileUtil.appendLineToFile(workingFile, spec);
+		try {
+			new ModelChecker().invokeModelChecker(command, workingFile, voFile, outputFile);
+		} catch (Exception e) {
+			return null;
+		}
+		BufferedReader r = FileUtil.openFileForRead(outputFile);
+		try {
+			String nextLine;
+			while((nextLine = r.readLine()) != null) {
+				if(nextLine.startsWith("-- specification") && nextLine.endsWith("true")) {
+					return true;
+				} else if(nextLine.startsWith("-- specification") && nextLine.endsWith("false")) {
+					return false;
+				}
+			}
+		} finally {
+			r.close();
+		}
+		return null;
+	}
+}
@@ -6,12 +6,13 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import exception.PreferenceReasonerException;
 
 import model.PreferenceMetaData;
-import model.WorkingPreferenceModel;
+import model.VerificationResult;
 
 import util.Constants;
 import util.FileUtil;
@@ -30,11 +31,38 @@ public class ModelCheckingDelegate {
 	 * @param prefMetaData 
 	 * @param appendix List of constraints and specifications to be appended to the model before verification
 	 * @param property Name of the property verified   
-	 * @return Name of the output file
+	 * @return Name of the output file (not written if the output is kept in memory as prefMetaData.getVerificationResult())
 	 * @throws IOException
 	 * @throws PreferenceReasonerException 
 	 */
 	public static String verify(PreferenceMetaData prefMetaData, List<String> appendix, String property) throws IOException, PreferenceReasonerException {
+		prefMetaData.setVerificationResult(null);
+		if(ModelCheckerSessionManager.isSessionSupported()) {
+			try {
+				prefMetaData.setVerificationResult(verifyInSession(prefMetaData, appendix));
+				return prefMetaData.getOutputFile();
+			} catch (IOException e) {
+				//Fall back to a batch run of the model checker
+				System.out.println(e.getMessage());
+				ModelCheckerSessionManager.closeSession(prefMetaData);
+			}
+		}
+		
+		String voFile = getOrderFile(prefMetaData);
+		String command = ModelCheckerTuner.getCommand(prefMetaData.getSmvFile());
+		if(isStreamingSupported()) {
+			//Stream the model and appendix to the model checker and keep its output in memory
+			try {
+				ModelChecker invoke = new ModelChecker();
+				prefMetaData.setVerificationResult(invoke.invokeModelCheckerStreaming(command, prefMetaData.getSmvFile(), appendix, voFile));
+			} catch (IOException e) {
+				e.printStackTrace();
+				System.out.println();
+				throw new PreferenceReasonerException("INVALID_MODELCHECKER_COMMAND");
+			}
+			return prefMetaData.getOutputFile();
+		}
+		
 		String smvFile = prefMetaData.getSmvFile();
 		String workingFile = prefMetaData.getWorkingFile();
 		
@@ -78,7 +106,7 @@ public class ModelCheckingDelegate {
 		String outputFile = new String();
 		try {
 			ModelChecker invoke = new ModelChecker();
-			outputFile = invoke.invokeModelChecker(prefMetaData, Constants.SMV_EXEC_COMMAND, workingFile, null);
+			outputFile = invoke.invokeModelChecker(prefMetaData, command, workingFile, voFile);
 		} catch (Exception e) {
 			e.printStackTrace();
 			System.out.println();
@@ -88,6 +116,50 @@ public class ModelCheckingDelegate {
 		return outputFile;
 	}
 	
+	/**
+	 * Verifies the specs in the appendix in the interactive model checker session of the model, 
+	 * so that the model is not parsed and encoded again for every query; the other lines of the appendix (constraints) are part of the model of the session
+	 * 
+	 * @param prefMetaData 
+	 * @param appendix List of constraints and specifications to be appended to the model before verification
+	 * @return Verification result
+	 * @throws IOException If the session cannot be started or has terminated
+	 */
+	private static VerificationResult verifyInSession(PreferenceMetaData prefMetaData, List<String> appendix) throws IOException {
+		List<String> constraints = new ArrayList<String>();
+		List<String> specs = new ArrayList<String>();
+		for (String a : appendix) {
+			if(a.trim().startsWith("SPEC") || a.trim().startsWith("LTLSPEC")) {
+				specs.add(a);
+			} else {
+				constraints.add(a);
+			}
+		}
+		//A session is used by one verification at a time; reasoners on the same model take turns
+		synchronized (ModelCheckerSessionManager.getLock(prefMetaData)) {
+			ModelCheckerSession session = ModelCheckerSessionManager.getSession(prefMetaData, constraints);
+			return session.verify(specs);
+		}
+	}
+	
+	/**
+	 * Returns the variable ordering file generated for the model (see VariableOrdering), if variable ordering is supported
+	 * @param prefMetaData
+	 * @return Name of the variable ordering file; null if the default ordering of the model checker is used
+	 */
+	private static String getOrderFile(PreferenceMetaData prefMetaData) {
+		if(!VariableOrdering.isVariableOrderingSupported()) {
+			return null;
+		}
+		try {
+			return VariableOrdering.getOrderFile(prefMetaData.getSmvFile());
+		} catch (IOException e) {
+			//Fall back to the default ordering of the model checker
+			System.out.println(e.getMessage());
+			return null;
+		}
+	}
+	
 	/**
 	 * Returns verification result (true/false) by parsing the model checker's trace  
 	 * 
@@ -96,6 +168,14 @@ public class ModelCheckingDelegate {
 	 * @throws IOException
 	 */
 	public static boolean findVerificationResult(PreferenceMetaData prefMetaData) throws IOException {
+		if(prefMetaData.getVerificationResult() != null) {
+			//The output was parsed in memory when it was read from the model checker
+			Boolean verified = prefMetaData.getVerificationResult().isVerified();
+			if(verified == null) {
+				throw new RuntimeException("Error in parsing output! " + prefMetaData.getVerificationResult().getTrace());
+			}
+			return verified;
+		}
 		String outputFile = prefMetaData.getOutputFile();
 		BufferedReader r = FileUtil.openFileForRead(outputFile);
 		try{
@@ -118,4 +198,27 @@ public class ModelCheckingDelegate {
 		throw new RuntimeException("Error in parsing output! " + outputFile);
 	}
 	
+	
+	/**
+	 * Returns true if the model and appendix can be streamed to the model checker (NuSMV only) and streaming is enabled
+	 * @return true if the output of the model checker is to be kept in memory
+	 */
+	public static boolean isStreamingSupported() {
+		return Constants.USE_STREAMING_VERIFICATION && Constants.CURRENT_MODEL_CHECKER == Constants.MODEL_CHECKER.NuSMV;
+	}
+	
+	/**
+	 * Opens the trace (counter example) generated by the latest verification run: 
+	 * from memory if the output of the model checker was kept in memory, or else from the counter example file
+	 * 
+	 * @param prefMetaData
+	 * @return Reader for the trace
+	 * @throws IOException
+	 */
+	public static BufferedReader openTrace(PreferenceMetaData prefMetaData) throws IOException {
+		if(prefMetaData.getVerificationResult() != null) {
+			return prefMetaData.getVerificationResult().getTraceReader();
+		}
+		return new BufferedReader(new FileReader(prefMetaData.getCounterExampleFile()));
+	}
 }
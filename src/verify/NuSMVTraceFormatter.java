@@ -2,15 +2,12 @@ package verify;
 
 import java.io.BufferedReader;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.HashSet;
-import java.util.Set;
 
+import model.Outcome;
 import model.OutcomeSequence;
 import model.PerformanceRecord;
 import model.PreferenceMetaData;
-import model.WorkingPreferenceModel;
 
 import util.Constants;
 
@@ -26,37 +23,7 @@ public class NuSMVTraceFormatter implements TraceFormatter {
 	 * @see verify.TraceFormatter#parseCycleFromTrace(model.PreferenceMetaData)
 	 */
 	public OutcomeSequence parseCycleFromTrace(PreferenceMetaData pmd) throws FileNotFoundException, IOException {
-		BufferedReader reader = new BufferedReader(new FileReader(pmd.getCounterExampleFile()));
-		OutcomeSequence c = new OutcomeSequence();
-		String nextLine = reader.readLine();
-		Set<String> outcome = new HashSet<String>();
-		Set<String> previousOutcome = null;
-		try{
-			boolean loopStarted = false;
-			do {
-				if(nextLine.indexOf("Loop starts here") != -1) {
-					loopStarted = true;
-				}
-				if (nextLine.indexOf("State: ") != -1) {
-					outcome = parseOutcome(previousOutcome, nextLine, reader);
-					if(nextLine != null && nextLine.indexOf("Loop starts here") != -1) {
-						loopStarted = true;
-					}
-					if(loopStarted && previousOutcome == null) {
-						Set<String> tempOutcome = new HashSet<String>(outcome);
-						c.addOutcome(tempOutcome);
-					} else if(loopStarted && !(previousOutcome.containsAll(outcome) && outcome.containsAll(previousOutcome))) {
-						Set<String> tempOutcome = new HashSet<String>(outcome);
-						c.addOutcome(tempOutcome);
-					}
-					previousOutcome = new HashSet<String>(outcome);
-				}
-				
-				nextLine = reader.readLine();
-				
-			} while (nextLine != null);
-		}finally{reader.close();}
-		return c;
+		return parseOutcomes(pmd, true);
 	}
 	
 	/*
@@ -64,61 +31,66 @@ public class NuSMVTraceFormatter implements TraceFormatter {
 	 * @see verify.TraceFormatter#parsePathFromTrace(model.PreferenceMetaData)
 	 */
 	public OutcomeSequence parsePathFromTrace(PreferenceMetaData pmd) throws FileNotFoundException, IOException {
-		BufferedReader reader = new BufferedReader(new FileReader(pmd.getCounterExampleFile()));
-		OutcomeSequence c = new OutcomeSequence();
-		String nextLine = reader.readLine();
-		Set<String> outcome = new HashSet<String>();
-		Set<String> previousOutcome = null;
+		return parseOutcomes(pmd, false);
+	}
+	
+	/**
+	 * Parses the sequence of outcomes in the states of the trace in a single pass. 
+	 * NuSMV lists only the variables that change in each state after the first, so each outcome is parsed by making delta changes to the previous one. 
+	 * A state ends at the next line starting (after indentation, as printed by recent versions of NuSMV) with "->" (next state or input) 
+	 * or "--" (e.g., the start of the loop of a cycle).
+	 * @param pmd
+	 * @param loopOnly true if only the outcomes in the loop (after "Loop starts here") are to be returned
+	 * @return OutcomeSequence of the distinct consecutive outcomes in the trace
+	 * @throws IOException
+	 */
+	private OutcomeSequence parseOutcomes(PreferenceMetaData pmd, boolean loopOnly) throws IOException {
+		String[] variables = pmd.getVariables();
+		TraceStateParser parser = new TraceStateParser(variables, false);
+		OutcomeSequence c = new OutcomeSequence(variables);
+		BufferedReader reader = ModelCheckingDelegate.openTrace(pmd);
+		Outcome previousOutcome = null;
+		boolean loopStarted = !loopOnly;
+		boolean inState = false;
 		try{
-			do {
-				if (nextLine.indexOf("State: ") != -1) {
-					outcome = parseOutcome(previousOutcome, nextLine, reader);
-					if(previousOutcome == null) {
-						Set<String> tempOutcome = new HashSet<String>(outcome);
-						c.addOutcome(tempOutcome);
-					} else if(!(previousOutcome.containsAll(outcome) && outcome.containsAll(previousOutcome))) {
-						Set<String> tempOutcome = new HashSet<String>(outcome);
-						c.addOutcome(tempOutcome);
+			String nextLine;
+			while((nextLine = reader.readLine()) != null) {
+				if(inState && isDelimiter(nextLine)) {
+					inState = false;
+					Outcome outcome = parser.getOutcome();
+					if(loopStarted && !outcome.equals(previousOutcome)) {
+						c.addOutcome(variables, outcome);
 					}
-					previousOutcome = new HashSet<String>(outcome);
+					previousOutcome = outcome;
+				}
+				if(nextLine.indexOf("Loop starts here") != -1) {
+					loopStarted = true;
+				} else if(nextLine.indexOf("State: ") != -1) {
+					inState = true;
+				} else if(inState) {
+					parser.parse(nextLine);
 				}
-				nextLine = reader.readLine();
-			} while (nextLine != null);
+			}
+			if(inState) {
+				Outcome outcome = parser.getOutcome();
+				if(loopStarted && !outcome.equals(previousOutcome)) {
+					c.addOutcome(variables, outcome);
+				}
+			}
 		}finally{reader.close();}
 		return c;
 	}
 	
 	/**
-	 * Parses and returns an outcome by making delta changes to the previously parsed outcome from the current position of the BufferedReader
-	 * @param previousOutcome
-	 * @param nextLine
-	 * @param reader
-	 * @return
-	 * @throws IOException
+	 * Returns true if the line, ignoring indentation, starts with "->" or "--"
+	 * @param line
 	 */
-	private Set<String> parseOutcome(Set<String> previousOutcome, String nextLine, BufferedReader reader) throws IOException {
-		Set<String> outcome = new HashSet<String>();// First state/outcome in the trace
-		if(previousOutcome != null) {
-			outcome = new HashSet<String>(previousOutcome); // Some intermediate state/outcome in the trace
+	private static boolean isDelimiter(String line) {
+		int position = 0;
+		while(position < line.length() && Character.isWhitespace(line.charAt(position))) {
+			position++;
 		}
-		
-		do {
-			for (String var : WorkingPreferenceModel.getPrefMetaData().getVariables()) {
-				if (nextLine.indexOf(" " + var + " = ") != -1) {
-					nextLine = nextLine.trim();
-					String varValuation = nextLine.substring(nextLine.indexOf("=") + 2);
-					if (varValuation.equalsIgnoreCase("1") || varValuation.equalsIgnoreCase("TRUE")) {
-						outcome.add(var);
-						// variableAssigned = true;//This means there is a new outcome to be added
-					} else if (varValuation.equalsIgnoreCase("0") || varValuation.equalsIgnoreCase("FALSE")) {
-						outcome.remove(var);
-						// variableAssigned = true;//This means there is a new outcome to be added
-					}
-				}
-			}
-			nextLine = reader.readLine();
-		} while (nextLine != null && !nextLine.startsWith("->") && !nextLine.startsWith("--"));
-		return outcome;
+		return line.startsWith("->", position) || line.startsWith("--", position);
 	}
 	
 	/*
@@ -127,34 +99,22 @@ public class NuSMVTraceFormatter implements TraceFormatter {
 	 */
 	public String[] parseCounterExampleFromTrace(PreferenceMetaData pmd, boolean firstStateOnly) throws FileNotFoundException, IOException {
 		
-		Set<String> variablesTrueInOutcome = new HashSet<String>();
+		TraceStateParser parser = new TraceStateParser(pmd.getVariables(), false);
 		
-		BufferedReader reader = new BufferedReader (new FileReader(pmd.getCounterExampleFile()));
+		BufferedReader reader = ModelCheckingDelegate.openTrace(pmd);
 		try{
 		String nextLine;
-		int counter=0;
 		while((nextLine = reader.readLine()) != null) {
 			if (!nextLine.startsWith("--")) {
-				for (String var : pmd.getVariables()) {
-					if(nextLine.indexOf(" " + var + " = ") != -1) {
-						counter++;
-						nextLine = nextLine.trim();
-						String varValuation = nextLine.substring(nextLine.length()-1);
-						if(varValuation.equalsIgnoreCase("1")) {
-							variablesTrueInOutcome.add(var);
-						} else if(varValuation.equalsIgnoreCase("0")){
-							variablesTrueInOutcome.remove(var);
-						}
-					}					
-				}
-				if(firstStateOnly && (counter >= pmd.getVariables().length)) {
+				parser.parse(nextLine);
+				if(firstStateOnly && (parser.getAssignmentCount() >= pmd.getVariables().length)) {
 					break;
 				}
 			}
 		}
 		}finally{reader.close();}
 		
-		return variablesTrueInOutcome.toArray(new String[]{});
+		return parser.getTrueVariables();
 	}
 
 	/*
@@ -163,35 +123,15 @@ public class NuSMVTraceFormatter implements TraceFormatter {
 	 */
 	public String[] parseCounterExampleWithChangeVariablesFromTrace(PreferenceMetaData pmd) throws FileNotFoundException, IOException {
 		
-		Set<String> variablesTrueInOutcome = new HashSet<String>();
-			BufferedReader reader = new BufferedReader (new FileReader(pmd.getCounterExampleFile()));
+		TraceStateParser parser = new TraceStateParser(pmd.getVariables(), true);
+			BufferedReader reader = ModelCheckingDelegate.openTrace(pmd);
 			String nextLine;
 			try{
 			while((nextLine = reader.readLine()) != null) {
-				for (String var : pmd.getVariables()) {
-					if(nextLine.indexOf(" " + var + " = ") != -1) {
-						nextLine = nextLine.trim();
-						String varValuation = nextLine.substring(nextLine.length()-1);
-						if(varValuation.equalsIgnoreCase("1")) {
-							variablesTrueInOutcome.add(var);
-						} else if(varValuation.equalsIgnoreCase("0")){
-							variablesTrueInOutcome.remove(var);
-						}
-					}
-					
-					if(nextLine.indexOf(" ch" + var + " = ") != -1) {
-						nextLine = nextLine.trim();
-						String varValuation = nextLine.substring(nextLine.length()-1);
-						if(varValuation.equalsIgnoreCase("1")) {
-							variablesTrueInOutcome.add("ch"+var);
-						} else if(varValuation.equalsIgnoreCase("0")){
-							variablesTrueInOutcome.remove("ch"+var);
-						}
-					}			
-				}
+				parser.parse(nextLine);
 			}
 			}finally{reader.close();}
-		return variablesTrueInOutcome.toArray(new String[]{});
+		return parser.getTrueVariables();
 	}
 
 	/*
@@ -0,0 +1,51 @@
+package verify;
+
+import java.util.Set;
+
+import model.OutcomeSequence;
+
+/**
+ * Interface for the in-JVM reasoning engines that answer preference reasoning queries directly on the (parsed) SMV model,
+ * as an alternative to invoking the external model checker for every query.
+ * An engine is created once per model and reused for all the queries on that model.
+ * @author gsanthan
+ *
+ */
+public interface ReasoningEngine {
+
+	/**
+	 * Searches for a flipping sequence (directed path of one or more flips in the induced preference graph) from one outcome to the other.
+	 * When the model is the forward (improving flip) model, a sequence from the less preferred to the more preferred outcome is a proof of dominance.
+	 *
+	 * @param from Outcome at which the flipping sequence starts
+	 * @param to Outcome at which the flipping sequence ends
+	 * @return OutcomeSequence from 'from' to 'to' (both inclusive); null if there is no such flipping sequence
+	 */
+	public OutcomeSequence findFlippingSequence(Set<String> from, Set<String> to);
+
+	/**
+	 * Searches for a cycle in the induced preference graph
+	 * @return Outcomes on a cycle, in the order of the flips; null if the induced preference graph is cycle-free (the preference specification is consistent)
+	 */
+	public OutcomeSequence findCycle();
+
+	/**
+	 * Searches for a non-dominated outcome in the induced preference graph from which the removed outcomes have been deleted,
+	 * i.e., an outcome that is not removed and has no flip to an outcome that is not removed.
+	 *
+	 * @param removedOutcomes Outcomes deleted from the induced preference graph
+	 * @param foundOutcomes Outcomes that must not be returned (e.g., the non-dominated outcomes found so far)
+	 * @return A non-dominated outcome; null if there is no non-dominated outcome other than foundOutcomes
+	 */
+	public Set<String> findNonDominatedOutcome(OutcomeSequence removedOutcomes, OutcomeSequence foundOutcomes);
+
+	/**
+	 * Computes the entire set of non-dominated outcomes in the induced preference graph from which the removed outcomes have been deleted, in one pass,
+	 * and enumerates its members (as opposed to finding the non-dominated outcomes one at a time with findNonDominatedOutcome).
+	 *
+	 * @param removedOutcomes Outcomes deleted from the induced preference graph
+	 * @param limit Maximum number of outcomes to be enumerated
+	 * @return Non-dominated outcomes (at most limit); empty if there is none
+	 */
+	public OutcomeSequence findNonDominatedOutcomes(OutcomeSequence removedOutcomes, int limit);
+}
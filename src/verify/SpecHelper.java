@@ -2,8 +2,6 @@ package verify;
 
 import java.util.Set;
 
-import model.WorkingPreferenceModel;
-
 import util.Constants;
 
 /**
@@ -16,12 +14,12 @@ public class SpecHelper {
 	
 	/**
 	 * Generates SMV model code in assignment style for initializing a model to the set of states corresponding to an outcome. 
+	 * @param variables Names of the preference variables
 	 * @param outcome
 	 * @return Code to initialize model to outcome using SMV syntax 
 	 */
-	public static String getInitOutcomeSpec(Set<String> outcome) {
+	public static String getInitOutcomeSpec(String[] variables, Set<String> outcome) {
 		String spec = new String();
-		String[] variables = WorkingPreferenceModel.getPrefMetaData().getVariables();
 		for (int j = 0; j < variables.length; j++) {
 			String variable = variables[j];
 			if(outcome.contains(variable)) {
@@ -40,9 +38,8 @@ public class SpecHelper {
 		return spec;
 	}
 	
-	public static String getInitChangeVariablesCondition() {
+	public static String getInitChangeVariablesCondition(String[] variables) {
 		String spec = new String("(");
-		String[] variables = WorkingPreferenceModel.getPrefMetaData().getVariables();
 		for (String variable : variables) {
 			if(spec.trim().length()>1) {
 				spec = spec + " & ";
@@ -55,12 +52,12 @@ public class SpecHelper {
 	
 	/**
 	 * Generates SMV model code in constraint style for initializing a model to the set of states corresponding to an outcome.  
+	 * @param variables Names of the preference variables
 	 * @param outcome
 	 * @return Constraint on the SMV model
 	 */
-	public static String getInitOutcomeSpecConstraintStyle(Set<String> outcome) {
+	public static String getInitOutcomeSpecConstraintStyle(String[] variables, Set<String> outcome) {
 		String spec = new String();
-		String[] variables = WorkingPreferenceModel.getPrefMetaData().getVariables();
 		for (int j = 0; j < variables.length; j++) {
 			String variable = variables[j];
 			if(spec.trim().length()>0) {
@@ -0,0 +1,403 @@
+package verify;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import bdd.BDDManager;
+
+import model.GuardExpression;
+import model.OutcomeSequence;
+import model.SMVModel;
+import translate.SMVModelParser;
+
+/**
+ * An in-JVM symbolic (BDD based) alternative to the external model checker for preference reasoning tasks.
+ * Parses the SMV model once, builds the transition relation of the induced preference graph as a BDD over the current and next state
+ * preference variables (the change variables are existentially quantified), and answers queries by symbolic reachability:
+ * image/preimage computation by relational product and the EX/EF/EG fixpoints.
+ * The BDD manager stays resident, so that the model is encoded only once and then reused for all queries;
+ * the intermediate BDDs of earlier queries are garbage collected at the start of a query when the node table has grown large.
+ * Note: This implementation assumes that the preference variables are binary; it is not thread-safe.
+ * @author gsanthan
+ *
+ */
+public class SymbolicModelChecker implements ReasoningEngine {
+
+	/**
+	 * Preference variables (sorted, as in PreferenceMetaData)
+	 */
+	String[] variables;
+	/**
+	 * BDD variables of the current state, next state and change variable corresponding to each preference variable
+	 * (interleaved, so that each variable is placed next to its primed copy)
+	 */
+	int[] current;
+	int[] next;
+	int[] change;
+
+	BDDManager bdd;
+	/**
+	 * Transition relation over current and next state variables: one or more preference variables are flipped
+	 */
+	int transitions;
+	int currentCube;
+	int nextCube;
+	/**
+	 * Renaming that swaps each current state variable with its next state variable
+	 */
+	int swap;
+
+	/**
+	 * Number of BDD nodes in use below which no garbage collection takes place between queries
+	 */
+	public static final int GARBAGE_COLLECTION_THRESHOLD = 1 << 20;
+
+	/**
+	 * Encoded removed outcomes, and the sequence of removed outcomes (and its size) from which they were encoded
+	 */
+	int removed = BDDManager.FALSE;
+	OutcomeSequence removedOutcomes;
+	int removedCount;
+
+	/**
+	 * Parses the SMV model in smvFile and encodes its transition relation
+	 * @param smvFile
+	 * @throws IOException
+	 */
+	public SymbolicModelChecker(String smvFile) throws IOException {
+		this(SMVModelParser.parse(smvFile));
+	}
+
+	/**
+	 * Encodes the transition relation of the SMV model
+	 * @param model
+	 */
+	public SymbolicModelChecker(SMVModel model) {
+		variables = model.getVariables();
+		int n = variables.length;
+		bdd = new BDDManager(3 * n);
+		current = new int[n];
+		next = new int[n];
+		change = new int[n];
+		int[] swapPermutation = new int[3 * n];
+		for (int i = 0; i < n; i++) {
+			current[i] = 3 * i;
+			next[i] = 3 * i + 1;
+			change[i] = 3 * i + 2;
+			swapPermutation[current[i]] = next[i];
+			swapPermutation[next[i]] = current[i];
+			swapPermutation[change[i]] = change[i];
+		}
+		swap = bdd.addPermutation(swapPermutation);
+		currentCube = bdd.ref(bdd.cube(current));
+		nextCube = bdd.ref(bdd.cube(next));
+
+		//next(var) := case g1 : v1; g2 : v2; ... esac; is encoded as var' <-> ite(g1, v1, ite(g2, v2, ... var))
+		int relation = BDDManager.TRUE;
+		int stutter = BDDManager.TRUE;
+		for (int i = n - 1; i >= 0; i--) {
+			List<GuardExpression> guards = model.getGuards(variables[i]);
+			List<GuardExpression> values = model.getValues(variables[i]);
+			int nextValue = bdd.ithVar(current[i]);
+			for (int j = guards.size() - 1; j >= 0; j--) {
+				int guard = encode(guards.get(j), model.getDefinitions());
+				int value = encode(values.get(j), model.getDefinitions());
+				nextValue = bdd.ite(guard, value, nextValue);
+			}
+			relation = bdd.and(relation, bdd.biimp(bdd.ithVar(next[i]), nextValue));
+			stutter = bdd.and(stutter, bdd.biimp(bdd.ithVar(next[i]), bdd.ithVar(current[i])));
+		}
+		relation = bdd.exists(relation, bdd.cube(change));
+		transitions = bdd.ref(bdd.diff(relation, stutter));
+	}
+
+	/**
+	 * Encodes an expression over preference and change variables as a BDD over current state and change variables
+	 * @param e
+	 * @param definitions Definitions from the DEFINE section of the model
+	 * @return BDD
+	 */
+	private int encode(GuardExpression e, Map<String, GuardExpression> definitions) {
+		switch (e.getType()) {
+		case CONSTANT:
+			return e.getValue() == GuardExpression.TRUE ? BDDManager.TRUE : BDDManager.FALSE;
+		case LITERAL:
+			if(definitions.containsKey(e.getVariable())) {
+				int definition = encode(definitions.get(e.getVariable()), definitions);
+				return e.getValue() == 1 ? definition : bdd.not(definition);
+			}
+			int index = indexOf(e.getVariable());
+			int v;
+			if(index != -1) {
+				v = current[index];
+			} else if(e.getVariable().startsWith("ch") && indexOf(e.getVariable().substring(2)) != -1) {
+				v = change[indexOf(e.getVariable().substring(2))];
+			} else {
+				throw new RuntimeException("Unknown variable "+e.getVariable()+" in transition guard: "+e);
+			}
+			return e.getValue() == 1 ? bdd.ithVar(v) : bdd.nithVar(v);
+		case NOT:
+			return bdd.not(encode(e.getOperands().get(0), definitions));
+		case AND:
+			int result = BDDManager.TRUE;
+			for (GuardExpression operand : e.getOperands()) {
+				result = bdd.and(result, encode(operand, definitions));
+			}
+			return result;
+		default:
+			result = BDDManager.FALSE;
+			for (GuardExpression operand : e.getOperands()) {
+				result = bdd.or(result, encode(operand, definitions));
+			}
+			return result;
+		}
+	}
+
+	private int indexOf(String variable) {
+		for (int i = 0; i < variables.length; i++) {
+			if(variables[i].equals(variable)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	public BDDManager getBDDManager() {
+		return bdd;
+	}
+
+	public String[] getVariables() {
+		return variables;
+	}
+
+	/**
+	 * Encodes an outcome (names of variables with valuation 1) as a BDD over the current state variables
+	 * @param outcome
+	 * @return BDD
+	 */
+	public int encode(Set<String> outcome) {
+		int result = BDDManager.TRUE;
+		for (int i = variables.length - 1; i >= 0; i--) {
+			result = bdd.and(result, outcome.contains(variables[i]) ? bdd.ithVar(current[i]) : bdd.nithVar(current[i]));
+		}
+		return result;
+	}
+
+	/**
+	 * Encodes an outcome over at most 64 variables, packed into bits (see model.Outcome), as a BDD over the current state variables
+	 * @param outcome
+	 * @return BDD
+	 */
+	public int encode(long outcome) {
+		int result = BDDManager.TRUE;
+		for (int i = variables.length - 1; i >= 0; i--) {
+			result = bdd.and(result, ((outcome >>> i) & 1L) == 1L ? bdd.ithVar(current[i]) : bdd.nithVar(current[i]));
+		}
+		return result;
+	}
+
+	/**
+	 * Picks an outcome from a non-empty set of outcomes
+	 * @param states BDD over the current state variables
+	 * @return An outcome in states; null if states is empty
+	 */
+	public Set<String> pickOutcome(int states) {
+		boolean[] valuation = bdd.satOne(states, current);
+		if(valuation == null) {
+			return null;
+		}
+		Set<String> outcome = new HashSet<String>();
+		for (int i = 0; i < variables.length; i++) {
+			if(valuation[i]) {
+				outcome.add(variables[i]);
+			}
+		}
+		return outcome;
+	}
+
+	/**
+	 * Returns the outcomes reachable by a single flip from some outcome in states
+	 * @param states
+	 * @return Image of states
+	 */
+	public int image(int states) {
+		return bdd.replace(bdd.relProd(states, transitions, currentCube), swap);
+	}
+
+	/**
+	 * Returns the outcomes from which some outcome in states is reachable by a single flip (CTL: EX states)
+	 * @param states
+	 * @return Preimage of states
+	 */
+	public int EX(int states) {
+		return bdd.relProd(transitions, bdd.replace(states, swap), nextCube);
+	}
+
+	/**
+	 * Returns the outcomes from which some outcome in states is reachable by zero or more flips (CTL: EF states),
+	 * as the least fixpoint Z = states | EX Z
+	 * @param states
+	 * @return EF states
+	 */
+	public int EF(int states) {
+		int z = states;
+		int previous;
+		do {
+			previous = z;
+			z = bdd.or(states, EX(z));
+		} while(z != previous);
+		return z;
+	}
+
+	/**
+	 * Returns the outcomes from which there is an infinite sequence of flips within states (CTL: EG states),
+	 * as the greatest fixpoint Z = states & EX Z
+	 * @param states
+	 * @return EG states
+	 */
+	public int EG(int states) {
+		int z = states;
+		int previous;
+		do {
+			previous = z;
+			z = bdd.and(states, EX(z));
+		} while(z != previous);
+		return z;
+	}
+
+	/* (non-Javadoc)
+	 * Computes the outcomes reachable from 'from' breadth first; the sequence found is one with the least number of flips.
+	 * @see verify.ReasoningEngine#findFlippingSequence(java.util.Set, java.util.Set)
+	 */
+	public OutcomeSequence findFlippingSequence(Set<String> from, Set<String> to) {
+		bdd.collectGarbageIfNeeded(GARBAGE_COLLECTION_THRESHOLD);
+		int source = encode(from);
+		int target = encode(to);
+		//Frontiers of the breadth first search: outcomes first reached after 0, 1, 2, ... flips
+		List<Integer> frontiers = new ArrayList<Integer>();
+		int reached = source;
+		int frontier = source;
+		frontiers.add(frontier);
+		boolean found = false;
+		while(frontier != BDDManager.FALSE) {
+			int successors = image(frontier);
+			if(bdd.and(successors, target) != BDDManager.FALSE) {
+				found = true;
+				break;
+			}
+			frontier = bdd.diff(successors, reached);
+			reached = bdd.or(reached, frontier);
+			frontiers.add(frontier);
+		}
+		if(!found) {
+			return null;
+		}
+
+		//Walk back from the target through the frontiers to obtain the flipping sequence
+		List<Set<String>> path = new ArrayList<Set<String>>();
+		path.add(to);
+		int outcome = target;
+		for (int i = frontiers.size() - 1; i >= 0; i--) {
+			outcome = encode(pickOutcome(bdd.and(frontiers.get(i), EX(outcome))));
+			path.add(0, pickOutcome(outcome));
+		}
+		OutcomeSequence sequence = new OutcomeSequence(variables);
+		for (Set<String> o : path) {
+			sequence.addOutcome(o);
+		}
+		return sequence;
+	}
+
+	/* (non-Javadoc)
+	 * The outcomes from which there is an infinite sequence of flips are EG true; the preference specification is consistent iff there is none.
+	 * A cycle is obtained by following flips within EG true until an outcome repeats.
+	 * @see verify.ReasoningEngine#findCycle()
+	 */
+	public OutcomeSequence findCycle() {
+		bdd.collectGarbageIfNeeded(GARBAGE_COLLECTION_THRESHOLD);
+		int infinite = EG(BDDManager.TRUE);
+		if(infinite == BDDManager.FALSE) {
+			return null;
+		}
+		List<Integer> path = new ArrayList<Integer>();
+		int outcome = encode(pickOutcome(infinite));
+		while(!path.contains(outcome)) {
+			path.add(outcome);
+			outcome = encode(pickOutcome(bdd.and(image(outcome), infinite)));
+		}
+		OutcomeSequence cycle = new OutcomeSequence(variables);
+		for (int i = path.indexOf(outcome); i < path.size(); i++) {
+			cycle.addOutcome(pickOutcome(path.get(i)));
+		}
+		return cycle;
+	}
+
+	/* (non-Javadoc)
+	 * The non-dominated outcomes are !removed & !EX !removed (with respect to the flips between outcomes that are not removed).
+	 * @see verify.ReasoningEngine#findNonDominatedOutcome(model.OutcomeSequence, model.OutcomeSequence)
+	 */
+	public Set<String> findNonDominatedOutcome(OutcomeSequence removedOutcomes, OutcomeSequence foundOutcomes) {
+		bdd.collectGarbageIfNeeded(GARBAGE_COLLECTION_THRESHOLD);
+		updateRemovedOutcomes(removedOutcomes);
+		int remaining = bdd.not(removed);
+		int nonDominated = bdd.diff(remaining, EX(remaining));
+		for (Set<String> outcome : foundOutcomes.getOutcomeSequence()) {
+			nonDominated = bdd.diff(nonDominated, encode(outcome));
+		}
+		return pickOutcome(nonDominated);
+	}
+
+	/* (non-Javadoc)
+	 * The set of non-dominated outcomes is computed once as a BDD, and its members are then picked one after the other.
+	 * @see verify.ReasoningEngine#findNonDominatedOutcomes(model.OutcomeSequence, int)
+	 */
+	public OutcomeSequence findNonDominatedOutcomes(OutcomeSequence removedOutcomes, int limit) {
+		bdd.collectGarbageIfNeeded(GARBAGE_COLLECTION_THRESHOLD);
+		updateRemovedOutcomes(removedOutcomes);
+		int remaining = bdd.not(removed);
+		int nonDominated = bdd.diff(remaining, EX(remaining));
+		OutcomeSequence outcomes = new OutcomeSequence(variables);
+		Set<String> outcome;
+		while(outcomes.getOutcomeSequence().size() < limit && (outcome = pickOutcome(nonDominated)) != null) {
+			outcomes.addOutcome(outcome);
+			nonDominated = bdd.diff(nonDominated, encode(outcome));
+		}
+		return outcomes;
+	}
+
+	/**
+	 * Encodes the removed outcomes; only the outcomes added since the last call are encoded, if the same sequence is passed again
+	 * @param removedOutcomes
+	 */
+	private void updateRemovedOutcomes(OutcomeSequence removedOutcomes) {
+		if(removedOutcomes != this.removedOutcomes || removedOutcomes.getOutcomeSequence().size() < removedCount) {
+			this.removedOutcomes = removedOutcomes;
+			removedCount = 0;
+			bdd.deref(removed);
+			removed = BDDManager.FALSE;
+		}
+		int previous = removed;
+		if(removedOutcomes.isPackedOver(variables)) {
+			long[] packed = removedOutcomes.getPackedOutcomes();
+			for (int i = removedCount; i < packed.length; i++) {
+				removed = bdd.or(removed, encode(packed[i]));
+			}
+		} else {
+			Iterator<Set<String>> iterator = removedOutcomes.getOutcomeSequence().iterator();
+			for (int i = 0; iterator.hasNext(); i++) {
+				Set<String> outcome = iterator.next();
+				if(i >= removedCount) {
+					removed = bdd.or(removed, encode(outcome));
+				}
+			}
+		}
+		bdd.ref(removed);
+		bdd.deref(previous);
+		removedCount = removedOutcomes.getOutcomeSequence().size();
+	}
+}
@@ -0,0 +1,156 @@
+package verify;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import model.Outcome;
+
+/**
+ * A tokenizer for the assignments (lines such as "    a = 1" in NuSMV traces and "\a  = 1" in Cadence SMV traces) in the states of a trace
+ * generated by the model checker. Each line is read once: the name of the assigned variable is looked up in a hash index of the preference variables
+ * (and, optionally, the change variables "ch" + variable), and the valuation is written to the bit of the variable in the current state,
+ * which is read as an Outcome (or the names of the variables with valuation 1) without building a Set of variable names per state.
+ * <p>
+ * The bit of the i-th preference variable (in the order of PreferenceMetaData.variables) is i, as in Outcome; the bit of its change variable is
+ * variables.length + i.
+ * @author gsanthan
+ *
+ */
+public class TraceStateParser {
+
+	String[] variables;
+	/**
+	 * Bit of each preference variable (and change variable, if parsed) by name
+	 */
+	Map<String, Integer> index;
+	/**
+	 * Valuations of the variables in the current state (bit i in words[i/64])
+	 */
+	long[] words;
+	/**
+	 * Number of assignments to preference variables parsed since the state was cleared
+	 */
+	int assignments;
+
+	/**
+	 * @param variables Names of preference variables, sorted (as in PreferenceMetaData)
+	 * @param withChangeVariables true if the change variables ("ch" + variable) are to be parsed too
+	 */
+	public TraceStateParser(String[] variables, boolean withChangeVariables) {
+		this.variables = variables;
+		int size = withChangeVariables ? 2 * variables.length : variables.length;
+		index = new HashMap<String, Integer>(2 * size);
+		for (int i = 0; i < variables.length; i++) {
+			index.put(variables[i], i);
+			if(withChangeVariables) {
+				index.put("ch" + variables[i], variables.length + i);
+			}
+		}
+		words = new long[(size + 63) / 64];
+	}
+
+	/**
+	 * Sets all variables in the current state to 0 (for traces that list all variables in each state, as Cadence SMV does)
+	 */
+	public void clear() {
+		Arrays.fill(words, 0L);
+		assignments = 0;
+	}
+
+	/**
+	 * Parses a line of the trace; if it assigns 1 (TRUE) or 0 (FALSE) to a variable in the index, updates the valuation of the variable in the current state.
+	 * Other lines are ignored.
+	 * @param line
+	 * @return true if the line assigns a variable in the index
+	 */
+	public boolean parse(String line) {
+		int length = line.length();
+		int position = 0;
+		while(position < length && Character.isWhitespace(line.charAt(position))) {
+			position++;
+		}
+		if(position < length && line.charAt(position) == '\\') {
+			position++;
+		}
+		int start = position;
+		while(position < length && line.charAt(position) != '=' && !Character.isWhitespace(line.charAt(position))) {
+			position++;
+		}
+		int end = position;
+		while(position < length && Character.isWhitespace(line.charAt(position))) {
+			position++;
+		}
+		if(end == start || position == length || line.charAt(position) != '=') {
+			return false;
+		}
+		position++;
+		while(position < length && Character.isWhitespace(line.charAt(position))) {
+			position++;
+		}
+		boolean value;
+		if(line.startsWith("1", position) || line.regionMatches(true, position, "TRUE", 0, 4)) {
+			value = true;
+		} else if(line.startsWith("0", position) || line.regionMatches(true, position, "FALSE", 0, 5)) {
+			value = false;
+		} else {
+			return false;
+		}
+		Integer bit = index.get(line.substring(start, end));
+		if(bit == null) {
+			return false;
+		}
+		if(value) {
+			words[bit >>> 6] |= 1L << bit;
+		} else {
+			words[bit >>> 6] &= ~(1L << bit);
+		}
+		if(bit < variables.length) {
+			assignments++;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of assignments to preference variables parsed since the state was cleared
+	 */
+	public int getAssignmentCount() {
+		return assignments;
+	}
+
+	/**
+	 * Returns the outcome (valuation of the preference variables) in the current state
+	 * @return Outcome
+	 */
+	public Outcome getOutcome() {
+		if(variables.length <= 64) {
+			long bits = words.length == 0 ? 0L : words[0];
+			return Outcome.valueOf(variables.length == 64 ? bits : bits & ((1L << variables.length) - 1));
+		}
+		long[] outcome = Arrays.copyOf(words, (variables.length + 63) / 64);
+		if(variables.length % 64 != 0) {
+			outcome[outcome.length - 1] &= (1L << variables.length) - 1;
+		}
+		return Outcome.valueOf(outcome);
+	}
+
+	/**
+	 * Returns the names of the variables (including the change variables, if parsed) with valuation 1 in the current state
+	 * @return Names of the preference variables with valuation 1 (in the order of variables), followed by the names of the change variables with valuation 1
+	 */
+	public String[] getTrueVariables() {
+		int count = 0;
+		for (long word : words) {
+			count += Long.bitCount(word);
+		}
+		String[] names = new String[count];
+		int i = 0;
+		for (int w = 0; w < words.length; w++) {
+			for (long rest = words[w]; rest != 0; rest &= rest - 1) {
+				int bit = (w << 6) + Long.numberOfTrailingZeros(rest);
+				names[i++] = bit < variables.length ? variables[bit] : "ch" + variables[bit - variables.length];
+			}
+		}
+		return names;
+	}
+}
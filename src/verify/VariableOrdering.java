@@ -0,0 +1,190 @@
+package verify;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import model.GuardExpression;
+import model.SMVModel;
+import translate.SMVModelParser;
+import util.Constants;
+import util.FileUtil;
+
+/**
+ * Generates a static BDD variable ordering for an SMV model (as translated from a preference specification),
+ * which is passed to the model checker as the variable ordering file (the -i option of NuSMV).
+ * <p>
+ * The order is derived from the dependency graph of the preference variables: a variable depends on the preference variables in the guards of its transitions
+ * (for CP-nets its parents; for TCP-nets also the variables more important than it). Starting from the variables no other variable depends on,
+ * the variables are placed depth first in post-order, i.e., each variable right after the variables it depends on,
+ * so that the variables that appear together in the guards of a transition are close together in the order.
+ * Each preference variable is followed by its change variable (which is assigned in the same transitions),
+ * and the remaining variables of the model (e.g., the global change variable) are placed last.
+ * <p>
+ * The ordering file is written once per model (next to the SMV file) and written again only if the model was modified since.
+ * @author gsanthan
+ *
+ */
+public class VariableOrdering {
+
+	/**
+	 * Names of the variable ordering files written (indexed by SMV file name), with the time at which each SMV file was last modified when it was written
+	 */
+	static Map<String, String> orderFiles = new HashMap<String, String>();
+	static Map<String, Long> orderFileTimestamps = new HashMap<String, Long>();
+
+	/**
+	 * Returns true if variable ordering files are generated for the model checker (NuSMV only) and their use is enabled
+	 */
+	public static boolean isVariableOrderingSupported() {
+		return Constants.USE_VARIABLE_ORDERING && Constants.CURRENT_MODEL_CHECKER == Constants.MODEL_CHECKER.NuSMV;
+	}
+
+	/**
+	 * Returns the name of the variable ordering file of the SMV model; the file is written if it does not exist or the model was modified since it was written
+	 * @param smvFile Name of file containing the SMV model
+	 * @return Name of the variable ordering file
+	 * @throws IOException
+	 */
+	public static synchronized String getOrderFile(String smvFile) throws IOException {
+		long lastModified = new File(smvFile).lastModified();
+		String orderFile = orderFiles.get(smvFile);
+		if(orderFile == null || orderFileTimestamps.get(smvFile) != lastModified || !new File(orderFile).exists()) {
+			orderFile = smvFile + "-order.ord";
+			BufferedWriter w = FileUtil.openFile(orderFile);
+			try {
+				for (String variable : computeOrder(smvFile)) {
+					FileUtil.writeLineToFile(w, variable);
+				}
+			} finally {
+				FileUtil.closeFile(w);
+			}
+			orderFiles.put(smvFile, orderFile);
+			orderFileTimestamps.put(smvFile, lastModified);
+		}
+		return orderFile;
+	}
+
+	/**
+	 * Computes the variable ordering of the SMV model (see class comment)
+	 * @param smvFile Name of file containing the SMV model
+	 * @return Names of all variables declared in the model, in order
+	 * @throws IOException
+	 */
+	public static List<String> computeOrder(String smvFile) throws IOException {
+		SMVModel model = SMVModelParser.parse(smvFile);
+		String[] variables = model.getVariables();
+		Map<String, Integer> index = new HashMap<String, Integer>();
+		for (int i = 0; i < variables.length; i++) {
+			index.put(variables[i], i);
+		}
+
+		//Dependencies of each preference variable (in the order in which they first appear in its guards), and the number of variables depending on each
+		List<List<Integer>> dependencies = new ArrayList<List<Integer>>();
+		int[] dependents = new int[variables.length];
+		for (int i = 0; i < variables.length; i++) {
+			Set<String> names = new LinkedHashSet<String>();
+			for (GuardExpression guard : model.getGuards(variables[i])) {
+				guard.inline(model.getDefinitions()).collectVariables(names);
+			}
+			List<Integer> parents = new ArrayList<Integer>();
+			for (String name : names) {
+				Integer parent = index.get(name);
+				if(parent != null && parent != i) {
+					parents.add(parent);
+					dependents[parent]++;
+				}
+			}
+			dependencies.add(parents);
+		}
+
+		//Place the variables depth first from the variables no other variable depends on (then from the variables left, which are on cycles)
+		List<Integer> order = new ArrayList<Integer>();
+		boolean[] placed = new boolean[variables.length];
+		for (int pass = 0; pass < 2; pass++) {
+			for (int i = 0; i < variables.length; i++) {
+				if(!placed[i] && (pass == 1 || dependents[i] == 0)) {
+					placeAfterDependencies(i, dependencies, placed, order);
+				}
+			}
+		}
+
+		//Interleave each preference variable with its change variable, then place the remaining declared variables
+		Set<String> declared = new LinkedHashSet<String>(getDeclaredVariables(smvFile));
+		List<String> result = new ArrayList<String>();
+		for (int i : order) {
+			result.add(variables[i]);
+			declared.remove(variables[i]);
+			if(declared.remove("ch" + variables[i])) {
+				result.add("ch" + variables[i]);
+			}
+		}
+		result.addAll(declared);
+		return result;
+	}
+
+	/**
+	 * Places the variable after the variables it depends on (depth first, iteratively, so that long chains of dependencies do not overflow the stack)
+	 * @param variable Index of the variable
+	 * @param dependencies Indices of the variables each variable depends on
+	 * @param placed Variables placed (or being placed) so far
+	 * @param order Variables in order
+	 */
+	private static void placeAfterDependencies(int variable, List<List<Integer>> dependencies, boolean[] placed, List<Integer> order) {
+		int[] path = new int[placed.length];
+		int[] positions = new int[placed.length];
+		int depth = 0;
+		path[depth++] = variable;
+		placed[variable] = true;
+		while(depth > 0) {
+			int top = depth - 1;
+			List<Integer> parents = dependencies.get(path[top]);
+			if(positions[top] < parents.size()) {
+				int parent = parents.get(positions[top]++);
+				if(!placed[parent]) {
+					placed[parent] = true;
+					path[depth] = parent;
+					positions[depth] = 0;
+					depth++;
+				}
+			} else {
+				order.add(path[top]);
+				depth--;
+			}
+		}
+	}
+
+	/**
+	 * Returns the names of all variables declared in the VAR section of the SMV model, in the order in which they are declared
+	 * @param smvFile Name of file containing the SMV model
+	 * @return Names of the declared variables
+	 * @throws IOException
+	 */
+	private static List<String> getDeclaredVariables(String smvFile) throws IOException {
+		List<String> declared = new ArrayList<String>();
+		BufferedReader r = FileUtil.openFileForRead(smvFile);
+		try{
+			String nextLine = null;
+			boolean inVar = false;
+			while((nextLine = r.readLine()) != null) {
+				nextLine = nextLine.trim();
+				if(Arrays.asList("VAR", "IVAR", "DEFINE", "ASSIGN", "INIT", "TRANS", "INVAR").contains(nextLine)) {
+					inVar = nextLine.equals("VAR");
+				} else if(inVar && nextLine.contains(":") && !nextLine.startsWith("--")) {
+					declared.add(nextLine.substring(0, nextLine.indexOf(":")).trim());
+				}
+			}
+		} finally {
+			r.close();
+		}
+		return declared;
+	}
+}